@@ -3,6 +3,7 @@ package org.simplejavamail.converter;
 import org.simplejavamail.converter.internal.mimemessage.MimeMessageParser;
 import org.simplejavamail.converter.internal.mimemessage.MimeMessageParser.ParsedMimeMessageComponents;
 import org.simplejavamail.converter.internal.mimemessage.MimeMessageProducerHelper;
+import org.simplejavamail.converter.internal.mimemessage.MimeMessageStreamWriter;
 import org.simplejavamail.email.CalendarMethod;
 import org.simplejavamail.email.Email;
 import org.simplejavamail.email.EmailBuilder;
@@ -248,6 +249,23 @@ public final class EmailConverter {
 		return mimeMessageToEML(emailToMimeMessage(checkNonEmptyArgument(email, "email")));
 	}
 
+	/**
+	 * Writes the email in the standard EML format straight to the given stream, without producing a {@link MimeMessage} first. Considerably cheaper
+	 * than {@link #emailToEML(Email)} for large volumes of emails or large attachments, which are streamed rather than held in memory as a whole.
+	 *
+	 * @see MimeMessageStreamWriter
+	 */
+	public static void emailToEML(@Nonnull final Email email, @Nonnull final OutputStream outputStream)
+			throws IOException {
+		try {
+			MimeMessageStreamWriter.writeMimeMessage(checkNonEmptyArgument(email, "email"), createDummySession(),
+					checkNonEmptyArgument(outputStream, "outputStream"), null);
+		} catch (final MessagingException e) {
+			// this should never happen, so we don't acknowledge this exception (and simply bubble up)
+			throw new RuntimeException(e.getMessage(), e);
+		}
+	}
+
 	/**
 	 * @return Result of {@link #outlookMsgToEmail(String)} and {@link #emailToEML(Email)}
 	 */
@@ -0,0 +1,115 @@
+package org.simplejavamail.converter.internal.mimemessage;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Base64 encodes the content of a {@link ByteBuffer}, such as a memory-mapped file (see {@link org.simplejavamail.email.MappedFileDataSource}),
+ * reading it straight from the buffer rather than through an intermediate byte array.
+ * <p>
+ * Produces exactly what javax.mail's base64 encoder stream does ({@link javax.mail.internet.MimeUtility#encode(OutputStream, String)}): lines of
+ * 76 characters, each full line followed by a line break.
+ */
+final class ByteBufferBase64Encoder {
+	
+	private static final byte[] ALPHABET = {
+			'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z',
+			'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z',
+			'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '+', '/'
+	};
+	
+	static final int CHARACTERS_PER_LINE = 76;
+	static final int BYTES_PER_LINE = CHARACTERS_PER_LINE / 4 * 3;
+	static final int ENCODED_LINE_LENGTH = CHARACTERS_PER_LINE + 2;
+	
+	/**
+	 * Number of lines encoded before writing them to the output stream.
+	 */
+	private static final int LINES_PER_CHUNK = 64;
+	
+	private ByteBufferBase64Encoder() {
+	}
+	
+	/**
+	 * Encodes the remaining content of the buffer, leaving it at its limit.
+	 *
+	 * @param breakLastLine Whether a last line shorter than 76 characters is followed by a line break, as javax.mail's encoder stream does when it is
+	 *                      closed, rather than just flushed.
+	 */
+	static void encode(@Nonnull final ByteBuffer content, @Nonnull final OutputStream out, final boolean breakLastLine)
+			throws IOException {
+		final byte[] chunk = new byte[LINES_PER_CHUNK * ENCODED_LINE_LENGTH];
+		final ByteBuffer part = content.duplicate();
+		while (content.hasRemaining()) {
+			part.limit(content.position() + Math.min(content.remaining(), LINES_PER_CHUNK * BYTES_PER_LINE));
+			out.write(chunk, 0, encode(part, chunk, 0, breakLastLine));
+			content.position(part.position());
+		}
+	}
+	
+	/**
+	 * Encodes the remaining content of the buffer into the target array, leaving the buffer at its limit.
+	 *
+	 * @return The offset in the target after the encoded content.
+	 * @see #encode(ByteBuffer, OutputStream, boolean)
+	 */
+	static int encode(@Nonnull final ByteBuffer content, @Nonnull final byte[] target, final int offset, final boolean breakLastLine) {
+		int length = offset;
+		while (content.remaining() >= BYTES_PER_LINE) {
+			length = encodeLine(content, BYTES_PER_LINE, target, length);
+			target[length++] = '\r';
+			target[length++] = '\n';
+		}
+		if (content.hasRemaining()) {
+			final int lineStart = length;
+			length = encodeLine(content, content.remaining(), target, length);
+			// with padding, the last line can still be a full one
+			if (breakLastLine || length - lineStart == CHARACTERS_PER_LINE) {
+				target[length++] = '\r';
+				target[length++] = '\n';
+			}
+		}
+		return length;
+	}
+	
+	/**
+	 * @return The size of the encoded content, for content of the given size.
+	 * @see #encode(ByteBuffer, OutputStream, boolean)
+	 */
+	static long encodedSize(final long size, final boolean breakLastLine) {
+		final long characters = (size + 2) / 3 * 4;
+		final long lineBreaks = characters / CHARACTERS_PER_LINE + (breakLastLine && characters % CHARACTERS_PER_LINE != 0 ? 1 : 0);
+		return characters + 2 * lineBreaks;
+	}
+	
+	/**
+	 * @return The offset in the target after the encoded line.
+	 */
+	private static int encodeLine(@Nonnull final ByteBuffer content, final int bytes, @Nonnull final byte[] target, final int offset) {
+		int position = offset;
+		int remaining = bytes;
+		for (; remaining >= 3; remaining -= 3) {
+			final int bits = (content.get() & 0xFF) << 16 | (content.get() & 0xFF) << 8 | (content.get() & 0xFF);
+			target[position++] = ALPHABET[bits >>> 18 & 0x3F];
+			target[position++] = ALPHABET[bits >>> 12 & 0x3F];
+			target[position++] = ALPHABET[bits >>> 6 & 0x3F];
+			target[position++] = ALPHABET[bits & 0x3F];
+		}
+		if (remaining == 1) {
+			final int bits = (content.get() & 0xFF) << 16;
+			target[position++] = ALPHABET[bits >>> 18 & 0x3F];
+			target[position++] = ALPHABET[bits >>> 12 & 0x3F];
+			target[position++] = '=';
+			target[position++] = '=';
+		} else if (remaining == 2) {
+			final int bits = (content.get() & 0xFF) << 16 | (content.get() & 0xFF) << 8;
+			target[position++] = ALPHABET[bits >>> 18 & 0x3F];
+			target[position++] = ALPHABET[bits >>> 12 & 0x3F];
+			target[position++] = ALPHABET[bits >>> 6 & 0x3F];
+			target[position++] = '=';
+		}
+		return position;
+	}
+}
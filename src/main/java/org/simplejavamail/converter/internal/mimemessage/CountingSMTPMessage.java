@@ -0,0 +1,72 @@
+package org.simplejavamail.converter.internal.mimemessage;
+
+import com.sun.mail.smtp.SMTPMessage;
+
+import javax.annotation.Nonnull;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * An {@link SMTPMessage} that counts the bytes it writes, so the size of the message is known from the very write that hands it to the SMTP
+ * server, rather than from rendering it an extra time.
+ */
+public class CountingSMTPMessage extends SMTPMessage {
+	
+	private volatile long writtenSize = -1;
+	
+	public CountingSMTPMessage(@Nonnull final Session session) {
+		super(session);
+	}
+	
+	public CountingSMTPMessage(@Nonnull final Session session, @Nonnull final InputStream is)
+			throws MessagingException {
+		super(session, is);
+	}
+	
+	/**
+	 * Also used by {@link #writeTo(OutputStream)}, and by the SMTP transport when sending the message.
+	 */
+	@Override
+	public void writeTo(final OutputStream os, final String[] ignoreList)
+			throws IOException, MessagingException {
+		final CountingOutputStream counter = new CountingOutputStream(os);
+		super.writeTo(counter, ignoreList);
+		writtenSize = counter.count;
+	}
+	
+	/**
+	 * @return The number of bytes the message was written as the last time it was written completely, or -1 if it hasn't been written yet.
+	 */
+	public long getWrittenSize() {
+		return writtenSize;
+	}
+	
+	private static class CountingOutputStream extends FilterOutputStream {
+		private long count;
+		
+		private CountingOutputStream(@Nonnull final OutputStream out) {
+			super(out);
+		}
+		
+		@Override
+		public void write(final int b)
+				throws IOException {
+			out.write(b);
+			count++;
+		}
+		
+		/**
+		 * Passes the bytes on as a whole, rather than one by one as {@link FilterOutputStream} does.
+		 */
+		@Override
+		public void write(@Nonnull final byte[] b, final int off, final int len)
+				throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+}
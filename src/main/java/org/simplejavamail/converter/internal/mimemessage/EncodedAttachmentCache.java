@@ -0,0 +1,323 @@
+package org.simplejavamail.converter.internal.mimemessage;
+
+import org.simplejavamail.email.MappedFileDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.activation.DataSource;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the base64 encoded content of attachments and embedded images, so the same file attached to many emails is encoded only once. Entries are
+ * keyed by a hash of the content and its content type, so it doesn't matter whether emails share the same data source or each read the same file
+ * anew.
+ * <p>
+ * The cache holds at most {@link #maxBytes} of encoded content in memory, evicting the least recently used entries first. With a spill directory,
+ * evicted entries are moved to disk instead, where again at most {@link #maxBytes} are kept, and moved back into memory when used again. Content
+ * larger than {@link #maxBytes} is never cached, and so never encoded up front either; it is encoded while the message is written, as usual.
+ * <p>
+ * Only content that javax.mail would base64 encode is cached (see {@link PreencodedDataSource#isEncodedAsBase64(DataSource)}), and never that of a
+ * {@link MappedFileDataSource}, which is encoded straight from the mapped file while written rather than copied onto the heap. Looking up content
+ * reads it once to hash it, without keeping it in memory, which is considerably cheaper than encoding it; only on a miss, it is read once more to
+ * encode it, on multiple threads if the cache was created with more than one encoding thread. A miss is encoded completely before the message can
+ * be written, so it delays the first byte of that message compared to encoding while writing.
+ * <p>
+ * The cache is thread-safe; the encoded content handed out is never modified or deleted, so it stays valid for the messages using it even after it
+ * was evicted.
+ */
+public class EncodedAttachmentCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(EncodedAttachmentCache.class);
+
+	private final long maxBytes;
+
+	@Nullable
+	private final File spillDirectory;
+
+	@Nonnull
+	private final ParallelBase64Encoder encoder;
+
+	/**
+	 * Entries in memory, from least to most recently used.
+	 */
+	private final LinkedHashMap<String, PreencodedDataSource> memoryEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Entries spilled to disk, from least to most recently spilled.
+	 */
+	private final LinkedHashMap<String, SpilledEntry> diskEntries = new LinkedHashMap<>();
+
+	private long memoryBytes;
+	private long diskBytes;
+	private long hits;
+	private long misses;
+
+	/**
+	 * @param maxBytes       The maximum size of encoded content kept in memory (and on disk, with a spill directory).
+	 * @param spillDirectory Optional directory to move evicted entries to, rather than dropping them.
+	 */
+	public EncodedAttachmentCache(final long maxBytes, @Nullable final File spillDirectory) {
+		this(maxBytes, spillDirectory, 1);
+	}
+
+	/**
+	 * @param maxBytes        The maximum size of encoded content kept in memory (and on disk, with a spill directory).
+	 * @param spillDirectory  Optional directory to move evicted entries to, rather than dropping them.
+	 * @param encodingThreads The number of threads content is encoded on when it isn't cached yet. The threads are stopped by {@link #shutdown()}.
+	 */
+	public EncodedAttachmentCache(final long maxBytes, @Nullable final File spillDirectory, final int encodingThreads) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("maxBytes should be positive: " + maxBytes);
+		}
+		this.maxBytes = maxBytes;
+		this.spillDirectory = spillDirectory;
+		this.encoder = new ParallelBase64Encoder(encodingThreads);
+	}
+
+	/**
+	 * Returns the encoded content of the given data source, from the cache if it was encoded before. Mapped files, data sources that javax.mail
+	 * wouldn't base64 encode and content too large to cache are returned as is.
+	 */
+	@Nonnull
+	DataSource encode(@Nonnull final DataSource dataSource)
+			throws IOException {
+		if (dataSource instanceof PreencodedDataSource || dataSource instanceof MappedFileDataSource
+				|| !PreencodedDataSource.isEncodedAsBase64(dataSource)) {
+			return dataSource;
+		}
+		final MessageDigest digest = sha256();
+		final long size = hash(dataSource, digest);
+		if (ByteBufferBase64Encoder.encodedSize(size, true) > maxBytes) {
+			return dataSource;
+		}
+		final String key = toHex(digest.digest()) + "|" + size + "|" + dataSource.getContentType();
+
+		final PreencodedDataSource cached = lookup(key);
+		if (cached != null) {
+			return cached;
+		}
+		final PreencodedDataSource encoded = PreencodedDataSource.encode(dataSource, encoder);
+		store(key, encoded);
+		return encoded;
+	}
+
+	/**
+	 * Streams the content through the digest without keeping it.
+	 *
+	 * @return The size of the content.
+	 */
+	private static long hash(@Nonnull final DataSource dataSource, @Nonnull final MessageDigest digest)
+			throws IOException {
+		long size = 0;
+		try (InputStream in = dataSource.getInputStream()) {
+			final byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+				size += read;
+			}
+		}
+		return size;
+	}
+
+	@Nullable
+	private PreencodedDataSource lookup(@Nonnull final String key)
+			throws IOException {
+		final SpilledEntry spilled;
+		synchronized (this) {
+			final PreencodedDataSource inMemory = memoryEntries.get(key);
+			if (inMemory != null) {
+				hits++;
+				return inMemory;
+			}
+			spilled = diskEntries.remove(key);
+			if (spilled == null) {
+				misses++;
+				return null;
+			}
+			diskBytes -= spilled.size;
+			hits++;
+		}
+		// moved back into memory, so the file is no longer needed once read
+		try {
+			final PreencodedDataSource restored = new PreencodedDataSource(spilled.name, spilled.contentType, Files.readAllBytes(spilled.file.toPath()));
+			store(key, restored);
+			return restored;
+		} finally {
+			deleteSpillFile(spilled.file);
+		}
+	}
+
+	private void store(@Nonnull final String key, @Nonnull final PreencodedDataSource encoded) {
+		final long size = encoded.getEncodedSize();
+		if (size > maxBytes) {
+			return;
+		}
+		final Map<String, PreencodedDataSource> evicted = new LinkedHashMap<>();
+		synchronized (this) {
+			if (memoryEntries.containsKey(key)) {
+				// another thread encoded the same content in the meantime
+				return;
+			}
+			memoryEntries.put(key, encoded);
+			memoryBytes += size;
+			final Iterator<Map.Entry<String, PreencodedDataSource>> leastRecentlyUsed = memoryEntries.entrySet().iterator();
+			while (memoryBytes > maxBytes) {
+				final Map.Entry<String, PreencodedDataSource> entry = leastRecentlyUsed.next();
+				leastRecentlyUsed.remove();
+				memoryBytes -= entry.getValue().getEncodedSize();
+				evicted.put(entry.getKey(), entry.getValue());
+			}
+		}
+		if (spillDirectory != null) {
+			for (final Map.Entry<String, PreencodedDataSource> entry : evicted.entrySet()) {
+				spill(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	private void spill(@Nonnull final String key, @Nonnull final PreencodedDataSource encoded) {
+		assert spillDirectory != null;
+		File spillFile = null;
+		try {
+			//noinspection ResultOfMethodCallIgnored
+			spillDirectory.mkdirs();
+			// unique, also among caches and JVMs sharing the spill directory
+			spillFile = File.createTempFile("encoded-", ".b64", spillDirectory);
+			try (OutputStream out = new FileOutputStream(spillFile)) {
+				encoded.writeEncodedTo(out);
+			}
+		} catch (final IOException e) {
+			LOGGER.warn("Unable to spill encoded attachment to {}, dropping it from the cache", spillDirectory, e);
+			if (spillFile != null) {
+				deleteSpillFile(spillFile);
+			}
+			return;
+		}
+		final SpilledEntry spilled = new SpilledEntry(spillFile, encoded.getName(), encoded.getContentType(), encoded.getEncodedSize());
+		final List<SpilledEntry> evicted = new ArrayList<>();
+		synchronized (this) {
+			final SpilledEntry previous = diskEntries.put(key, spilled);
+			diskBytes += spilled.size;
+			if (previous != null) {
+				diskBytes -= previous.size;
+				evicted.add(previous);
+			}
+			final Iterator<Map.Entry<String, SpilledEntry>> leastRecentlySpilled = diskEntries.entrySet().iterator();
+			while (diskBytes > maxBytes) {
+				final Map.Entry<String, SpilledEntry> entry = leastRecentlySpilled.next();
+				leastRecentlySpilled.remove();
+				diskBytes -= entry.getValue().size;
+				evicted.add(entry.getValue());
+			}
+		}
+		for (final SpilledEntry entry : evicted) {
+			deleteSpillFile(entry.file);
+		}
+	}
+
+	/**
+	 * Empties the cache, deleting any spilled entries.
+	 */
+	public void clear() {
+		final List<SpilledEntry> spilled;
+		synchronized (this) {
+			memoryEntries.clear();
+			memoryBytes = 0;
+			spilled = new ArrayList<>(diskEntries.values());
+			diskEntries.clear();
+			diskBytes = 0;
+		}
+		for (final SpilledEntry entry : spilled) {
+			deleteSpillFile(entry.file);
+		}
+	}
+
+	/**
+	 * Empties the cache and stops its encoding threads. Content can't be encoded on more than one thread afterwards.
+	 */
+	public void shutdown() {
+		clear();
+		encoder.shutdown();
+	}
+
+	/**
+	 * @return The size of the encoded content in memory.
+	 */
+	public synchronized long getMemoryBytes() {
+		return memoryBytes;
+	}
+
+	/**
+	 * @return The size of the encoded content spilled to disk.
+	 */
+	public synchronized long getDiskBytes() {
+		return diskBytes;
+	}
+
+	/**
+	 * @return How often content was found in the cache, in memory or on disk.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return How often content had to be encoded.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	private static void deleteSpillFile(@Nonnull final File file) {
+		if (file.exists() && !file.delete()) {
+			LOGGER.debug("unable to delete spilled encoded attachment {}", file);
+		}
+	}
+
+	@Nonnull
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new AssertionError("SHA-256 is required to be supported by every Java platform");
+		}
+	}
+
+	@Nonnull
+	private static String toHex(@Nonnull final byte[] bytes) {
+		final StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (final byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	private static class SpilledEntry {
+		@Nonnull private final File file;
+		private final String name;
+		private final String contentType;
+		private final long size;
+
+		private SpilledEntry(@Nonnull final File file, final String name, final String contentType, final long size) {
+			this.file = file;
+			this.name = name;
+			this.contentType = contentType;
+			this.size = size;
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package org.simplejavamail.converter.internal.mimemessage;
+
+import org.simplejavamail.email.Email;
+import org.simplejavamail.email.Recipient;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.mail.Message.RecipientType;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeUtility;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.unmodifiableMap;
+import static org.simplejavamail.converter.internal.mimemessage.MimeMessageHelper.CHARACTER_ENCODING;
+
+/**
+ * The headers of an {@link Email} as they go out: the subject and custom headers encoded and folded, and the addresses with their names encoded.
+ * An email doesn't change once built, so these are rendered only once and then kept on the email (see {@link Email#internalGetEncodedHeaders()}),
+ * rather than again every time the same email is sent.
+ * <p>
+ * Instances are never modified after they are created. As {@link InternetAddress} itself is mutable, the addresses are only handed to javax.mail,
+ * which renders them into header values without keeping them.
+ */
+public final class EncodedHeaders {
+	
+	private static final InternetAddress[] NO_ADDRESSES = new InternetAddress[0];
+	
+	@Nullable private final String subject;
+	@Nullable private final InternetAddress from;
+	@Nullable private final InternetAddress replyTo;
+	@Nonnull private final InternetAddress[] to;
+	@Nonnull private final InternetAddress[] cc;
+	@Nonnull private final InternetAddress[] bcc;
+	/**
+	 * By name, with encoded and folded values.
+	 */
+	@Nonnull private final Map<String, String> customHeaders;
+	@Nullable private final String dispositionNotificationTo;
+	@Nullable private final String returnReceiptTo;
+	
+	private EncodedHeaders(@Nonnull final Email email)
+			throws UnsupportedEncodingException {
+		subject = (email.getSubject() != null) ? MimeUtility.fold(9, MimeUtility.encodeText(email.getSubject(), CHARACTER_ENCODING, null)) : null;
+		from = (email.getFromRecipient() != null) ? toAddress(email.getFromRecipient()) : null;
+		replyTo = (email.getReplyToRecipient() != null) ? toAddress(email.getReplyToRecipient()) : null;
+		to = toAddresses(email.getRecipients(), RecipientType.TO);
+		cc = toAddresses(email.getRecipients(), RecipientType.CC);
+		bcc = toAddresses(email.getRecipients(), RecipientType.BCC);
+		
+		final Map<String, String> customHeaders = new LinkedHashMap<>();
+		// for raw message headers we need to 'fold' them using MimeUtility
+		for (final Map.Entry<String, String> header : email.getHeaders().entrySet()) {
+			final String headerValue = MimeUtility.encodeText(header.getValue(), CHARACTER_ENCODING, null);
+			customHeaders.put(header.getKey(), MimeUtility.fold(header.getKey().length() + 2, headerValue));
+		}
+		this.customHeaders = unmodifiableMap(customHeaders);
+		dispositionNotificationTo = email.isUseDispositionNotificationTo() ? toAddress(email.getDispositionNotificationTo()).toString() : null;
+		returnReceiptTo = email.isUseReturnReceiptTo() ? toAddress(email.getReturnReceiptTo()).toString() : null;
+	}
+	
+	/**
+	 * Renders the headers of the given email. Use {@link Email#internalGetEncodedHeaders()} instead, which does this only once per email.
+	 */
+	@Nonnull
+	public static EncodedHeaders encode(@Nonnull final Email email)
+			throws UnsupportedEncodingException {
+		return new EncodedHeaders(email);
+	}
+	
+	/**
+	 * @return The encoded and folded subject, as the value of the {@code Subject} header.
+	 */
+	@Nullable
+	String getSubject() {
+		return subject;
+	}
+	
+	@Nullable
+	InternetAddress getFrom() {
+		return from;
+	}
+	
+	@Nullable
+	InternetAddress getReplyTo() {
+		return replyTo;
+	}
+	
+	/**
+	 * @return The addresses of the recipients of the given type, in the order they were added to the email.
+	 */
+	@Nonnull
+	InternetAddress[] getRecipients(@Nonnull final RecipientType type) {
+		if (type.equals(RecipientType.TO)) {
+			return to;
+		} else if (type.equals(RecipientType.CC)) {
+			return cc;
+		} else if (type.equals(RecipientType.BCC)) {
+			return bcc;
+		}
+		return NO_ADDRESSES;
+	}
+	
+	/**
+	 * @return The custom headers, with their values encoded and folded.
+	 */
+	@Nonnull
+	Map<String, String> getCustomHeaders() {
+		return customHeaders;
+	}
+	
+	/**
+	 * @return The value of the {@code Disposition-Notification-To} header, if used.
+	 */
+	@Nullable
+	String getDispositionNotificationTo() {
+		return dispositionNotificationTo;
+	}
+	
+	/**
+	 * @return The value of the {@code Return-Receipt-To} header, if used.
+	 */
+	@Nullable
+	String getReturnReceiptTo() {
+		return returnReceiptTo;
+	}
+	
+	@Nonnull
+	private static InternetAddress[] toAddresses(@Nonnull final List<Recipient> recipients, @Nonnull final RecipientType type)
+			throws UnsupportedEncodingException {
+		final List<InternetAddress> addresses = new ArrayList<>();
+		for (final Recipient recipient : recipients) {
+			if (type.equals(recipient.getType())) {
+				addresses.add(toAddress(recipient));
+			}
+		}
+		return addresses.isEmpty() ? NO_ADDRESSES : addresses.toArray(new InternetAddress[addresses.size()]);
+	}
+	
+	@Nonnull
+	private static InternetAddress toAddress(@Nonnull final Recipient recipient)
+			throws UnsupportedEncodingException {
+		return new InternetAddress(recipient.getAddress(), recipient.getName(), CHARACTER_ENCODING);
+	}
+}
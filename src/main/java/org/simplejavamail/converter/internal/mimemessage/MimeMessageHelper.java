@@ -2,12 +2,12 @@ package org.simplejavamail.converter.internal.mimemessage;
 
 import org.simplejavamail.email.AttachmentResource;
 import org.simplejavamail.email.Email;
-import org.simplejavamail.email.Recipient;
 import org.simplejavamail.internal.util.MiscUtil;
 
 import javax.activation.DataHandler;
 import javax.activation.DataSource;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.mail.Address;
 import javax.mail.BodyPart;
 import javax.mail.Message;
@@ -19,6 +19,8 @@ import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
 import javax.mail.internet.MimePart;
 import javax.mail.internet.MimeUtility;
+import javax.mail.internet.PreencodedMimeBodyPart;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
@@ -35,19 +37,29 @@ public class MimeMessageHelper {
 	/**
 	 * Encoding used for setting body text, email address, headers, reply-to fields etc. ({@link StandardCharsets#UTF_8}).
 	 */
-	private static final String CHARACTER_ENCODING = StandardCharsets.UTF_8.name();
+	static final String CHARACTER_ENCODING = StandardCharsets.UTF_8.name();
 
 	private MimeMessageHelper() {
 
 	}
 	
-	static void setSubject(Email email, MimeMessage message) throws MessagingException {
-		message.setSubject(email.getSubject(), CHARACTER_ENCODING);
+	/**
+	 * Sets the subject as {@link MimeMessage#setSubject(String, String)} would, but encoded and folded only once per email (see {@link
+	 * Email#internalGetEncodedHeaders()}).
+	 */
+	static void setSubject(Email email, MimeMessage message) throws UnsupportedEncodingException, MessagingException {
+		final String encodedSubject = encodedHeaders(email).getSubject();
+		if (encodedSubject != null) {
+			message.setHeader("Subject", encodedSubject);
+		} else {
+			message.removeHeader("Subject");
+		}
 	}
 	
 	static void setFrom(Email email, MimeMessage message) throws UnsupportedEncodingException, MessagingException {
-		if (email.getFromRecipient() != null) {
-			message.setFrom(new InternetAddress(email.getFromRecipient().getAddress(), email.getFromRecipient().getName(), CHARACTER_ENCODING));
+		final InternetAddress fromAddress = encodedHeaders(email).getFrom();
+		if (fromAddress != null) {
+			message.setFrom(fromAddress);
 		}
 	}
 	
@@ -57,13 +69,17 @@ public class MimeMessageHelper {
 	 * @param email   The message in which the recipients are defined.
 	 * @param message The javax message that needs to be filled with recipients.
 	 * @throws UnsupportedEncodingException See {@link InternetAddress#InternetAddress(String, String)}.
-	 * @throws MessagingException           See {@link Message#addRecipient(Message.RecipientType, Address)}
+	 * @throws MessagingException           See {@link Message#setRecipients(Message.RecipientType, Address[])}
 	 */
 	static void setRecipients(final Email email, final Message message)
 			throws UnsupportedEncodingException, MessagingException {
-		for (final Recipient recipient : email.getRecipients()) {
-			final Address address = new InternetAddress(recipient.getAddress(), recipient.getName(), CHARACTER_ENCODING);
-			message.addRecipient(recipient.getType(), address);
+		final EncodedHeaders encodedHeaders = encodedHeaders(email);
+		// all addresses of a type at once, rather than parsing and rendering the header again for every recipient
+		for (final Message.RecipientType type : new Message.RecipientType[] { Message.RecipientType.TO, Message.RecipientType.CC, Message.RecipientType.BCC }) {
+			final InternetAddress[] addresses = encodedHeaders.getRecipients(type);
+			if (addresses.length > 0) {
+				message.setRecipients(type, addresses);
+			}
 		}
 	}
 	
@@ -77,10 +93,8 @@ public class MimeMessageHelper {
 	 */
 	static void setReplyTo(final Email email, final Message message)
 			throws UnsupportedEncodingException, MessagingException {
-		final Recipient replyToRecipient = email.getReplyToRecipient();
-		if (replyToRecipient != null) {
-			final InternetAddress replyToAddress = new InternetAddress(replyToRecipient.getAddress(), replyToRecipient.getName(),
-					CHARACTER_ENCODING);
+		final InternetAddress replyToAddress = encodedHeaders(email).getReplyTo();
+		if (replyToAddress != null) {
 			message.setReplyTo(new Address[] { replyToAddress });
 		}
 	}
@@ -156,12 +170,14 @@ public class MimeMessageHelper {
 	 *
 	 * @param email            The message in which the embedded images are defined.
 	 * @param multipartRelated The branch in the email structure in which we'll stuff the embedded images.
-	 * @throws MessagingException See {@link MimeMultipart#addBodyPart(BodyPart)} and {@link #getBodyPartFromDatasource(AttachmentResource, String)}
+	 * @param attachmentCache  Optional cache of encoded content, see {@link #getBodyPartFromDatasource(AttachmentResource, String, EncodedAttachmentCache)}.
+	 * @throws MessagingException See {@link MimeMultipart#addBodyPart(BodyPart)} and {@link #getBodyPartFromDatasource(AttachmentResource, String,
+	 *                            EncodedAttachmentCache)}
 	 */
-	static void setEmbeddedImages(final Email email, final MimeMultipart multipartRelated)
+	static void setEmbeddedImages(final Email email, final MimeMultipart multipartRelated, @Nullable final EncodedAttachmentCache attachmentCache)
 			throws MessagingException {
 		for (final AttachmentResource embeddedImage : email.getEmbeddedImages()) {
-			multipartRelated.addBodyPart(getBodyPartFromDatasource(embeddedImage, Part.INLINE));
+			multipartRelated.addBodyPart(getBodyPartFromDatasource(embeddedImage, Part.INLINE, attachmentCache));
 		}
 	}
 	
@@ -169,13 +185,15 @@ public class MimeMessageHelper {
 	 * Fills the {@link Message} instance with the attachments from the {@link Email}.
 	 *
 	 * @param email         The message in which the attachments are defined.
-	 * @param multipartRoot The branch in the email structure in which we'll stuff the attachments.
-	 * @throws MessagingException See {@link MimeMultipart#addBodyPart(BodyPart)} and {@link #getBodyPartFromDatasource(AttachmentResource, String)}
+	 * @param multipartRoot   The branch in the email structure in which we'll stuff the attachments.
+	 * @param attachmentCache Optional cache of encoded content, see {@link #getBodyPartFromDatasource(AttachmentResource, String, EncodedAttachmentCache)}.
+	 * @throws MessagingException See {@link MimeMultipart#addBodyPart(BodyPart)} and {@link #getBodyPartFromDatasource(AttachmentResource, String,
+	 *                            EncodedAttachmentCache)}
 	 */
-	static void setAttachments(final Email email, final MimeMultipart multipartRoot)
+	static void setAttachments(final Email email, final MimeMultipart multipartRoot, @Nullable final EncodedAttachmentCache attachmentCache)
 			throws MessagingException {
 		for (final AttachmentResource resource : email.getAttachments()) {
-			multipartRoot.addBodyPart(getBodyPartFromDatasource(resource, Part.ATTACHMENT));
+			multipartRoot.addBodyPart(getBodyPartFromDatasource(resource, Part.ATTACHMENT, attachmentCache));
 		}
 	}
 	
@@ -195,27 +213,31 @@ public class MimeMessageHelper {
 	 */
 	static void setHeaders(final Email email, final Message message)
 			throws UnsupportedEncodingException, MessagingException {
-		// add headers (for raw message headers we need to 'fold' them using MimeUtility
-		for (final Map.Entry<String, String> header : email.getHeaders().entrySet()) {
-			final String headerName = header.getKey();
-			final String headerValue = MimeUtility.encodeText(header.getValue(), CHARACTER_ENCODING, null);
-			final String foldedHeaderValue = MimeUtility.fold(headerName.length() + 2, headerValue);
-			message.addHeader(header.getKey(), foldedHeaderValue);
+		final EncodedHeaders encodedHeaders = encodedHeaders(email);
+		// add headers, encoded and folded once per email
+		for (final Map.Entry<String, String> header : encodedHeaders.getCustomHeaders().entrySet()) {
+			message.addHeader(header.getKey(), header.getValue());
 		}
 		
-		if (email.isUseDispositionNotificationTo()) {
-			final Address address = new InternetAddress(email.getDispositionNotificationTo().getAddress(),
-					email.getDispositionNotificationTo().getName(), CHARACTER_ENCODING);
-			message.setHeader("Disposition-Notification-To", address.toString());
+		if (encodedHeaders.getDispositionNotificationTo() != null) {
+			message.setHeader("Disposition-Notification-To", encodedHeaders.getDispositionNotificationTo());
 		}
 		
-		if (email.isUseReturnReceiptTo()) {
-			final Address address = new InternetAddress(email.getReturnReceiptTo().getAddress(),
-					email.getReturnReceiptTo().getName(), CHARACTER_ENCODING);
-			message.setHeader("Return-Receipt-To", address.toString());
+		if (encodedHeaders.getReturnReceiptTo() != null) {
+			message.setHeader("Return-Receipt-To", encodedHeaders.getReturnReceiptTo());
 		}
 	}
 	
+	/**
+	 * @see Email#internalGetEncodedHeaders()
+	 */
+	@SuppressWarnings("deprecation")
+	@Nonnull
+	static EncodedHeaders encodedHeaders(@Nonnull final Email email)
+			throws UnsupportedEncodingException {
+		return email.internalGetEncodedHeaders();
+	}
+	
 	/**
 	 * Helper method which generates a {@link BodyPart} from an {@link AttachmentResource} (from its {@link DataSource}) and a disposition type
 	 * ({@link Part#INLINE} or {@link Part#ATTACHMENT}). With this the attachment data can be converted into objects that fit in the email structure.
@@ -224,25 +246,45 @@ public class MimeMessageHelper {
 	 *
 	 * @param attachmentResource An object that describes the attachment and contains the actual content data.
 	 * @param dispositionType    The type of attachment, {@link Part#INLINE} or {@link Part#ATTACHMENT} .
+	 * @param attachmentCache    Optional cache to take the encoded content from, so it is written as is rather than encoded again.
 	 *
 	 * @return An object with the attachment data read for placement in the email structure.
-	 * @throws MessagingException All BodyPart setters.
+	 * @throws MessagingException All BodyPart setters, or if the content couldn't be read for the cache.
 	 */
-	private static BodyPart getBodyPartFromDatasource(final AttachmentResource attachmentResource, final String dispositionType)
+	private static BodyPart getBodyPartFromDatasource(final AttachmentResource attachmentResource, final String dispositionType,
+			@Nullable final EncodedAttachmentCache attachmentCache)
 			throws MessagingException {
-		final BodyPart attachmentPart = new MimeBodyPart();
+		final DataSource dataSource = encodeUsingCache(attachmentResource.getDataSource(), attachmentCache);
+		// pre-encoded content (see MailMerge and EncodedAttachmentCache) is written as is, rather than encoded while written
+		final BodyPart attachmentPart = (dataSource instanceof PreencodedDataSource)
+				? new PreencodedMimeBodyPart(PreencodedDataSource.ENCODING)
+				: new MimeBodyPart();
 		// setting headers isn't working nicely using the javax mail API, so let's do that manually
 		final String resourceName = determineResourceName(attachmentResource, false);
 		final String fileName = determineResourceName(attachmentResource, true);
-		attachmentPart.setDataHandler(new DataHandler(new NamedDataSource(fileName, attachmentResource.getDataSource())));
+		final DataSource contentDataSource = (dataSource instanceof PreencodedDataSource)
+				? ((PreencodedDataSource) dataSource).getEncodedDataSource()
+				: dataSource;
+		attachmentPart.setDataHandler(new DataHandler(new NamedDataSource(fileName, contentDataSource)));
 		attachmentPart.setFileName(fileName);
-		final String contentType = attachmentResource.getDataSource().getContentType();
+		final String contentType = dataSource.getContentType();
 		attachmentPart.setHeader("Content-Type", contentType + "; filename=" + fileName + "; name=" + resourceName);
 		attachmentPart.setHeader("Content-ID", format("<%s>", resourceName));
 		attachmentPart.setDisposition(dispositionType);
 		return attachmentPart;
 	}
 
+	@Nonnull
+	static DataSource encodeUsingCache(@Nonnull final DataSource dataSource, @Nullable final EncodedAttachmentCache attachmentCache)
+			throws MessagingException {
+		try {
+			// without a cache, content is encoded while the message is written, streaming it rather than holding it in memory
+			return (attachmentCache != null) ? attachmentCache.encode(dataSource) : dataSource;
+		} catch (final IOException e) {
+			throw new MessagingException(format("Unable to read attachment or embedded image %s", dataSource.getName()), e);
+		}
+	}
+
 	/**
 	 * Determines the right resource name and optionally attaches the correct extension to the name.
 	 */
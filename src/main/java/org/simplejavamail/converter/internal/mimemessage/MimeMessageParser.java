@@ -1,6 +1,7 @@
 package org.simplejavamail.converter.internal.mimemessage;
 
 import com.sun.mail.handlers.text_plain;
+import org.simplejavamail.internal.util.FlightRecorderEventType;
 import org.simplejavamail.internal.util.MiscUtil;
 import org.simplejavamail.internal.util.Preconditions;
 
@@ -42,6 +43,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static java.lang.String.format;
+import static org.simplejavamail.internal.util.FlightRecorderEventType.field;
 import static org.simplejavamail.internal.util.MiscUtil.valueNullOrEmpty;
 
 /**
@@ -56,6 +58,10 @@ public final class MimeMessageParser {
 	 * interfering or obsolete for new emails).
 	 */
 	private static final List<String> HEADERS_TO_IGNORE = new ArrayList<>();
+	
+	private static final FlightRecorderEventType PARSE_EVENT = FlightRecorderEventType.define("org.simplejavamail.ParseMimeMessage",
+			"Parse MimeMessage", field("sizeBytes", long.class), field("attachments", int.class), field("embeddedImages", int.class),
+			field("succeeded", boolean.class));
 
 	static {
 		// taken from: protected javax.mail.internet.InternetHeaders constructor
@@ -110,16 +116,40 @@ public final class MimeMessageParser {
 	 * Extracts the content of a MimeMessage recursively.
 	 */
 	public static ParsedMimeMessageComponents parseMimeMessage(@Nonnull final MimeMessage mimeMessage) {
+		final FlightRecorderEventType.Event event = PARSE_EVENT.begin();
 		final ParsedMimeMessageComponents parsedComponents = new ParsedMimeMessageComponents();
-		parsedComponents.messageId = parseMessageId(mimeMessage);
-		parsedComponents.subject = parseSubject(mimeMessage);
-		parsedComponents.toAddresses.addAll(parseToAddresses(mimeMessage));
-		parsedComponents.ccAddresses.addAll(parseCcAddresses(mimeMessage));
-		parsedComponents.bccAddresses.addAll(parseBccAddresses(mimeMessage));
-		parsedComponents.fromAddress = parseFromAddress(mimeMessage);
-		parsedComponents.replyToAddresses = parseReplyToAddresses(mimeMessage);
-		parseMimePartTree(mimeMessage, parsedComponents);
-		return parsedComponents;
+		boolean succeeded = false;
+		try {
+			parsedComponents.messageId = parseMessageId(mimeMessage);
+			parsedComponents.subject = parseSubject(mimeMessage);
+			parsedComponents.toAddresses.addAll(parseToAddresses(mimeMessage));
+			parsedComponents.ccAddresses.addAll(parseCcAddresses(mimeMessage));
+			parsedComponents.bccAddresses.addAll(parseBccAddresses(mimeMessage));
+			parsedComponents.fromAddress = parseFromAddress(mimeMessage);
+			parsedComponents.replyToAddresses = parseReplyToAddresses(mimeMessage);
+			parseMimePartTree(mimeMessage, parsedComponents);
+			succeeded = true;
+			return parsedComponents;
+		} finally {
+			if (event != null) {
+				event.set("sizeBytes", parseSize(mimeMessage))
+						.set("attachments", parsedComponents.attachmentList.size())
+						.set("embeddedImages", parsedComponents.cidMap.size())
+						.set("succeeded", succeeded)
+						.commit();
+			}
+		}
+	}
+	
+	/**
+	 * @return The size of the message content, or -1 if it can't be determined (for example when the message was produced rather than read).
+	 */
+	private static long parseSize(@Nonnull final MimeMessage mimeMessage) {
+		try {
+			return mimeMessage.getSize();
+		} catch (final MessagingException e) {
+			return -1;
+		}
 	}
 	
 	private static void parseMimePartTree(@Nonnull final MimePart currentPart, @Nonnull final ParsedMimeMessageComponents parsedComponents) {
@@ -1,14 +1,18 @@
 package org.simplejavamail.converter.internal.mimemessage;
 
+import com.sun.mail.smtp.SMTPMessage;
 import org.simplejavamail.email.Email;
+import org.simplejavamail.internal.util.FlightRecorderEventType;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.mail.MessagingException;
 import javax.mail.Session;
 import javax.mail.internet.MimeMessage;
 import java.io.UnsupportedEncodingException;
 import java.util.Date;
 
+import static org.simplejavamail.internal.util.FlightRecorderEventType.field;
 import static org.simplejavamail.internal.util.MiscUtil.checkArgumentNotEmpty;
 import static org.simplejavamail.internal.util.MiscUtil.valueNullOrEmpty;
 
@@ -20,6 +24,10 @@ import static org.simplejavamail.internal.util.MiscUtil.valueNullOrEmpty;
  */
 abstract class MimeMessageProducer {
 	
+	private static final FlightRecorderEventType PRODUCE_EVENT = FlightRecorderEventType.define("org.simplejavamail.ProduceMimeMessage",
+			"Produce MimeMessage", field("producer", String.class), field("attachments", int.class), field("embeddedImages", int.class),
+			field("succeeded", boolean.class));
+	
 	/**
 	 * @return Whether this mimemessage producer exactly matches the needs of the given email.
 	 */
@@ -27,13 +35,36 @@ abstract class MimeMessageProducer {
 	
 	/**
 	 * Performs a standard population and then delegates multipart specifics to the subclass.
+	 *
+	 * @param attachmentCache Optional cache to take the encoded content of attachments and embedded images from.
 	 */
-	final MimeMessage populateMimeMessage(@Nonnull final Email email, @Nonnull Session session)
+	final MimeMessage populateMimeMessage(@Nonnull final Email email, @Nonnull Session session, @Nullable final EncodedAttachmentCache attachmentCache)
 			throws MessagingException, UnsupportedEncodingException {
 		checkArgumentNotEmpty(email, "email is missing");
 		checkArgumentNotEmpty(session, "session is needed, it cannot be attached later");
 		
-		final MimeMessage message = new MimeMessage(session) {
+		final FlightRecorderEventType.Event event = PRODUCE_EVENT.begin();
+		boolean succeeded = false;
+		try {
+			final MimeMessage message = produceMimeMessage(email, session, attachmentCache);
+			succeeded = true;
+			return message;
+		} finally {
+			if (event != null) {
+				event.set("producer", getClass().getSimpleName())
+						.set("attachments", email.getAttachments().size())
+						.set("embeddedImages", email.getEmbeddedImages().size())
+						.set("succeeded", succeeded)
+						.commit();
+			}
+		}
+	}
+	
+	private MimeMessage produceMimeMessage(@Nonnull final Email email, @Nonnull final Session session,
+			@Nullable final EncodedAttachmentCache attachmentCache)
+			throws MessagingException, UnsupportedEncodingException {
+		// an SMTPMessage, so the envelope sender can be set per message, which counts its bytes while sent (see MailSender)
+		final MimeMessage message = new CountingSMTPMessage(session) {
 			@Override
 			protected void updateMessageID() throws MessagingException {
 				if (valueNullOrEmpty(email.getId())) {
@@ -50,7 +81,7 @@ abstract class MimeMessageProducer {
 		MimeMessageHelper.setReplyTo(email, message);
 		MimeMessageHelper.setRecipients(email, message);
 		
-		populateMimeMessageMultipartStructure(message, email);
+		populateMimeMessageMultipartStructure(message, email, attachmentCache);
 		
 		MimeMessageHelper.setHeaders(email, message);
 		message.setSentDate(new Date());
@@ -58,7 +89,8 @@ abstract class MimeMessageProducer {
 		return message;
 	}
 	
-	abstract void populateMimeMessageMultipartStructure(@Nonnull MimeMessage  message, @Nonnull Email email) throws MessagingException;
+	abstract void populateMimeMessageMultipartStructure(@Nonnull MimeMessage  message, @Nonnull Email email, @Nullable EncodedAttachmentCache attachmentCache)
+			throws MessagingException;
 	
 	
 	static boolean emailContainsMixedContent(@Nonnull Email email) {
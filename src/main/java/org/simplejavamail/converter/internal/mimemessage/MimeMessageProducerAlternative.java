@@ -3,6 +3,7 @@ package org.simplejavamail.converter.internal.mimemessage;
 import org.simplejavamail.email.Email;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
@@ -14,7 +15,8 @@ class MimeMessageProducerAlternative extends MimeMessageProducer {
 	}
 	
 	@Override
-	void populateMimeMessageMultipartStructure(@Nonnull MimeMessage message, @Nonnull Email email) throws MessagingException {
+	void populateMimeMessageMultipartStructure(@Nonnull MimeMessage message, @Nonnull Email email, @Nullable EncodedAttachmentCache attachmentCache)
+			throws MessagingException {
 		MimeMultipart multipartRootAlternative = new MimeMultipart("alternative");
 		MimeMessageHelper.setTexts(email, multipartRootAlternative);
 		message.setContent(multipartRootAlternative);
@@ -3,6 +3,7 @@ package org.simplejavamail.converter.internal.mimemessage;
 import org.simplejavamail.email.Email;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.mail.MessagingException;
 import javax.mail.Session;
 import javax.mail.internet.MimeMessage;
@@ -35,9 +36,18 @@ public final class MimeMessageProducerHelper {
 	}
 	
 	public static MimeMessage produceMimeMessage(@Nonnull Email email, @Nonnull Session session) throws UnsupportedEncodingException, MessagingException {
+		return produceMimeMessage(email, session, null);
+	}
+	
+	/**
+	 * @param attachmentCache Optional cache to take the encoded content of attachments and embedded images from, rather than encoding them for this
+	 *                        message.
+	 */
+	public static MimeMessage produceMimeMessage(@Nonnull Email email, @Nonnull Session session, @Nullable EncodedAttachmentCache attachmentCache)
+			throws UnsupportedEncodingException, MessagingException {
 		for (MimeMessageProducer mimeMessageProducer : mimeMessageProducers) {
 			if (mimeMessageProducer.compatibleWithEmail(email)) {
-				return mimeMessageProducer.populateMimeMessage(email, session);
+				return mimeMessageProducer.populateMimeMessage(email, session, attachmentCache);
 			}
 		}
 		throw new AssertionError("no compatible MimeMessageProducer found for email");
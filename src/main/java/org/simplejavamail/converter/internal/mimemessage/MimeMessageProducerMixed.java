@@ -3,6 +3,7 @@ package org.simplejavamail.converter.internal.mimemessage;
 import org.simplejavamail.email.Email;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
@@ -14,11 +15,12 @@ class MimeMessageProducerMixed extends MimeMessageProducer {
 	}
 	
 	@Override
-	void populateMimeMessageMultipartStructure(@Nonnull MimeMessage message, @Nonnull Email email) throws MessagingException {
+	void populateMimeMessageMultipartStructure(@Nonnull MimeMessage message, @Nonnull Email email, @Nullable EncodedAttachmentCache attachmentCache)
+			throws MessagingException {
 		MimeMultipart multipartRootMixed = new MimeMultipart("mixed");
 		MimeMessageHelper.setTexts(email, multipartRootMixed);
 		MimeMessageHelper.configureForwarding(email, multipartRootMixed);
-		MimeMessageHelper.setAttachments(email, multipartRootMixed);
+		MimeMessageHelper.setAttachments(email, multipartRootMixed, attachmentCache);
 		message.setContent(multipartRootMixed);
 	}
 }
\ No newline at end of file
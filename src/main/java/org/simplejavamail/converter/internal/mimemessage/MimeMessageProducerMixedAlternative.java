@@ -3,6 +3,7 @@ package org.simplejavamail.converter.internal.mimemessage;
 import org.simplejavamail.email.Email;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
@@ -15,12 +16,13 @@ class MimeMessageProducerMixedAlternative extends MimeMessageProducer {
 	}
 	
 	@Override
-	void populateMimeMessageMultipartStructure(@Nonnull MimeMessage message, @Nonnull Email email) throws MessagingException {
+	void populateMimeMessageMultipartStructure(@Nonnull MimeMessage message, @Nonnull Email email, @Nullable EncodedAttachmentCache attachmentCache)
+			throws MessagingException {
 		MultipartStructureWrapper multipartStructureWrapper = new MultipartStructureWrapper();
 		
 		MimeMessageHelper.setTexts(email, multipartStructureWrapper.multipartAlternativeMessages);
 		MimeMessageHelper.configureForwarding(email, multipartStructureWrapper.multipartRootMixed);
-		MimeMessageHelper.setAttachments(email, multipartStructureWrapper.multipartRootMixed);
+		MimeMessageHelper.setAttachments(email, multipartStructureWrapper.multipartRootMixed, attachmentCache);
 		
 		message.setContent(multipartStructureWrapper.multipartRootMixed);
 	}
@@ -3,6 +3,7 @@ package org.simplejavamail.converter.internal.mimemessage;
 import org.simplejavamail.email.Email;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
@@ -33,13 +34,14 @@ class MimeMessageProducerMixedRelatedAlternative extends MimeMessageProducer {
 	}
 	
 	@Override
-	public void populateMimeMessageMultipartStructure(@Nonnull MimeMessage message, @Nonnull Email email) throws MessagingException {
+	public void populateMimeMessageMultipartStructure(@Nonnull MimeMessage message, @Nonnull Email email, @Nullable EncodedAttachmentCache attachmentCache)
+			throws MessagingException {
 		MultipartStructureWrapper multipartStructureWrapper = new MultipartStructureWrapper();
 		
 		MimeMessageHelper.setTexts(email, multipartStructureWrapper.multipartAlternativeMessages);
 		MimeMessageHelper.configureForwarding(email, multipartStructureWrapper.multipartRootMixed);
-		MimeMessageHelper.setEmbeddedImages(email, multipartStructureWrapper.multipartRelated);
-		MimeMessageHelper.setAttachments(email, multipartStructureWrapper.multipartRootMixed);
+		MimeMessageHelper.setEmbeddedImages(email, multipartStructureWrapper.multipartRelated, attachmentCache);
+		MimeMessageHelper.setAttachments(email, multipartStructureWrapper.multipartRootMixed, attachmentCache);
 		
 		message.setContent(multipartStructureWrapper.multipartRootMixed);
 	}
@@ -3,6 +3,7 @@ package org.simplejavamail.converter.internal.mimemessage;
 import org.simplejavamail.email.Email;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
@@ -14,10 +15,11 @@ class MimeMessageProducerRelated extends MimeMessageProducer {
 	}
 	
 	@Override
-	public void populateMimeMessageMultipartStructure(@Nonnull MimeMessage message, @Nonnull Email email) throws MessagingException {
+	public void populateMimeMessageMultipartStructure(@Nonnull MimeMessage message, @Nonnull Email email, @Nullable EncodedAttachmentCache attachmentCache)
+			throws MessagingException {
 		MimeMultipart multipartRootRelated = new MimeMultipart("related");
 		MimeMessageHelper.setTexts(email, multipartRootRelated);
-		MimeMessageHelper.setEmbeddedImages(email, multipartRootRelated);
+		MimeMessageHelper.setEmbeddedImages(email, multipartRootRelated, attachmentCache);
 		message.setContent(multipartRootRelated);
 	}
 }
\ No newline at end of file
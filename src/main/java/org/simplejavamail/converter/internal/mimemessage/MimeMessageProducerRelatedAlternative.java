@@ -3,6 +3,7 @@ package org.simplejavamail.converter.internal.mimemessage;
 import org.simplejavamail.email.Email;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
@@ -15,11 +16,12 @@ class MimeMessageProducerRelatedAlternative extends MimeMessageProducer {
 	}
 	
 	@Override
-	public void populateMimeMessageMultipartStructure(@Nonnull MimeMessage message, @Nonnull Email email) throws MessagingException {
+	public void populateMimeMessageMultipartStructure(@Nonnull MimeMessage message, @Nonnull Email email, @Nullable EncodedAttachmentCache attachmentCache)
+			throws MessagingException {
 		MultipartStructureWrapper multipartStructureWrapper = new MultipartStructureWrapper();
 		
 		MimeMessageHelper.setTexts(email, multipartStructureWrapper.multipartAlternativeMessages);
-		MimeMessageHelper.setEmbeddedImages(email, multipartStructureWrapper.multipartRootRelated);
+		MimeMessageHelper.setEmbeddedImages(email, multipartStructureWrapper.multipartRootRelated, attachmentCache);
 		
 		message.setContent(multipartStructureWrapper.multipartRootRelated);
 	}
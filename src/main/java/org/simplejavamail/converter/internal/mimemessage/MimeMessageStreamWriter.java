@@ -0,0 +1,388 @@
+package org.simplejavamail.converter.internal.mimemessage;
+
+import com.sun.mail.util.LineOutputStream;
+import org.simplejavamail.email.AttachmentResource;
+import org.simplejavamail.email.Email;
+import org.simplejavamail.email.MappedFileDataSource;
+
+import javax.activation.DataSource;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.mail.Address;
+import javax.mail.Message.RecipientType;
+import javax.mail.MessagingException;
+import javax.mail.Part;
+import javax.mail.Session;
+import javax.mail.internet.ContentType;
+import javax.mail.internet.HeaderTokenizer;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.InternetHeaders;
+import javax.mail.internet.MailDateFormat;
+import javax.mail.internet.MimeBodyPart;
+import javax.mail.internet.MimeMessage;
+import javax.mail.internet.MimeMultipart;
+import javax.mail.internet.MimeUtility;
+import javax.mail.util.ByteArrayDataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.String.format;
+import static org.simplejavamail.converter.internal.mimemessage.MimeMessageHelper.CHARACTER_ENCODING;
+import static org.simplejavamail.converter.internal.mimemessage.MimeMessageProducer.emailContainsAlternativeContent;
+import static org.simplejavamail.converter.internal.mimemessage.MimeMessageProducer.emailContainsMixedContent;
+import static org.simplejavamail.converter.internal.mimemessage.MimeMessageProducer.emailContainsRelatedContent;
+import static org.simplejavamail.internal.util.MiscUtil.checkArgumentNotEmpty;
+import static org.simplejavamail.internal.util.MiscUtil.valueNullOrEmpty;
+
+/**
+ * Writes an email in MIME format straight to an {@link OutputStream}, as an alternative to producing a {@link MimeMessage} with {@link
+ * MimeMessageProducerHelper} and then writing that. The output is the same as the produced MimeMessage would write, in any of the eight structures
+ * of the {@link MimeMessageProducer} subclasses, except of course for the generated boundaries, Message-ID and Date.
+ * <p>
+ * No tree of {@link MimeMultipart} and {@link MimeBodyPart} objects is built: headers, boundaries and content are written in a single pass and
+ * attachments are streamed from their data source into the encoder. Header order and formatting are left to the same javax.mail classes a
+ * MimeMessage uses ({@link InternetHeaders}, {@link InternetAddress}, {@link ContentType} and {@link MimeUtility}), so the two can't drift apart.
+ */
+public final class MimeMessageStreamWriter {
+	
+	private static final String PLAIN_TEXT_CONTENT_TYPE = "text/plain; charset=" + MimeUtility.quote(CHARACTER_ENCODING, HeaderTokenizer.MIME);
+	private static final String HTML_TEXT_CONTENT_TYPE = "text/html; charset=\"" + CHARACTER_ENCODING + "\"";
+	
+	private static final MailDateFormat MAIL_DATE_FORMAT = new MailDateFormat();
+	
+	private static final AtomicInteger BOUNDARY_COUNTER = new AtomicInteger();
+	private static final AtomicInteger MESSAGE_ID_COUNTER = new AtomicInteger();
+	
+	/**
+	 * The nesting of multiparts, from the outside in. Not every level is present in every email (see {@link #appliesTo(Email)}), but they are
+	 * always nested in this order.
+	 */
+	private enum MultipartLevel {
+		MIXED("mixed"),
+		RELATED("related"),
+		ALTERNATIVE("alternative");
+		
+		private final String subtype;
+		
+		MultipartLevel(final String subtype) {
+			this.subtype = subtype;
+		}
+		
+		boolean appliesTo(@Nonnull final Email email) {
+			switch (this) {
+				case MIXED:
+					return emailContainsMixedContent(email);
+				case RELATED:
+					return emailContainsRelatedContent(email);
+				default:
+					return emailContainsAlternativeContent(email);
+			}
+		}
+		
+		/**
+		 * @return The first level from this one inwards that applies to the email, or <code>null</code> if there is none.
+		 */
+		@Nullable
+		MultipartLevel firstApplicable(@Nonnull final Email email) {
+			for (int i = ordinal(); i < values().length; i++) {
+				if (values()[i].appliesTo(email)) {
+					return values()[i];
+				}
+			}
+			return null;
+		}
+		
+		@Nullable
+		MultipartLevel inner() {
+			return ordinal() + 1 < values().length ? values()[ordinal() + 1] : null;
+		}
+	}
+	
+	private final Email email;
+	private final OutputStream out;
+	private final LineOutputStream lines;
+	@Nullable private final EncodedAttachmentCache attachmentCache;
+	
+	/**
+	 * Shared by all attachments and embedded images of the message.
+	 */
+	private final byte[] copyBuffer = new byte[8192];
+	
+	private MimeMessageStreamWriter(@Nonnull final Email email, @Nonnull final OutputStream out, @Nullable final EncodedAttachmentCache attachmentCache) {
+		this.email = email;
+		this.out = out;
+		this.lines = new LineOutputStream(out);
+		this.attachmentCache = attachmentCache;
+	}
+	
+	/**
+	 * @param session         Used the same way a MimeMessage would, for generating a Message-ID if the email has none.
+	 * @param attachmentCache Optional cache to take the encoded content of attachments and embedded images from.
+	 */
+	public static void writeMimeMessage(@Nonnull final Email email, @Nonnull final Session session, @Nonnull final OutputStream out,
+			@Nullable final EncodedAttachmentCache attachmentCache)
+			throws IOException, MessagingException {
+		checkArgumentNotEmpty(email, "email is missing");
+		checkArgumentNotEmpty(session, "session is missing");
+		checkArgumentNotEmpty(out, "outputStream is missing");
+		new MimeMessageStreamWriter(email, out, attachmentCache).writeMessage(session);
+		out.flush();
+	}
+	
+	private void writeMessage(@Nonnull final Session session)
+			throws IOException, MessagingException {
+		// headers are set in the same order as MimeMessageProducer does, which matters for those InternetHeaders doesn't have a fixed position for
+		final InternetHeaders headers = new InternetHeaders();
+		final EncodedHeaders encodedHeaders = MimeMessageHelper.encodedHeaders(email);
+		if (encodedHeaders.getSubject() != null) {
+			headers.setHeader("Subject", encodedHeaders.getSubject());
+		}
+		if (encodedHeaders.getFrom() != null) {
+			setAddressHeader(headers, "From", encodedHeaders.getFrom());
+		}
+		if (encodedHeaders.getReplyTo() != null) {
+			setAddressHeader(headers, "Reply-To", encodedHeaders.getReplyTo());
+		}
+		setAddressHeader(headers, "To", encodedHeaders.getRecipients(RecipientType.TO));
+		setAddressHeader(headers, "Cc", encodedHeaders.getRecipients(RecipientType.CC));
+		setAddressHeader(headers, "Bcc", encodedHeaders.getRecipients(RecipientType.BCC));
+		setCustomHeaders(headers, encodedHeaders);
+		headers.setHeader("Date", formatDate(new Date()));
+		headers.setHeader("MIME-Version", "1.0");
+		headers.setHeader("Message-ID", valueNullOrEmpty(email.getId()) ? generateMessageId(session) : email.getId());
+		
+		final MultipartLevel root = MultipartLevel.MIXED.firstApplicable(email);
+		if (root != null) {
+			writeMultipart(headers, root);
+		} else {
+			writeSingleText(headers);
+		}
+	}
+	
+	/**
+	 * Writes the given headers and a multipart with the parts belonging to the given level: the texts or the next level inwards, followed by the
+	 * forwarded email and attachments for mixed and the embedded images for related.
+	 */
+	private void writeMultipart(@Nonnull final InternetHeaders headers, @Nonnull final MultipartLevel level)
+			throws IOException, MessagingException {
+		final String boundary = generateBoundary();
+		final ContentType contentType = new ContentType("multipart", level.subtype, null);
+		contentType.setParameter("boundary", boundary);
+		headers.setHeader("Content-Type", contentType.toString());
+		writeHeaders(headers);
+		
+		final String delimiter = "--" + boundary;
+		final MultipartLevel inner = level.inner() != null ? level.inner().firstApplicable(email) : null;
+		if (inner != null) {
+			lines.writeln(delimiter);
+			writeMultipart(new InternetHeaders(), inner);
+			lines.writeln();
+		} else {
+			writeTextParts(delimiter);
+		}
+		if (level == MultipartLevel.MIXED) {
+			if (email.getEmailToForward() != null) {
+				lines.writeln(delimiter);
+				writeForwardedEmail(email.getEmailToForward());
+				lines.writeln();
+			}
+			writeResourceParts(delimiter, email.getAttachments(), Part.ATTACHMENT);
+		} else if (level == MultipartLevel.RELATED) {
+			writeResourceParts(delimiter, email.getEmbeddedImages(), Part.INLINE);
+		}
+		lines.writeln(delimiter + "--");
+	}
+	
+	/**
+	 * @see MimeMessageHelper#setTexts(Email, MimeMultipart)
+	 */
+	private void writeTextParts(@Nonnull final String delimiter)
+			throws IOException, MessagingException {
+		if (email.getPlainText() != null) {
+			lines.writeln(delimiter);
+			writeText(new InternetHeaders(), email.getPlainText(), PLAIN_TEXT_CONTENT_TYPE);
+			lines.writeln();
+		}
+		if (email.getHTMLText() != null) {
+			lines.writeln(delimiter);
+			writeText(new InternetHeaders(), email.getHTMLText(), HTML_TEXT_CONTENT_TYPE);
+			lines.writeln();
+		}
+		if (email.getCalendarText() != null && email.getCalendarMethod() != null) {
+			lines.writeln(delimiter);
+			writeText(new InternetHeaders(), email.getCalendarText(), calendarContentType());
+			lines.writeln();
+		}
+	}
+	
+	/**
+	 * Writes the only text of the email as the content of the message itself. As in {@link MimeMessageHelper#setTexts(Email, javax.mail.internet.MimePart)},
+	 * the last one set wins if there are several.
+	 */
+	private void writeSingleText(@Nonnull final InternetHeaders headers)
+			throws IOException, MessagingException {
+		if (email.getCalendarText() != null && email.getCalendarMethod() != null) {
+			writeText(headers, email.getCalendarText(), calendarContentType());
+		} else if (email.getHTMLText() != null) {
+			writeText(headers, email.getHTMLText(), HTML_TEXT_CONTENT_TYPE);
+		} else if (email.getPlainText() != null) {
+			writeText(headers, email.getPlainText(), PLAIN_TEXT_CONTENT_TYPE);
+		} else {
+			// a MimeMessage without content can't be written at all, but an empty text is what it represents
+			writeText(headers, "", PLAIN_TEXT_CONTENT_TYPE);
+		}
+	}
+	
+	private void writeText(@Nonnull final InternetHeaders headers, @Nonnull final String text, @Nonnull final String contentType)
+			throws IOException, MessagingException {
+		final byte[] content = text.getBytes(CHARACTER_ENCODING);
+		// the same choice between 7bit, quoted-printable and base64 a MimeBodyPart makes, by checking the content up front
+		final String encoding = MimeUtility.getEncoding(new ByteArrayDataSource(content, contentType));
+		headers.setHeader("Content-Type", contentType);
+		headers.setHeader("Content-Transfer-Encoding", encoding);
+		writeHeaders(headers);
+		final OutputStream encoder = MimeUtility.encode(out, encoding);
+		encoder.write(content);
+		encoder.flush();
+	}
+	
+	/**
+	 * @see MimeMessageHelper#configureForwarding(Email, MimeMultipart)
+	 */
+	private void writeForwardedEmail(@Nonnull final MimeMessage emailToForward)
+			throws IOException, MessagingException {
+		final InternetHeaders headers = new InternetHeaders();
+		headers.setHeader("Content-Type", "message/rfc822");
+		writeHeaders(headers);
+		emailToForward.writeTo(out);
+	}
+	
+	private void writeResourceParts(@Nonnull final String delimiter, @Nonnull final List<AttachmentResource> resources, @Nonnull final String dispositionType)
+			throws IOException, MessagingException {
+		for (final AttachmentResource resource : resources) {
+			lines.writeln(delimiter);
+			writeResource(resource, dispositionType);
+			lines.writeln();
+		}
+	}
+	
+	/**
+	 * Writes an attachment or embedded image with the same headers as a body part from {@link MimeMessageHelper#getBodyPartFromDatasource(AttachmentResource,
+	 * String, EncodedAttachmentCache)}, streaming the content from the data source into the encoder (or for memory-mapped files, encoding them in
+	 * place).
+	 */
+	private void writeResource(@Nonnull final AttachmentResource resource, @Nonnull final String dispositionType)
+			throws IOException, MessagingException {
+		final DataSource dataSource = MimeMessageHelper.encodeUsingCache(resource.getDataSource(), attachmentCache);
+		final String resourceName = MimeMessageHelper.determineResourceName(resource, false);
+		final String fileName = MimeMessageHelper.determineResourceName(resource, true);
+		
+		// through the same calls as MimeMessageHelper, so the file name is encoded and the header folded exactly as javax.mail does
+		final MimeBodyPart dispositionPart = new MimeBodyPart();
+		dispositionPart.setFileName(fileName);
+		dispositionPart.setDisposition(dispositionType);
+		
+		final InternetHeaders headers = new InternetHeaders();
+		headers.setHeader("Content-Disposition", dispositionPart.getHeader("Content-Disposition", null));
+		headers.setHeader("Content-Type", dataSource.getContentType() + "; filename=" + fileName + "; name=" + resourceName);
+		headers.setHeader("Content-ID", format("<%s>", resourceName));
+		
+		if (dataSource instanceof PreencodedDataSource) {
+			headers.setHeader("Content-Transfer-Encoding", PreencodedDataSource.ENCODING);
+			writeHeaders(headers);
+			((PreencodedDataSource) dataSource).writeEncodedTo(out);
+		} else {
+			// like javax.mail, attached emails are written as is and without the header, as RFC 2046 doesn't allow them to be encoded
+			final String encoding = new ContentType(dataSource.getContentType()).match("message/rfc822")
+					? null
+					: MimeUtility.getEncoding(new NamedDataSource(fileName, dataSource));
+			if (encoding != null) {
+				headers.setHeader("Content-Transfer-Encoding", encoding);
+			}
+			writeHeaders(headers);
+			if (dataSource instanceof MappedFileDataSource && PreencodedDataSource.ENCODING.equals(encoding)) {
+				ByteBufferBase64Encoder.encode(((MappedFileDataSource) dataSource).getContent(), out, false);
+			} else {
+				final OutputStream encoder = (encoding != null) ? MimeUtility.encode(out, encoding) : out;
+				try (InputStream in = dataSource.getInputStream()) {
+					int read;
+					while ((read = in.read(copyBuffer)) != -1) {
+						encoder.write(copyBuffer, 0, read);
+					}
+				}
+				encoder.flush();
+			}
+		}
+	}
+	
+	/**
+	 * @see MimeMessageHelper#setHeaders(Email, javax.mail.Message)
+	 */
+	private static void setCustomHeaders(@Nonnull final InternetHeaders headers, @Nonnull final EncodedHeaders encodedHeaders) {
+		for (final Map.Entry<String, String> header : encodedHeaders.getCustomHeaders().entrySet()) {
+			headers.addHeader(header.getKey(), header.getValue());
+		}
+		if (encodedHeaders.getDispositionNotificationTo() != null) {
+			headers.setHeader("Disposition-Notification-To", encodedHeaders.getDispositionNotificationTo());
+		}
+		if (encodedHeaders.getReturnReceiptTo() != null) {
+			headers.setHeader("Return-Receipt-To", encodedHeaders.getReturnReceiptTo());
+		}
+	}
+	
+	/**
+	 * Sets the header to the given addresses, unless there are none.
+	 */
+	private static void setAddressHeader(@Nonnull final InternetHeaders headers, @Nonnull final String headerName, @Nonnull final Address... addresses) {
+		if (addresses.length > 0) {
+			headers.setHeader(headerName, InternetAddress.toString(addresses, headerName.length() + 2));
+		}
+	}
+	
+	@Nonnull
+	private String calendarContentType() {
+		return "text/calendar; charset=\"" + CHARACTER_ENCODING + "\"; method=\"" + email.getCalendarMethod().toString() + "\"";
+	}
+	
+	private void writeHeaders(@Nonnull final InternetHeaders headers)
+			throws IOException {
+		@SuppressWarnings("unchecked")
+		final Enumeration<String> headerLines = headers.getAllHeaderLines();
+		while (headerLines.hasMoreElements()) {
+			lines.writeln(headerLines.nextElement());
+		}
+		lines.writeln();
+	}
+	
+	/**
+	 * @return A boundary in the same format javax.mail generates them.
+	 */
+	@Nonnull
+	private String generateBoundary() {
+		return "----=_Part_" + BOUNDARY_COUNTER.getAndIncrement() + "_" + System.identityHashCode(this) + "." + System.currentTimeMillis();
+	}
+	
+	/**
+	 * @return A Message-ID in the same format javax.mail generates them.
+	 */
+	@Nonnull
+	private String generateMessageId(@Nonnull final Session session) {
+		final InternetAddress localAddress = InternetAddress.getLocalAddress(session);
+		final String address = localAddress != null ? localAddress.getAddress() : "javamailuser@localhost";
+		return "<" + System.identityHashCode(this) + "." + MESSAGE_ID_COUNTER.getAndIncrement() + "." + System.currentTimeMillis()
+				+ address.substring(Math.max(address.lastIndexOf('@'), 0)) + ">";
+	}
+	
+	@Nonnull
+	private static String formatDate(@Nonnull final Date date) {
+		synchronized (MAIL_DATE_FORMAT) {
+			return MAIL_DATE_FORMAT.format(date);
+		}
+	}
+}
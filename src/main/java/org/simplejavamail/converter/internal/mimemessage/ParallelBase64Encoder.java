@@ -0,0 +1,165 @@
+package org.simplejavamail.converter.internal.mimemessage;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static org.simplejavamail.converter.internal.mimemessage.ByteBufferBase64Encoder.BYTES_PER_LINE;
+import static org.simplejavamail.converter.internal.mimemessage.ByteBufferBase64Encoder.ENCODED_LINE_LENGTH;
+
+/**
+ * Base64 encodes content a window at a time, so no more than one window of content and its encoding is held in memory, however large the content.
+ * With more than one thread, each window is split into blocks of whole 57 byte lines, which are encoded in parallel on the encoder's own fork-join
+ * pool. Every full line encodes to exactly 78 bytes (including the line break), so each block is written straight to its own place in the window and
+ * no stitching afterwards is needed.
+ * <p>
+ * The result is the same as that of {@link ByteBufferBase64Encoder}, and so of javax.mail's own base64 encoder stream.
+ *
+ * @see EncodedAttachmentCache
+ */
+final class ParallelBase64Encoder {
+	
+	/**
+	 * Number of lines encoded before writing them to the output stream; about 456KB of content.
+	 */
+	static final int LINES_PER_WINDOW = 8192;
+	
+	/**
+	 * Number of lines encoded by a single task. Windows with fewer lines are encoded on the calling thread, since splitting them up costs more than
+	 * it saves.
+	 */
+	private static final int LINES_PER_BLOCK = 1024;
+	
+	/**
+	 * Only with more than one thread; its worker threads are daemon threads, started when first needed.
+	 */
+	@Nullable
+	private final ForkJoinPool pool;
+	
+	/**
+	 * @param threads The number of threads to encode a window on. With one thread, everything is encoded on the calling thread.
+	 */
+	ParallelBase64Encoder(final int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads should be at least 1: " + threads);
+		}
+		this.pool = (threads > 1) ? new ForkJoinPool(threads) : null;
+	}
+	
+	/**
+	 * Encodes the remaining content of the buffer, leaving it at its limit.
+	 *
+	 * @param breakLastLine See {@link ByteBufferBase64Encoder#encode(ByteBuffer, OutputStream, boolean)}.
+	 */
+	void encode(@Nonnull final ByteBuffer content, @Nonnull final OutputStream out, final boolean breakLastLine)
+			throws IOException {
+		final byte[] encoded = new byte[LINES_PER_WINDOW * ENCODED_LINE_LENGTH];
+		final ByteBuffer window = content.duplicate();
+		while (content.hasRemaining()) {
+			window.limit(content.position() + Math.min(content.remaining(), LINES_PER_WINDOW * BYTES_PER_LINE));
+			out.write(encoded, 0, encodeWindow(window, encoded, breakLastLine));
+			content.position(window.position());
+		}
+	}
+	
+	/**
+	 * Encodes the stream up to its end, without closing it.
+	 *
+	 * @param breakLastLine See {@link ByteBufferBase64Encoder#encode(ByteBuffer, OutputStream, boolean)}.
+	 */
+	void encode(@Nonnull final InputStream in, @Nonnull final OutputStream out, final boolean breakLastLine)
+			throws IOException {
+		final byte[] window = new byte[LINES_PER_WINDOW * BYTES_PER_LINE];
+		final byte[] encoded = new byte[LINES_PER_WINDOW * ENCODED_LINE_LENGTH];
+		int length;
+		// only the last window can end with a partial line
+		while ((length = readWindow(in, window)) > 0) {
+			out.write(encoded, 0, encodeWindow(ByteBuffer.wrap(window, 0, length), encoded, breakLastLine));
+		}
+	}
+	
+	/**
+	 * Stops the threads of the pool, if any. Encoding on more than one thread fails afterwards.
+	 */
+	void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * @return The length of the encoded window.
+	 */
+	private int encodeWindow(@Nonnull final ByteBuffer window, @Nonnull final byte[] encoded, final boolean breakLastLine) {
+		final int lines = (window.remaining() + BYTES_PER_LINE - 1) / BYTES_PER_LINE;
+		if (pool == null || lines <= LINES_PER_BLOCK) {
+			return ByteBufferBase64Encoder.encode(window, encoded, 0, breakLastLine);
+		}
+		final int length = (int) ByteBufferBase64Encoder.encodedSize(window.remaining(), breakLastLine);
+		pool.invoke(new EncodeTask(window.duplicate(), encoded, 0, lines, breakLastLine));
+		window.position(window.limit());
+		return length;
+	}
+	
+	/**
+	 * Fills the window as far as the stream allows.
+	 *
+	 * @return The number of bytes read, which is less than the size of the window only at the end of the stream.
+	 */
+	private static int readWindow(@Nonnull final InputStream in, @Nonnull final byte[] window)
+			throws IOException {
+		int length = 0;
+		int read;
+		while (length < window.length && (read = in.read(window, length, window.length - length)) != -1) {
+			length += read;
+		}
+		return length;
+	}
+	
+	/**
+	 * Encodes a range of lines, splitting it in halves until it is small enough.
+	 */
+	private static class EncodeTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final ByteBuffer content;
+		private final byte[] encoded;
+		private final int firstLine;
+		private final int lines;
+		private final boolean breakLastLine;
+		
+		/**
+		 * @param content The complete window, positioned at its start.
+		 */
+		private EncodeTask(@Nonnull final ByteBuffer content, @Nonnull final byte[] encoded, final int firstLine, final int lines,
+				final boolean breakLastLine) {
+			this.content = content;
+			this.encoded = encoded;
+			this.firstLine = firstLine;
+			this.lines = lines;
+			this.breakLastLine = breakLastLine;
+		}
+		
+		@Override
+		protected void compute() {
+			if (lines > LINES_PER_BLOCK) {
+				final int half = lines / 2;
+				invokeAll(new EncodeTask(content, encoded, firstLine, half, breakLastLine),
+						new EncodeTask(content, encoded, firstLine + half, lines - half, breakLastLine));
+			} else {
+				final ByteBuffer block = content.duplicate();
+				final int start = content.position() + firstLine * BYTES_PER_LINE;
+				block.position(start);
+				block.limit(Math.min(content.limit(), start + lines * BYTES_PER_LINE));
+				// only the block with the last line can end with a partial line
+				ByteBufferBase64Encoder.encode(block, encoded, firstLine * ENCODED_LINE_LENGTH, breakLastLine);
+			}
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package org.simplejavamail.converter.internal.mimemessage;
+
+import org.simplejavamail.email.MappedFileDataSource;
+
+import javax.activation.DataSource;
+import javax.annotation.Nonnull;
+import javax.mail.EncodingAware;
+import javax.mail.MessagingException;
+import javax.mail.internet.ContentType;
+import javax.mail.internet.MimeUtility;
+import javax.mail.internet.ParseException;
+import javax.mail.internet.PreencodedMimeBodyPart;
+import javax.mail.util.ByteArrayDataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Holds the content of a data source already base64 encoded, so an attachment or embedded image that goes out with many emails is only read and
+ * encoded once. {@link MimeMessageHelper} puts its encoded bytes in a {@link PreencodedMimeBodyPart}, which writes them as-is. The encoded bytes
+ * are never modified, so one instance can be shared by any number of messages and threads.
+ * <p>
+ * To anything else, this looks like the original data source: {@link #getInputStream()} returns the decoded content.
+ */
+public class PreencodedDataSource implements DataSource, EncodingAware {
+
+	static final String ENCODING = "base64";
+
+	private static final ParallelBase64Encoder SEQUENTIAL_ENCODER = new ParallelBase64Encoder(1);
+
+	private final String name;
+
+	private final String contentType;
+
+	/**
+	 * The base64 encoded content, with line breaks as required by RFC 2045.
+	 */
+	private final byte[] encodedContent;
+
+	PreencodedDataSource(final String name, final String contentType, @Nonnull final byte[] encodedContent) {
+		this.name = name;
+		this.contentType = contentType;
+		this.encodedContent = encodedContent;
+	}
+
+	/**
+	 * Reads the given data source and encodes its content. Data sources that were encoded already are returned as is.
+	 * <p>
+	 * The content is read and encoded a window at a time, so besides the encoded content no more than a window of it is held in memory. A {@link
+	 * MappedFileDataSource} is best left unencoded, since it is encoded straight from the mapped file while the message is written, never copying its
+	 * content onto the heap; {@link org.simplejavamail.email.MailMerge} and {@link EncodedAttachmentCache} leave it as is.
+	 */
+	@Nonnull
+	public static PreencodedDataSource encode(@Nonnull final DataSource dataSource)
+			throws IOException {
+		return encode(dataSource, SEQUENTIAL_ENCODER);
+	}
+
+	/**
+	 * @param encoder Encodes the content, possibly on multiple threads.
+	 * @see #encode(DataSource)
+	 */
+	@Nonnull
+	static PreencodedDataSource encode(@Nonnull final DataSource dataSource, @Nonnull final ParallelBase64Encoder encoder)
+			throws IOException {
+		if (dataSource instanceof PreencodedDataSource) {
+			return (PreencodedDataSource) dataSource;
+		}
+		final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+		if (dataSource instanceof MappedFileDataSource) {
+			// encoded straight from the mapped file
+			encoder.encode(((MappedFileDataSource) dataSource).getContent(), encoded, true);
+		} else {
+			try (InputStream in = dataSource.getInputStream()) {
+				encoder.encode(in, encoded, true);
+			}
+		}
+		return new PreencodedDataSource(dataSource.getName(), dataSource.getContentType(), encoded.toByteArray());
+	}
+
+	/**
+	 * @return Whether javax.mail would base64 encode the data source as the content of a body part. It never encodes <code>message/*</code> content,
+	 * which RFC 2046 doesn't allow, and picks 7bit or quoted-printable for content that is (mostly) ASCII (see {@link
+	 * MimeUtility#getEncoding(DataSource)}). Only then is it worth encoding content up front.
+	 */
+	public static boolean isEncodedAsBase64(@Nonnull final DataSource dataSource) {
+		try {
+			if (new ContentType(dataSource.getContentType()).match("message/*")) {
+				return false;
+			}
+		} catch (final ParseException e) {
+			// left to javax.mail, which fails on it as well when the part is created
+			return false;
+		}
+		return ENCODING.equals(MimeUtility.getEncoding(dataSource));
+	}
+
+	/**
+	 * @return The decoded content.
+	 */
+	@Override
+	public InputStream getInputStream()
+			throws IOException {
+		try {
+			return MimeUtility.decode(new ByteArrayInputStream(encodedContent), ENCODING);
+		} catch (final MessagingException e) {
+			throw new IOException("unable to decode data source " + name, e);
+		}
+	}
+
+	@Override
+	public OutputStream getOutputStream()
+			throws IOException {
+		throw new IOException("pre-encoded data source is read-only");
+	}
+
+	@Override
+	public String getContentType() {
+		return contentType;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return {@value #ENCODING}
+	 */
+	@Override
+	public String getEncoding() {
+		return ENCODING;
+	}
+
+	/**
+	 * @return The size of the encoded content, in bytes.
+	 */
+	long getEncodedSize() {
+		return encodedContent.length;
+	}
+
+	void writeEncodedTo(@Nonnull final OutputStream out)
+			throws IOException {
+		out.write(encodedContent);
+	}
+
+	/**
+	 * @return A data source over the encoded content, for a {@link PreencodedMimeBodyPart}.
+	 */
+	@Nonnull
+	DataSource getEncodedDataSource() {
+		final ByteArrayDataSource encodedDataSource = new ByteArrayDataSource(encodedContent, contentType);
+		encodedDataSource.setName(name);
+		return encodedDataSource;
+	}
+}
@@ -1,10 +1,13 @@
 package org.simplejavamail.email;
 
+import org.simplejavamail.converter.internal.mimemessage.EncodedHeaders;
+
 import javax.activation.DataSource;
 import javax.annotation.Nonnull;
 import javax.mail.internet.MimeMessage;
 import java.io.File;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.util.List;
 import java.util.Map;
 
@@ -116,6 +119,11 @@ public class Email {
 	 */
 	private final MimeMessage emailToForward;
 	
+	/**
+	 * @see #internalGetEncodedHeaders()
+	 */
+	private volatile EncodedHeaders encodedHeaders;
+	
 	/**
 	 * Simply transfers everything from {@link EmailPopulatingBuilder} to this Email instance.
 	 *
@@ -174,6 +182,23 @@ public class Email {
 		this.id = id;
 	}
 	
+	/**
+	 * @deprecated Don't use this method. It is used internally to encode the headers of this email only once, no matter how often it is sent, as an
+	 * email doesn't change once built.
+	 */
+	@Deprecated
+	@SuppressWarnings("DeprecatedIsStillUsed")
+	@Nonnull
+	public EncodedHeaders internalGetEncodedHeaders()
+			throws UnsupportedEncodingException {
+		// encoding the same headers twice when sending concurrently is harmless, so no need to lock
+		EncodedHeaders encoded = encodedHeaders;
+		if (encoded == null) {
+			encodedHeaders = encoded = EncodedHeaders.encode(this);
+		}
+		return encoded;
+	}
+	
 	@SuppressWarnings("SameReturnValue")
 	@Override
 	public int hashCode() {
@@ -9,6 +9,8 @@ import org.simplejavamail.MailException;
 class EmailException extends MailException {
 	
 	static final String NAME_MISSING_FOR_EMBEDDED_IMAGE = "No name given for embedded image nor passed inside the data source";
+	static final String MERGE_VARIABLE_MISSING = "No value given for mail merge variable %s";
+	static final String MERGE_ENCODING_FAILED = "Unable to encode attachment or embedded image %s for mail merge";
 	
 	EmailException(@SuppressWarnings("SameParameterValue") final String message) {
 		super(message);
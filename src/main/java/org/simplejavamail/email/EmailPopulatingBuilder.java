@@ -1193,6 +1193,8 @@ public class EmailPopulatingBuilder {
 	 * the client supports it (for example, most browsers these days display PDF's in a popup).
 	 * <p>
 	 * Note: for embedding images instead of attaching them for download, refer to {@link #withEmbeddedImage(String, DataSource)} instead.
+	 * <p>
+	 * For large files, use a {@link MappedFileDataSource}, which doesn't read the file onto the heap.
 	 *
 	 * @param name     Optional name of the attachment (eg. 'filename.ext'). If omitted, the internal name of the datasource is used. If that too is
 	 *                 empty, a name will be generated using {@link java.util.UUID}.
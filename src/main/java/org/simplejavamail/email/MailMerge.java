@@ -0,0 +1,255 @@
+package org.simplejavamail.email;
+
+import org.simplejavamail.converter.internal.mimemessage.PreencodedDataSource;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.mail.Message.RecipientType;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+import static org.simplejavamail.internal.util.MiscUtil.checkNotNull;
+import static org.simplejavamail.internal.util.Preconditions.checkNonEmptyArgument;
+
+/**
+ * Produces personalized copies of a template email, for sending the same email to a large number of recipients. Placeholders of the form
+ * <code>${name}</code> in the subject, the plain text, the HTML text and the recipients' names and addresses are replaced with the values of a
+ * map of variables, one map per email.
+ * <p>
+ * The template is analyzed only once. Its attachments and embedded images are read and base64 encoded only once as well (those javax.mail would
+ * base64 encode, other than {@link MappedFileDataSource mapped files}), and the encoded content is shared by all emails produced, rather than being
+ * encoded again for every email. Combined with {@link
+ * org.simplejavamail.mailer.Mailer#sendMails(Iterator, org.simplejavamail.mailer.SendResultHandler)}, a large mail merge is produced lazily and
+ * sent over a single connection:
+ * <pre>
+ * MailMerge mailMerge = new MailMerge(EmailBuilder.startingBlank()
+ *         .from("news@example.com")
+ *         .to("${name}", "${address}")
+ *         .withSubject("Hello ${name}")
+ *         .withHTMLText("&lt;p&gt;Dear ${name}, ...&lt;/p&gt;")
+ *         .withAttachment("brochure.pdf", brochure)
+ *         .buildEmail());
+ * mailer.sendMails(mailMerge.merge(variablesPerRecipient), resultHandler);
+ * </pre>
+ * Values substituted in the HTML text are HTML escaped. A placeholder without a value fails the email with a {@link org.simplejavamail.MailException}.
+ * A MailMerge is immutable and can be used by any number of threads at the same time.
+ */
+public class MailMerge {
+	
+	private final Email template;
+	
+	@Nullable private final MergeTemplate subject;
+	@Nullable private final MergeTemplate plainText;
+	@Nullable private final MergeTemplate htmlText;
+	
+	private final List<MergeRecipient> recipients = new ArrayList<>();
+	
+	/**
+	 * Analyzes the template and encodes its attachments and embedded images.
+	 *
+	 * @param template The email to produce personalized copies of. Its message id, if any, is not copied.
+	 * @throws org.simplejavamail.MailException If an attachment or embedded image can't be read.
+	 */
+	public MailMerge(@Nonnull final Email template) {
+		checkNonEmptyArgument(template, "template");
+		this.template = EmailBuilder.ignoringDefaults().copying(template)
+				.clearId()
+				.clearAttachments()
+				.withAttachments(preencode(template.getAttachments()))
+				.clearEmbeddedImages()
+				.withEmbeddedImages(preencode(template.getEmbeddedImages()))
+				.buildEmail();
+		this.subject = MergeTemplate.parse(template.getSubject());
+		this.plainText = MergeTemplate.parse(template.getPlainText());
+		this.htmlText = MergeTemplate.parse(template.getHTMLText());
+		for (final Recipient recipient : template.getRecipients()) {
+			recipients.add(new MergeRecipient(recipient));
+		}
+	}
+	
+	/**
+	 * Produces a personalized copy of the template.
+	 *
+	 * @param variables The values for the placeholders, converted with {@link String#valueOf(Object)}.
+	 * @throws org.simplejavamail.MailException If a placeholder has no value.
+	 */
+	@Nonnull
+	public Email merge(@Nonnull final Map<String, ?> variables) {
+		checkNotNull(variables, "variables");
+		final EmailPopulatingBuilder builder = EmailBuilder.ignoringDefaults().copying(template).clearRecipients();
+		for (final MergeRecipient recipient : recipients) {
+			builder.withRecipient(recipient.render(variables));
+		}
+		if (subject != null) {
+			builder.withSubject(subject.render(variables, false));
+		}
+		if (plainText != null) {
+			builder.withPlainText(plainText.render(variables, false));
+		}
+		if (htmlText != null) {
+			builder.withHTMLText(htmlText.render(variables, true));
+		}
+		// not included when copying an email
+		if (template.getCalendarText() != null && template.getCalendarMethod() != null) {
+			builder.withCalendarText(template.getCalendarMethod(), template.getCalendarText());
+		}
+		return builder.buildEmail();
+	}
+	
+	/**
+	 * Lazily produces a personalized copy of the template for each map of variables, so the emails are never held in memory all at once.
+	 *
+	 * @see #merge(Map)
+	 */
+	@Nonnull
+	public Iterator<Email> merge(@Nonnull final Iterator<? extends Map<String, ?>> variablesPerEmail) {
+		checkNonEmptyArgument(variablesPerEmail, "variablesPerEmail");
+		return new Iterator<Email>() {
+			@Override
+			public boolean hasNext() {
+				return variablesPerEmail.hasNext();
+			}
+			
+			@Override
+			public Email next() {
+				return merge(variablesPerEmail.next());
+			}
+			
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException("remove");
+			}
+		};
+	}
+	
+	/**
+	 * @return The template as it is copied, with its attachments and embedded images encoded.
+	 */
+	@Nonnull
+	public Email getTemplate() {
+		return template;
+	}
+	
+	@Nonnull
+	private static List<AttachmentResource> preencode(@Nonnull final List<AttachmentResource> resources) {
+		final List<AttachmentResource> preencoded = new ArrayList<>();
+		for (final AttachmentResource resource : resources) {
+			if (resource.getDataSource() instanceof MappedFileDataSource || !PreencodedDataSource.isEncodedAsBase64(resource.getDataSource())) {
+				// written as javax.mail would, such as attached emails, which must not be encoded at all, and mapped files, which are encoded straight
+				// from the mapped file while written rather than copied onto the heap
+				preencoded.add(resource);
+				continue;
+			}
+			try {
+				preencoded.add(new AttachmentResource(resource.getName(), PreencodedDataSource.encode(resource.getDataSource())));
+			} catch (final IOException e) {
+				throw new EmailException(format(EmailException.MERGE_ENCODING_FAILED, resource.getName()), e);
+			}
+		}
+		return preencoded;
+	}
+	
+	/**
+	 * A text split into literal parts and placeholders once, so rendering it is a single pass of appending.
+	 */
+	private static class MergeTemplate {
+		
+		/**
+		 * One more literal than there are variables: the text before, between and after the placeholders (possibly empty).
+		 */
+		private final List<String> literals = new ArrayList<>();
+		private final List<String> variables = new ArrayList<>();
+		private final int literalLength;
+		
+		private MergeTemplate(@Nonnull final String text) {
+			int literalLength = 0;
+			int position = 0;
+			int placeholderStart;
+			while ((placeholderStart = text.indexOf("${", position)) >= 0) {
+				final int placeholderEnd = text.indexOf('}', placeholderStart + 2);
+				if (placeholderEnd < 0) {
+					break;
+				}
+				literals.add(text.substring(position, placeholderStart));
+				literalLength += placeholderStart - position;
+				variables.add(text.substring(placeholderStart + 2, placeholderEnd));
+				position = placeholderEnd + 1;
+			}
+			literals.add(text.substring(position));
+			this.literalLength = literalLength + text.length() - position;
+		}
+		
+		@Nullable
+		static MergeTemplate parse(@Nullable final String text) {
+			return text != null ? new MergeTemplate(text) : null;
+		}
+		
+		@Nonnull
+		String render(@Nonnull final Map<String, ?> values, final boolean escapeHtml) {
+			final StringBuilder result = new StringBuilder(literalLength + variables.size() * 16);
+			for (int i = 0; i < variables.size(); i++) {
+				result.append(literals.get(i));
+				final String variable = variables.get(i);
+				final Object value = values.get(variable);
+				if (value == null) {
+					throw new EmailException(format(EmailException.MERGE_VARIABLE_MISSING, variable));
+				}
+				if (escapeHtml) {
+					appendHtmlEscaped(result, String.valueOf(value));
+				} else {
+					result.append(value);
+				}
+			}
+			return result.append(literals.get(variables.size())).toString();
+		}
+		
+		private static void appendHtmlEscaped(@Nonnull final StringBuilder result, @Nonnull final String value) {
+			for (int i = 0; i < value.length(); i++) {
+				final char c = value.charAt(i);
+				switch (c) {
+					case '&':
+						result.append("&amp;");
+						break;
+					case '<':
+						result.append("&lt;");
+						break;
+					case '>':
+						result.append("&gt;");
+						break;
+					case '"':
+						result.append("&quot;");
+						break;
+					case '\'':
+						result.append("&#39;");
+						break;
+					default:
+						result.append(c);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * A recipient of the template, of which the name and address may contain placeholders.
+	 */
+	private static class MergeRecipient {
+		@Nullable private final MergeTemplate name;
+		@Nonnull private final MergeTemplate address;
+		@Nullable private final RecipientType type;
+		
+		private MergeRecipient(@Nonnull final Recipient recipient) {
+			this.name = MergeTemplate.parse(recipient.getName());
+			this.address = new MergeTemplate(recipient.getAddress());
+			this.type = recipient.getType();
+		}
+		
+		@Nonnull
+		Recipient render(@Nonnull final Map<String, ?> variables) {
+			return new Recipient(name != null ? name.render(variables, false) : null, address.render(variables, false), type);
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package org.simplejavamail.email;
+
+import javax.activation.DataSource;
+import javax.activation.FileTypeMap;
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static org.simplejavamail.internal.util.Preconditions.checkNonEmptyArgument;
+
+/**
+ * A data source for a file attachment or embedded image that memory-maps the file, rather than reading it onto the heap. Use it instead of a
+ * {@link javax.activation.FileDataSource} or a byte array for large files:
+ * <pre>
+ * EmailBuilder.startingBlank()
+ *         .withAttachment("catalog.pdf", new MappedFileDataSource(new File("catalog.pdf")))
+ *         ...
+ * </pre>
+ * The file is mapped once, when its content is first needed, and base64 encoded straight from the mapped pages. The same instance can be attached
+ * to any number of emails sent at the same time, which then all read the same pages; the operating system shares those with any other process
+ * reading the file too.
+ * <p>
+ * The mapping is released when this data source is garbage collected. The file should not be modified or truncated while emails using it are sent,
+ * and can't be larger than 2GB.
+ */
+public class MappedFileDataSource implements DataSource {
+	
+	private final File file;
+	
+	private final String contentType;
+	
+	/**
+	 * Mapped when first needed, see {@link #getContent()}.
+	 */
+	private volatile MappedByteBuffer mappedContent;
+	
+	/**
+	 * Determines the content type from the file name, the same way {@link javax.activation.FileDataSource} does.
+	 */
+	public MappedFileDataSource(@Nonnull final File file) {
+		this(file, FileTypeMap.getDefaultFileTypeMap().getContentType(checkNonEmptyArgument(file, "file")));
+	}
+	
+	public MappedFileDataSource(@Nonnull final File file, @Nonnull final String contentType) {
+		this.file = checkNonEmptyArgument(file, "file");
+		this.contentType = checkNonEmptyArgument(contentType, "contentType");
+	}
+	
+	/**
+	 * @return A read-only view of the complete content of the file, positioned at its start. Every call returns a new view of the same mapped
+	 * pages, so each user can read its own view without copying the content.
+	 */
+	@Nonnull
+	public ByteBuffer getContent()
+			throws IOException {
+		MappedByteBuffer mapped = mappedContent;
+		if (mapped == null) {
+			synchronized (this) {
+				mapped = mappedContent;
+				if (mapped == null) {
+					mappedContent = mapped = map();
+				}
+			}
+		}
+		return mapped.asReadOnlyBuffer();
+	}
+	
+	@Nonnull
+	private MappedByteBuffer map()
+			throws IOException {
+		// the mapping stays valid after the channel is closed
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r"); FileChannel channel = randomAccessFile.getChannel()) {
+			final long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("file too large to map as attachment (over 2GB): " + file);
+			}
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+	}
+	
+	/**
+	 * @return A stream over the mapped content of the file.
+	 */
+	@Override
+	public InputStream getInputStream()
+			throws IOException {
+		return new ByteBufferInputStream(getContent());
+	}
+	
+	@Override
+	public OutputStream getOutputStream()
+			throws IOException {
+		throw new IOException("memory-mapped data source is read-only");
+	}
+	
+	@Override
+	public String getContentType() {
+		return contentType;
+	}
+	
+	/**
+	 * @return The name of the file.
+	 */
+	@Override
+	public String getName() {
+		return file.getName();
+	}
+	
+	public File getFile() {
+		return file;
+	}
+	
+	private static class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+		
+		private ByteBufferInputStream(@Nonnull final ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+		
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+		
+		@Override
+		public int read(@Nonnull final byte[] b, final int off, final int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			final int read = Math.min(len, buffer.remaining());
+			buffer.get(b, off, read);
+			return read;
+		}
+		
+		@Override
+		public long skip(final long n) {
+			final int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+			buffer.position(buffer.position() + skipped);
+			return skipped;
+		}
+		
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
@@ -0,0 +1,244 @@
+package org.simplejavamail.internal.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A custom Java Flight Recorder event type, so mail operations can be correlated with GC pauses, lock contention etc. in a recording.
+ * <p>
+ * As this library targets Java 7 and the JFR API (<code>jdk.jfr</code>) only exists since Java 11 (and 8u262), event types can't be declared as
+ * subclasses of <code>jdk.jfr.Event</code>. Instead they are defined at runtime with <code>jdk.jfr.EventFactory</code>, through reflection. Without
+ * the JFR API, or while no recording has the event type enabled, {@link #begin()} returns <code>null</code> and nothing else happens, so the
+ * cost is a single check per operation.
+ * <p>
+ * All event types are in the category <em>Simple Java Mail</em>.
+ */
+public final class FlightRecorderEventType {
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(FlightRecorderEventType.class);
+	
+	@Nullable
+	private static final JfrApi JFR = JfrApi.load();
+	
+	/**
+	 * The <code>jdk.jfr.EventFactory</code>, or <code>null</code> if JFR is not available.
+	 */
+	@Nullable
+	private final Object eventFactory;
+	
+	/**
+	 * The <code>jdk.jfr.EventType</code>, or <code>null</code> if JFR is not available.
+	 */
+	@Nullable
+	private final Object eventType;
+	
+	@Nonnull
+	private final List<String> fieldNames;
+	
+	private FlightRecorderEventType(@Nullable final Object eventFactory, @Nullable final Object eventType, @Nonnull final List<String> fieldNames) {
+		this.eventFactory = eventFactory;
+		this.eventType = eventType;
+		this.fieldNames = fieldNames;
+	}
+	
+	/**
+	 * @param name   The event name, such as <code>org.simplejavamail.SendEmail</code>.
+	 * @param label  The human readable name shown in JDK Mission Control.
+	 * @param fields The fields that can be {@link Event#set(String, Object) set} on events of this type.
+	 */
+	@Nonnull
+	public static FlightRecorderEventType define(@Nonnull final String name, @Nonnull final String label, @Nonnull final Field... fields) {
+		final List<String> fieldNames = new ArrayList<>();
+		for (final Field field : fields) {
+			fieldNames.add(field.name);
+		}
+		if (JFR != null) {
+			try {
+				final Object eventFactory = JFR.createEventFactory(name, label, fields);
+				return new FlightRecorderEventType(eventFactory, JFR.eventFactoryGetEventType.invoke(eventFactory), fieldNames);
+			} catch (final ReflectiveOperationException | RuntimeException e) {
+				LOGGER.debug("unable to define flight recorder event " + name, e);
+			}
+		}
+		return new FlightRecorderEventType(null, null, fieldNames);
+	}
+	
+	@Nonnull
+	public static Field field(@Nonnull final String name, @Nonnull final Class<?> type) {
+		return new Field(name, type);
+	}
+	
+	/**
+	 * @return Whether a recording is collecting events of this type.
+	 */
+	public boolean isEnabled() {
+		if (eventType == null) {
+			return false;
+		}
+		try {
+			return (Boolean) checkNonEmptyJfr().eventTypeIsEnabled.invoke(eventType);
+		} catch (final ReflectiveOperationException | RuntimeException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Starts timing an event, which is recorded when {@link Event#commit() committed}.
+	 *
+	 * @return The event, or <code>null</code> if events of this type aren't being recorded.
+	 */
+	@Nullable
+	public Event begin() {
+		if (!isEnabled()) {
+			return null;
+		}
+		try {
+			final JfrApi jfr = checkNonEmptyJfr();
+			final Object event = jfr.eventFactoryNewEvent.invoke(eventFactory);
+			jfr.eventBegin.invoke(event);
+			return new Event(event);
+		} catch (final ReflectiveOperationException | RuntimeException e) {
+			LOGGER.debug("unable to begin flight recorder event", e);
+			return null;
+		}
+	}
+	
+	@Nonnull
+	private static JfrApi checkNonEmptyJfr() {
+		return Preconditions.checkNonEmptyArgument(JFR, "JFR");
+	}
+	
+	/**
+	 * A single occurrence of a {@link FlightRecorderEventType}, timed from {@link FlightRecorderEventType#begin()} until {@link #commit()}.
+	 */
+	public final class Event {
+		
+		@Nonnull
+		private final Object event;
+		
+		private Event(@Nonnull final Object event) {
+			this.event = event;
+		}
+		
+		/**
+		 * @param field One of the fields the event type was {@link #define(String, String, Field...) defined} with.
+		 * @param value A value of the field's type, boxed if primitive. Ignored if <code>null</code>.
+		 */
+		@Nonnull
+		public Event set(@Nonnull final String field, @Nullable final Object value) {
+			final int index = fieldNames.indexOf(field);
+			if (index < 0) {
+				throw new IllegalArgumentException("unknown flight recorder event field: " + field);
+			}
+			if (value != null) {
+				try {
+					checkNonEmptyJfr().eventSet.invoke(event, index, value);
+				} catch (final ReflectiveOperationException | RuntimeException e) {
+					LOGGER.debug("unable to set flight recorder event field " + field, e);
+				}
+			}
+			return this;
+		}
+		
+		/**
+		 * Ends the event and records it. Never fails, as recording events should never get in the way of what is being recorded.
+		 */
+		public void commit() {
+			try {
+				final JfrApi jfr = checkNonEmptyJfr();
+				jfr.eventEnd.invoke(event);
+				jfr.eventCommit.invoke(event);
+			} catch (final ReflectiveOperationException | RuntimeException e) {
+				LOGGER.debug("unable to commit flight recorder event", e);
+			}
+		}
+	}
+	
+	/**
+	 * The name and type of an event field. Supported types are the primitives, their boxes, {@link String}, {@link Thread} and {@link Class}.
+	 */
+	public static final class Field {
+		@Nonnull private final String name;
+		@Nonnull private final Class<?> type;
+		
+		private Field(@Nonnull final String name, @Nonnull final Class<?> type) {
+			this.name = name;
+			this.type = type;
+		}
+	}
+	
+	/**
+	 * The reflective handles into the <code>jdk.jfr</code> API, looked up once.
+	 */
+	private static class JfrApi {
+		
+		private static final String CATEGORY = "Simple Java Mail";
+		
+		private Method eventFactoryCreate;
+		private Method eventFactoryNewEvent;
+		private Method eventFactoryGetEventType;
+		private Method eventTypeIsEnabled;
+		private Method eventBegin;
+		private Method eventEnd;
+		private Method eventCommit;
+		private Method eventSet;
+		private Constructor<?> annotationElementConstructor;
+		private Constructor<?> valueDescriptorConstructor;
+		private Class<?> nameAnnotation;
+		private Class<?> labelAnnotation;
+		private Class<?> categoryAnnotation;
+		
+		/**
+		 * @return The API, or <code>null</code> if this Java runtime doesn't have it.
+		 */
+		@Nullable
+		static JfrApi load() {
+			try {
+				final JfrApi jfr = new JfrApi();
+				final Class<?> eventFactory = Class.forName("jdk.jfr.EventFactory");
+				final Class<?> event = Class.forName("jdk.jfr.Event");
+				final Class<?> annotationElement = Class.forName("jdk.jfr.AnnotationElement");
+				final Class<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor");
+				jfr.eventFactoryCreate = eventFactory.getMethod("create", List.class, List.class);
+				jfr.eventFactoryNewEvent = eventFactory.getMethod("newEvent");
+				jfr.eventFactoryGetEventType = eventFactory.getMethod("getEventType");
+				jfr.eventTypeIsEnabled = Class.forName("jdk.jfr.EventType").getMethod("isEnabled");
+				jfr.eventBegin = event.getMethod("begin");
+				jfr.eventEnd = event.getMethod("end");
+				jfr.eventCommit = event.getMethod("commit");
+				jfr.eventSet = event.getMethod("set", int.class, Object.class);
+				jfr.annotationElementConstructor = annotationElement.getConstructor(Class.class, Object.class);
+				jfr.valueDescriptorConstructor = valueDescriptor.getConstructor(Class.class, String.class);
+				jfr.nameAnnotation = Class.forName("jdk.jfr.Name");
+				jfr.labelAnnotation = Class.forName("jdk.jfr.Label");
+				jfr.categoryAnnotation = Class.forName("jdk.jfr.Category");
+				return jfr;
+			} catch (final ReflectiveOperationException | LinkageError e) {
+				LOGGER.debug("Java Flight Recorder API not available, not emitting flight recorder events");
+				return null;
+			}
+		}
+		
+		@Nonnull
+		Object createEventFactory(@Nonnull final String name, @Nonnull final String label, @Nonnull final Field[] fields)
+				throws ReflectiveOperationException {
+			final List<Object> annotations = new ArrayList<>();
+			annotations.add(annotationElementConstructor.newInstance(nameAnnotation, name));
+			annotations.add(annotationElementConstructor.newInstance(labelAnnotation, label));
+			annotations.add(annotationElementConstructor.newInstance(categoryAnnotation, new String[] { CATEGORY }));
+			final List<Object> valueDescriptors = new ArrayList<>();
+			for (final Field field : fields) {
+				valueDescriptors.add(valueDescriptorConstructor.newInstance(field.type, field.name));
+			}
+			return eventFactoryCreate.invoke(null, Collections.unmodifiableList(annotations), Collections.unmodifiableList(valueDescriptors));
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package org.simplejavamail.mailer;
+
+import org.simplejavamail.MailException;
+
+import static java.lang.String.format;
+
+/**
+ * Thrown when an email is sent asynchronously while the queue of pending async emails is full and the overflow policy is {@link
+ * org.simplejavamail.mailer.config.AsyncQueueOverflowPolicy#FAIL_FAST}.
+ */
+@SuppressWarnings("serial")
+public class AsyncQueueFullException extends MailException {
+	
+	static final String QUEUE_FULL = "Async send queue is full (capacity: %s), email was not accepted";
+	
+	public AsyncQueueFullException(final int queueCapacity) {
+		super(format(QUEUE_FULL, queueCapacity));
+	}
+}
@@ -6,22 +6,30 @@ import java.util.concurrent.Future;
 
 /**
  * Useful when sending mails or testing connections asynchronously. Provides both a {@link Future} as well as support for direct callbacks.
+ * <p>
+ * Callbacks are invoked exactly once, also when they are registered after the operation already finished (in which case they are invoked right
+ * away in the registering thread). Any number of callbacks can be registered. To wait for many responses without blocking a thread per response,
+ * see {@link AsyncResponses#allOf(java.util.Collection)}.
  */
 public interface AsyncResponse {
 	
 	/**
-	 * Mimicks promise behavior in a very limited way.
+	 * Mimicks promise behavior in a limited way: the given handler is invoked once the operation finished successfully.
 	 *
 	 * @param onSuccess Why Runnable? Refer to <a href="https://stackoverflow.com/a/45499848/441662.">this answer</a>
 	 */
 	void onSuccess(Runnable onSuccess);
 	
 	/**
-	 * Mimicks promise behavior in a very limited way.
+	 * Mimicks promise behavior in a limited way: the given handler is invoked once the operation failed.
 	 */
 	void onException(AsyncResponseImpl.ExceptionConsumer errorHandler);
 	
-	Future getFuture();
+	/**
+	 * @return A Future that completes when the operation finished. If the operation failed, {@link Future#get()} throws an {@link
+	 * java.util.concurrent.ExecutionException} with the failure as cause.
+	 */
+	Future<Void> getFuture();
 	
 	// simplified version of Java 8's Consumer
 	interface ExceptionConsumer {
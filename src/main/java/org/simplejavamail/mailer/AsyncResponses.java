@@ -0,0 +1,67 @@
+package org.simplejavamail.mailer;
+
+import org.simplejavamail.mailer.internal.mailsender.AsyncResponseImpl;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Utilities for composing {@link AsyncResponse} instances.
+ */
+public final class AsyncResponses {
+	
+	private AsyncResponses() {
+	}
+	
+	/**
+	 * Combines many async responses into one, which completes when all of them have completed. This is done purely with callbacks, so waiting for
+	 * thousands of async emails doesn't require a thread blocking on each {@link java.util.concurrent.Future#get()}.
+	 * <p>
+	 * If any of the responses failed, the combined response fails as well with the first failure that occurred, but only after all responses
+	 * completed.
+	 *
+	 * @param asyncResponses The responses to combine. When empty, the combined response is already completed.
+	 */
+	@Nonnull
+	public static AsyncResponse allOf(@Nonnull final Collection<? extends AsyncResponse> asyncResponses) {
+		final AsyncResponseImpl combinedResponse = new AsyncResponseImpl();
+		if (asyncResponses.isEmpty()) {
+			combinedResponse.complete();
+			return combinedResponse;
+		}
+		
+		final AtomicInteger remaining = new AtomicInteger(asyncResponses.size());
+		final AtomicReference<Exception> firstFailure = new AtomicReference<>();
+		
+		for (final AsyncResponse asyncResponse : asyncResponses) {
+			asyncResponse.onSuccess(new Runnable() {
+				@Override
+				public void run() {
+					completeIfLast(combinedResponse, remaining, firstFailure);
+				}
+			});
+			asyncResponse.onException(new AsyncResponse.ExceptionConsumer() {
+				@Override
+				public void accept(final Exception e) {
+					firstFailure.compareAndSet(null, e);
+					completeIfLast(combinedResponse, remaining, firstFailure);
+				}
+			});
+		}
+		return combinedResponse;
+	}
+	
+	private static void completeIfLast(@Nonnull final AsyncResponseImpl combinedResponse,
+									   @Nonnull final AtomicInteger remaining,
+									   @Nonnull final AtomicReference<Exception> firstFailure) {
+		if (remaining.decrementAndGet() == 0) {
+			if (firstFailure.get() == null) {
+				combinedResponse.complete();
+			} else {
+				combinedResponse.completeExceptionally(firstFailure.get());
+			}
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package org.simplejavamail.mailer;
+
+/**
+ * Interfaces for demand-driven streams, with the same contract as <a href="http://www.reactive-streams.org">Reactive Streams</a> and Java 9's
+ * <code>java.util.concurrent.Flow</code>. These are not available on the Java versions this library supports, but since the method signatures are
+ * identical, adapting to either is a matter of delegating each method.
+ *
+ * @see SendProcessor
+ */
+public final class Flow {
+	
+	private Flow() {
+	}
+	
+	/**
+	 * A producer of items that are received by a {@link Subscriber}, as much as it requested through its {@link Subscription}.
+	 */
+	public interface Publisher<T> {
+		void subscribe(Subscriber<? super T> subscriber);
+	}
+	
+	/**
+	 * A receiver of items from a {@link Publisher}, which signals how many more it can handle with {@link Subscription#request(long)}.
+	 */
+	public interface Subscriber<T> {
+		void onSubscribe(Subscription subscription);
+		
+		void onNext(T item);
+		
+		void onError(Throwable throwable);
+		
+		void onComplete();
+	}
+	
+	/**
+	 * Links a {@link Publisher} and a {@link Subscriber}.
+	 */
+	public interface Subscription {
+		void request(long n);
+		
+		void cancel();
+	}
+	
+	/**
+	 * Both a {@link Subscriber} and a {@link Publisher}, transforming the items it receives into the items it publishes.
+	 */
+	public interface Processor<T, R> extends Subscriber<T>, Publisher<R> {
+	}
+}
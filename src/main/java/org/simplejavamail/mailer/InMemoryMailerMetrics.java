@@ -0,0 +1,189 @@
+package org.simplejavamail.mailer;
+
+import javax.annotation.Nonnull;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Default {@link MailerMetrics} that keeps every measurement in an in-memory {@link Histogram}, for an application to read out periodically (for
+ * example to log it or export it to a monitoring system).
+ * <p>
+ * Recording is lock-free and takes constant memory, no matter how many emails are sent.
+ */
+public class InMemoryMailerMetrics implements MailerMetrics {
+	
+	private final Map<Stage, Histogram> stageDurations = new EnumMap<>(Stage.class);
+	private final Histogram messageSizes = new Histogram();
+	private final Histogram queueWaits = new Histogram();
+	private final Histogram activeSends = new Histogram();
+	private final Histogram queuedSends = new Histogram();
+	private final Histogram sentDurations = new Histogram();
+	private final Histogram failedDurations = new Histogram();
+	
+	public InMemoryMailerMetrics() {
+		for (final Stage stage : Stage.values()) {
+			stageDurations.put(stage, new Histogram());
+		}
+	}
+	
+	@Override
+	public void stageCompleted(@Nonnull final Stage stage, final long durationNanos) {
+		stageDurations.get(stage).record(durationNanos);
+	}
+	
+	@Override
+	public void messageSize(final long bytes) {
+		messageSizes.record(bytes);
+	}
+	
+	@Override
+	public void queueWait(final long durationNanos) {
+		queueWaits.record(durationNanos);
+	}
+	
+	@Override
+	public void poolOccupancy(final int activeSends, final int queuedSends) {
+		this.activeSends.record(activeSends);
+		this.queuedSends.record(queuedSends);
+	}
+	
+	@Override
+	public void sendCompleted(final boolean sent, final long durationNanos) {
+		(sent ? sentDurations : failedDurations).record(durationNanos);
+	}
+	
+	/**
+	 * @return The durations of the given stage, in nanoseconds.
+	 */
+	@Nonnull
+	public Histogram getStageDurations(@Nonnull final Stage stage) {
+		return stageDurations.get(stage);
+	}
+	
+	/**
+	 * @return The sizes of the messages, in bytes.
+	 */
+	@Nonnull
+	public Histogram getMessageSizes() {
+		return messageSizes;
+	}
+	
+	/**
+	 * @return The time async emails waited for a sending thread, in nanoseconds.
+	 */
+	@Nonnull
+	public Histogram getQueueWaits() {
+		return queueWaits;
+	}
+	
+	/**
+	 * @return The number of async emails being sent whenever another one was picked up.
+	 */
+	@Nonnull
+	public Histogram getActiveSends() {
+		return activeSends;
+	}
+	
+	/**
+	 * @return The number of async emails waiting for a thread whenever another one was picked up.
+	 */
+	@Nonnull
+	public Histogram getQueuedSends() {
+		return queuedSends;
+	}
+	
+	/**
+	 * @return The total durations of the emails that were sent, in nanoseconds. Its count is the number of emails sent.
+	 */
+	@Nonnull
+	public Histogram getSentDurations() {
+		return sentDurations;
+	}
+	
+	/**
+	 * @return The total durations of the emails that failed, in nanoseconds. Its count is the number of emails that failed.
+	 */
+	@Nonnull
+	public Histogram getFailedDurations() {
+		return failedDurations;
+	}
+	
+	/**
+	 * Counts values in buckets by powers of two, so any percentile is known to within a factor of two of the actual value, using just 64 counters.
+	 * Negative values are counted as zero.
+	 */
+	public static final class Histogram {
+		
+		// bucket i holds the values that need i bits: 0 in bucket 0, 1 in bucket 1, 2-3 in bucket 2, 4-7 in bucket 3 etc.
+		private final AtomicLongArray buckets = new AtomicLongArray(64);
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong sum = new AtomicLong();
+		private final AtomicLong max = new AtomicLong();
+		
+		Histogram() {
+		}
+		
+		void record(final long value) {
+			final long v = Math.max(value, 0);
+			buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(v));
+			count.incrementAndGet();
+			sum.addAndGet(v);
+			long currentMax;
+			while (v > (currentMax = max.get()) && !max.compareAndSet(currentMax, v)) {
+				// another thread updated max in the meantime, try again
+			}
+		}
+		
+		public long getCount() {
+			return count.get();
+		}
+		
+		public long getSum() {
+			return sum.get();
+		}
+		
+		public long getMax() {
+			return max.get();
+		}
+		
+		/**
+		 * @return The average of all values, or zero if there are none.
+		 */
+		public double getMean() {
+			final long n = count.get();
+			return n == 0 ? 0 : (double) sum.get() / n;
+		}
+		
+		/**
+		 * @param percentile Between 0 and 100, for example 99 for the value that 99% of the values don't exceed.
+		 * @return An upper bound of the value at the given percentile, at most twice the actual value (and never above {@link #getMax()}), or zero
+		 * if there are no values.
+		 */
+		public long getPercentile(final double percentile) {
+			if (percentile < 0 || percentile > 100) {
+				throw new IllegalArgumentException("percentile should be between 0 and 100: " + percentile);
+			}
+			long total = 0;
+			for (int i = 0; i < 64; i++) {
+				total += buckets.get(i);
+			}
+			final long rank = (long) Math.ceil(total * percentile / 100);
+			long seen = 0;
+			for (int i = 0; i < 64; i++) {
+				seen += buckets.get(i);
+				if (seen >= rank && seen > 0) {
+					// for bucket 63, this overflows to Long.MAX_VALUE, which happens to be right
+					return Math.min((1L << i) - 1, max.get());
+				}
+			}
+			return 0;
+		}
+		
+		@Override
+		public String toString() {
+			return String.format("count=%s, mean=%.1f, p50=%s, p99=%s, max=%s", getCount(), getMean(), getPercentile(50), getPercentile(99), getMax());
+		}
+	}
+}
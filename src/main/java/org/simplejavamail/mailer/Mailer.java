@@ -21,9 +21,13 @@ import javax.mail.Authenticator;
 import javax.mail.PasswordAuthentication;
 import javax.mail.Session;
 import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 import static java.lang.String.format;
 import static org.simplejavamail.internal.util.MiscUtil.valueNullOrEmpty;
@@ -124,7 +128,9 @@ public class Mailer {
 	
 	private MailSender initFromGenericBuilder(@Nullable TransportStrategy transportStrategy, @Nonnull ProxyConfig proxyConfig, @Nonnull Session session, @Nonnull final MailerGenericBuilder<?> genericBuiler) {
 		OperationalConfig operationalConfig = genericBuiler.buildOperationalConfig();
-		return new MailSender(session, operationalConfig, proxyConfig, transportStrategy);
+		final MailSender mailSender = new MailSender(session, operationalConfig, proxyConfig, transportStrategy);
+		mailSender.resendUnfinishedOutboxEmails();
+		return mailSender;
 	}
 	
 	/**
@@ -215,6 +221,48 @@ public class Mailer {
 		return emailAddressCriteria;
 	}
 	
+	/**
+	 * @return The number of async emails currently waiting for a free thread. Useful for monitoring, or to throttle producers before the queue
+	 * reaches its capacity.
+	 * @see MailerGenericBuilder#withThreadPoolQueueCapacity(Integer)
+	 */
+	public int getAsyncQueueDepth() {
+		return mailSender.getAsyncQueueDepth();
+	}
+	
+	/**
+	 * @return The total time threads have spent waiting for the rate limits, before being allowed to send their email to the SMTP server. Stays
+	 * zero if no rate limits are configured.
+	 * @see MailerGenericBuilder#withRateLimit(org.simplejavamail.mailer.config.RateLimit)
+	 */
+	public long getRateLimitWaitTime(@Nonnull final TimeUnit unit) {
+		return mailSender.getRateLimitWaitTime(unit);
+	}
+	
+	/**
+	 * Stops accepting new emails. Emails already in progress or waiting in the async queue are still sent, after which all resources (thread pool,
+	 * pooled connections and proxy bridging server) are released. A custom executor provided with {@link
+	 * MailerGenericBuilder#withExecutorService(java.util.concurrent.ExecutorService)} is left running.
+	 * <p>
+	 * Calling this is not required: idle threads time out by themselves, but it allows an application to exit right away and to finish sending
+	 * cleanly before it does.
+	 *
+	 * @see #awaitTermination(long, TimeUnit)
+	 */
+	public void shutdown() {
+		mailSender.shutdown();
+	}
+	
+	/**
+	 * Blocks until all emails in progress have been sent after a {@link #shutdown()}, or the timeout occurs, whichever happens first.
+	 *
+	 * @return <code>true</code> if the Mailer terminated and <code>false</code> if the timeout elapsed before termination.
+	 */
+	public boolean awaitTermination(final long timeout, @Nonnull final TimeUnit unit)
+			throws InterruptedException {
+		return mailSender.awaitTermination(timeout, unit);
+	}
+	
 	/**
 	 * Delegates to {@link #testConnection(boolean)} with async == <code>false</code>.
 	 */
@@ -224,8 +272,6 @@ public class Mailer {
 	
 	/**
 	 * Tries to connect to the configured SMTP server, including (authenticated) proxy if set up.
-	 * <p>
-	 * Note: synchronizes on the thread for sending mails so that we don't get into race condition conflicts with emails actually being sent.
 	 *
 	 * @return An AsyncResponse in case of async == true, otherwise <code>null</code>.
 	 */
@@ -242,16 +288,105 @@ public class Mailer {
 	}
 	
 	/**
+	 * Validates and sends the email. This method doesn't synchronize on the Mailer, so a single Mailer instance can be shared by any number of
+	 * threads sending in parallel.
+	 * <p>
+	 * If the email is sent in recipient chunks of which only some fail, it is sent but not to all recipients, which is reported with a {@link
+	 * PartialSendException} (thrown, or completing the {@link AsyncResponse}) that lists the recipients of the failed chunks.
+	 *
 	 * @see MailSender#send(Email, boolean)
 	 * @see #validate(Email)
 	 */
-	public final synchronized AsyncResponse sendMail(final Email email, @SuppressWarnings("SameParameterValue") final boolean async) {
-		if (validate(email)) {
+	public final AsyncResponse sendMail(final Email email, @SuppressWarnings("SameParameterValue") final boolean async) {
+		if (validateMeasured(email)) {
 			return mailSender.send(email, async);
 		}
 		throw new AssertionError("Email not valid, but no MailException was thrown for it");
 	}
 	
+	/**
+	 * Delegates to {@link #sendMails(Iterator, SendResultHandler)}, collecting all results in a list. This method returns only when all emails
+	 * have been processed.
+	 *
+	 * @return One {@link SendResult} for each email, in the same order as the emails were provided.
+	 */
+	public final List<SendResult> sendMails(@Nonnull final Iterable<Email> emails) {
+		final List<SendResult> results = new ArrayList<>();
+		sendMails(emails.iterator(), new SendResultHandler() {
+			@Override
+			public void accept(@Nonnull final SendResult result) {
+				results.add(result);
+			}
+		});
+		return results;
+	}
+	
+	/**
+	 * Sends all emails back-to-back over a single held SMTP connection, so a large batch doesn't pay for a connect and login for every email.
+	 * Between emails, the connection is reset with an SMTP <code>RSET</code>. If an email fails, the connection is discarded and the next email is
+	 * sent over a fresh one.
+	 * <p>
+	 * Emails are taken from the iterator one by one and reported to the handler as soon as they have been processed, so emails can be produced on
+	 * the fly and the batch is never held in memory as a whole. An email that fails validation or sending doesn't abort the batch, but is
+	 * reported with its exception instead.
+	 * <p>
+	 * Emails with more recipients than {@link OperationalConfig#getMaxRecipientsPerTransaction()} are sent in recipient chunks. The recipients of
+	 * failed chunks are reported per recipient with {@link SendResult#getFailedRecipients()}, where the email still counts as sent if only some of
+	 * the chunks failed.
+	 *
+	 * @param emails        The emails to send, taken lazily from the iterator.
+	 * @param resultHandler Receives the {@link SendResult} for each email.
+	 * @see MailSender#startBulkSend()
+	 * @see #validate(Email)
+	 */
+	public final void sendMails(@Nonnull final Iterator<Email> emails, @Nonnull final SendResultHandler resultHandler) {
+		try (MailSender.BulkSend bulkSend = mailSender.startBulkSend()) {
+			while (emails.hasNext()) {
+				final Email email = emails.next();
+				SendResult result;
+				try {
+					validateMeasured(email);
+					result = new SendResult(email, null, bulkSend.send(email));
+				} catch (final MailException e) {
+					result = SendResult.forException(email, e);
+				}
+				resultHandler.accept(result);
+			}
+		}
+	}
+	
+	/**
+	 * Creates a processor that sends the emails it is subscribed to asynchronously and publishes a {@link SendResult} for each of them. It requests
+	 * no more emails than there are async send slots ({@link OperationalConfig#getThreadPoolSize()}), and only requests the next email once a result
+	 * has been delivered to its subscriber.
+	 *
+	 * @return A new processor, which can be subscribed to a single {@link Flow.Publisher} of emails and be subscribed to by a single subscriber.
+	 * @see SendProcessor
+	 */
+	public SendProcessor createSendProcessor() {
+		return new SendProcessor(this, getOperationalConfig().getThreadPoolSize());
+	}
+	
+	/**
+	 * Delegates to {@link #validate(Email)}, reporting how long it took if {@link MailerMetrics} (or JMX) are installed. An email that fails validation is
+	 * reported as failed.
+	 */
+	private boolean validateMeasured(final Email email) {
+		final MailerMetrics metrics = mailSender.getMetrics();
+		if (metrics == null) {
+			return validate(email);
+		}
+		final long start = System.nanoTime();
+		try {
+			return validate(email);
+		} catch (final MailException e) {
+			metrics.sendCompleted(false, System.nanoTime() - start);
+			throw e;
+		} finally {
+			metrics.stageCompleted(MailerMetrics.Stage.VALIDATION, System.nanoTime() - start);
+		}
+	}
+	
 	/**
 	 * Validates an {@link Email} instance. Validation fails if the subject is missing, content is missing, or no recipients are defined or that
 	 * the addresses are missing for NPM notification flags.
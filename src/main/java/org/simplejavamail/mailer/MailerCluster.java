@@ -0,0 +1,439 @@
+package org.simplejavamail.mailer;
+
+import org.simplejavamail.MailException;
+import org.simplejavamail.email.Email;
+import org.simplejavamail.mailer.config.LoadBalancingStrategy;
+import org.simplejavamail.mailer.internal.mailsender.AsyncResponseImpl;
+import org.simplejavamail.mailer.internal.mailsender.SmtpFailureClassifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+import static org.simplejavamail.internal.util.Preconditions.checkNonEmptyArgument;
+
+/**
+ * Spreads emails over several {@link Mailer} instances, each configured for its own SMTP server, for more throughput and so that a single server
+ * going down doesn't stop emails from going out.
+ * <p>
+ * Emails are divided over the healthy servers according to the {@link LoadBalancingStrategy}. When sending fails for a reason that points at the
+ * server rather than the email (a connection problem or a <code>4xx</code> reply), the email is handed to the next server. A server that fails
+ * a number of consecutive times is ejected: it doesn't get any emails until a periodic {@link Mailer#testConnection()} probe succeeds. Should all
+ * servers be ejected, emails are still attempted on all of them, as that's more useful than failing right away.
+ * <p>
+ * Usage example:
+ * <pre>
+ * MailerCluster cluster = MailerCluster.builder()
+ * 		.withMailer(MailerBuilder.withSMTPServer("relay1.domain.com", 25).buildMailer(), 2)
+ * 		.withMailer(MailerBuilder.withSMTPServer("relay2.domain.com", 25).buildMailer(), 1)
+ * 		.withLoadBalancingStrategy(LoadBalancingStrategy.LEAST_OUTSTANDING)
+ * 		.build();
+ * cluster.sendMail(email);
+ * </pre>
+ */
+public class MailerCluster {
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(MailerCluster.class);
+	
+	/**
+	 * The default number of consecutive server failures after which a server is ejected is {@value #DEFAULT_FAILURE_THRESHOLD}.
+	 */
+	public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+	
+	/**
+	 * The default time between probing ejected servers is {@value #DEFAULT_PROBE_INTERVAL_MILLIS} milliseconds.
+	 */
+	public static final long DEFAULT_PROBE_INTERVAL_MILLIS = 30_000;
+	
+	@Nonnull private final List<Member> members;
+	@Nonnull private final LoadBalancingStrategy loadBalancingStrategy;
+	private final int failureThreshold;
+	
+	/**
+	 * Determines whose turn it is with round robin, and where to start looking for the least busy server so ties are spread evenly.
+	 */
+	private final AtomicLong turn = new AtomicLong();
+	
+	@Nonnull private final ScheduledExecutorService healthProber;
+	
+	private MailerCluster(@Nonnull final Builder builder) {
+		this.loadBalancingStrategy = builder.loadBalancingStrategy;
+		this.failureThreshold = builder.failureThreshold;
+		final List<Member> members = new ArrayList<>();
+		for (final MemberConfig memberConfig : builder.members) {
+			members.add(new Member(members.size() + 1, memberConfig.mailer, memberConfig.weight));
+		}
+		this.members = Collections.unmodifiableList(members);
+		this.healthProber = createHealthProber();
+		this.healthProber.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				probeEjectedMembers();
+			}
+		}, builder.probeIntervalMillis, builder.probeIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	public static Builder builder() {
+		return new Builder();
+	}
+	
+	/**
+	 * Delegates to {@link #sendMail(Email, boolean)}, with <code>async = false</code>.
+	 */
+	public final void sendMail(final Email email) {
+		sendMail(email, false);
+	}
+	
+	/**
+	 * Sends the email with one of the healthy servers, handing it to the next server if sending fails due to a server problem.
+	 *
+	 * @return An {@link AsyncResponse} that completes when the email has been sent by any server or failed on all servers it was tried on, or
+	 * <code>null</code> if not <em>async</em>.
+	 * @see Mailer#sendMail(Email, boolean)
+	 */
+	public final AsyncResponse sendMail(final Email email, final boolean async) {
+		final Set<Member> triedMembers = new HashSet<>();
+		final Member member = checkNonEmptyArgument(selectMember(triedMembers), "member");
+		if (async) {
+			final AsyncResponseImpl asyncResponse = new AsyncResponseImpl();
+			sendAsync(email, member, triedMembers, asyncResponse);
+			return asyncResponse;
+		}
+		sendSync(email, member, triedMembers);
+		return null;
+	}
+	
+	private void sendSync(@Nonnull final Email email, @Nonnull final Member firstMember, @Nonnull final Set<Member> triedMembers) {
+		Member nextMember = firstMember;
+		while (true) {
+			final Member member = nextMember;
+			member.outstanding.incrementAndGet();
+			try {
+				member.mailer.sendMail(email);
+				member.recordSuccess();
+				return;
+			} catch (final MailException e) {
+				nextMember = failOver(member, triedMembers, e);
+				if (nextMember == null) {
+					throw e;
+				}
+			} finally {
+				member.outstanding.decrementAndGet();
+			}
+		}
+	}
+	
+	private void sendAsync(@Nonnull final Email email, @Nonnull final Member member, @Nonnull final Set<Member> triedMembers,
+						   @Nonnull final AsyncResponseImpl asyncResponse) {
+		member.outstanding.incrementAndGet();
+		final AsyncResponse memberResponse;
+		try {
+			memberResponse = member.mailer.sendMail(email, true);
+		} catch (final RuntimeException e) {
+			member.outstanding.decrementAndGet();
+			throw e;
+		}
+		memberResponse.onSuccess(new Runnable() {
+			@Override
+			public void run() {
+				member.outstanding.decrementAndGet();
+				member.recordSuccess();
+				asyncResponse.complete();
+			}
+		});
+		memberResponse.onException(new AsyncResponse.ExceptionConsumer() {
+			@Override
+			public void accept(final Exception e) {
+				member.outstanding.decrementAndGet();
+				final Member nextMember = failOver(member, triedMembers, e);
+				if (nextMember == null) {
+					asyncResponse.completeExceptionally(e);
+					return;
+				}
+				try {
+					sendAsync(email, nextMember, triedMembers, asyncResponse);
+				} catch (final RuntimeException e2) {
+					asyncResponse.completeExceptionally(e2);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * @return The member to try next, or <code>null</code> if the failure is not a server problem or all members have been tried.
+	 */
+	@Nullable
+	private Member failOver(@Nonnull final Member failedMember, @Nonnull final Set<Member> triedMembers, @Nonnull final Exception e) {
+		if (!SmtpFailureClassifier.indicatesServerFailure(e)) {
+			return null;
+		}
+		failedMember.recordFailure();
+		synchronized (triedMembers) {
+			triedMembers.add(failedMember);
+			final Member nextMember = selectMember(triedMembers);
+			if (nextMember != null) {
+				LOGGER.warn("Sending with {} failed, failing over to {}: {}", failedMember, nextMember, e.getMessage());
+			}
+			return nextMember;
+		}
+	}
+	
+	/**
+	 * @return A healthy member not tried yet, or if there are none, any member not tried yet. <code>null</code> if all members have been tried.
+	 */
+	@Nullable
+	private Member selectMember(@Nonnull final Set<Member> triedMembers) {
+		final List<Member> candidates = new ArrayList<>(members.size());
+		for (final Member member : members) {
+			if (!member.ejected && !triedMembers.contains(member)) {
+				candidates.add(member);
+			}
+		}
+		if (candidates.isEmpty()) {
+			for (final Member member : members) {
+				if (!triedMembers.contains(member)) {
+					candidates.add(member);
+				}
+			}
+		}
+		if (candidates.isEmpty()) {
+			return null;
+		}
+		final long currentTurn = turn.getAndIncrement() & Long.MAX_VALUE;
+		return loadBalancingStrategy == LoadBalancingStrategy.LEAST_OUTSTANDING
+				? selectLeastOutstanding(candidates, currentTurn)
+				: selectWeightedRoundRobin(candidates, currentTurn);
+	}
+	
+	@Nonnull
+	private static Member selectWeightedRoundRobin(@Nonnull final List<Member> candidates, final long currentTurn) {
+		int totalWeight = 0;
+		for (final Member candidate : candidates) {
+			totalWeight += candidate.weight;
+		}
+		long position = currentTurn % totalWeight;
+		for (final Member candidate : candidates) {
+			position -= candidate.weight;
+			if (position < 0) {
+				return candidate;
+			}
+		}
+		throw new AssertionError("weighted round robin selected nothing");
+	}
+	
+	@Nonnull
+	private static Member selectLeastOutstanding(@Nonnull final List<Member> candidates, final long currentTurn) {
+		final int start = (int) (currentTurn % candidates.size());
+		Member best = candidates.get(start);
+		for (int i = 1; i < candidates.size(); i++) {
+			final Member candidate = candidates.get((start + i) % candidates.size());
+			// compare (outstanding + 1) / weight without dividing
+			if ((long) (candidate.outstanding.get() + 1) * best.weight < (long) (best.outstanding.get() + 1) * candidate.weight) {
+				best = candidate;
+			}
+		}
+		return best;
+	}
+	
+	private void probeEjectedMembers() {
+		for (final Member member : members) {
+			if (member.ejected) {
+				try {
+					member.mailer.testConnection();
+					member.reinstate();
+				} catch (final RuntimeException e) {
+					LOGGER.debug("{} is still unhealthy: {}", member, e.getMessage());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return The Mailers that are currently receiving emails, in the order in which they were added.
+	 */
+	@Nonnull
+	public List<Mailer> getHealthyMailers() {
+		final List<Mailer> healthyMailers = new ArrayList<>();
+		for (final Member member : members) {
+			if (!member.ejected) {
+				healthyMailers.add(member.mailer);
+			}
+		}
+		return healthyMailers;
+	}
+	
+	/**
+	 * Stops probing ejected servers and shuts down all Mailers in the cluster.
+	 *
+	 * @see Mailer#shutdown()
+	 */
+	public void shutdown() {
+		healthProber.shutdownNow();
+		for (final Member member : members) {
+			member.mailer.shutdown();
+		}
+	}
+	
+	/**
+	 * Blocks until all Mailers in the cluster have terminated after a {@link #shutdown()}, or the timeout occurs, whichever happens first.
+	 *
+	 * @return <code>true</code> if all Mailers terminated and <code>false</code> if the timeout elapsed before that.
+	 * @see Mailer#awaitTermination(long, TimeUnit)
+	 */
+	public boolean awaitTermination(final long timeout, @Nonnull final TimeUnit unit)
+			throws InterruptedException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (final Member member : members) {
+			if (!member.mailer.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Nonnull
+	private static ScheduledExecutorService createHealthProber() {
+		final ScheduledThreadPoolExecutor healthProber = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(@Nonnull final Runnable r) {
+				final Thread thread = new Thread(r, "Simple Java Mail cluster health prober");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		healthProber.setRemoveOnCancelPolicy(true);
+		return healthProber;
+	}
+	
+	/**
+	 * A Mailer in the cluster, with its weight and health.
+	 */
+	private class Member {
+		final int number;
+		@Nonnull final Mailer mailer;
+		final int weight;
+		final AtomicInteger outstanding = new AtomicInteger();
+		final AtomicInteger consecutiveFailures = new AtomicInteger();
+		volatile boolean ejected;
+		
+		Member(final int number, @Nonnull final Mailer mailer, final int weight) {
+			this.number = number;
+			this.mailer = mailer;
+			this.weight = weight;
+		}
+		
+		void recordSuccess() {
+			consecutiveFailures.set(0);
+		}
+		
+		void recordFailure() {
+			if (consecutiveFailures.incrementAndGet() >= failureThreshold && !ejected) {
+				ejected = true;
+				LOGGER.warn("Ejecting {} from the cluster after {} consecutive failures", this, failureThreshold);
+			}
+		}
+		
+		void reinstate() {
+			consecutiveFailures.set(0);
+			ejected = false;
+			LOGGER.info("{} passed its health probe and is back in the cluster", this);
+		}
+		
+		@Override
+		public String toString() {
+			final ServerConfig serverConfig = mailer.getServerConfig();
+			return serverConfig != null
+					? format("mailer #%s (%s:%s)", number, serverConfig.getHost(), serverConfig.getPort())
+					: format("mailer #%s", number);
+		}
+	}
+	
+	/**
+	 * Collects the Mailers and settings for a {@link MailerCluster}.
+	 */
+	public static class Builder {
+		
+		private final List<MemberConfig> members = new ArrayList<>();
+		private LoadBalancingStrategy loadBalancingStrategy = LoadBalancingStrategy.WEIGHTED_ROUND_ROBIN;
+		private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+		private long probeIntervalMillis = DEFAULT_PROBE_INTERVAL_MILLIS;
+		
+		private Builder() {
+		}
+		
+		/**
+		 * Delegates to {@link #withMailer(Mailer, int)} with weight 1.
+		 */
+		public Builder withMailer(@Nonnull final Mailer mailer) {
+			return withMailer(mailer, 1);
+		}
+		
+		/**
+		 * Adds a Mailer to the cluster.
+		 *
+		 * @param weight The share of emails this Mailer gets relative to the other Mailers, for example based on the capacity of its server.
+		 */
+		public Builder withMailer(@Nonnull final Mailer mailer, final int weight) {
+			if (weight < 1) {
+				throw new IllegalArgumentException("weight should be positive: " + weight);
+			}
+			members.add(new MemberConfig(checkNonEmptyArgument(mailer, "mailer"), weight));
+			return this;
+		}
+		
+		/**
+		 * Defaults to {@link LoadBalancingStrategy#WEIGHTED_ROUND_ROBIN}.
+		 */
+		public Builder withLoadBalancingStrategy(@Nonnull final LoadBalancingStrategy loadBalancingStrategy) {
+			this.loadBalancingStrategy = checkNonEmptyArgument(loadBalancingStrategy, "loadBalancingStrategy");
+			return this;
+		}
+		
+		/**
+		 * Sets the number of consecutive server failures after which a server is ejected. Defaults to {@value #DEFAULT_FAILURE_THRESHOLD}.
+		 */
+		public Builder withFailureThreshold(final int failureThreshold) {
+			this.failureThreshold = failureThreshold;
+			return this;
+		}
+		
+		/**
+		 * Sets how often ejected servers are probed with {@link Mailer#testConnection()}. Defaults to {@value #DEFAULT_PROBE_INTERVAL_MILLIS}
+		 * milliseconds.
+		 */
+		public Builder withProbeInterval(final long probeInterval, @Nonnull final TimeUnit unit) {
+			this.probeIntervalMillis = unit.toMillis(probeInterval);
+			return this;
+		}
+		
+		public MailerCluster build() {
+			if (members.isEmpty()) {
+				throw new IllegalStateException("a cluster needs at least one Mailer");
+			}
+			return new MailerCluster(this);
+		}
+	}
+	
+	private static class MemberConfig {
+		@Nonnull final Mailer mailer;
+		final int weight;
+		
+		MemberConfig(@Nonnull final Mailer mailer, final int weight) {
+			this.mailer = mailer;
+			this.weight = weight;
+		}
+	}
+}
@@ -19,8 +19,13 @@ class MailerException extends MailException {
 	static final String MISSING_DISPOSITIONNOTIFICATIONTO = "Email is not valid: it is set to use \"Disposition Notification To\", but the address is empty";
 	static final String MISSING_RETURNRECEIPTTO = "Email is not valid: it is set to use \"Return Receipt To\", but the address is empty";
 	static final String INJECTION_SUSPECTED = "Suspected of injection attack, field: %s with suspicious value: %s";
+	static final String SEND_FAILED = "Failed to send email";
 
 	MailerException(final String message) {
 		super(message);
 	}
+
+	MailerException(final String message, final Exception cause) {
+		super(message, cause);
+	}
 }
\ No newline at end of file
@@ -1,6 +1,9 @@
 package org.simplejavamail.mailer;
 
 import org.hazlewood.connor.bottema.emailaddress.EmailAddressCriteria;
+import org.simplejavamail.mailer.config.AsyncQueueOverflowPolicy;
+import org.simplejavamail.mailer.config.RateLimit;
+import org.simplejavamail.mailer.config.RetryPolicy;
 import org.simplejavamail.mailer.internal.mailsender.OperationalConfig;
 import org.simplejavamail.mailer.internal.mailsender.ProxyConfig;
 import org.simplejavamail.util.ConfigLoader;
@@ -9,15 +12,18 @@ import org.simplejavamail.util.ConfigLoader.Property;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.mail.Session;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 
 import static org.simplejavamail.internal.util.MiscUtil.checkArgumentNotEmpty;
 import static org.simplejavamail.internal.util.MiscUtil.valueNullOrEmpty;
+import static org.simplejavamail.internal.util.Preconditions.checkNonEmptyArgument;
 import static org.simplejavamail.util.ConfigLoader.Property.PROXY_HOST;
 import static org.simplejavamail.util.ConfigLoader.Property.PROXY_PASSWORD;
 import static org.simplejavamail.util.ConfigLoader.Property.PROXY_PORT;
@@ -48,6 +54,92 @@ public abstract class MailerGenericBuilder<T extends MailerGenericBuilder> {
 	@SuppressWarnings("JavaDoc")
 	public static final int DEFAULT_POOL_SIZE = 10;
 	
+	/**
+	 * The default maximum number of async emails waiting for a free thread is {@value #DEFAULT_POOL_QUEUE_CAPACITY}. Can be overridden from a
+	 * config file or through System variable.
+	 */
+	@SuppressWarnings("JavaDoc")
+	public static final int DEFAULT_POOL_QUEUE_CAPACITY = 10_000;
+	
+	/**
+	 * By default callers wait for room in the async queue when it is full ({@link AsyncQueueOverflowPolicy#BLOCK}). Can be overridden from a config
+	 * file or through System variable.
+	 */
+	public static final AsyncQueueOverflowPolicy DEFAULT_POOL_QUEUE_OVERFLOW_POLICY = AsyncQueueOverflowPolicy.BLOCK;
+	
+	/**
+	 * The default time an idle async thread is kept alive waiting for new emails is {@value #DEFAULT_POOL_KEEP_ALIVE_TIME_MILLIS} milliseconds.
+	 * Can be overridden from a config file or through System variable.
+	 */
+	@SuppressWarnings("JavaDoc")
+	public static final int DEFAULT_POOL_KEEP_ALIVE_TIME_MILLIS = 10_000;
+	
+	/**
+	 * Defaults to {@value DEFAULT_VIRTUAL_THREADS}, sending async emails with a pool of regular platform threads. Can be overridden from a config
+	 * file or through System variable.
+	 */
+	@SuppressWarnings("JavaDoc")
+	public static final boolean DEFAULT_VIRTUAL_THREADS = false;
+	
+	/**
+	 * By default async emails are not limited per recipient domain ({@value #DEFAULT_MAX_CONCURRENT_SENDS_PER_DOMAIN}), so all domains share one
+	 * queue.
+	 */
+	@SuppressWarnings("JavaDoc")
+	public static final int DEFAULT_MAX_CONCURRENT_SENDS_PER_DOMAIN = 0;
+	
+	/**
+	 * By default no connected SMTP transports are kept around for reuse ({@value #DEFAULT_CONNECTION_POOL_SIZE}), so every email opens and closes
+	 * its own connection. Can be overridden from a config file or through System variable.
+	 */
+	@SuppressWarnings("JavaDoc")
+	public static final int DEFAULT_CONNECTION_POOL_SIZE = 0;
+	
+	/**
+	 * The default maximum time a pooled SMTP transport may stay idle before it is closed is {@value #DEFAULT_CONNECTION_POOL_IDLE_TIMEOUT_MILLIS}
+	 * milliseconds. Can be overridden from a config file or through System variable.
+	 */
+	@SuppressWarnings("JavaDoc")
+	public static final int DEFAULT_CONNECTION_POOL_IDLE_TIMEOUT_MILLIS = 5_000;
+	
+	/**
+	 * By default a pooled SMTP transport is closed and replaced after having sent {@value #DEFAULT_CONNECTION_POOL_MAX_MESSAGES_PER_CONNECTION}
+	 * messages, as many servers limit the number of messages per connection.
+	 */
+	@SuppressWarnings("JavaDoc")
+	public static final int DEFAULT_CONNECTION_POOL_MAX_MESSAGES_PER_CONNECTION = 100;
+	
+	/**
+	 * By default all recipients of an email are sent to in a single SMTP transaction ({@value #DEFAULT_MAX_RECIPIENTS_PER_TRANSACTION}).
+	 */
+	@SuppressWarnings("JavaDoc")
+	public static final int DEFAULT_MAX_RECIPIENTS_PER_TRANSACTION = 0;
+	
+	/**
+	 * By default no MBeans are registered ({@value #DEFAULT_JMX_ENABLED}).
+	 */
+	@SuppressWarnings("JavaDoc")
+	public static final boolean DEFAULT_JMX_ENABLED = false;
+	
+	/**
+	 * By default, if a diagnostic capture directory is set, one in every {@value #DEFAULT_DIAGNOSTIC_CAPTURE_SAMPLE_RATE} emails is captured.
+	 */
+	@SuppressWarnings("JavaDoc")
+	public static final int DEFAULT_DIAGNOSTIC_CAPTURE_SAMPLE_RATE = 100;
+	
+	/**
+	 * By default the encoded content of attachments and embedded images is not cached ({@value #DEFAULT_ATTACHMENT_CACHE_MAX_BYTES} bytes).
+	 */
+	@SuppressWarnings("JavaDoc")
+	public static final long DEFAULT_ATTACHMENT_CACHE_MAX_BYTES = 0;
+	
+	/**
+	 * By default the attachment cache encodes content on the thread that produces the message ({@value #DEFAULT_ATTACHMENT_CACHE_ENCODING_THREADS}
+	 * thread). Without an attachment cache, content is always encoded while the message is written, on the sending thread.
+	 */
+	@SuppressWarnings("JavaDoc")
+	public static final int DEFAULT_ATTACHMENT_CACHE_ENCODING_THREADS = 1;
+	
 	/**
 	 * The temporary intermediary SOCKS5 relay server bridge is a server that sits in between JavaMail and the remote proxy. Default port is {@value
 	 * #DEFAULT_PROXY_BRIDGE_PORT}.
@@ -106,6 +198,106 @@ public abstract class MailerGenericBuilder<T extends MailerGenericBuilder> {
 	 */
 	private Integer threadPoolSize;
 	
+	/**
+	 * @see #withThreadPoolQueueCapacity(Integer)
+	 */
+	private Integer threadPoolQueueCapacity;
+	
+	/**
+	 * @see #withThreadPoolQueueOverflowPolicy(AsyncQueueOverflowPolicy)
+	 */
+	private AsyncQueueOverflowPolicy threadPoolQueueOverflowPolicy;
+	
+	/**
+	 * @see #withThreadPoolKeepAliveTime(Integer)
+	 */
+	private Integer threadPoolKeepAliveTime;
+	
+	/**
+	 * @see #withVirtualThreads(Boolean)
+	 */
+	private Boolean virtualThreads;
+	
+	/**
+	 * @see #withExecutorService(ExecutorService)
+	 */
+	private ExecutorService executorService;
+	
+	/**
+	 * @see #withMaxConcurrentSendsPerDomain(Integer)
+	 */
+	private Integer maxConcurrentSendsPerDomain;
+	
+	/**
+	 * @see #withConnectionPoolSize(Integer)
+	 */
+	private Integer connectionPoolSize;
+	
+	/**
+	 * @see #withConnectionPoolIdleTimeout(Integer)
+	 */
+	private Integer connectionPoolIdleTimeout;
+	
+	/**
+	 * @see #withConnectionPoolMaxMessagesPerConnection(Integer)
+	 */
+	private Integer connectionPoolMaxMessagesPerConnection;
+	
+	/**
+	 * @see #withMaxRecipientsPerTransaction(Integer)
+	 */
+	private Integer maxRecipientsPerTransaction;
+	
+	/**
+	 * @see #withRateLimit(RateLimit)
+	 */
+	private final List<RateLimit> rateLimits = new ArrayList<>();
+	
+	/**
+	 * @see #withRetryPolicy(RetryPolicy)
+	 */
+	private RetryPolicy retryPolicy;
+	
+	/**
+	 * @see #withOutboxDirectory(File)
+	 */
+	private File outboxDirectory;
+	
+	/**
+	 * @see #withMetrics(MailerMetrics)
+	 */
+	private MailerMetrics metrics;
+	
+	/**
+	 * @see #withJmxEnabled(Boolean)
+	 */
+	private Boolean jmxEnabled;
+	
+	/**
+	 * @see #withDiagnosticCaptureDirectory(File)
+	 */
+	private File diagnosticCaptureDirectory;
+	
+	/**
+	 * @see #withDiagnosticCaptureSampleRate(Integer)
+	 */
+	private Integer diagnosticCaptureSampleRate;
+	
+	/**
+	 * @see #withAttachmentCacheMaxBytes(Long)
+	 */
+	private Long attachmentCacheMaxBytes;
+	
+	/**
+	 * @see #withAttachmentCacheSpillDirectory(File)
+	 */
+	private File attachmentCacheSpillDirectory;
+	
+	/**
+	 * @see #withAttachmentCacheEncodingThreads(Integer)
+	 */
+	private Integer attachmentCacheEncodingThreads;
+	
 	/**
 	 * @see #trustingSSLHosts(String...)
 	 */
@@ -149,6 +341,19 @@ public abstract class MailerGenericBuilder<T extends MailerGenericBuilder> {
 		withDebugLogging(ConfigLoader.valueOrProperty(null, Property.JAVAXMAIL_DEBUG, false));
 		withSessionTimeout(ConfigLoader.valueOrProperty(null, Property.DEFAULT_SESSION_TIMEOUT_MILLIS, DEFAULT_SESSION_TIMEOUT_MILLIS));
 		withThreadPoolSize(ConfigLoader.valueOrProperty(null, Property.DEFAULT_POOL_SIZE, DEFAULT_POOL_SIZE));
+		withThreadPoolQueueCapacity(ConfigLoader.valueOrProperty(null, Property.DEFAULT_POOL_QUEUE_CAPACITY, DEFAULT_POOL_QUEUE_CAPACITY));
+		withThreadPoolQueueOverflowPolicy(ConfigLoader.valueOrProperty(null, Property.DEFAULT_POOL_QUEUE_OVERFLOW_POLICY, DEFAULT_POOL_QUEUE_OVERFLOW_POLICY));
+		withThreadPoolKeepAliveTime(ConfigLoader.valueOrProperty(null, Property.DEFAULT_POOL_KEEP_ALIVE_TIME, DEFAULT_POOL_KEEP_ALIVE_TIME_MILLIS));
+		withVirtualThreads(ConfigLoader.valueOrProperty(null, Property.DEFAULT_POOL_VIRTUAL_THREADS, DEFAULT_VIRTUAL_THREADS));
+		withMaxConcurrentSendsPerDomain(DEFAULT_MAX_CONCURRENT_SENDS_PER_DOMAIN);
+		withConnectionPoolSize(ConfigLoader.valueOrProperty(null, Property.DEFAULT_CONNECTION_POOL_SIZE, DEFAULT_CONNECTION_POOL_SIZE));
+		withConnectionPoolIdleTimeout(ConfigLoader.valueOrProperty(null, Property.DEFAULT_CONNECTION_POOL_IDLE_TIMEOUT_MILLIS, DEFAULT_CONNECTION_POOL_IDLE_TIMEOUT_MILLIS));
+		withConnectionPoolMaxMessagesPerConnection(DEFAULT_CONNECTION_POOL_MAX_MESSAGES_PER_CONNECTION);
+		withMaxRecipientsPerTransaction(DEFAULT_MAX_RECIPIENTS_PER_TRANSACTION);
+		withJmxEnabled(DEFAULT_JMX_ENABLED);
+		withDiagnosticCaptureSampleRate(DEFAULT_DIAGNOSTIC_CAPTURE_SAMPLE_RATE);
+		withAttachmentCacheMaxBytes(DEFAULT_ATTACHMENT_CACHE_MAX_BYTES);
+		withAttachmentCacheEncodingThreads(DEFAULT_ATTACHMENT_CACHE_ENCODING_THREADS);
 		withTransportModeLoggingOnly(ConfigLoader.valueOrProperty(null, Property.TRANSPORT_MODE_LOGGING_ONLY, DEFAULT_TRANSPORT_MODE_LOGGING_ONLY));
 		
 		withEmailAddressCriteria(EmailAddressCriteria.RFC_COMPLIANT);
@@ -180,8 +385,9 @@ public abstract class MailerGenericBuilder<T extends MailerGenericBuilder> {
 	 * For internal use.
 	 */
 	OperationalConfig buildOperationalConfig() {
-		return new OperationalConfig(getProperties(), getSessionTimeout(), getThreadPoolSize(), getTransportModeLoggingOnly(), getDebugLogging(),
-				getSslHostsToTrust(), getTrustAllSSLHost());
+		return new OperationalConfig(getProperties(), getSessionTimeout(), getThreadPoolSize(), getThreadPoolQueueCapacity(),
+				getThreadPoolQueueOverflowPolicy(), getThreadPoolKeepAliveTime(), getVirtualThreads(), getExecutorService(), getMaxConcurrentSendsPerDomain(), getConnectionPoolSize(), getConnectionPoolIdleTimeout(), getConnectionPoolMaxMessagesPerConnection(),
+				getMaxRecipientsPerTransaction(), getRateLimits(), getRetryPolicy(), getOutboxDirectory(), getMetrics(), getJmxEnabled(), getDiagnosticCaptureDirectory(), getDiagnosticCaptureSampleRate(), getAttachmentCacheMaxBytes(), getAttachmentCacheSpillDirectory(), getAttachmentCacheEncodingThreads(), getTransportModeLoggingOnly(), getDebugLogging(), getSslHostsToTrust(), getTrustAllSSLHost());
 	}
 	
 	/**
@@ -306,6 +512,327 @@ public abstract class MailerGenericBuilder<T extends MailerGenericBuilder> {
 		return (T) this;
 	}
 	
+	/**
+	 * Controls the maximum number of async emails that can wait for a free thread, so a burst of async emails (perhaps with large attachments)
+	 * can't grow the heap indefinitely. What happens when the queue is full is determined by {@link
+	 * #withThreadPoolQueueOverflowPolicy(AsyncQueueOverflowPolicy)}. Defaults to {@link #DEFAULT_POOL_QUEUE_CAPACITY}.
+	 *
+	 * @see #resetThreadPoolQueueCapacity()
+	 */
+	public T withThreadPoolQueueCapacity(@Nonnull final Integer threadPoolQueueCapacity) {
+		if (threadPoolQueueCapacity < 1) {
+			throw new IllegalArgumentException("threadPoolQueueCapacity should be at least 1: " + threadPoolQueueCapacity);
+		}
+		this.threadPoolQueueCapacity = threadPoolQueueCapacity;
+		return (T) this;
+	}
+	
+	/**
+	 * Controls what happens to an async email when the queue of waiting async emails is full: block the caller, fail fast with an {@link
+	 * AsyncQueueFullException} or send the email in the calling thread. Defaults to {@link #DEFAULT_POOL_QUEUE_OVERFLOW_POLICY}.
+	 *
+	 * @see #withThreadPoolQueueCapacity(Integer)
+	 * @see #resetThreadPoolQueueOverflowPolicy()
+	 */
+	public T withThreadPoolQueueOverflowPolicy(@Nonnull final AsyncQueueOverflowPolicy threadPoolQueueOverflowPolicy) {
+		this.threadPoolQueueOverflowPolicy = threadPoolQueueOverflowPolicy;
+		return (T) this;
+	}
+	
+	/**
+	 * Controls how long (in milliseconds) an idle async thread waits for new emails before it is stopped. The thread pool itself lives as long as
+	 * the Mailer, so bursts of async emails don't each pay for creating a new pool; idle threads simply time out so they don't keep the JVM alive.
+	 * Defaults to {@link #DEFAULT_POOL_KEEP_ALIVE_TIME_MILLIS}.
+	 *
+	 * @see Mailer#shutdown()
+	 * @see #resetThreadPoolKeepAliveTime()
+	 */
+	public T withThreadPoolKeepAliveTime(@Nonnull final Integer threadPoolKeepAliveTime) {
+		this.threadPoolKeepAliveTime = threadPoolKeepAliveTime;
+		return (T) this;
+	}
+	
+	/**
+	 * Sends every async email on its own virtual thread rather than on a pool of platform threads, so that thousands of SMTP conversations (which
+	 * mostly wait on socket I/O) can be in flight cheaply. Requires a Java 21+ runtime; on older runtimes a warning is logged and the regular
+	 * thread pool is used instead.
+	 * <p>
+	 * In this mode {@link #withThreadPoolSize(Integer)} limits the number of emails being sent concurrently (using a semaphore instead of a fixed
+	 * number of threads), while queue capacity and overflow policy apply as usual. The keep alive time doesn't apply, as virtual threads aren't
+	 * pooled. Defaults to {@value #DEFAULT_VIRTUAL_THREADS}.
+	 *
+	 * @see #resetVirtualThreads()
+	 */
+	public T withVirtualThreads(@Nonnull final Boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+		return (T) this;
+	}
+	
+	/**
+	 * Sets a custom executor for sending emails asynchronously, instead of the thread pool the Mailer would create itself. This way the application
+	 * controls the threads, for example to share them with other tasks.
+	 * <p>
+	 * <strong>Note:</strong> the thread pool size, queue capacity, overflow policy and keep alive time don't apply to a custom executor. Its
+	 * lifecycle remains the responsibility of the application, so {@link Mailer#shutdown()} won't shut it down.
+	 *
+	 * @see #clearExecutorService()
+	 */
+	public T withExecutorService(@Nullable final ExecutorService executorService) {
+		this.executorService = executorService;
+		return (T) this;
+	}
+	
+	/**
+	 * Divides async emails into lanes by recipient domain, and limits how many emails of a single lane are sent at the same time. This way a domain
+	 * that greylists or responds slowly only holds up its own emails, instead of occupying every thread while emails to other domains wait in the
+	 * queue. Lanes take turns, so a large batch for one domain doesn't delay emails for other domains queued after it either.
+	 * <p>
+	 * Emails with recipients in several domains get a lane of their own for that combination of domains. Queue capacity and overflow policy apply
+	 * to all lanes together. Set to zero to disable lanes, which is the default ({@value #DEFAULT_MAX_CONCURRENT_SENDS_PER_DOMAIN}).
+	 *
+	 * @see #resetMaxConcurrentSendsPerDomain()
+	 */
+	public T withMaxConcurrentSendsPerDomain(@Nonnull final Integer maxConcurrentSendsPerDomain) {
+		if (maxConcurrentSendsPerDomain < 0) {
+			throw new IllegalArgumentException("maxConcurrentSendsPerDomain should not be negative: " + maxConcurrentSendsPerDomain);
+		}
+		this.maxConcurrentSendsPerDomain = maxConcurrentSendsPerDomain;
+		return (T) this;
+	}
+	
+	/**
+	 * Controls the maximum number of connected (and authenticated) SMTP transports kept around for reuse by subsequent emails, so not every email
+	 * needs to go through connecting, EHLO, STARTTLS and AUTH again. A pooled connection is validated with an SMTP <code>RSET</code> before it is
+	 * reused. Pooled connections stay open until they have been idle for {@link #withConnectionPoolIdleTimeout(Integer) a while}, so this is
+	 * opt-in: zero disables pooling and opens a new connection for every email, which is the default ({@value #DEFAULT_CONNECTION_POOL_SIZE}).
+	 * <p>
+	 * <strong>Note:</strong> this is not a limit on the number of concurrent connections; when all pooled connections are in use, new ones are
+	 * opened as needed. Only up to this number of them are kept afterwards.
+	 *
+	 * @see #withConnectionPoolIdleTimeout(Integer)
+	 * @see #withConnectionPoolMaxMessagesPerConnection(Integer)
+	 * @see #resetConnectionPoolSize()
+	 */
+	public T withConnectionPoolSize(@Nonnull final Integer connectionPoolSize) {
+		if (connectionPoolSize < 0) {
+			throw new IllegalArgumentException("connectionPoolSize should not be negative: " + connectionPoolSize);
+		}
+		this.connectionPoolSize = connectionPoolSize;
+		return (T) this;
+	}
+	
+	/**
+	 * Controls how long (in milliseconds) a pooled SMTP connection may stay idle before it is closed. Defaults to {@link
+	 * #DEFAULT_CONNECTION_POOL_IDLE_TIMEOUT_MILLIS}.
+	 *
+	 * @see #withConnectionPoolSize(Integer)
+	 * @see #resetConnectionPoolIdleTimeout()
+	 */
+	public T withConnectionPoolIdleTimeout(@Nonnull final Integer connectionPoolIdleTimeout) {
+		this.connectionPoolIdleTimeout = connectionPoolIdleTimeout;
+		return (T) this;
+	}
+	
+	/**
+	 * Controls after how many emails a pooled SMTP connection is closed rather than reused. Defaults to {@link
+	 * #DEFAULT_CONNECTION_POOL_MAX_MESSAGES_PER_CONNECTION}.
+	 *
+	 * @see #withConnectionPoolSize(Integer)
+	 * @see #resetConnectionPoolMaxMessagesPerConnection()
+	 */
+	public T withConnectionPoolMaxMessagesPerConnection(@Nonnull final Integer connectionPoolMaxMessagesPerConnection) {
+		this.connectionPoolMaxMessagesPerConnection = connectionPoolMaxMessagesPerConnection;
+		return (T) this;
+	}
+	
+	/**
+	 * Splits the recipients of emails with more recipients than this into chunks, each sent in its own SMTP transaction, for servers that limit
+	 * the number of recipients per message. The email is converted to a {@link javax.mail.internet.MimeMessage} only once, and the chunks are sent
+	 * in parallel over as many connections as {@link #withConnectionPoolSize(Integer)} keeps around (one after the other without pooling).
+	 * <p>
+	 * A failing chunk doesn't stop the others. If only some of the chunks fail, the email counts as sent and {@link
+	 * Mailer#sendMail(org.simplejavamail.email.Email, boolean)} reports the recipients of the failed chunks with a {@link PartialSendException}. If
+	 * all chunks fail, sending the email fails. Either way, the cause is a {@link javax.mail.SendFailedException}, which tells for every recipient
+	 * whether the email was sent to it, not sent or the address was rejected. With {@link Mailer#sendMails(java.util.Iterator, SendResultHandler)},
+	 * the chunks are sent one after the other over the held connection, and the recipients of the failed chunks are listed in {@link
+	 * SendResult#getFailedRecipients()}.
+	 * <p>
+	 * Set to zero to send to all recipients in a single transaction, which is the default ({@value #DEFAULT_MAX_RECIPIENTS_PER_TRANSACTION}).
+	 *
+	 * @see #resetMaxRecipientsPerTransaction()
+	 */
+	public T withMaxRecipientsPerTransaction(@Nonnull final Integer maxRecipientsPerTransaction) {
+		if (maxRecipientsPerTransaction < 0) {
+			throw new IllegalArgumentException("maxRecipientsPerTransaction should not be negative: " + maxRecipientsPerTransaction);
+		}
+		this.maxRecipientsPerTransaction = maxRecipientsPerTransaction;
+		return (T) this;
+	}
+	
+	/**
+	 * Adds a limit to the rate at which emails are sent to the SMTP server, for example to stay within the per-second and per-hour quotas of an
+	 * email provider. When the limit is reached, sending threads wait right before handing their email to the server, rather than being rejected.
+	 * Limits apply per Mailer and all added limits apply at the same time. By default, there is no rate limit.
+	 * <p>
+	 * The total time spent waiting for the rate limits is available through {@link Mailer#getRateLimitWaitTime(java.util.concurrent.TimeUnit)}.
+	 *
+	 * @see RateLimit
+	 * @see #clearRateLimits()
+	 */
+	public T withRateLimit(@Nonnull final RateLimit rateLimit) {
+		this.rateLimits.add(checkNonEmptyArgument(rateLimit, "rateLimit"));
+		return (T) this;
+	}
+	
+	/**
+	 * Retries sending emails that failed for a transient reason, such as a <code>4xx</code> SMTP reply or a connection problem, with an
+	 * exponentially growing wait time in between. Emails rejected with a <code>5xx</code> SMTP reply are never retried. By default, failed emails
+	 * are not retried.
+	 * <p>
+	 * The email is converted to a {@link javax.mail.internet.MimeMessage} only once, every retry sends the same message (with the same message id).
+	 * Async emails don't occupy a thread while waiting for their retry: they are put back in the async queue once the wait is over. Sending
+	 * synchronously, the calling thread waits and {@link Mailer#sendMail(org.simplejavamail.email.Email)} returns or fails only after the last
+	 * attempt.
+	 *
+	 * @see RetryPolicy
+	 * @see #clearRetryPolicy()
+	 */
+	public T withRetryPolicy(@Nullable final RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+		return (T) this;
+	}
+	
+	/**
+	 * Makes async emails survive a JVM restart, by journaling them in the given directory before they are accepted for sending. Emails that were
+	 * not sent yet when the JVM stopped are sent as soon as a Mailer with the same outbox directory is built again. By default, async emails only
+	 * live in memory.
+	 * <p>
+	 * An async email is converted to a {@link javax.mail.internet.MimeMessage} and written to disk in the calling thread, so {@link
+	 * Mailer#sendMail(org.simplejavamail.email.Email, boolean)} returns once the email is safely stored. Concurrent callers share disk syncs, so
+	 * the cost per email goes down as more threads send at the same time.
+	 * <p>
+	 * <strong>Note:</strong> emails are sent <em>at least once</em>: an email that was sent right before the JVM stopped may be sent again. Only one
+	 * Mailer at a time should use a given outbox directory.
+	 *
+	 * @see #clearOutboxDirectory()
+	 */
+	public T withOutboxDirectory(@Nullable final File outboxDirectory) {
+		this.outboxDirectory = outboxDirectory;
+		return (T) this;
+	}
+	
+	/**
+	 * Reports how long every stage of sending an email takes (validation, producing the MIME message, connecting, sending and closing), as well as
+	 * message sizes, queue waiting times, thread pool occupancy and the outcome of every email. Use {@link InMemoryMailerMetrics} to keep them in
+	 * histograms, or implement {@link MailerMetrics} to forward them to a monitoring system. By default, nothing is measured.
+	 *
+	 * @see #clearMetrics()
+	 */
+	public T withMetrics(@Nullable final MailerMetrics metrics) {
+		this.metrics = metrics;
+		return (T) this;
+	}
+	
+	/**
+	 * Registers MBeans with the platform MBean server, giving operations a live view of the Mailer: emails in progress, queue depth, pooled
+	 * connections, sent and failed counters and throughput, and for an authenticated proxy also the bridge's sessions and bytes relayed. Sending
+	 * can be paused and resumed and the queue drained from the MBean as well. The MBeans are unregistered when the Mailer is shut down. Defaults
+	 * to {@value #DEFAULT_JMX_ENABLED}.
+	 * <p>
+	 * The MBeans are named <code>org.simplejavamail:type=Mailer,name=mailer-N</code> and <code>org.simplejavamail:type=ProxyBridge,name=mailer-N</code>
+	 * where <code>N</code> numbers the Mailers in order of creation.
+	 *
+	 * @see #resetJmxEnabled()
+	 */
+	public T withJmxEnabled(@Nonnull final Boolean jmxEnabled) {
+		this.jmxEnabled = jmxEnabled;
+		return (T) this;
+	}
+	
+	/**
+	 * Captures a sample of the emails sent as <code>.eml</code> files in the given directory, so production traffic can be diagnosed without
+	 * logging every message at TRACE level. How many emails are captured is set with {@link #withDiagnosticCaptureSampleRate(Integer)}. By default,
+	 * nothing is captured.
+	 * <p>
+	 * Emails are captured right before they are sent (or logged, see {@link #withTransportModeLoggingOnly(Boolean)}), named after their message id.
+	 * Failing to capture an email is logged and doesn't affect sending it.
+	 *
+	 * @see #clearDiagnosticCaptureDirectory()
+	 */
+	public T withDiagnosticCaptureDirectory(@Nullable final File diagnosticCaptureDirectory) {
+		this.diagnosticCaptureDirectory = diagnosticCaptureDirectory;
+		return (T) this;
+	}
+	
+	/**
+	 * Sets how many emails are captured in the {@link #withDiagnosticCaptureDirectory(File) diagnostic capture directory}: one in every
+	 * <code>sampleRate</code> emails, starting with the first. Use 1 to capture every email. Defaults to {@value
+	 * #DEFAULT_DIAGNOSTIC_CAPTURE_SAMPLE_RATE}.
+	 *
+	 * @see #resetDiagnosticCaptureSampleRate()
+	 */
+	public T withDiagnosticCaptureSampleRate(@Nonnull final Integer diagnosticCaptureSampleRate) {
+		if (diagnosticCaptureSampleRate < 1) {
+			throw new IllegalArgumentException("diagnosticCaptureSampleRate should be at least 1: " + diagnosticCaptureSampleRate);
+		}
+		this.diagnosticCaptureSampleRate = diagnosticCaptureSampleRate;
+		return (T) this;
+	}
+	
+	/**
+	 * Caches the base64 encoded content of attachments and embedded images, so an attachment that goes out with many emails (such as a PDF with terms
+	 * and conditions) is encoded once rather than for every email. Content is recognized by a hash of its bytes and its content type, so it doesn't
+	 * matter whether the emails share a data source. The least recently used content is evicted once the cache exceeds the given size. Defaults to
+	 * {@value #DEFAULT_ATTACHMENT_CACHE_MAX_BYTES}, which disables the cache.
+	 * <p>
+	 * Content that isn't cached yet is encoded in full before the message is written, so the first email with a large attachment starts going out
+	 * later than without the cache, which streams the encoding while writing. Content larger than the cache is never encoded up front.
+	 *
+	 * @param attachmentCacheMaxBytes The maximum size of the encoded content kept in memory, in bytes.
+	 * @see #withAttachmentCacheSpillDirectory(File)
+	 * @see #resetAttachmentCacheMaxBytes()
+	 */
+	public T withAttachmentCacheMaxBytes(@Nonnull final Long attachmentCacheMaxBytes) {
+		if (attachmentCacheMaxBytes < 0) {
+			throw new IllegalArgumentException("attachmentCacheMaxBytes should not be negative: " + attachmentCacheMaxBytes);
+		}
+		this.attachmentCacheMaxBytes = attachmentCacheMaxBytes;
+		return (T) this;
+	}
+	
+	/**
+	 * Moves content evicted from the {@link #withAttachmentCacheMaxBytes(Long) attachment cache} to the given directory rather than dropping it, keeping
+	 * at most as much on disk as in memory. Content found on disk is moved back into memory. Spilled content is deleted when the Mailer shuts down.
+	 * By default, evicted content is dropped.
+	 *
+	 * @see #clearAttachmentCacheSpillDirectory()
+	 */
+	public T withAttachmentCacheSpillDirectory(@Nullable final File attachmentCacheSpillDirectory) {
+		this.attachmentCacheSpillDirectory = attachmentCacheSpillDirectory;
+		return (T) this;
+	}
+	
+	/**
+	 * Sets the number of threads on which the {@link #withAttachmentCacheMaxBytes(Long) attachment cache} encodes content it doesn't hold yet, which
+	 * pays off for large attachments on a machine with cores to spare. The content is encoded in windows of a few hundred kilobytes, each split up
+	 * among the threads. The threads belong to this Mailer alone and are stopped when it shuts down. Defaults to {@value
+	 * #DEFAULT_ATTACHMENT_CACHE_ENCODING_THREADS}, which encodes on the thread producing the message.
+	 * <p>
+	 * Parallel encoding is limited to these cache misses, and so only takes effect when both this option and the attachment cache are set. Without
+	 * the cache, attachments and embedded images are always encoded while the message is written, streamed on the sending thread, whatever the
+	 * number of threads set here. Content too large for the cache and {@link org.simplejavamail.email.MappedFileDataSource mapped files} are
+	 * never encoded in parallel either.
+	 *
+	 * @see #resetAttachmentCacheEncodingThreads()
+	 */
+	public T withAttachmentCacheEncodingThreads(@Nonnull final Integer attachmentCacheEncodingThreads) {
+		if (attachmentCacheEncodingThreads < 1) {
+			throw new IllegalArgumentException("attachmentCacheEncodingThreads should be at least 1: " + attachmentCacheEncodingThreads);
+		}
+		this.attachmentCacheEncodingThreads = attachmentCacheEncodingThreads;
+		return (T) this;
+	}
+	
 	/**
 	 * Determines whether at the very last moment an email is sent out using JavaMail's native API or whether the email is simply only logged.
 	 *
@@ -417,6 +944,96 @@ public abstract class MailerGenericBuilder<T extends MailerGenericBuilder> {
 		return withThreadPoolSize(DEFAULT_POOL_SIZE);
 	}
 	
+	/**
+	 * Resets threadPoolQueueCapacity to its default ({@value #DEFAULT_POOL_QUEUE_CAPACITY}).
+	 *
+	 * @see #withThreadPoolQueueCapacity(Integer)
+	 */
+	public T resetThreadPoolQueueCapacity() {
+		return withThreadPoolQueueCapacity(DEFAULT_POOL_QUEUE_CAPACITY);
+	}
+	
+	/**
+	 * Resets threadPoolQueueOverflowPolicy to its default ({@link #DEFAULT_POOL_QUEUE_OVERFLOW_POLICY}).
+	 *
+	 * @see #withThreadPoolQueueOverflowPolicy(AsyncQueueOverflowPolicy)
+	 */
+	public T resetThreadPoolQueueOverflowPolicy() {
+		return withThreadPoolQueueOverflowPolicy(DEFAULT_POOL_QUEUE_OVERFLOW_POLICY);
+	}
+	
+	/**
+	 * Resets threadPoolKeepAliveTime to its default ({@value #DEFAULT_POOL_KEEP_ALIVE_TIME_MILLIS}).
+	 *
+	 * @see #withThreadPoolKeepAliveTime(Integer)
+	 */
+	public T resetThreadPoolKeepAliveTime() {
+		return withThreadPoolKeepAliveTime(DEFAULT_POOL_KEEP_ALIVE_TIME_MILLIS);
+	}
+	
+	/**
+	 * Resets virtualThreads to {@value #DEFAULT_VIRTUAL_THREADS}.
+	 *
+	 * @see #withVirtualThreads(Boolean)
+	 */
+	public T resetVirtualThreads() {
+		return withVirtualThreads(DEFAULT_VIRTUAL_THREADS);
+	}
+	
+	/**
+	 * Removes the custom executor, so the Mailer creates its own thread pool again.
+	 *
+	 * @see #withExecutorService(ExecutorService)
+	 */
+	public T clearExecutorService() {
+		return withExecutorService(null);
+	}
+	
+	/**
+	 * Resets maxConcurrentSendsPerDomain to its default ({@value #DEFAULT_MAX_CONCURRENT_SENDS_PER_DOMAIN}).
+	 *
+	 * @see #withMaxConcurrentSendsPerDomain(Integer)
+	 */
+	public T resetMaxConcurrentSendsPerDomain() {
+		return withMaxConcurrentSendsPerDomain(DEFAULT_MAX_CONCURRENT_SENDS_PER_DOMAIN);
+	}
+	
+	/**
+	 * Resets connectionPoolSize to its default ({@value #DEFAULT_CONNECTION_POOL_SIZE}).
+	 *
+	 * @see #withConnectionPoolSize(Integer)
+	 */
+	public T resetConnectionPoolSize() {
+		return withConnectionPoolSize(DEFAULT_CONNECTION_POOL_SIZE);
+	}
+	
+	/**
+	 * Resets connectionPoolIdleTimeout to its default ({@value #DEFAULT_CONNECTION_POOL_IDLE_TIMEOUT_MILLIS}).
+	 *
+	 * @see #withConnectionPoolIdleTimeout(Integer)
+	 */
+	public T resetConnectionPoolIdleTimeout() {
+		return withConnectionPoolIdleTimeout(DEFAULT_CONNECTION_POOL_IDLE_TIMEOUT_MILLIS);
+	}
+	
+	/**
+	 * Resets connectionPoolMaxMessagesPerConnection to its default ({@value #DEFAULT_CONNECTION_POOL_MAX_MESSAGES_PER_CONNECTION}).
+	 *
+	 * @see #withConnectionPoolMaxMessagesPerConnection(Integer)
+	 */
+	public T resetConnectionPoolMaxMessagesPerConnection() {
+		return withConnectionPoolMaxMessagesPerConnection(DEFAULT_CONNECTION_POOL_MAX_MESSAGES_PER_CONNECTION);
+	}
+	
+	/**
+	 * Resets maxRecipientsPerTransaction to its default ({@value #DEFAULT_MAX_RECIPIENTS_PER_TRANSACTION}).
+	 *
+	 * @see #withMaxRecipientsPerTransaction(Integer)
+	 */
+	public T resetMaxRecipientsPerTransaction() {
+		return withMaxRecipientsPerTransaction(DEFAULT_MAX_RECIPIENTS_PER_TRANSACTION);
+	}
+	
 	/**
 	 * Resets transportModeLoggingOnly to {@value #DEFAULT_TRANSPORT_MODE_LOGGING_ONLY}.
 	 *
@@ -444,6 +1061,97 @@ public abstract class MailerGenericBuilder<T extends MailerGenericBuilder> {
 		return withEmailAddressCriteria(EnumSet.noneOf(EmailAddressCriteria.class));
 	}
 	
+	/**
+	 * Removes all rate limits, so emails are sent as fast as the SMTP server accepts them.
+	 *
+	 * @see #withRateLimit(RateLimit)
+	 */
+	public T clearRateLimits() {
+		rateLimits.clear();
+		return (T) this;
+	}
+	
+	/**
+	 * Removes the retry policy, so failed emails are not retried.
+	 *
+	 * @see #withRetryPolicy(RetryPolicy)
+	 */
+	public T clearRetryPolicy() {
+		return withRetryPolicy(null);
+	}
+	
+	/**
+	 * Removes the outbox directory, so async emails only live in memory until they are sent.
+	 *
+	 * @see #withOutboxDirectory(File)
+	 */
+	public T clearOutboxDirectory() {
+		return withOutboxDirectory(null);
+	}
+	
+	/**
+	 * Removes the metrics, so nothing is measured anymore.
+	 *
+	 * @see #withMetrics(MailerMetrics)
+	 */
+	public T clearMetrics() {
+		return withMetrics(null);
+	}
+	
+	/**
+	 * Resets jmxEnabled to {@value #DEFAULT_JMX_ENABLED}.
+	 *
+	 * @see #withJmxEnabled(Boolean)
+	 */
+	public T resetJmxEnabled() {
+		return withJmxEnabled(DEFAULT_JMX_ENABLED);
+	}
+	
+	/**
+	 * Removes the diagnostic capture directory, so no emails are captured.
+	 *
+	 * @see #withDiagnosticCaptureDirectory(File)
+	 */
+	public T clearDiagnosticCaptureDirectory() {
+		return withDiagnosticCaptureDirectory(null);
+	}
+	
+	/**
+	 * Resets diagnosticCaptureSampleRate to {@value #DEFAULT_DIAGNOSTIC_CAPTURE_SAMPLE_RATE}.
+	 *
+	 * @see #withDiagnosticCaptureSampleRate(Integer)
+	 */
+	public T resetDiagnosticCaptureSampleRate() {
+		return withDiagnosticCaptureSampleRate(DEFAULT_DIAGNOSTIC_CAPTURE_SAMPLE_RATE);
+	}
+	
+	/**
+	 * Resets attachmentCacheMaxBytes to {@value #DEFAULT_ATTACHMENT_CACHE_MAX_BYTES}.
+	 *
+	 * @see #withAttachmentCacheMaxBytes(Long)
+	 */
+	public T resetAttachmentCacheMaxBytes() {
+		return withAttachmentCacheMaxBytes(DEFAULT_ATTACHMENT_CACHE_MAX_BYTES);
+	}
+	
+	/**
+	 * Removes the attachment cache spill directory, so evicted content is dropped.
+	 *
+	 * @see #withAttachmentCacheSpillDirectory(File)
+	 */
+	public T clearAttachmentCacheSpillDirectory() {
+		return withAttachmentCacheSpillDirectory(null);
+	}
+	
+	/**
+	 * Resets attachmentCacheEncodingThreads to {@value #DEFAULT_ATTACHMENT_CACHE_ENCODING_THREADS}.
+	 *
+	 * @see #withAttachmentCacheEncodingThreads(Integer)
+	 */
+	public T resetAttachmentCacheEncodingThreads() {
+		return withAttachmentCacheEncodingThreads(DEFAULT_ATTACHMENT_CACHE_ENCODING_THREADS);
+	}
+	
 	/**
 	 * Removes all trusted hosts from the list.
 	 *
@@ -526,6 +1234,152 @@ public abstract class MailerGenericBuilder<T extends MailerGenericBuilder> {
 		return threadPoolSize;
 	}
 	
+	/**
+	 * @see #withThreadPoolQueueCapacity(Integer)
+	 */
+	public Integer getThreadPoolQueueCapacity() {
+		return threadPoolQueueCapacity;
+	}
+	
+	/**
+	 * @see #withThreadPoolQueueOverflowPolicy(AsyncQueueOverflowPolicy)
+	 */
+	public AsyncQueueOverflowPolicy getThreadPoolQueueOverflowPolicy() {
+		return threadPoolQueueOverflowPolicy;
+	}
+	
+	/**
+	 * @see #withThreadPoolKeepAliveTime(Integer)
+	 */
+	public Integer getThreadPoolKeepAliveTime() {
+		return threadPoolKeepAliveTime;
+	}
+	
+	/**
+	 * @see #withVirtualThreads(Boolean)
+	 */
+	public Boolean getVirtualThreads() {
+		return virtualThreads;
+	}
+	
+	/**
+	 * @see #withExecutorService(ExecutorService)
+	 */
+	@Nullable
+	public ExecutorService getExecutorService() {
+		return executorService;
+	}
+	
+	/**
+	 * @see #withMaxConcurrentSendsPerDomain(Integer)
+	 */
+	public Integer getMaxConcurrentSendsPerDomain() {
+		return maxConcurrentSendsPerDomain;
+	}
+	
+	/**
+	 * @see #withConnectionPoolSize(Integer)
+	 */
+	public Integer getConnectionPoolSize() {
+		return connectionPoolSize;
+	}
+	
+	/**
+	 * @see #withConnectionPoolIdleTimeout(Integer)
+	 */
+	public Integer getConnectionPoolIdleTimeout() {
+		return connectionPoolIdleTimeout;
+	}
+	
+	/**
+	 * @see #withConnectionPoolMaxMessagesPerConnection(Integer)
+	 */
+	public Integer getConnectionPoolMaxMessagesPerConnection() {
+		return connectionPoolMaxMessagesPerConnection;
+	}
+	
+	/**
+	 * @see #withMaxRecipientsPerTransaction(Integer)
+	 */
+	public Integer getMaxRecipientsPerTransaction() {
+		return maxRecipientsPerTransaction;
+	}
+	
+	/**
+	 * @see #withRateLimit(RateLimit)
+	 */
+	public List<RateLimit> getRateLimits() {
+		return rateLimits;
+	}
+	
+	/**
+	 * @see #withRetryPolicy(RetryPolicy)
+	 */
+	@Nullable
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+	
+	/**
+	 * @see #withOutboxDirectory(File)
+	 */
+	@Nullable
+	public File getOutboxDirectory() {
+		return outboxDirectory;
+	}
+	
+	/**
+	 * @see #withMetrics(MailerMetrics)
+	 */
+	@Nullable
+	public MailerMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * @see #withJmxEnabled(Boolean)
+	 */
+	public Boolean getJmxEnabled() {
+		return jmxEnabled;
+	}
+	
+	/**
+	 * @see #withDiagnosticCaptureDirectory(File)
+	 */
+	@Nullable
+	public File getDiagnosticCaptureDirectory() {
+		return diagnosticCaptureDirectory;
+	}
+	
+	/**
+	 * @see #withDiagnosticCaptureSampleRate(Integer)
+	 */
+	public Integer getDiagnosticCaptureSampleRate() {
+		return diagnosticCaptureSampleRate;
+	}
+	
+	/**
+	 * @see #withAttachmentCacheMaxBytes(Long)
+	 */
+	public Long getAttachmentCacheMaxBytes() {
+		return attachmentCacheMaxBytes;
+	}
+	
+	/**
+	 * @see #withAttachmentCacheSpillDirectory(File)
+	 */
+	@Nullable
+	public File getAttachmentCacheSpillDirectory() {
+		return attachmentCacheSpillDirectory;
+	}
+	
+	/**
+	 * @see #withAttachmentCacheEncodingThreads(Integer)
+	 */
+	public Integer getAttachmentCacheEncodingThreads() {
+		return attachmentCacheEncodingThreads;
+	}
+	
 	/**
 	 * @see #trustingSSLHosts(String...)
 	 */
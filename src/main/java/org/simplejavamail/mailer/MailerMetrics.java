@@ -0,0 +1,84 @@
+package org.simplejavamail.mailer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Receives measurements from a {@link Mailer} about every email it sends, so it can be seen where send latency goes. Install one with {@link
+ * MailerGenericBuilder#withMetrics(MailerMetrics)}; {@link InMemoryMailerMetrics} keeps them in histograms.
+ * <p>
+ * Without metrics installed the Mailer doesn't even read the clock. With metrics installed, it calls back on the sending threads, so
+ * implementations must be thread-safe and should return quickly.
+ */
+public interface MailerMetrics {
+	
+	/**
+	 * The stages of sending an email that are timed, in the order in which they occur.
+	 */
+	enum Stage {
+		/**
+		 * Checking the email has all mandatory values and valid addresses, see {@link Mailer#validate(org.simplejavamail.email.Email)}.
+		 */
+		VALIDATION,
+		/**
+		 * Converting the email into a {@link javax.mail.internet.MimeMessage}.
+		 */
+		MIME_PRODUCTION,
+		/**
+		 * {@link javax.mail.Message#saveChanges()}, which sets the remaining headers and the message id.
+		 */
+		SAVE_CHANGES,
+		/**
+		 * Waiting for the rate limits to allow another message. Only reported when rate limits are configured, but then also when no wait was
+		 * needed.
+		 *
+		 * @see MailerGenericBuilder#withRateLimit(org.simplejavamail.mailer.config.RateLimit)
+		 */
+		RATE_LIMIT_WAIT,
+		/**
+		 * Obtaining a connected transport: reusing a pooled connection after an SMTP <code>RSET</code>, or connecting a new one.
+		 */
+		CONNECT,
+		/**
+		 * Transferring the message to the SMTP server, up to and including the server's reply.
+		 */
+		SEND_MESSAGE,
+		/**
+		 * Giving the transport back: returning it to the connection pool, or closing the connection.
+		 */
+		CLOSE
+	}
+	
+	/**
+	 * Called every time a stage finished, whether it succeeded or not. Stages that are repeated, for example for a retry or for every recipient
+	 * chunk, are reported every time.
+	 */
+	void stageCompleted(@Nonnull Stage stage, long durationNanos);
+	
+	/**
+	 * Called once per email, with the size of the message as it is written to the SMTP server. The bytes are counted while the message is written
+	 * to the server (or while it is rendered anyway, for the outbox or for recipient chunks), so the message is never rendered just to measure it.
+	 * Emails that fail before being written are not reported.
+	 */
+	void messageSize(long bytes);
+	
+	/**
+	 * Called when an async email is picked up by a sending thread, with the time it waited in the queue since it was submitted (or since its retry
+	 * was due).
+	 */
+	void queueWait(long durationNanos);
+	
+	/**
+	 * Called when an async email is picked up by a sending thread, with the state of the thread pool at that moment.
+	 *
+	 * @param activeSends The number of async emails being sent at that moment, including this one.
+	 * @param queuedSends The number of async emails still waiting for a thread.
+	 */
+	void poolOccupancy(int activeSends, int queuedSends);
+	
+	/**
+	 * Called once per email when it is done, including retries and (for async emails) the time it waited in the queue.
+	 *
+	 * @param sent Whether the email was sent, or failed for good.
+	 */
+	void sendCompleted(boolean sent, long durationNanos);
+}
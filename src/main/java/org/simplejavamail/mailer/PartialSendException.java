@@ -0,0 +1,41 @@
+package org.simplejavamail.mailer;
+
+import org.simplejavamail.MailException;
+import org.simplejavamail.email.Recipient;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Thrown (or completing the {@link AsyncResponse} exceptionally) when an email sent in recipient chunks was sent, but not to all of its
+ * recipients, because some of the chunks failed while others were accepted by the SMTP server. Unlike other {@link MailException}s this is not a
+ * failure of the email as a whole: it isn't retried and counts as sent. The cause is a {@link javax.mail.SendFailedException} that tells for every
+ * address whether the email was sent to it.
+ *
+ * @see MailerGenericBuilder#withMaxRecipientsPerTransaction(Integer)
+ */
+@SuppressWarnings("serial")
+public class PartialSendException extends MailException {
+	
+	static final String PARTIALLY_SENT = "Email was sent, but not to %s of its %s recipients";
+	
+	@Nonnull
+	private final List<Recipient> failedRecipients;
+	
+	public PartialSendException(@Nonnull final List<Recipient> failedRecipients, final int recipientCount, @Nonnull final Exception cause) {
+		super(format(PARTIALLY_SENT, failedRecipients.size(), recipientCount), cause);
+		this.failedRecipients = Collections.unmodifiableList(new ArrayList<>(failedRecipients));
+	}
+	
+	/**
+	 * @return The recipients the email was not sent to, because the recipient chunk they were in failed.
+	 */
+	@Nonnull
+	public List<Recipient> getFailedRecipients() {
+		return failedRecipients;
+	}
+}
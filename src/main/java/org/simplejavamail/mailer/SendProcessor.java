@@ -0,0 +1,223 @@
+package org.simplejavamail.mailer;
+
+import org.simplejavamail.MailException;
+import org.simplejavamail.email.Email;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sends the emails it receives as a {@link Flow.Subscriber} and publishes a {@link SendResult} for each of them as a {@link Flow.Publisher}.
+ * <p>
+ * Flow control is demand-driven in both directions: no more than a fixed number of emails are requested from upstream until their results have been
+ * delivered downstream. So when the SMTP server is slow, or the subscriber of the results is, the upstream is slowed down rather than emails piling
+ * up in memory.
+ * <p>
+ * Results are only delivered to a subscriber, so until one subscribes (and requests results), no more emails are requested from upstream after the
+ * first batch. Only a single subscriber is supported.
+ *
+ * @see Mailer#createSendProcessor()
+ */
+public class SendProcessor implements Flow.Processor<Email, SendResult> {
+	
+	/**
+	 * Given to subscribers other than the first, which are rejected right away.
+	 */
+	private static final Flow.Subscription REJECTED_SUBSCRIPTION = new Flow.Subscription() {
+		@Override
+		public void request(final long n) {
+		}
+		
+		@Override
+		public void cancel() {
+		}
+	};
+	
+	@Nonnull private final Mailer mailer;
+	private final int maxEmailsInFlight;
+	
+	private final AtomicReference<Flow.Subscription> upstream = new AtomicReference<>();
+	private final AtomicReference<Flow.Subscriber<? super SendResult>> downstream = new AtomicReference<>();
+	
+	private final Queue<SendResult> results = new ConcurrentLinkedQueue<>();
+	private final AtomicLong downstreamDemand = new AtomicLong();
+	private final AtomicInteger emailsInFlight = new AtomicInteger();
+	
+	/**
+	 * Ensures results and terminal signals are delivered downstream by one thread at a time.
+	 */
+	private final AtomicInteger drainWorkInProgress = new AtomicInteger();
+	
+	private final AtomicBoolean cancelled = new AtomicBoolean();
+	private volatile boolean upstreamDone;
+	@Nullable private volatile Throwable upstreamError;
+	private boolean downstreamTerminated; // only accessed from drain()
+	
+	/**
+	 * @param mailer            Sends the emails asynchronously.
+	 * @param maxEmailsInFlight The maximum number of emails requested from upstream for which no result has been delivered downstream yet.
+	 */
+	SendProcessor(@Nonnull final Mailer mailer, final int maxEmailsInFlight) {
+		this.mailer = mailer;
+		this.maxEmailsInFlight = Math.max(1, maxEmailsInFlight);
+	}
+	
+	@Override
+	public void onSubscribe(@Nonnull final Flow.Subscription subscription) {
+		if (!upstream.compareAndSet(null, subscription)) {
+			subscription.cancel(); // already subscribed to another publisher
+			return;
+		}
+		if (cancelled.get()) {
+			subscription.cancel();
+		} else {
+			subscription.request(maxEmailsInFlight);
+		}
+	}
+	
+	@Override
+	public void onNext(@Nonnull final Email email) {
+		emailsInFlight.incrementAndGet();
+		try {
+			final AsyncResponse asyncResponse = mailer.sendMail(email, true);
+			asyncResponse.onSuccess(new Runnable() {
+				@Override
+				public void run() {
+					publish(new SendResult(email, null));
+				}
+			});
+			asyncResponse.onException(new AsyncResponse.ExceptionConsumer() {
+				@Override
+				public void accept(final Exception e) {
+					publish(SendResult.forException(email, asMailException(e)));
+				}
+			});
+		} catch (final MailException e) {
+			// invalid email, or it wasn't accepted for async sending
+			publish(new SendResult(email, e));
+		}
+	}
+	
+	@Nonnull
+	private static MailException asMailException(@Nonnull final Exception e) {
+		return (e instanceof MailException) ? (MailException) e : new MailerException(MailerException.SEND_FAILED, e);
+	}
+	
+	private void publish(@Nonnull final SendResult result) {
+		results.offer(result);
+		emailsInFlight.decrementAndGet();
+		drain();
+	}
+	
+	@Override
+	public void onError(@Nonnull final Throwable throwable) {
+		upstreamError = throwable;
+		upstreamDone = true;
+		drain();
+	}
+	
+	@Override
+	public void onComplete() {
+		upstreamDone = true;
+		drain();
+	}
+	
+	@Override
+	public void subscribe(@Nonnull final Flow.Subscriber<? super SendResult> subscriber) {
+		if (!downstream.compareAndSet(null, subscriber)) {
+			// a subscription of its own, so it can't request or cancel on behalf of the actual subscriber
+			subscriber.onSubscribe(REJECTED_SUBSCRIPTION);
+			subscriber.onError(new IllegalStateException("SendProcessor supports only a single subscriber"));
+			return;
+		}
+		subscriber.onSubscribe(new ResultSubscription());
+		drain();
+	}
+	
+	/**
+	 * Delivers results as far as downstream demand allows, requesting a new email from upstream for each delivered result. Once upstream is done
+	 * and all results have been delivered, the terminal signal is passed on.
+	 */
+	private void drain() {
+		if (drainWorkInProgress.getAndIncrement() != 0) {
+			return; // the thread already draining will pick up our work as well
+		}
+		int missed = 1;
+		do {
+			final Flow.Subscriber<? super SendResult> subscriber = downstream.get();
+			if (subscriber != null && !downstreamTerminated) {
+				if (cancelled.get()) {
+					results.clear();
+				} else {
+					SendResult result;
+					while (downstreamDemand.get() > 0 && (result = results.poll()) != null) {
+						downstreamDemand.decrementAndGet();
+						subscriber.onNext(result);
+						if (!upstreamDone) {
+							requestUpstream(1);
+						}
+					}
+					if (upstreamDone && emailsInFlight.get() == 0 && results.isEmpty()) {
+						downstreamTerminated = true;
+						final Throwable error = upstreamError;
+						if (error != null) {
+							subscriber.onError(error);
+						} else {
+							subscriber.onComplete();
+						}
+					}
+				}
+			}
+			missed = drainWorkInProgress.addAndGet(-missed);
+		} while (missed != 0);
+	}
+	
+	private void requestUpstream(final long n) {
+		final Flow.Subscription subscription = upstream.get();
+		if (subscription != null) {
+			subscription.request(n);
+		}
+	}
+	
+	private void cancelUpstream() {
+		final Flow.Subscription subscription = upstream.get();
+		if (subscription != null) {
+			subscription.cancel();
+		}
+	}
+	
+	private class ResultSubscription implements Flow.Subscription {
+		@Override
+		public void request(final long n) {
+			if (n <= 0) {
+				// rule 3.9 of the Reactive Streams specification: stop and signal the violation downstream
+				upstreamError = new IllegalArgumentException("non-positive subscription request: " + n);
+				upstreamDone = true;
+				cancelUpstream();
+				drain();
+				return;
+			}
+			long current;
+			long next;
+			do {
+				current = downstreamDemand.get();
+				next = current + n < 0 ? Long.MAX_VALUE : current + n; // cap on overflow
+			} while (!downstreamDemand.compareAndSet(current, next));
+			drain();
+		}
+		
+		@Override
+		public void cancel() {
+			if (cancelled.compareAndSet(false, true)) {
+				cancelUpstream();
+				drain();
+			}
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package org.simplejavamail.mailer;
+
+import org.simplejavamail.MailException;
+import org.simplejavamail.email.Email;
+import org.simplejavamail.email.Recipient;
+import org.simplejavamail.mailer.internal.mailsender.MailSender;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of sending a single email as part of a bulk send.
+ *
+ * @see Mailer#sendMails(Iterable)
+ * @see Mailer#sendMails(java.util.Iterator, SendResultHandler)
+ */
+public class SendResult {
+	
+	@Nonnull
+	private final Email email;
+	
+	@Nullable
+	private final MailException exception;
+	
+	@Nonnull
+	private final List<Recipient> failedRecipients;
+	
+	SendResult(@Nonnull final Email email, @Nullable final MailException exception) {
+		this(email, exception, Collections.<Recipient>emptyList());
+	}
+	
+	SendResult(@Nonnull final Email email, @Nullable final MailException exception, @Nonnull final List<Recipient> failedRecipients) {
+		this.email = email;
+		this.exception = exception;
+		this.failedRecipients = Collections.unmodifiableList(failedRecipients);
+	}
+	
+	/**
+	 * @return The result for an email that failed with the given exception, which for a {@link PartialSendException} is a success that lists the
+	 * recipients the email wasn't sent to.
+	 */
+	@Nonnull
+	static SendResult forException(@Nonnull final Email email, @Nonnull final MailException exception) {
+		if (exception instanceof PartialSendException) {
+			return new SendResult(email, null, ((PartialSendException) exception).getFailedRecipients());
+		}
+		return new SendResult(email, exception, MailSender.determineFailedRecipients(email, exception));
+	}
+	
+	/**
+	 * @return The email this result applies to. If sent successfully, {@link Email#getId()} returns the message id it was sent with.
+	 */
+	@Nonnull
+	public Email getEmail() {
+		return email;
+	}
+	
+	/**
+	 * @return Whether the email passed validation and was accepted by the SMTP server, for all recipients or, when sent in recipient chunks of
+	 * which only some failed, for the recipients not in {@link #getFailedRecipients()}.
+	 */
+	public boolean isSuccess() {
+		return exception == null;
+	}
+	
+	/**
+	 * @return The reason the email was not sent, or {@code null} if it was sent successfully.
+	 */
+	@Nullable
+	public MailException getException() {
+		return exception;
+	}
+	
+	/**
+	 * @return The recipients the email was not sent to, because the recipient chunk they were in failed, also when all chunks failed, or because
+	 * the SMTP server rejected them. Empty if the email was sent to all recipients, or failed for a reason that doesn't apply to particular
+	 * recipients, such as failing validation or being unable to connect.
+	 * @see MailerGenericBuilder#withMaxRecipientsPerTransaction(Integer)
+	 */
+	@Nonnull
+	public List<Recipient> getFailedRecipients() {
+		return failedRecipients;
+	}
+	
+	@Override
+	public String toString() {
+		return "SendResult{" +
+				"id=" + email.getId() +
+				", success=" + isSuccess() +
+				(exception != null ? ", exception=" + exception : "") +
+				(!failedRecipients.isEmpty() ? ", failedRecipients=" + failedRecipients : "") +
+				'}';
+	}
+}
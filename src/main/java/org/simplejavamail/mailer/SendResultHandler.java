@@ -0,0 +1,14 @@
+package org.simplejavamail.mailer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Receives the outcome of each email of a bulk send as soon as it has been processed, so that results don't need to be kept in memory for very large
+ * batches.
+ *
+ * @see Mailer#sendMails(java.util.Iterator, SendResultHandler)
+ */
+// simplified version of Java 8's Consumer
+public interface SendResultHandler {
+	void accept(@Nonnull SendResult result);
+}
@@ -0,0 +1,29 @@
+package org.simplejavamail.mailer.config;
+
+import org.simplejavamail.mailer.AsyncQueueFullException;
+
+/**
+ * Determines what happens when an email is sent asynchronously while all threads are busy and the queue of pending async emails is full.
+ *
+ * @see org.simplejavamail.mailer.MailerGenericBuilder#withThreadPoolQueueCapacity(Integer)
+ * @see org.simplejavamail.mailer.MailerGenericBuilder#withThreadPoolQueueOverflowPolicy(AsyncQueueOverflowPolicy)
+ */
+public enum AsyncQueueOverflowPolicy {
+	
+	/**
+	 * The calling thread waits until there is room in the queue again, which naturally slows down producers to the rate the SMTP server can
+	 * handle.
+	 */
+	BLOCK,
+	
+	/**
+	 * The email is rejected immediately with an {@link AsyncQueueFullException}, leaving it up to the caller to retry later or drop the email.
+	 */
+	FAIL_FAST,
+	
+	/**
+	 * The email is sent synchronously in the calling thread instead. The returned {@link org.simplejavamail.mailer.AsyncResponse} is already
+	 * completed once the send call returns.
+	 */
+	CALLER_RUNS
+}
@@ -0,0 +1,19 @@
+package org.simplejavamail.mailer.config;
+
+/**
+ * Determines how a {@link org.simplejavamail.mailer.MailerCluster} spreads emails over its healthy servers.
+ *
+ * @see org.simplejavamail.mailer.MailerCluster.Builder#withLoadBalancingStrategy(LoadBalancingStrategy)
+ */
+public enum LoadBalancingStrategy {
+	
+	/**
+	 * Servers take turns, each getting a share of the emails proportional to its weight.
+	 */
+	WEIGHTED_ROUND_ROBIN,
+	
+	/**
+	 * Each email goes to the server with the fewest emails in progress relative to its weight, so slow servers automatically get fewer emails.
+	 */
+	LEAST_OUTSTANDING
+}
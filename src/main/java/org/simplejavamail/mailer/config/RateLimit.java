@@ -0,0 +1,75 @@
+package org.simplejavamail.mailer.config;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * A token bucket quota on the number of emails sent to an SMTP server: the bucket holds up to <em>burst size</em> tokens and is refilled with
+ * <em>refill amount</em> tokens every <em>refill period</em> (gradually, not all at once). Every email takes one token, waiting for one if the
+ * bucket is empty.
+ * <p>
+ * For example, a provider allowing 10 emails per second, 500 per hour, with short bursts of up to 20 emails:
+ * <pre>
+ * MailerBuilder
+ *     .withRateLimit(new RateLimit(20, 10, 1, TimeUnit.SECONDS))
+ *     .withRateLimit(new RateLimit(500, 500, 1, TimeUnit.HOURS))
+ * </pre>
+ *
+ * @see org.simplejavamail.mailer.MailerGenericBuilder#withRateLimit(RateLimit)
+ */
+public final class RateLimit {
+	
+	private final int burstSize;
+	private final int refillAmount;
+	private final long refillPeriod;
+	@Nonnull
+	private final TimeUnit refillPeriodUnit;
+	
+	/**
+	 * @param burstSize        The maximum number of emails sent back-to-back without waiting, after a period of not sending any.
+	 * @param refillAmount     The number of emails allowed per refill period, on average.
+	 * @param refillPeriod     The period in which <code>refillAmount</code> emails are allowed.
+	 * @param refillPeriodUnit The unit of <code>refillPeriod</code>.
+	 */
+	public RateLimit(final int burstSize, final int refillAmount, final long refillPeriod, @Nonnull final TimeUnit refillPeriodUnit) {
+		if (burstSize < 1 || refillAmount < 1 || refillPeriod < 1) {
+			throw new IllegalArgumentException(format("burst size, refill amount and refill period should be positive (%s, %s, %s)",
+					burstSize, refillAmount, refillPeriod));
+		}
+		this.burstSize = burstSize;
+		this.refillAmount = refillAmount;
+		this.refillPeriod = refillPeriod;
+		this.refillPeriodUnit = refillPeriodUnit;
+	}
+	
+	/**
+	 * @return The time it takes for a single token to be added to the bucket, in nanoseconds.
+	 */
+	public long getNanosPerToken() {
+		return Math.max(1, refillPeriodUnit.toNanos(refillPeriod) / refillAmount);
+	}
+	
+	public int getBurstSize() {
+		return burstSize;
+	}
+	
+	public int getRefillAmount() {
+		return refillAmount;
+	}
+	
+	public long getRefillPeriod() {
+		return refillPeriod;
+	}
+	
+	@Nonnull
+	public TimeUnit getRefillPeriodUnit() {
+		return refillPeriodUnit;
+	}
+	
+	@Override
+	public String toString() {
+		return format("RateLimit{burstSize=%s, refill=%s per %s %s}", burstSize, refillAmount, refillPeriod, refillPeriodUnit);
+	}
+}
@@ -0,0 +1,69 @@
+package org.simplejavamail.mailer.config;
+
+import javax.annotation.Nonnull;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Determines how often and after how long sending an email is retried when it failed for a reason that is likely to go away by itself: a
+ * <code>4xx</code> SMTP reply (for example <em>421 try again later</em> or greylisting) or a connection problem. Permanent failures (<code>5xx</code>
+ * replies, invalid emails) are never retried.
+ * <p>
+ * The waiting time grows exponentially with every retry, starting at the initial backoff and capped at the maximum backoff. To prevent many
+ * failed emails from hitting the server again at the exact same moment, a random part of up to half the waiting time is taken off.
+ *
+ * @see org.simplejavamail.mailer.MailerGenericBuilder#withRetryPolicy(RetryPolicy)
+ */
+public final class RetryPolicy {
+	
+	private final int maxRetries;
+	private final long initialBackoffMillis;
+	private final long maxBackoffMillis;
+	
+	/**
+	 * @param maxRetries     The number of times an email is retried after the first attempt failed.
+	 * @param initialBackoff The time to wait before the first retry.
+	 * @param maxBackoff     The maximum time to wait before any retry.
+	 * @param unit           The unit of both backoff times.
+	 */
+	public RetryPolicy(final int maxRetries, final long initialBackoff, final long maxBackoff, @Nonnull final TimeUnit unit) {
+		if (maxRetries < 0 || initialBackoff < 0 || maxBackoff < initialBackoff) {
+			throw new IllegalArgumentException(format("invalid retry policy: maxRetries=%s, initialBackoff=%s, maxBackoff=%s",
+					maxRetries, initialBackoff, maxBackoff));
+		}
+		this.maxRetries = maxRetries;
+		this.initialBackoffMillis = unit.toMillis(initialBackoff);
+		this.maxBackoffMillis = unit.toMillis(maxBackoff);
+	}
+	
+	/**
+	 * @param retry  The number of the upcoming retry, starting at 1.
+	 * @param random Source for the jitter.
+	 * @return The time to wait before the given retry, in milliseconds.
+	 */
+	public long getBackoffMillis(final int retry, @Nonnull final Random random) {
+		final int doublings = Math.min(Math.max(retry - 1, 0), 30);
+		final long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << doublings);
+		final long jitter = backoff / 2;
+		return backoff - (jitter > 0 ? (long) (random.nextDouble() * jitter) : 0);
+	}
+	
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+	
+	public long getInitialBackoffMillis() {
+		return initialBackoffMillis;
+	}
+	
+	public long getMaxBackoffMillis() {
+		return maxBackoffMillis;
+	}
+	
+	@Override
+	public String toString() {
+		return format("RetryPolicy{maxRetries=%s, initialBackoff=%sms, maxBackoff=%sms}", maxRetries, initialBackoffMillis, maxBackoffMillis);
+	}
+}
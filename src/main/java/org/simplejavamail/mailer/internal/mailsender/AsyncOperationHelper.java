@@ -1,11 +1,26 @@
 package org.simplejavamail.mailer.internal.mailsender;
 
+import org.simplejavamail.mailer.AsyncQueueFullException;
 import org.simplejavamail.mailer.AsyncResponse;
+import org.simplejavamail.mailer.config.AsyncQueueOverflowPolicy;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
 
@@ -18,6 +33,110 @@ class AsyncOperationHelper {
 	private AsyncOperationHelper() {
 	}
 	
+	/**
+	 * Like {@link Executors#newFixedThreadPool(int)}, except that the queue of waiting tasks is bounded and the given policy determines what
+	 * happens when it is full. Moreover, threads that have been idle for the given keep alive time are stopped (and created again when needed), so
+	 * a long-lived pool doesn't hold on to threads or keep the JVM alive while there is nothing to do.
+	 * <p>
+	 * Regardless of the policy, a task submitted to an executor that has been shut down is rejected with a plain {@link
+	 * RejectedExecutionException}, so the caller can tell it apart from a full queue.
+	 *
+	 * @see #resubmit(ExecutorService, Runnable)
+	 */
+	static ThreadPoolExecutor newBoundedThreadPool(final int threadPoolSize,
+												   final int queueCapacity,
+												   final @Nonnull AsyncQueueOverflowPolicy overflowPolicy,
+												   final int keepAliveTimeMillis) {
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, keepAliveTimeMillis, TimeUnit.MILLISECONDS,
+				new BoundedQueue(queueCapacity), new NamedThreadFactory("Simple Java Mail async mail sender"),
+				new OverflowHandler(queueCapacity, overflowPolicy));
+		if (keepAliveTimeMillis > 0) {
+			executor.allowCoreThreadTimeOut(true);
+		}
+		return executor;
+	}
+	
+	/**
+	 * Creates an executor that runs every task on a new virtual thread, with concurrency limited by semaphores rather than by a number of pooled
+	 * threads (see {@link ConcurrencyLimitingExecutor}). Virtual threads are only available from Java 21 onwards, so the factory method is looked up
+	 * reflectively.
+	 *
+	 * @return The virtual thread executor, or <code>null</code> if the current runtime doesn't support virtual threads.
+	 */
+	@Nullable
+	static ExecutorService newVirtualThreadExecutor(final int maxConcurrentTasks,
+													final int queueCapacity,
+													final @Nonnull AsyncQueueOverflowPolicy overflowPolicy) {
+		final ExecutorService virtualThreadPerTaskExecutor;
+		try {
+			virtualThreadPerTaskExecutor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (final NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+			return null;
+		}
+		return new ConcurrencyLimitingExecutor(virtualThreadPerTaskExecutor, maxConcurrentTasks, queueCapacity, overflowPolicy);
+	}
+	
+	/**
+	 * Submits a task that was admitted before, such as a retry or an email recovered from the outbox, regardless of the capacity of the executor's
+	 * queue, like {@link SendLanes#resubmit(String, Runnable)}. So the overflow policy doesn't apply: the task is never blocked on, rejected for a
+	 * full queue or run in the calling thread, which for retries is the {@link #retryScheduler() retry scheduler} shared by all Mailers. An
+	 * executor provided by the application is simply submitted to, as its own policy is out of our hands.
+	 */
+	static void resubmit(@Nonnull final ExecutorService executor, @Nonnull final Runnable task) {
+		if (executor instanceof ConcurrencyLimitingExecutor) {
+			((ConcurrencyLimitingExecutor) executor).resubmit(task);
+		} else if (executor instanceof ThreadPoolExecutor && ((ThreadPoolExecutor) executor).getQueue() instanceof BoundedQueue) {
+			BoundedQueue.executeRegardlessOfCapacity((ThreadPoolExecutor) executor, task);
+		} else {
+			executor.execute(task);
+		}
+	}
+	
+	/**
+	 * @return A single daemon thread shared by all Mailers, which only waits out retry backoffs and then hands the retry back to the Mailer's own
+	 * executor. So threads that actually send emails are never tied up waiting for a retry.
+	 */
+	static ScheduledExecutorService retryScheduler() {
+		return RetrySchedulerHolder.RETRY_SCHEDULER;
+	}
+	
+	/**
+	 * Creates the retry scheduler on first use only, as most Mailers never retry anything.
+	 */
+	private static class RetrySchedulerHolder {
+		private static final ScheduledExecutorService RETRY_SCHEDULER = createRetryScheduler();
+		
+		private static ScheduledExecutorService createRetryScheduler() {
+			final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+				@Override
+				public Thread newThread(@Nonnull final Runnable r) {
+					final Thread thread = new Thread(r, "Simple Java Mail retry scheduler");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			scheduler.setRemoveOnCancelPolicy(true);
+			return scheduler;
+		}
+	}
+	
+	/**
+	 * @return Daemon threads shared by all Mailers, which send additional recipient chunks of a message in parallel with the thread sending the
+	 * message. Threads are created as needed and stopped after being idle for a while.
+	 * @see RecipientChunks
+	 */
+	static ExecutorService recipientChunkSenders() {
+		return RecipientChunkSendersHolder.RECIPIENT_CHUNK_SENDERS;
+	}
+	
+	/**
+	 * Creates the recipient chunk senders on first use only, as most Mailers never split up recipients.
+	 */
+	private static class RecipientChunkSendersHolder {
+		private static final ExecutorService RECIPIENT_CHUNK_SENDERS = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 10, TimeUnit.SECONDS,
+				new SynchronousQueue<Runnable>(), new NamedThreadFactory("Simple Java Mail recipient chunk sender", true));
+	}
+	
 	/**
 	 * Executes using a single-execution ExecutorService, which shutdown immediately after the thread finishes.
 	 *
@@ -43,19 +162,21 @@ class AsyncOperationHelper {
 											  final @Nonnull String processName,
 											  final @Nonnull Runnable operation,
 											  final boolean shutDownExecutorService) {
-		// atomic reference is needed to be able to smuggle the asyncResponse
-		// into the Runnable which is passed itself to the asyncResponse.
-		final AtomicReference<AsyncResponseImpl> asyncResponseRef = new AtomicReference<>();
-		asyncResponseRef.set(new AsyncResponseImpl(executorService.submit(new Runnable() {
+		// the response is created up front, so it exists even if the operation completes before submit() returns
+		// (see AsyncQueueOverflowPolicy.CALLER_RUNS); handlers registered after completion are invoked right away
+		final AsyncResponseImpl asyncResponse = new AsyncResponseImpl();
+		asyncResponse.setTask(executorService.submit(new Runnable() {
 			@Override
 			public void run() {
-				// by the time the code reaches here, the user would have configured the appropriate handlers
 				try {
 					operation.run();
-					asyncResponseRef.get().delegateSuccessHandling();
+					asyncResponse.complete();
 				} catch (Exception e) {
-					asyncResponseRef.get().delegateExceptionHandling(e);
-					throw e; // trigger the returned Future's exception handle
+					asyncResponse.completeExceptionally(e);
+				} catch (Error e) {
+					// don't leave anyone waiting on the response forever
+					asyncResponse.completeExceptionally(new ExecutionException(e));
+					throw e;
 				} finally {
 					if (shutDownExecutorService) {
 						executorService.shutdown();
@@ -67,7 +188,192 @@ class AsyncOperationHelper {
 			public String toString() {
 				return processName;
 			}
-		})));
-		return asyncResponseRef.get();
+		}));
+		return asyncResponse;
+	}
+	
+	/**
+	 * Numbers threads so they can be recognized in thread dumps.
+	 */
+	private static class NamedThreadFactory implements ThreadFactory {
+		
+		@Nonnull private final String threadNamePrefix;
+		private final boolean daemon;
+		private final AtomicInteger threadCount = new AtomicInteger();
+		
+		private NamedThreadFactory(@Nonnull final String threadNamePrefix) {
+			this(threadNamePrefix, false);
+		}
+		
+		private NamedThreadFactory(@Nonnull final String threadNamePrefix, final boolean daemon) {
+			this.threadNamePrefix = threadNamePrefix;
+			this.daemon = daemon;
+		}
+		
+		@Override
+		public Thread newThread(@Nonnull final Runnable r) {
+			final Thread thread = new Thread(r, threadNamePrefix + " #" + threadCount.incrementAndGet());
+			thread.setDaemon(daemon);
+			return thread;
+		}
+	}
+	
+	/**
+	 * The queue of a thread pool created by {@link #newBoundedThreadPool(int, int, AsyncQueueOverflowPolicy, int)}. It turns tasks away beyond its
+	 * capacity, so the {@link OverflowHandler} kicks in, except for tasks that were admitted before and are {@link #executeRegardlessOfCapacity
+	 * resubmitted}.
+	 */
+	private static class BoundedQueue extends LinkedBlockingQueue<Runnable> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		/**
+		 * Set while a task is submitted regardless of capacity.
+		 */
+		private static final ThreadLocal<Boolean> REGARDLESS_OF_CAPACITY = new ThreadLocal<>();
+		
+		private final int capacity;
+		
+		/**
+		 * Guards adding tasks within capacity, and is notified when tasks are taken, for {@link #put(Runnable)}.
+		 */
+		private final transient Object room = new Object();
+		
+		private BoundedQueue(final int capacity) {
+			this.capacity = capacity;
+		}
+		
+		static void executeRegardlessOfCapacity(@Nonnull final ThreadPoolExecutor executor, @Nonnull final Runnable task) {
+			REGARDLESS_OF_CAPACITY.set(true);
+			try {
+				executor.execute(task);
+			} finally {
+				REGARDLESS_OF_CAPACITY.remove();
+			}
+		}
+		
+		@Override
+		public boolean offer(@Nonnull final Runnable task) {
+			if (REGARDLESS_OF_CAPACITY.get() != null) {
+				return super.offer(task);
+			}
+			synchronized (room) {
+				return size() < capacity && super.offer(task);
+			}
+		}
+		
+		/**
+		 * Waits for room within the capacity.
+		 */
+		@Override
+		public void put(@Nonnull final Runnable task)
+				throws InterruptedException {
+			synchronized (room) {
+				while (size() >= capacity) {
+					room.wait();
+				}
+				super.offer(task);
+			}
+		}
+		
+		@Override
+		public int remainingCapacity() {
+			return Math.max(0, capacity - size());
+		}
+		
+		@Nonnull
+		@Override
+		public Runnable take()
+				throws InterruptedException {
+			final Runnable task = super.take();
+			signalRoom();
+			return task;
+		}
+		
+		@Override
+		public Runnable poll(final long timeout, @Nonnull final TimeUnit unit)
+				throws InterruptedException {
+			return signalRoomIfTaken(super.poll(timeout, unit));
+		}
+		
+		@Override
+		public Runnable poll() {
+			return signalRoomIfTaken(super.poll());
+		}
+		
+		@Override
+		public boolean remove(final Object o) {
+			final boolean removed = super.remove(o);
+			if (removed) {
+				signalRoom();
+			}
+			return removed;
+		}
+		
+		@Override
+		public int drainTo(@Nonnull final Collection<? super Runnable> c, final int maxElements) {
+			final int drained = super.drainTo(c, maxElements);
+			if (drained > 0) {
+				signalRoom();
+			}
+			return drained;
+		}
+		
+		@Nullable
+		private Runnable signalRoomIfTaken(@Nullable final Runnable task) {
+			if (task != null) {
+				signalRoom();
+			}
+			return task;
+		}
+		
+		private void signalRoom() {
+			synchronized (room) {
+				room.notifyAll();
+			}
+		}
+	}
+	
+	/**
+	 * Applies the {@link AsyncQueueOverflowPolicy} when the queue of a thread pool created by {@link #newBoundedThreadPool(int, int,
+	 * AsyncQueueOverflowPolicy, int)} is full.
+	 */
+	private static class OverflowHandler implements RejectedExecutionHandler {
+		
+		private final int queueCapacity;
+		@Nonnull private final AsyncQueueOverflowPolicy overflowPolicy;
+		
+		private OverflowHandler(final int queueCapacity, @Nonnull final AsyncQueueOverflowPolicy overflowPolicy) {
+			this.queueCapacity = queueCapacity;
+			this.overflowPolicy = overflowPolicy;
+		}
+		
+		@Override
+		public void rejectedExecution(final Runnable task, final ThreadPoolExecutor executor) {
+			if (executor.isShutdown()) {
+				throw new RejectedExecutionException("thread pool has been shut down");
+			}
+			switch (overflowPolicy) {
+				case BLOCK:
+					try {
+						executor.getQueue().put(task);
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new RejectedExecutionException("interrupted while waiting for room in the queue", e);
+					}
+					// the executor may have been shut down while we were waiting, in which case nobody would ever pick up the task
+					if (executor.isShutdown() && executor.getQueue().remove(task)) {
+						throw new RejectedExecutionException("thread pool has been shut down");
+					}
+					break;
+				case FAIL_FAST:
+					throw new AsyncQueueFullException(queueCapacity);
+				case CALLER_RUNS:
+					task.run();
+					break;
+				default:
+					throw new AssertionError("unknown overflow policy: " + overflowPolicy);
+			}
+		}
 	}
 }
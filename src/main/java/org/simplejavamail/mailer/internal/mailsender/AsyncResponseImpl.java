@@ -1,46 +1,223 @@
 package org.simplejavamail.mailer.internal.mailsender;
 
 import org.simplejavamail.mailer.AsyncResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Promise-like implementation of {@link AsyncResponse}, which is completed exactly once by whoever performs the async operation.
+ * <p>
+ * Handlers registered before completion are invoked by the completing thread, handlers registered after completion are invoked right away by the
+ * registering thread. Either way every handler is invoked exactly once, so a fast operation that completes before its handlers are registered
+ * doesn't lose them.
+ */
 public class AsyncResponseImpl implements AsyncResponse {
 	
-	@Nonnull private final Future future;
-	@Nullable private Runnable successHandler;
-	@Nullable private ExceptionConsumer errorHandler;
+	private static final Logger LOGGER = LoggerFactory.getLogger(AsyncResponseImpl.class);
 	
-	AsyncResponseImpl(Future future) {
-		this.future = future;
+	private final CountDownLatch completion = new CountDownLatch(1);
+	private final ResponseFuture future = new ResponseFuture();
+	
+	// guarded by this
+	private final List<Runnable> successHandlers = new ArrayList<>();
+	private final List<ExceptionConsumer> errorHandlers = new ArrayList<>();
+	private boolean completed;
+	
+	/**
+	 * Written once before {@link #completion} is released, so reading it after awaiting the latch or checking {@link #completed} is safe.
+	 */
+	@Nullable private Exception exception;
+	
+	/**
+	 * The task performing the operation, if any. Only used for cancellation.
+	 */
+	@Nullable private volatile Future<?> task;
+	
+	/**
+	 * Invoked when the task was cancelled, see {@link #setCancelHandler(Runnable)}.
+	 */
+	@Nullable private volatile Runnable cancelHandler;
+	
+	/**
+	 * For internal use only.
+	 */
+	public AsyncResponseImpl() {
 	}
 	
 	@Override
-	public void onSuccess(@Nonnull Runnable onSuccess) {
-		this.successHandler = onSuccess;
+	public void onSuccess(@Nonnull final Runnable onSuccess) {
+		synchronized (this) {
+			if (!completed) {
+				successHandlers.add(onSuccess);
+				return;
+			}
+		}
+		if (exception == null) {
+			invokeSafely(onSuccess);
+		}
 	}
 	
 	@Override
-	public void onException(@Nonnull ExceptionConsumer errorHandler) {
-		this.errorHandler = errorHandler;
+	public void onException(@Nonnull final ExceptionConsumer errorHandler) {
+		synchronized (this) {
+			if (!completed) {
+				errorHandlers.add(errorHandler);
+				return;
+			}
+		}
+		if (exception != null) {
+			invokeSafely(errorHandler, exception);
+		}
+	}
+	
+	/**
+	 * For internal use only. Marks the operation as successfully finished and invokes the success handlers.
+	 *
+	 * @return Whether this call completed the response, rather than it already having been completed before.
+	 */
+	public boolean complete() {
+		return completeWith(null);
 	}
 	
+	/**
+	 * For internal use only. Marks the operation as failed and invokes the exception handlers.
+	 *
+	 * @return Whether this call completed the response, rather than it already having been completed before.
+	 */
+	public boolean completeExceptionally(@Nonnull final Exception e) {
+		return completeWith(e);
+	}
+	
+	private boolean completeWith(@Nullable final Exception e) {
+		final List<Runnable> successHandlersToInvoke;
+		final List<ExceptionConsumer> errorHandlersToInvoke;
+		synchronized (this) {
+			if (completed) {
+				return false;
+			}
+			completed = true;
+			exception = e;
+			successHandlersToInvoke = new ArrayList<>(successHandlers);
+			errorHandlersToInvoke = new ArrayList<>(errorHandlers);
+			successHandlers.clear();
+			errorHandlers.clear();
+		}
+		completion.countDown();
+		
+		if (e == null) {
+			for (final Runnable successHandler : successHandlersToInvoke) {
+				invokeSafely(successHandler);
+			}
+		} else {
+			for (final ExceptionConsumer errorHandler : errorHandlersToInvoke) {
+				invokeSafely(errorHandler, e);
+			}
+		}
+		return true;
+	}
 	
-	void delegateSuccessHandling() {
-		if (successHandler != null) {
+	/**
+	 * A failing handler should not prevent other handlers from being invoked, nor change the outcome of the operation itself.
+	 */
+	private static void invokeSafely(@Nonnull final Runnable successHandler) {
+		try {
 			successHandler.run();
+		} catch (final RuntimeException e) {
+			LOGGER.error("onSuccess handler failed", e);
 		}
 	}
 	
-	void delegateExceptionHandling(Exception e) {
-		if (errorHandler != null) {
-			errorHandler.accept(e);
+	private static void invokeSafely(@Nonnull final ExceptionConsumer errorHandler, @Nonnull final Exception exception) {
+		try {
+			errorHandler.accept(exception);
+		} catch (final RuntimeException e) {
+			LOGGER.error("onException handler failed", e);
 		}
 	}
 	
+	/**
+	 * For internal use only. Allows {@link Future#cancel(boolean)} to cancel the task performing the operation.
+	 */
+	void setTask(@Nonnull final Future<?> task) {
+		this.task = task;
+	}
+	
+	/**
+	 * For internal use only. Invoked when {@link Future#cancel(boolean)} cancelled the task, before the response is completed, as a task cancelled
+	 * before it ran never gets to clean up after itself.
+	 */
+	void setCancelHandler(@Nonnull final Runnable cancelHandler) {
+		this.cancelHandler = cancelHandler;
+	}
+	
 	@Override
-	public Future getFuture() {
+	public Future<Void> getFuture() {
 		return future;
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * {@link Future} view on the response, so waiting for the result doesn't depend on how or where the operation is performed.
+	 */
+	private class ResponseFuture implements Future<Void> {
+		
+		@Override
+		public boolean cancel(final boolean mayInterruptIfRunning) {
+			final Future<?> currentTask = task;
+			if (currentTask == null || !currentTask.cancel(mayInterruptIfRunning)) {
+				return false;
+			}
+			final Runnable currentCancelHandler = cancelHandler;
+			if (currentCancelHandler != null) {
+				currentCancelHandler.run();
+			}
+			return completeWith(new CancellationException("async operation was cancelled"));
+		}
+		
+		@Override
+		public boolean isCancelled() {
+			return isDone() && exception instanceof CancellationException;
+		}
+		
+		@Override
+		public boolean isDone() {
+			return completion.getCount() == 0;
+		}
+		
+		@Override
+		public Void get()
+				throws InterruptedException, ExecutionException {
+			completion.await();
+			return report();
+		}
+		
+		@Override
+		public Void get(final long timeout, @Nonnull final TimeUnit unit)
+				throws InterruptedException, ExecutionException, TimeoutException {
+			if (!completion.await(timeout, unit)) {
+				throw new TimeoutException();
+			}
+			return report();
+		}
+		
+		private Void report()
+				throws ExecutionException {
+			if (exception instanceof CancellationException) {
+				throw (CancellationException) exception;
+			} else if (exception != null) {
+				throw new ExecutionException(exception);
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package org.simplejavamail.mailer.internal.mailsender;
+
+import org.simplejavamail.mailer.MailerMetrics;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Passes every measurement on to two {@link MailerMetrics}, such as the user's metrics and the {@link MailerJmx}.
+ */
+class BroadcastingMailerMetrics implements MailerMetrics {
+	
+	@Nonnull private final MailerMetrics first;
+	@Nonnull private final MailerMetrics second;
+	
+	private BroadcastingMailerMetrics(@Nonnull final MailerMetrics first, @Nonnull final MailerMetrics second) {
+		this.first = first;
+		this.second = second;
+	}
+	
+	/**
+	 * @return Whichever is given if only one is, or <code>null</code> if neither is, so there's no broadcasting for nothing.
+	 */
+	@Nullable
+	static MailerMetrics combine(@Nullable final MailerMetrics first, @Nullable final MailerMetrics second) {
+		if (first == null || second == null) {
+			return first != null ? first : second;
+		}
+		return new BroadcastingMailerMetrics(first, second);
+	}
+	
+	@Override
+	public void stageCompleted(@Nonnull final Stage stage, final long durationNanos) {
+		first.stageCompleted(stage, durationNanos);
+		second.stageCompleted(stage, durationNanos);
+	}
+	
+	@Override
+	public void messageSize(final long bytes) {
+		first.messageSize(bytes);
+		second.messageSize(bytes);
+	}
+	
+	@Override
+	public void queueWait(final long durationNanos) {
+		first.queueWait(durationNanos);
+		second.queueWait(durationNanos);
+	}
+	
+	@Override
+	public void poolOccupancy(final int activeSends, final int queuedSends) {
+		first.poolOccupancy(activeSends, queuedSends);
+		second.poolOccupancy(activeSends, queuedSends);
+	}
+	
+	@Override
+	public void sendCompleted(final boolean sent, final long durationNanos) {
+		first.sendCompleted(sent, durationNanos);
+		second.sendCompleted(sent, durationNanos);
+	}
+}
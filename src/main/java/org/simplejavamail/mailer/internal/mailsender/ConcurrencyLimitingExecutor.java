@@ -0,0 +1,155 @@
+package org.simplejavamail.mailer.internal.mailsender;
+
+import org.simplejavamail.mailer.AsyncQueueFullException;
+import org.simplejavamail.mailer.config.AsyncQueueOverflowPolicy;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every task on its own thread from an unbounded executor (meant for virtual threads), while limiting concurrency with semaphores instead of
+ * a fixed number of pooled threads:
+ * <ul>
+ * <li>At most <code>maxConcurrentTasks</code> tasks run at the same time, the others wait (cheaply, on their own virtual thread) for a permit.</li>
+ * <li>At most <code>maxConcurrentTasks + queueCapacity</code> tasks are admitted at all. Beyond that, the {@link AsyncQueueOverflowPolicy} applies,
+ * just like with the regular bounded thread pool.</li>
+ * </ul>
+ *
+ * @see AsyncOperationHelper#newVirtualThreadExecutor(int, int, AsyncQueueOverflowPolicy)
+ */
+class ConcurrencyLimitingExecutor extends AbstractExecutorService {
+	
+	@Nonnull private final ExecutorService delegate;
+	@Nonnull private final Semaphore runningPermits;
+	@Nonnull private final Semaphore admissionPermits;
+	private final int queueCapacity;
+	@Nonnull private final AsyncQueueOverflowPolicy overflowPolicy;
+	
+	ConcurrencyLimitingExecutor(@Nonnull final ExecutorService delegate, final int maxConcurrentTasks, final int queueCapacity,
+								@Nonnull final AsyncQueueOverflowPolicy overflowPolicy) {
+		this.delegate = delegate;
+		this.runningPermits = new Semaphore(maxConcurrentTasks, true);
+		this.admissionPermits = new Semaphore(maxConcurrentTasks + queueCapacity, true);
+		this.queueCapacity = queueCapacity;
+		this.overflowPolicy = overflowPolicy;
+	}
+	
+	@Override
+	public void execute(@Nonnull final Runnable task) {
+		if (delegate.isShutdown()) {
+			throw new RejectedExecutionException("executor has been shut down");
+		}
+		if (!admit()) {
+			// CALLER_RUNS
+			task.run();
+			return;
+		}
+		try {
+			delegate.execute(limited(task, true));
+		} catch (final RejectedExecutionException e) {
+			admissionPermits.release();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Runs a task that was admitted before, such as a retry or an email recovered from the outbox, regardless of capacity and so without applying
+	 * the overflow policy.
+	 *
+	 * @see AsyncOperationHelper#resubmit(ExecutorService, Runnable)
+	 */
+	void resubmit(@Nonnull final Runnable task) {
+		if (delegate.isShutdown()) {
+			throw new RejectedExecutionException("executor has been shut down");
+		}
+		delegate.execute(limited(task, false));
+	}
+	
+	/**
+	 * @param admitted Whether the task took an admission permit, to be released when it is done.
+	 */
+	@Nonnull
+	private Runnable limited(@Nonnull final Runnable task, final boolean admitted) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				try {
+					runningPermits.acquireUninterruptibly();
+					try {
+						task.run();
+					} finally {
+						runningPermits.release();
+					}
+				} finally {
+					if (admitted) {
+						admissionPermits.release();
+					}
+				}
+			}
+		};
+	}
+	
+	/**
+	 * @return Whether the task was admitted, or should be run by the caller instead.
+	 */
+	private boolean admit() {
+		if (admissionPermits.tryAcquire()) {
+			return true;
+		}
+		switch (overflowPolicy) {
+			case BLOCK:
+				try {
+					admissionPermits.acquire();
+					return true;
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RejectedExecutionException("interrupted while waiting for room in the queue", e);
+				}
+			case FAIL_FAST:
+				throw new AsyncQueueFullException(queueCapacity);
+			case CALLER_RUNS:
+				return false;
+			default:
+				throw new AssertionError("unknown overflow policy: " + overflowPolicy);
+		}
+	}
+	
+	/**
+	 * @return The number of admitted tasks waiting for their turn to run.
+	 */
+	int getQueueDepth() {
+		return runningPermits.getQueueLength();
+	}
+	
+	@Override
+	public void shutdown() {
+		delegate.shutdown();
+	}
+	
+	@Nonnull
+	@Override
+	public List<Runnable> shutdownNow() {
+		return delegate.shutdownNow();
+	}
+	
+	@Override
+	public boolean isShutdown() {
+		return delegate.isShutdown();
+	}
+	
+	@Override
+	public boolean isTerminated() {
+		return delegate.isTerminated();
+	}
+	
+	@Override
+	public boolean awaitTermination(final long timeout, @Nonnull final TimeUnit unit)
+			throws InterruptedException {
+		return delegate.awaitTermination(timeout, unit);
+	}
+}
@@ -1,11 +1,20 @@
 package org.simplejavamail.mailer.internal.mailsender;
 
+import com.sun.mail.smtp.SMTPMessage;
 import org.simplejavamail.MailException;
+import org.simplejavamail.converter.EmailConverter;
+import org.simplejavamail.converter.internal.mimemessage.CountingSMTPMessage;
+import org.simplejavamail.converter.internal.mimemessage.EncodedAttachmentCache;
 import org.simplejavamail.converter.internal.mimemessage.MimeMessageProducerHelper;
 import org.simplejavamail.email.Email;
 import org.simplejavamail.email.Recipient;
+import org.simplejavamail.internal.util.FlightRecorderEventType;
 import org.simplejavamail.mailer.AsyncResponse;
 import org.simplejavamail.mailer.MailerGenericBuilder;
+import org.simplejavamail.mailer.MailerMetrics;
+import org.simplejavamail.mailer.MailerMetrics.Stage;
+import org.simplejavamail.mailer.PartialSendException;
+import org.simplejavamail.mailer.config.RetryPolicy;
 import org.simplejavamail.mailer.config.TransportStrategy;
 import org.simplejavamail.mailer.internal.socks.AuthenticatingSocks5Bridge;
 import org.simplejavamail.mailer.internal.socks.SocksProxyConfig;
@@ -15,20 +24,43 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.mail.Address;
 import javax.mail.Message;
 import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
 import javax.mail.Session;
 import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Phaser;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.lang.String.format;
 import static org.simplejavamail.converter.EmailConverter.mimeMessageToEML;
+import static org.simplejavamail.internal.util.FlightRecorderEventType.field;
 import static org.simplejavamail.internal.util.Preconditions.checkNonEmptyArgument;
 
 /**
@@ -40,11 +72,25 @@ import static org.simplejavamail.internal.util.Preconditions.checkNonEmptyArgume
  * On a technical note, this is the most complex class in the library (aside from the SOCKS5 bridging server), because it deals with optional
  * asynchronous mailing requests and an optional proxy server that needs to be started and stopped on the fly depending on how many emails are (still)
  * being sent. Especially the combination of asynchronous emails and synchronous emails needs to be managed properly.
+ * <p>
+ * None of the sending paths take a lock on this instance, so any number of threads can send (synchronously or asynchronously) through the same
+ * MailSender in parallel. Only starting and stopping the proxy bridging server is guarded by a lock, as it is a shared resource.
  */
 public class MailSender {
-
+	
 	private static final Logger LOGGER = LoggerFactory.getLogger(MailSender.class);
-
+	
+	/**
+	 * One attempt at sending an email, so a retry is recorded as a separate event.
+	 */
+	private static final FlightRecorderEventType SEND_EVENT = FlightRecorderEventType.define("org.simplejavamail.SendEmail", "Send Email",
+			field("emailId", String.class), field("recipients", int.class), field("attempt", int.class), field("async", boolean.class),
+			field("succeeded", boolean.class));
+	private static final FlightRecorderEventType CONNECT_EVENT = FlightRecorderEventType.define("org.simplejavamail.SmtpConnect", "SMTP Connect",
+			field("renewed", boolean.class), field("succeeded", boolean.class));
+	private static final FlightRecorderEventType TRANSPORT_WRITE_EVENT = FlightRecorderEventType.define("org.simplejavamail.SmtpTransportWrite",
+			"SMTP Transport Write", field("recipients", int.class), field("sizeBytes", long.class), field("succeeded", boolean.class));
+	
 	/**
 	 * Used to actually send the email. This session can come from being passed in the default constructor, or made by <code>Mailer</code> directly.
 	 */
@@ -72,22 +118,126 @@ public class MailSender {
 	 */
 	@Nullable
 	private final AnonymousSocks5Server proxyServer;
-
+	
+	/**
+	 * Keeps connected transports around so consecutive emails can skip the connect, EHLO, STARTTLS and AUTH roundtrips.
+	 *
+	 * @see OperationalConfig#getConnectionPoolSize()
+	 */
+	private final TransportPool transportPool;
+	
+	/**
+	 * Applies the configured rate limits right before handing an email to the SMTP server. Only this Mailer's senders wait for it.
+	 *
+	 * @see OperationalConfig#getRateLimits()
+	 */
+	private final RateLimiter rateLimiter;
+	
+	/**
+	 * Journals async emails until they are done, so they survive a JVM restart. Only used if an outbox directory was configured.
+	 *
+	 * @see OperationalConfig#getOutboxDirectory()
+	 */
+	@Nullable
+	private final OutboxJournal outbox;
+	
+	/**
+	 * Shared by all emails sent by this MailSender, so attachments that go out with many emails are only encoded once.
+	 *
+	 * @see OperationalConfig#getAttachmentCacheMaxBytes()
+	 */
+	@Nullable
+	private final EncodedAttachmentCache attachmentCache;
+	
 	/**
 	 * Allows us to manage how many thread we run at the same time using a thread pool.
 	 * <p>
-	 * Can't be initialized in the field, because we need to reinitialize it whenever the threadpool was closed after a batch of emails and this
-	 * MailSender instance is again engaged.
+	 * Lives as long as this MailSender, so consecutive batches of async emails reuse the same pool. Idle threads time out on their own (see {@link
+	 * OperationalConfig#getThreadPoolKeepAliveTime()}), so the pool doesn't keep the JVM alive. The queue of waiting emails is bounded, see {@link
+	 * OperationalConfig#getThreadPoolQueueCapacity()}.
+	 * <p>
+	 * Can also be provided by the user, see {@link OperationalConfig#getExecutorService()}.
 	 */
-	private ExecutorService executor;
-
+	private final ExecutorService executor;
+	
 	/**
-	 * Used to keep track of running SMTP requests, so that we know when to close down the proxy bridging server (if used).
+	 * Whether {@link #executor} was created by us and thus should be shut down by us.
+	 */
+	private final boolean executorOwned;
+	
+	/**
+	 * Limits concurrent async sends per recipient domain, or <code>null</code> if all async sends go straight to the {@link #executor}.
+	 */
+	@Nullable
+	private final SendLanes sendLanes;
+	
+	/**
+	 * Receives the measurements of every email, or <code>null</code> if nothing should be measured. Every measurement checks for <code>null</code>
+	 * before it reads the clock, so without metrics sending costs no more than before.
 	 * <p>
-	 * Can't be initialized in the field, because we need to reinitialize if the phaser was terminated after a batch of emails and this MailSender
-	 * instance is again engaged.
+	 * These are the user's metrics and/or the {@link #jmx} MBean, which counts the outcomes.
+	 *
+	 * @see OperationalConfig#getMetrics()
+	 */
+	@Nullable
+	private final MailerMetrics metrics;
+	
+	/**
+	 * Whether the user's metrics are installed, as only those are worth rendering a message an extra time to measure its size.
+	 */
+	private final boolean measureMessageSizes;
+	
+	/**
+	 * @see OperationalConfig#isJmxEnabled()
+	 */
+	@Nullable
+	private final MailerJmx jmx;
+	
+	/**
+	 * Set while sending is paused through JMX, see {@link #pause()}. Only read on the fast path, all waiting and waking up is done with {@link
+	 * #pauseLock}.
+	 */
+	private volatile boolean paused;
+	
+	private final Object pauseLock = new Object();
+	
+	/**
+	 * Notified when the last request in progress finishes, see {@link #awaitIdle(long, TimeUnit)}.
+	 */
+	private final Object idleLock = new Object();
+	
+	/**
+	 * The number of async emails being sent right now, only kept up to date if {@link #metrics} are installed.
+	 */
+	private final AtomicInteger asyncSendsRunning = new AtomicInteger();
+	
+	/**
+	 * Used to keep track of running SMTP requests, so that we know when to close down the proxy bridging server (if used).
 	 */
-	private Phaser smtpRequestsPhaser;
+	private final AtomicInteger smtpRequestsInProgress = new AtomicInteger();
+	
+	/**
+	 * Counts the emails produced, to capture one in every {@link OperationalConfig#getDiagnosticCaptureSampleRate()} of them.
+	 */
+	private final AtomicLong emailsProduced = new AtomicLong();
+	
+	/**
+	 * @see #shutdown()
+	 */
+	private final AtomicBoolean shutdownRequested = new AtomicBoolean();
+	
+	/**
+	 * Released when this MailSender has been shut down and the last request in progress finished.
+	 *
+	 * @see #awaitTermination(long, TimeUnit)
+	 */
+	private final CountDownLatch terminated = new CountDownLatch(1);
+	
+	/**
+	 * Guards starting and stopping the proxy bridging server, so a request that just started can't have the server stopped underneath it by the
+	 * last request of the previous batch.
+	 */
+	private final Object proxyServerLifecycleLock = new Object();
 	
 	public MailSender(@Nonnull final Session session,
 					  @Nonnull final OperationalConfig operationalConfig,
@@ -97,12 +247,113 @@ public class MailSender {
 		this.operationalConfig = operationalConfig;
 		this.transportStrategy = transportStrategy;
 		this.proxyServer = configureSessionWithProxy(proxyConfig, session, transportStrategy);
+		this.transportPool = new TransportPool(session, operationalConfig.getConnectionPoolSize(), operationalConfig.getConnectionPoolIdleTimeout(),
+				operationalConfig.getConnectionPoolMaxMessagesPerConnection());
+		this.rateLimiter = new RateLimiter(operationalConfig.getRateLimits());
+		this.executorOwned = operationalConfig.getExecutorService() == null;
+		this.executor = executorOwned ? createExecutor(operationalConfig) : operationalConfig.getExecutorService();
+		this.sendLanes = operationalConfig.getMaxConcurrentSendsPerDomain() > 0
+				? new SendLanes(executor, operationalConfig.getThreadPoolSize(), operationalConfig.getMaxConcurrentSendsPerDomain(),
+				operationalConfig.getThreadPoolQueueCapacity(), operationalConfig.getThreadPoolQueueOverflowPolicy())
+				: null;
+		this.jmx = operationalConfig.isJmxEnabled() ? new MailerJmx(this) : null;
+		this.metrics = BroadcastingMailerMetrics.combine(operationalConfig.getMetrics(), jmx);
+		this.measureMessageSizes = operationalConfig.getMetrics() != null;
+		this.outbox = openOutbox(operationalConfig);
+		this.attachmentCache = operationalConfig.getAttachmentCacheMaxBytes() > 0
+				? new EncodedAttachmentCache(operationalConfig.getAttachmentCacheMaxBytes(), operationalConfig.getAttachmentCacheSpillDirectory(),
+				operationalConfig.getAttachmentCacheEncodingThreads())
+				: null;
 		init(operationalConfig);
+		if (jmx != null) {
+			jmx.register(proxyServer);
+		}
+	}
+	
+	@Nullable
+	private static OutboxJournal openOutbox(@Nonnull final OperationalConfig operationalConfig) {
+		final File outboxDirectory = operationalConfig.getOutboxDirectory();
+		if (outboxDirectory == null) {
+			return null;
+		}
+		try {
+			return new OutboxJournal(outboxDirectory, OutboxJournal.DEFAULT_MAX_SEGMENT_BYTES);
+		} catch (final IOException e) {
+			throw new MailSenderException(format(MailSenderException.OUTBOX_UNAVAILABLE, outboxDirectory), e);
+		}
+	}
+	
+	/**
+	 * Sends the emails that were accepted into the outbox by a previous run, but were never done. Called once the Mailer is fully constructed.
+	 * <p>
+	 * These emails were accepted before, so they are queued regardless of the queue's capacity, like retries (see {@link
+	 * AsyncOperationHelper#resubmit(ExecutorService, Runnable)}): the overflow policy would otherwise fail, block or send in the thread building the
+	 * Mailer. An email that can't be queued at all, for example because a provided executor rejects it, is logged and left in the outbox, to be sent
+	 * after the next restart.
+	 */
+	public void resendUnfinishedOutboxEmails() {
+		if (outbox == null) {
+			return;
+		}
+		for (final OutboxJournal.Entry entry : outbox.takeUnfinishedEntries()) {
+			final SendMailClosure sendMailClosure;
+			try {
+				// as produced originally, an SMTPMessage, as the envelope sender (bounce-to address) isn't part of the content
+				final SMTPMessage message = new CountingSMTPMessage(session, new ByteArrayInputStream(entry.content));
+				message.setEnvelopeFrom(entry.envelopeFrom);
+				sendMailClosure = new SendMailClosure(session, EmailConverter.mimeMessageToEmail(message));
+				sendMailClosure.message = message;
+				sendMailClosure.outboxEntryId = entry.id;
+			} catch (final MessagingException | RuntimeException e) {
+				LOGGER.error("Unable to read email from outbox, discarding it", e);
+				markOutboxEntryDone(entry.id);
+				continue;
+			}
+			LOGGER.debug("resending email {} from outbox", sendMailClosure.email.getId());
+			startTrackingRequest();
+			final AsyncResponseImpl asyncResponse = prepareAsyncResponse(sendMailClosure);
+			try {
+				final FutureTask<Void> task = new FutureTask<>(sendMailClosure, null);
+				asyncResponse.setTask(task);
+				if (sendLanes == null) {
+					AsyncOperationHelper.resubmit(executor, task);
+				} else {
+					sendLanes.resubmit(SendLanes.determineLane(sendMailClosure.email), task);
+				}
+			} catch (final RuntimeException e) {
+				LOGGER.error("Unable to queue email {} from outbox, leaving it for the next restart", sendMailClosure.email.getId(), e);
+				// not done, so it stays in the outbox
+				sendMailClosure.outboxEntryId = -1;
+				sendMailClosure.finishWithoutRunning();
+				continue;
+			}
+			asyncResponse.onException(new AsyncResponse.ExceptionConsumer() {
+				@Override
+				public void accept(final Exception e) {
+					LOGGER.error("Failed to resend email from outbox", e);
+				}
+			});
+		}
+	}
+	
+	@Nonnull
+	private static ExecutorService createExecutor(@Nonnull final OperationalConfig operationalConfig) {
+		if (operationalConfig.isVirtualThreads()) {
+			final ExecutorService virtualThreadExecutor = AsyncOperationHelper.newVirtualThreadExecutor(operationalConfig.getThreadPoolSize(),
+					operationalConfig.getThreadPoolQueueCapacity(), operationalConfig.getThreadPoolQueueOverflowPolicy());
+			if (virtualThreadExecutor != null) {
+				return virtualThreadExecutor;
+			}
+			LOGGER.warn("virtual threads were requested, but are not supported by this Java runtime (requires Java 21+); using a regular thread pool");
+		}
+		return AsyncOperationHelper.newBoundedThreadPool(operationalConfig.getThreadPoolSize(), operationalConfig.getThreadPoolQueueCapacity(),
+				operationalConfig.getThreadPoolQueueOverflowPolicy(), operationalConfig.getThreadPoolKeepAliveTime());
 	}
 	
 	private void init(@Nonnull OperationalConfig operationalConfig) {
 		session.setDebug(operationalConfig.isDebugLogging());
 		session.getProperties().putAll(operationalConfig.getProperties());
+		configureSessionWithTimeout(session, operationalConfig.getSessionTimeout());
 		if (transportStrategy != null) {
 			if (operationalConfig.isTrustAllSSLHost()) {
 				trustAllHosts(true);
@@ -158,13 +409,14 @@ public class MailSender {
 		}
 		return null;
 	}
-
+	
 	/**
 	 * Processes an {@link Email} instance into a completely configured {@link Message}.
 	 * <p>
 	 * Sends the Sun JavaMail {@link Message} object using {@link Session#getTransport()}. It will call {@link Transport#connect()} assuming all
 	 * connection details have been configured in the provided {@link Session} instance and finally {@link Transport#sendMessage(Message,
-	 * javax.mail.Address[])}.
+	 * javax.mail.Address[])}. Connected transports are claimed from and released to the {@link TransportPool}, so consecutive emails can reuse the
+	 * same connection.
 	 * <p>
 	 * Performs a call to {@link Message#saveChanges()} as the Sun JavaMail API indicates it is needed to configure the message headers and providing
 	 * a message id.
@@ -172,6 +424,9 @@ public class MailSender {
 	 * If the email should be sent asynchrounously - perhaps as part of a batch, then a new thread is started using the {@link #executor} for
 	 * threadpooling.
 	 * <p>
+	 * This method is not synchronized: validation, producing and (synchronously) sending the email all run on the calling thread in parallel with
+	 * other callers.
+	 * <p>
 	 * If the email should go through an authenticated proxy server, then the SOCKS proxy bridge is started if not already running. When the last
 	 * email in a batch has finished, the proxy bridging server is shut down.
 	 *
@@ -180,18 +435,14 @@ public class MailSender {
 	 *              send the email and this method returns immediately.
 	 * @return A {@link AsyncResponse} or null if not <em>async</em>.
 	 * @throws MailException Can be thrown if an email isn't validating correctly, or some other problem occurs during connection, sending etc.
-	 * @see Executors#newFixedThreadPool(int)
+	 * @see AsyncOperationHelper#newBoundedThreadPool(int, int, org.simplejavamail.mailer.config.AsyncQueueOverflowPolicy, int)
 	 */
-	public final synchronized AsyncResponse send(final Email email, final boolean async) {
+	public final AsyncResponse send(final Email email, final boolean async) {
 		/*
             we need to track even non-async emails to prevent async emails from shutting down
             the proxy bridge server (or connection pool in async mode) while a non-async email is still being processed
 		 */
-        // phaser auto-terminates each time the all parties have arrived, so re-initialize when needed
-        if (smtpRequestsPhaser == null || smtpRequestsPhaser.isTerminated()) {
-            smtpRequestsPhaser = new Phaser();
-        }
-        smtpRequestsPhaser.register();
+		startTrackingRequest();
 		
 		SendMailClosure sendMailClosure = new SendMailClosure(session, email);
 		
@@ -199,16 +450,110 @@ public class MailSender {
 			sendMailClosure.run();
 			return null;
 		} else {
-			// start up thread pool if necessary
-			if (executor == null || executor.isTerminated()) {
-				executor = Executors.newFixedThreadPool(operationalConfig.getThreadPoolSize());
+			try {
+				if (outbox != null) {
+					sendMailClosure.writeToOutbox(outbox);
+				}
+				return submitAsync(sendMailClosure);
+			} catch (final RuntimeException e) {
+				// not accepted, so nothing to resend after a restart
+				sendMailClosure.finishWithoutRunning();
+				throw e;
 			}
-			configureSessionWithTimeout(session, operationalConfig.getSessionTimeout());
-			
-			return AsyncOperationHelper.executeAsync(executor, "sendMail process", sendMailClosure);
 		}
 	}
 	
+	/**
+	 * Submits to the thread pool. When its queue is full, the configured {@link OperationalConfig#getThreadPoolQueueOverflowPolicy() overflow
+	 * policy} kicks in, which may block, throw an {@link org.simplejavamail.mailer.AsyncQueueFullException} or run the closure in the current
+	 * thread. With {@link SendLanes} the closure first waits its turn in the lane of its recipient domain, where the same policy applies.
+	 * <p>
+	 * The closure completes the response itself, as with retries an attempt finishing doesn't have to mean the email is done. Cancelling the
+	 * response before the closure runs, or while it waits for a retry, finishes the request in its place.
+	 */
+	private AsyncResponse submitAsync(final SendMailClosure sendMailClosure) {
+		// the response is created up front, so it exists even if the closure completes before submit() returns (CALLER_RUNS)
+		final AsyncResponseImpl asyncResponse = prepareAsyncResponse(sendMailClosure);
+		if (sendLanes == null) {
+			asyncResponse.setTask(executor.submit(sendMailClosure));
+		} else {
+			final FutureTask<Void> task = new FutureTask<>(sendMailClosure, null);
+			asyncResponse.setTask(task);
+			if (!sendLanes.submit(SendLanes.determineLane(sendMailClosure.email), task)) {
+				task.run();
+			}
+		}
+		return asyncResponse;
+	}
+	
+	/**
+	 * Creates the response through which the closure completes and marks the closure queued, ready to be handed to the thread pool.
+	 */
+	@Nonnull
+	private AsyncResponseImpl prepareAsyncResponse(@Nonnull final SendMailClosure sendMailClosure) {
+		final AsyncResponseImpl asyncResponse = new AsyncResponseImpl();
+		sendMailClosure.asyncResponse = asyncResponse;
+		asyncResponse.setCancelHandler(new Runnable() {
+			@Override
+			public void run() {
+				sendMailClosure.finishWithoutRunning();
+			}
+		});
+		sendMailClosure.markQueued();
+		return asyncResponse;
+	}
+	
+	/**
+	 * Waits out the retry backoff on the shared retry scheduler and then puts the closure back in the async queue, so no sending thread is tied up
+	 * in the meantime. The email remains tracked as in progress until its last attempt has finished.
+	 * <p>
+	 * The email was admitted to the queue before, so it goes back regardless of the queue's capacity and the overflow policy doesn't apply (see
+	 * {@link AsyncOperationHelper#resubmit(ExecutorService, Runnable)}). Otherwise a full queue would block the retries of all Mailers, or have
+	 * the retry scheduler send the email itself.
+	 * <p>
+	 * The pending retry is the response's task in the meantime, so cancelling the response cancels the retry (see {@link #submitAsync(SendMailClosure)}).
+	 */
+	private void scheduleRetry(@Nonnull final SendMailClosure sendMailClosure, final long backoffMillis) {
+		final AsyncResponseImpl asyncResponse = checkNonEmptyArgument(sendMailClosure.asyncResponse, "asyncResponse");
+		final FutureTask<Void> retry = new FutureTask<>(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					sendMailClosure.markQueued();
+					final FutureTask<Void> task = new FutureTask<>(sendMailClosure, null);
+					asyncResponse.setTask(task);
+					if (sendLanes == null) {
+						AsyncOperationHelper.resubmit(executor, task);
+					} else {
+						sendLanes.resubmit(SendLanes.determineLane(sendMailClosure.email), task);
+					}
+				} catch (final RuntimeException e) {
+					LOGGER.error("Failed to resubmit email for retry:\n{}", sendMailClosure.email);
+					if (sendMailClosure.finishWithoutRunning()) {
+						asyncResponse.completeExceptionally(e);
+					}
+				}
+			}
+		}, null);
+		// set before scheduling, so it can't replace the task of the resubmitted closure
+		asyncResponse.setTask(retry);
+		AsyncOperationHelper.retryScheduler().schedule(retry, backoffMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * @return The number of async emails waiting for a free thread in the thread pool.
+	 */
+	public int getAsyncQueueDepth() {
+		if (sendLanes != null) {
+			return sendLanes.getQueueDepth();
+		} else if (executor instanceof ThreadPoolExecutor) {
+			return ((ThreadPoolExecutor) executor).getQueue().size();
+		} else if (executor instanceof ConcurrencyLimitingExecutor) {
+			return ((ConcurrencyLimitingExecutor) executor).getQueueDepth();
+		}
+		return 0;
+	}
+	
 	/**
 	 * Configures the {@link Session} with the same timeout for socket connection timeout, read and write timeout.
 	 */
@@ -226,13 +571,66 @@ public class MailSender {
 	
 	/**
 	 * Separate closure that can be executed directly or from a thread. Refer to {@link #send(Email, boolean)} for details.
+	 * <p>
+	 * If a {@link OperationalConfig#getRetryPolicy() retry policy} is configured, transient failures are retried with the {@link MimeMessage}
+	 * produced by the first attempt. Sending synchronously, the closure waits and retries by itself. Sending asynchronously, every run is a single
+	 * attempt and a retry is a new run, scheduled by {@link #scheduleRetry(SendMailClosure, long)}.
 	 */
 	// used to be a method with simple parameters! would still have been, if Java 7 supported lambda's :(
 	private class SendMailClosure implements Runnable {
 		
+		private static final int IDLE = 0;
+		private static final int RUNNING = 1;
+		private static final int FINISHED = 2;
+		
 		@Nonnull final Session session;
 		@Nonnull final Email email;
 		
+		/**
+		 * Completed by this closure when the email was sent or the last attempt failed. Only set for async sends.
+		 */
+		@Nullable AsyncResponseImpl asyncResponse;
+		
+		/**
+		 * Produced by the first attempt and reused by retries.
+		 */
+		@Nullable private MimeMessage message;
+		
+		/**
+		 * The {@link #message} as written to the wire, only produced when its recipients are sent to in chunks.
+		 */
+		@Nullable private byte[] renderedMessage;
+		
+		private int retries;
+		
+		/**
+		 * When this email was handed to the MailSender, only measured if {@link #metrics} are installed.
+		 */
+		private final long startNanos;
+		
+		/**
+		 * When this email was last put in the async queue, only measured if {@link #metrics} are installed.
+		 */
+		private long queuedNanos;
+		
+		private boolean messageSizeReported;
+		
+		/**
+		 * Set when the email was sent in recipient chunks of which only some failed, to be reported once the email is done.
+		 */
+		@Nullable private PartialSendException partialSend;
+		
+		/**
+		 * The id of this email in the outbox, or <code>-1</code> if it wasn't journaled.
+		 */
+		private long outboxEntryId = -1;
+		
+		/**
+		 * {@link #IDLE} before every attempt, so an async email is finished exactly once: either by its last attempt or, when its response was
+		 * cancelled before an attempt started, by {@link #finishWithoutRunning()}.
+		 */
+		private final AtomicInteger state = new AtomicInteger(IDLE);
+		
 		/**
 		 * @param session The session with which to produce the {@link MimeMessage} aquire the {@link Transport} for connections.
 		 * @param email   The email that will be converted into a {@link MimeMessage}.
@@ -240,111 +638,907 @@ public class MailSender {
 		private SendMailClosure(@Nonnull Session session, @Nonnull Email email) {
 			this.session = session;
 			this.email = email;
+			this.startNanos = metrics != null ? System.nanoTime() : 0;
 		}
 		
-		@SuppressWarnings("deprecation")
 		@Override
 		public void run() {
+			if (!state.compareAndSet(IDLE, RUNNING)) {
+				// finished without running, the response was cancelled
+				return;
+			}
 			LOGGER.trace("sending email...");
+			boolean requestFinished = true;
+			final boolean measureAsyncSend = metrics != null && asyncResponse != null;
+			if (measureAsyncSend) {
+				metrics.queueWait(System.nanoTime() - queuedNanos);
+				metrics.poolOccupancy(asyncSendsRunning.incrementAndGet(), getAsyncQueueDepth());
+			}
+			// the outcome is reported before completing the response, so whoever waits for the response sees it in the metrics
 			try {
-				// fill and send wrapped mime message parts
-				final MimeMessage message = MimeMessageProducerHelper.produceMimeMessage(
-						checkNonEmptyArgument(email, "email"),
-						checkNonEmptyArgument(session, "session"));
-				
-				configureBounceToAddress(session, email);
-				
-				logSession(session);
-				message.saveChanges(); // some headers and id's will be set for this specific message
-				email.internalSetId(message.getMessageID());
-				
+				requestFinished = sendWithRetries();
+				if (requestFinished) {
+					// also when not sent to all recipients, as the email itself was sent
+					reportOutcome(true);
+					if (asyncResponse != null) {
+						if (partialSend != null) {
+							asyncResponse.completeExceptionally(partialSend);
+						} else {
+							asyncResponse.complete();
+						}
+					}
+				}
+			} catch (final RuntimeException e) {
+				reportOutcome(false);
+				if (asyncResponse == null) {
+					throw e;
+				}
+				asyncResponse.completeExceptionally(e);
+			} catch (final Error e) {
+				reportOutcome(false);
+				if (asyncResponse != null) {
+					// don't leave anyone waiting on the response forever
+					asyncResponse.completeExceptionally(new ExecutionException(e));
+				}
+				throw e;
+			} finally {
+				if (measureAsyncSend) {
+					asyncSendsRunning.decrementAndGet();
+				}
+				// also when producing the message failed, or this request would never be accounted for
+				if (requestFinished) {
+					state.set(FINISHED);
+					markOutboxEntryDone(outboxEntryId);
+					checkShutDownRunningProcesses();
+				}
+			}
+			if (partialSend != null && asyncResponse == null) {
+				throw partialSend;
+			}
+		}
+		
+		/**
+		 * Finishes the request in place of an attempt that didn't run: the response was cancelled before the attempt started or while waiting for a
+		 * retry, or the retry couldn't be resubmitted.
+		 *
+		 * @return Whether this call finished the request, rather than an attempt running or the request having been finished already.
+		 */
+		private boolean finishWithoutRunning() {
+			if (!state.compareAndSet(IDLE, FINISHED)) {
+				return false;
+			}
+			reportOutcome(false);
+			markOutboxEntryDone(outboxEntryId);
+			checkShutDownRunningProcesses();
+			return true;
+		}
+		
+		/**
+		 * @return Whether the email is done, rather than a retry having been scheduled for it.
+		 */
+		private boolean sendWithRetries() {
+			while (true) {
 				try {
-					synchronized (this) {
-						if (needsAuthenticatedProxy()) {
-							assert proxyServer != null; // actually superfluous, but otherwise IntelliJ won't shut up
-							if (!proxyServer.isRunning()) {
-								LOGGER.trace("starting proxy bridge");
-								proxyServer.start();
-							}
-							proxyServer.start();
+					sendOnce();
+					return true;
+				} catch (final UnsupportedEncodingException e) {
+					LOGGER.error("Failed to send email:\n{}", email);
+					throw new MailSenderException(MailSenderException.INVALID_ENCODING, e);
+				} catch (final MessagingException e) {
+					final RetryPolicy retryPolicy = operationalConfig.getRetryPolicy();
+					if (retryPolicy == null || retries >= retryPolicy.getMaxRetries() || !SmtpFailureClassifier.isTransient(e)) {
+						LOGGER.error("Failed to send email:\n{}", email);
+						throw new MailSenderException(MailSenderException.GENERIC_ERROR, e);
+					}
+					final long backoffMillis = retryPolicy.getBackoffMillis(++retries, ThreadLocalRandom.current());
+					LOGGER.warn("Transient failure sending email {}, retry {} of {} in {}ms: {}", email.getId(), retries, retryPolicy.getMaxRetries(),
+							backoffMillis, e.getMessage());
+					if (asyncResponse != null) {
+						// from here on, cancelling the response finishes the request
+						state.set(IDLE);
+						if (asyncResponse.getFuture().isDone()) {
+							// cancelled during this attempt
+							finishWithoutRunning();
+						} else {
+							scheduleRetry(this, backoffMillis);
 						}
+						return false;
 					}
-					
-					if (!operationalConfig.isTransportModeLoggingOnly()) {
-						LOGGER.trace("\t\nEmail: {}", email);
-						LOGGER.trace("\t\nMimeMessage: {}\n", mimeMessageToEML(message));
-						
-						try (Transport transport = session.getTransport()) {
-							transport.connect();
-							transport.sendMessage(message, message.getAllRecipients());
-						} finally {
-							LOGGER.trace("closing transport");
+					waitForRetry(backoffMillis, e);
+				} catch (final Exception e) {
+					LOGGER.error("Failed to send email:\n{}", email);
+					throw e;
+				}
+			}
+		}
+		
+		private void sendOnce()
+				throws UnsupportedEncodingException, MessagingException {
+			final FlightRecorderEventType.Event event = SEND_EVENT.begin();
+			boolean succeeded = false;
+			try {
+				sendAttempt();
+				succeeded = true;
+			} finally {
+				if (event != null) {
+					event.set("emailId", email.getId())
+							.set("recipients", email.getRecipients().size())
+							.set("attempt", retries + 1)
+							.set("async", asyncResponse != null)
+							.set("succeeded", succeeded)
+							.commit();
+				}
+			}
+		}
+		
+		private void sendAttempt()
+				throws UnsupportedEncodingException, MessagingException {
+			if (message == null) {
+				message = prepareMimeMessage(email);
+			}
+			
+			startProxyServerIfNeeded();
+			
+			if (!operationalConfig.isTransportModeLoggingOnly()) {
+				logMimeMessage(email, message);
+				
+				final Address[] recipients = message.getAllRecipients();
+				final int maxRecipientsPerTransaction = operationalConfig.getMaxRecipientsPerTransaction();
+				if (maxRecipientsPerTransaction > 0 && recipients.length > maxRecipientsPerTransaction) {
+					sendInRecipientChunks(recipients, maxRecipientsPerTransaction);
+				} else {
+					sendMessage(message, recipients);
+					reportMessageSize(writtenSize(message));
+				}
+			} else {
+				logMimeMessageInsteadOfSending(email, message);
+			}
+		}
+		
+		private void sendMessage(@Nonnull final MimeMessage message, @Nonnull final Address[] recipients)
+				throws MessagingException {
+			awaitSendingResumed();
+			awaitRateLimit();
+			final TransportPool.PooledTransport transport = claimTransport();
+			boolean transportReusable = false;
+			try {
+				sendMessageOverTransport(transport, message, recipients);
+				transportReusable = true;
+			} finally {
+				LOGGER.trace("releasing transport");
+				releaseTransport(transport, transportReusable);
+			}
+		}
+		
+		/**
+		 * Sends every chunk its own copy of the message, parsed from the bytes rendered once, so the content isn't encoded again for every chunk and
+		 * chunks don't share a message that JavaMail might modify while sending.
+		 * <p>
+		 * If only some of the chunks fail, the email counts as sent and the recipients of the failed chunks are reported with a {@link
+		 * PartialSendException} once the email is done.
+		 *
+		 * @throws SendFailedException If none of the chunks succeeded.
+		 * @see RecipientChunks
+		 */
+		private void sendInRecipientChunks(@Nonnull final Address[] recipients, final int maxRecipientsPerTransaction)
+				throws MessagingException {
+			if (renderedMessage == null) {
+				renderedMessage = render(checkNonEmptyArgument(message, "message"));
+			}
+			reportMessageSize(renderedMessage.length);
+			final byte[] rendered = renderedMessage;
+			final List<Address[]> chunks = RecipientChunks.split(recipients, maxRecipientsPerTransaction);
+			LOGGER.debug("sending email {} to {} recipients in {} chunks", email.getId(), recipients.length, chunks.size());
+			try {
+				RecipientChunks.sendInParallel(chunks, Math.max(1, operationalConfig.getConnectionPoolSize()), new RecipientChunks.ChunkSender() {
+					@Override
+					public void send(@Nonnull final Address[] chunk)
+							throws MessagingException {
+						final SMTPMessage chunkMessage = new CountingSMTPMessage(session, new ByteArrayInputStream(rendered));
+						if (message instanceof SMTPMessage) {
+							chunkMessage.setEnvelopeFrom(((SMTPMessage) message).getEnvelopeFrom());
 						}
+						sendMessage(chunkMessage, chunk);
+					}
+				});
+			} catch (final SendFailedException e) {
+				if (e.getValidSentAddresses() == null || e.getValidSentAddresses().length == 0) {
+					throw e;
+				}
+				final List<Recipient> failedRecipients = findRecipients(email, e.getValidUnsentAddresses(), e.getInvalidAddresses());
+				LOGGER.warn("email {} was not sent to {} of its {} recipients", email.getId(), failedRecipients.size(), recipients.length, e);
+				partialSend = new PartialSendException(failedRecipients, recipients.length, e);
+			}
+		}
+		
+		/**
+		 * Produces the {@link MimeMessage} right away and journals it, so the email survives a restart from the moment it is accepted.
+		 */
+		private void writeToOutbox(@Nonnull final OutboxJournal outbox) {
+			try {
+				message = prepareMimeMessage(email);
+				final ByteArrayOutputStream content = new ByteArrayOutputStream();
+				message.writeTo(content);
+				final byte[] contentBytes = content.toByteArray();
+				outboxEntryId = outbox.append(message instanceof SMTPMessage ? ((SMTPMessage) message).getEnvelopeFrom() : null, contentBytes);
+				reportMessageSize(contentBytes.length);
+			} catch (final UnsupportedEncodingException e) {
+				throw new MailSenderException(MailSenderException.INVALID_ENCODING, e);
+			} catch (final MessagingException | IOException e) {
+				throw new MailSenderException(MailSenderException.OUTBOX_WRITE_FAILED, e);
+			}
+		}
+		
+		/**
+		 * Reports the size of the message once per email, as counted while it was rendered anyway.
+		 *
+		 * @param size The size of the message as written to the wire, or -1 if unknown.
+		 */
+		private void reportMessageSize(final long size) {
+			if (measureMessageSizes && !messageSizeReported && size >= 0) {
+				messageSizeReported = true;
+				checkNonEmptyArgument(metrics, "metrics").messageSize(size);
+			}
+		}
+		
+		private void markQueued() {
+			if (metrics != null) {
+				queuedNanos = System.nanoTime();
+			}
+		}
+		
+		/**
+		 * Reports the outcome once the email is done, with the time it took since it was handed to the MailSender.
+		 */
+		private void reportOutcome(final boolean sent) {
+			if (metrics != null) {
+				metrics.sendCompleted(sent, System.nanoTime() - startNanos);
+			}
+		}
+		
+		private void waitForRetry(final long backoffMillis, @Nonnull final MessagingException cause) {
+			try {
+				TimeUnit.MILLISECONDS.sleep(backoffMillis);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new MailSenderException(MailSenderException.GENERIC_ERROR, cause);
+			}
+		}
+	}
+	
+	/**
+	 * Starts a bulk send session in which many emails are sent back-to-back over a single held transport, rather than claiming and releasing a
+	 * transport for every single email. Between messages, the transport is reset with an SMTP <code>RSET</code>.
+	 * <p>
+	 * Like a regular send, the bulk session is tracked so that the proxy bridging server (if used) is not shut down while the session is open.
+	 * <p>
+	 * <strong>Note:</strong> the returned {@link BulkSend} must always be closed, so the held transport is released.
+	 *
+	 * @see org.simplejavamail.mailer.Mailer#sendMails(java.util.Iterator, org.simplejavamail.mailer.SendResultHandler)
+	 */
+	public BulkSend startBulkSend() {
+		startTrackingRequest();
+		try {
+			startProxyServerIfNeeded();
+		} catch (final RuntimeException e) {
+			checkShutDownRunningProcesses();
+			throw e;
+		}
+		return new BulkSend();
+	}
+	
+	/**
+	 * Holds on to a single transport for as long as the bulk send session is open. Refer to {@link #startBulkSend()} for details.
+	 */
+	public class BulkSend implements AutoCloseable {
+		
+		@Nullable private TransportPool.PooledTransport transport;
+		private boolean closed;
+		
+		private BulkSend() {
+		}
+		
+		/**
+		 * Produces the {@link MimeMessage} for the given email and sends it over the held transport. If sending fails, the held transport is
+		 * discarded and the next email will be sent over a freshly claimed one.
+		 * <p>
+		 * Emails with more recipients than {@link OperationalConfig#getMaxRecipientsPerTransaction()} are sent in recipient chunks, one after
+		 * the other over the held transport. If only some of the chunks fail, the email still counts as sent and the recipients it wasn't sent
+		 * to are returned.
+		 *
+		 * @return The recipients the email was not sent to because their chunk failed, or an empty list if it was sent to all of them.
+		 * @throws MailException If producing or sending this particular email failed.
+		 */
+		@Nonnull
+		public List<Recipient> send(@Nonnull final Email email) {
+			if (closed) {
+				throw new IllegalStateException("bulk send session already closed");
+			}
+			final long startNanos = metrics != null ? System.nanoTime() : 0;
+			boolean sent = false;
+			try {
+				final MimeMessage message = prepareMimeMessage(email);
+				List<Recipient> failedRecipients = Collections.emptyList();
+				
+				if (!operationalConfig.isTransportModeLoggingOnly()) {
+					logMimeMessage(email, message);
+					
+					final Address[] recipients = message.getAllRecipients();
+					final int maxRecipientsPerTransaction = operationalConfig.getMaxRecipientsPerTransaction();
+					if (maxRecipientsPerTransaction > 0 && recipients.length > maxRecipientsPerTransaction) {
+						failedRecipients = sendInRecipientChunks(email, message, recipients, maxRecipientsPerTransaction);
 					} else {
-						LOGGER.info("TRANSPORT_MODE_LOGGING_ONLY: skipping actual sending...");
-						LOGGER.info("\n\nEmail: {}\n", email);
-						LOGGER.info("\n\nMimeMessage: {}\n", mimeMessageToEML(message));
+						sendOverHeldTransport(message, recipients);
+						if (measureMessageSizes && writtenSize(message) >= 0) {
+							checkNonEmptyArgument(metrics, "metrics").messageSize(writtenSize(message));
+						}
 					}
-				} finally {
-					checkShutDownRunningProcesses();
+				} else {
+					logMimeMessageInsteadOfSending(email, message);
 				}
+				sent = true;
+				return failedRecipients;
 			} catch (final UnsupportedEncodingException e) {
 				LOGGER.error("Failed to send email:\n{}", email);
 				throw new MailSenderException(MailSenderException.INVALID_ENCODING, e);
 			} catch (final MessagingException e) {
 				LOGGER.error("Failed to send email:\n{}", email);
 				throw new MailSenderException(MailSenderException.GENERIC_ERROR, e);
-			} catch (final Exception e) {
-				LOGGER.error("Failed to send email:\n{}", email);
+			} finally {
+				if (metrics != null) {
+					metrics.sendCompleted(sent, System.nanoTime() - startNanos);
+				}
+			}
+		}
+		
+		private void sendOverHeldTransport(@Nonnull final MimeMessage message, @Nonnull final Address[] recipients)
+				throws MessagingException {
+			awaitSendingResumed();
+			awaitRateLimit();
+			transport = (transport == null) ? claimTransport() : renewTransport(transport);
+			try {
+				sendMessageOverTransport(transport, message, recipients);
+			} catch (final MessagingException | RuntimeException e) {
+				releaseTransport(transport, false);
+				transport = null;
 				throw e;
 			}
 		}
+		
+		/**
+		 * Like {@link SendMailClosure}, renders the message once, but sends the chunks one by one, as the session holds a single transport.
+		 *
+		 * @return The recipients of the chunks that failed, if any of the chunks succeeded.
+		 * @throws SendFailedException If none of the chunks succeeded.
+		 * @see RecipientChunks
+		 */
+		@Nonnull
+		private List<Recipient> sendInRecipientChunks(@Nonnull final Email email, @Nonnull final MimeMessage message,
+													  @Nonnull final Address[] recipients, final int maxRecipientsPerTransaction)
+				throws MessagingException {
+			final byte[] rendered = render(message);
+			if (measureMessageSizes) {
+				checkNonEmptyArgument(metrics, "metrics").messageSize(rendered.length);
+			}
+			// sent one after the other, so the chunks can share a single copy of the message
+			final SMTPMessage chunkMessage = new CountingSMTPMessage(session, new ByteArrayInputStream(rendered));
+			if (message instanceof SMTPMessage) {
+				chunkMessage.setEnvelopeFrom(((SMTPMessage) message).getEnvelopeFrom());
+			}
+			final List<Address[]> chunks = RecipientChunks.split(recipients, maxRecipientsPerTransaction);
+			LOGGER.debug("sending email {} to {} recipients in {} chunks", email.getId(), recipients.length, chunks.size());
+			try {
+				RecipientChunks.sendInParallel(chunks, 1, new RecipientChunks.ChunkSender() {
+					@Override
+					public void send(@Nonnull final Address[] chunk)
+							throws MessagingException {
+						sendOverHeldTransport(chunkMessage, chunk);
+					}
+				});
+				return Collections.emptyList();
+			} catch (final SendFailedException e) {
+				if (e.getValidSentAddresses() == null || e.getValidSentAddresses().length == 0) {
+					throw e;
+				}
+				final List<Recipient> failedRecipients = findRecipients(email, e.getValidUnsentAddresses(), e.getInvalidAddresses());
+				LOGGER.warn("email {} was not sent to {} of its {} recipients", email.getId(), failedRecipients.size(), recipients.length, e);
+				return failedRecipients;
+			}
+		}
+		
+		/**
+		 * Releases the held transport back into the pool and ends tracking of this bulk session.
+		 */
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				if (transport != null) {
+					releaseTransport(transport, true);
+					transport = null;
+				}
+				checkShutDownRunningProcesses();
+			}
+		}
 	}
 	
-	private void configureBounceToAddress(final Session session, final Email email) {
-		final Recipient bounceAddress = email.getBounceToRecipient();
-		if (bounceAddress != null) {
-			if (transportStrategy != null) {
-				final String formattedRecipient = format("%s <%s>", bounceAddress.getName(), bounceAddress.getAddress());
-				session.getProperties().setProperty(transportStrategy.propertyNameEnvelopeFrom(), formattedRecipient);
-			} else {
-				throw new MailSenderException(MailSenderException.CANNOT_SET_BOUNCETO_WITHOUT_TRANSPORTSTRATEGY);
+	@Nonnull
+	private static byte[] render(@Nonnull final MimeMessage message)
+			throws MessagingException {
+		try {
+			final ByteArrayOutputStream rendered = new ByteArrayOutputStream();
+			message.writeTo(rendered);
+			return rendered.toByteArray();
+		} catch (final IOException e) {
+			throw new MessagingException("Unable to render message for sending to recipient chunks", e);
+		}
+	}
+	
+	/**
+	 * @return The recipients of the email that the given failure to send it tells it was not sent to, such as the recipients of all chunks when
+	 * every recipient chunk failed, or an empty list if the failure doesn't tell per recipient (because the email failed validation, for example).
+	 */
+	@Nonnull
+	public static List<Recipient> determineFailedRecipients(@Nonnull final Email email, @Nonnull final MailException failure) {
+		if (!(failure.getCause() instanceof SendFailedException)) {
+			return Collections.emptyList();
+		}
+		final SendFailedException sendFailedException = (SendFailedException) failure.getCause();
+		return findRecipients(email, sendFailedException.getValidUnsentAddresses(), sendFailedException.getInvalidAddresses());
+	}
+	
+	/**
+	 * @return The recipients of the email with any of the given addresses, in the order they were added to the email.
+	 */
+	@Nonnull
+	private static List<Recipient> findRecipients(@Nonnull final Email email, @Nonnull final Address[]... addresses) {
+		final Set<String> lookup = new HashSet<>();
+		for (final Address[] someAddresses : addresses) {
+			if (someAddresses != null) {
+				for (final Address address : someAddresses) {
+					lookup.add(toLookupKey(address instanceof InternetAddress ? ((InternetAddress) address).getAddress() : address.toString()));
+				}
+			}
+		}
+		final List<Recipient> recipients = new ArrayList<>();
+		for (final Recipient recipient : email.getRecipients()) {
+			if (lookup.contains(toLookupKey(recipient.getAddress()))) {
+				recipients.add(recipient);
+			}
+		}
+		return recipients;
+	}
+	
+	@Nonnull
+	private static String toLookupKey(@Nonnull final String address) {
+		return address.trim().toLowerCase(Locale.ROOT);
+	}
+	
+	@Nonnull
+	private TransportPool.PooledTransport claimTransport()
+			throws MessagingException {
+		final long start = startStage();
+		final FlightRecorderEventType.Event event = CONNECT_EVENT.begin();
+		boolean succeeded = false;
+		try {
+			final TransportPool.PooledTransport transport = transportPool.claim();
+			succeeded = true;
+			return transport;
+		} finally {
+			endStage(Stage.CONNECT, start);
+			commitConnectEvent(event, false, succeeded);
+		}
+	}
+	
+	@Nonnull
+	private TransportPool.PooledTransport renewTransport(@Nonnull final TransportPool.PooledTransport transport)
+			throws MessagingException {
+		final long start = startStage();
+		final FlightRecorderEventType.Event event = CONNECT_EVENT.begin();
+		boolean succeeded = false;
+		try {
+			final TransportPool.PooledTransport renewed = transportPool.renew(transport);
+			succeeded = true;
+			return renewed;
+		} finally {
+			endStage(Stage.CONNECT, start);
+			commitConnectEvent(event, true, succeeded);
+		}
+	}
+	
+	private static void commitConnectEvent(@Nullable final FlightRecorderEventType.Event event, final boolean renewed, final boolean succeeded) {
+		if (event != null) {
+			event.set("renewed", renewed).set("succeeded", succeeded).commit();
+		}
+	}
+	
+	private void sendMessageOverTransport(@Nonnull final TransportPool.PooledTransport transport, @Nonnull final MimeMessage message,
+										  @Nonnull final Address[] recipients)
+			throws MessagingException {
+		final long start = startStage();
+		final FlightRecorderEventType.Event event = TRANSPORT_WRITE_EVENT.begin();
+		boolean succeeded = false;
+		try {
+			transport.sendMessage(message, recipients);
+			succeeded = true;
+		} finally {
+			endStage(Stage.SEND_MESSAGE, start);
+			if (event != null) {
+				event.set("recipients", recipients.length).set("sizeBytes", writtenSize(message)).set("succeeded", succeeded).commit();
+			}
+		}
+	}
+	
+	/**
+	 * @return The size of the message as last written to the SMTP server, or -1 if it wasn't (completely) written or its size wasn't counted.
+	 */
+	private static long writtenSize(@Nonnull final MimeMessage message) {
+		return (message instanceof CountingSMTPMessage) ? ((CountingSMTPMessage) message).getWrittenSize() : -1;
+	}
+	
+	private void releaseTransport(@Nonnull final TransportPool.PooledTransport transport, final boolean reusable) {
+		final long start = startStage();
+		try {
+			transportPool.release(transport, reusable);
+		} finally {
+			endStage(Stage.CLOSE, start);
+		}
+	}
+	
+	/**
+	 * @return The start time of a stage to measure, or zero without metrics, so the clock isn't read for nothing.
+	 * @see #endStage(Stage, long)
+	 */
+	private long startStage() {
+		return metrics != null ? System.nanoTime() : 0;
+	}
+	
+	private void endStage(@Nonnull final Stage stage, final long start) {
+		if (metrics != null) {
+			metrics.stageCompleted(stage, System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	 * Holds the email while sending is paused.
+	 *
+	 * @see #pause()
+	 */
+	private void awaitSendingResumed() {
+		if (paused) {
+			synchronized (pauseLock) {
+				try {
+					while (paused) {
+						pauseLock.wait();
+					}
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new MailSenderException(MailSenderException.PAUSE_INTERRUPTED, e);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Holds every email right before it would be handed to the SMTP server, until {@link #resume()}.
+	 *
+	 * @see MailerMXBean#pauseSending()
+	 */
+	void pause() {
+		synchronized (pauseLock) {
+			paused = true;
+		}
+	}
+	
+	void resume() {
+		synchronized (pauseLock) {
+			paused = false;
+			pauseLock.notifyAll();
+		}
+	}
+	
+	boolean isPaused() {
+		return paused;
+	}
+	
+	/**
+	 * @return Whether no emails were in progress anymore before the timeout elapsed.
+	 * @see MailerMXBean#drainQueue(long)
+	 */
+	boolean awaitIdle(final long timeout, @Nonnull final TimeUnit unit)
+			throws InterruptedException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (idleLock) {
+			while (smtpRequestsInProgress.get() > 0) {
+				final long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return false;
+				}
+				TimeUnit.NANOSECONDS.timedWait(idleLock, remaining);
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @return The number of emails being sent or waiting in the async queue.
+	 */
+	int getSendsInProgress() {
+		return smtpRequestsInProgress.get();
+	}
+	
+	int getPooledConnections() {
+		return transportPool.getIdleTransportCount();
+	}
+	
+	boolean isShutdown() {
+		return shutdownRequested.get();
+	}
+	
+	/**
+	 * Waits until the configured rate limits allow another email to be sent, if any are configured.
+	 */
+	private void awaitRateLimit() {
+		if (rateLimiter.isEnabled()) {
+			try {
+				final long waitedNanos = rateLimiter.acquire();
+				if (waitedNanos > 0) {
+					LOGGER.debug("waited {}ms for rate limit", TimeUnit.NANOSECONDS.toMillis(waitedNanos));
+				}
+				if (metrics != null) {
+					metrics.stageCompleted(Stage.RATE_LIMIT_WAIT, waitedNanos);
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new MailSenderException(MailSenderException.RATE_LIMIT_INTERRUPTED, e);
+			}
+		}
+	}
+	
+	/**
+	 * @return The total time sending threads have waited for the rate limits so far.
+	 * @see OperationalConfig#getRateLimits()
+	 */
+	public long getRateLimitWaitTime(@Nonnull final TimeUnit unit) {
+		return unit.convert(rateLimiter.getWaitTimeNanos(), TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * Marks the email done in the outbox once it reached its final outcome, whether it was sent or not, so it won't be sent again after a restart.
+	 * Failing to do so only means the email is sent again, so it's not a reason to fail the email itself.
+	 */
+	private void markOutboxEntryDone(final long outboxEntryId) {
+		if (outbox != null && outboxEntryId >= 0) {
+			try {
+				outbox.markDone(outboxEntryId);
+			} catch (final IOException e) {
+				LOGGER.warn("Unable to mark email done in outbox, it will be sent again after a restart", e);
 			}
 		}
 	}
 	
+	/**
+	 * Produces the {@link MimeMessage} and performs a call to {@link Message#saveChanges()}, so that the message id is known and can be set on the
+	 * email.
+	 */
+	@SuppressWarnings("deprecation")
+	private MimeMessage prepareMimeMessage(@Nonnull final Email email)
+			throws UnsupportedEncodingException, MessagingException {
+		// fill and send wrapped mime message parts
+		final long producing = startStage();
+		final MimeMessage message;
+		try {
+			message = MimeMessageProducerHelper.produceMimeMessage(
+					checkNonEmptyArgument(email, "email"),
+					checkNonEmptyArgument(session, "session"),
+					attachmentCache);
+		} finally {
+			endStage(Stage.MIME_PRODUCTION, producing);
+		}
+		
+		configureBounceToAddress(message, email);
+		
+		logSession(session);
+		final long saving = startStage();
+		try {
+			message.saveChanges(); // some headers and id's will be set for this specific message
+		} finally {
+			endStage(Stage.SAVE_CHANGES, saving);
+		}
+		email.internalSetId(message.getMessageID());
+		captureIfSampled(message);
+		return message;
+	}
+	
+	/**
+	 * Writes the message to the diagnostic capture directory if there is one and the message is part of the sample. The message is streamed to
+	 * disk, so it is never kept in memory as a whole.
+	 *
+	 * @see OperationalConfig#getDiagnosticCaptureDirectory()
+	 */
+	private void captureIfSampled(@Nonnull final MimeMessage message) {
+		final File captureDirectory = operationalConfig.getDiagnosticCaptureDirectory();
+		if (captureDirectory == null) {
+			return;
+		}
+		final long emailNumber = emailsProduced.getAndIncrement();
+		if (emailNumber % operationalConfig.getDiagnosticCaptureSampleRate() != 0) {
+			return;
+		}
+		final File captureFile = new File(captureDirectory, format("%08d-%s.eml", emailNumber, captureFileName(message)));
+		//noinspection ResultOfMethodCallIgnored
+		captureDirectory.mkdirs();
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(captureFile))) {
+			message.writeTo(out);
+			LOGGER.debug("captured email in {}", captureFile);
+		} catch (final IOException | MessagingException e) {
+			LOGGER.warn("Unable to capture email in {}", captureFile, e);
+		}
+	}
+	
+	@Nonnull
+	private static String captureFileName(@Nonnull final MimeMessage message) {
+		try {
+			final String messageId = message.getMessageID();
+			return messageId != null ? messageId.replaceAll("[^A-Za-z0-9._-]", "_") : "no-message-id";
+		} catch (final MessagingException e) {
+			return "no-message-id";
+		}
+	}
+	
+	private void startProxyServerIfNeeded() {
+		if (needsAuthenticatedProxy()) {
+			assert proxyServer != null; // actually superfluous, but otherwise IntelliJ won't shut up
+			synchronized (proxyServerLifecycleLock) {
+				if (!proxyServer.isRunning()) {
+					LOGGER.trace("starting proxy bridge");
+					proxyServer.start();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Serializing the email and message is expensive, so only done when TRACE logging is enabled.
+	 */
+	private static void logMimeMessage(@Nonnull final Email email, @Nonnull final MimeMessage message) {
+		if (LOGGER.isTraceEnabled()) {
+			LOGGER.trace("\t\nEmail: {}", email);
+			LOGGER.trace("\t\nMimeMessage: {}\n", mimeMessageToEML(message));
+		}
+	}
+	
+	private static void logMimeMessageInsteadOfSending(@Nonnull final Email email, @Nonnull final MimeMessage message) {
+		LOGGER.info("TRANSPORT_MODE_LOGGING_ONLY: skipping actual sending...");
+		if (LOGGER.isInfoEnabled()) {
+			LOGGER.info("\n\nEmail: {}\n", email);
+			LOGGER.info("\n\nMimeMessage: {}\n", mimeMessageToEML(message));
+		}
+	}
+	
+	/**
+	 * Sets the envelope sender (<code>MAIL FROM</code>) on the message itself rather than in the shared {@link Session}, so concurrent sends with
+	 * different bounce addresses don't interfere with each other.
+	 */
+	private static void configureBounceToAddress(final MimeMessage message, final Email email) {
+		final Recipient bounceAddress = email.getBounceToRecipient();
+		if (bounceAddress != null && message instanceof SMTPMessage) {
+			((SMTPMessage) message).setEnvelopeFrom(bounceAddress.getAddress());
+		}
+	}
+	
 	/**
 	 * We need to keep a count of running threads in case a proxyserver is running or a connection pool needs to be shut down.
-     */
-    private synchronized void checkShutDownRunningProcesses() {
-        smtpRequestsPhaser.arriveAndDeregister();
-        LOGGER.trace("SMTP request threads left: {}", smtpRequestsPhaser.getUnarrivedParties());
-        // if this thread is the last one finishing
-        if (smtpRequestsPhaser.getUnarrivedParties() == 0) {
-            LOGGER.trace("all threads have finished processing");
+	 */
+	private void checkShutDownRunningProcesses() {
+		final int smtpRequestsLeft = smtpRequestsInProgress.decrementAndGet();
+		LOGGER.trace("SMTP request threads left: {}", smtpRequestsLeft);
+		// if this thread is the last one finishing
+		if (smtpRequestsLeft == 0) {
+			LOGGER.trace("all threads have finished processing");
+			synchronized (idleLock) {
+				idleLock.notifyAll();
+			}
+			if (needsAuthenticatedProxy()) {
+				synchronized (proxyServerLifecycleLock) {
+					// a new request may have started in the meantime, in which case it's now responsible for cleaning up
+					//noinspection ConstantConditions
+					if (smtpRequestsInProgress.get() == 0 && proxyServer.isRunning() && !proxyServer.isStopping()) {
+						LOGGER.trace("stopping proxy bridge...");
+						proxyServer.stop();
+						// pooled connections were routed through the bridge, so they won't survive it
+						transportPool.clear();
+					}
+				}
+			}
+			if (shutdownRequested.get()) {
+				terminate();
+			}
+		}
+	}
+	
+	/**
+	 * Registers a new SMTP request, unless this MailSender has been shut down.
+	 */
+	private void startTrackingRequest() {
+		smtpRequestsInProgress.incrementAndGet();
+		if (shutdownRequested.get()) {
+			checkShutDownRunningProcesses();
+			throw new MailSenderException(MailSenderException.MAILER_SHUT_DOWN);
+		}
+	}
+	
+	/**
+	 * Stops accepting new emails. Emails already in progress or waiting in the async queue are still sent, after which the proxy bridging server
+	 * (if used) is stopped, pooled connections are closed and the thread pool is shut down (unless it was provided by the user).
+	 * <p>
+	 * This method does not wait for emails in progress, use {@link #awaitTermination(long, TimeUnit)} for that.
+	 */
+	public void shutdown() {
+		if (shutdownRequested.compareAndSet(false, true) && smtpRequestsInProgress.get() == 0) {
+			terminate();
+		}
+	}
+	
+	/**
+	 * Blocks until all emails in progress have finished after a {@link #shutdown()}, or the timeout occurs, whichever happens first.
+	 *
+	 * @return <code>true</code> if this MailSender terminated and <code>false</code> if the timeout elapsed before termination.
+	 */
+	public boolean awaitTermination(final long timeout, @Nonnull final TimeUnit unit)
+			throws InterruptedException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		return terminated.await(timeout, unit)
+				&& (!executorOwned || executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+	}
+	
+	/**
+	 * Performed once, by whichever thread sees no more requests in progress after shutdown was requested.
+	 */
+	private void terminate() {
+		synchronized (proxyServerLifecycleLock) {
+			if (terminated.getCount() == 0) {
+				return;
+			}
+			LOGGER.trace("shutting down...");
 			//noinspection ConstantConditions
 			if (needsAuthenticatedProxy() && proxyServer.isRunning() && !proxyServer.isStopping()) {
-                LOGGER.trace("stopping proxy bridge...");
-                proxyServer.stop();
-            }
-            // shutdown the threadpool, or else the Mailer will keep any JVM alive forever
-            // executor is only available in async mode
-            if (executor != null) {
-                executor.shutdown();
-            }
-        }
-    }
-
+				proxyServer.stop();
+			}
+			transportPool.clear();
+			if (executorOwned) {
+				executor.shutdown();
+			}
+			if (jmx != null) {
+				jmx.unregister();
+			}
+			if (outbox != null) {
+				try {
+					outbox.close();
+				} catch (final IOException e) {
+					LOGGER.warn("Unable to close outbox", e);
+				}
+			}
+			if (attachmentCache != null) {
+				attachmentCache.shutdown();
+			}
+			terminated.countDown();
+		}
+	}
+	
 	/**
 	 * Simply logs host details, credentials used and whether authentication will take place and finally the transport protocol used.
 	 */
 	private static void logSession(final Session session) {
+		if (!LOGGER.isDebugEnabled()) {
+			return;
+		}
 		final TransportStrategy transportStrategy = TransportStrategy.findStrategyForSession(session);
 		final Properties properties = session.getProperties();
 		final String sessionDetails = (transportStrategy != null) ? transportStrategy.toString(properties) : properties.toString();
 		LOGGER.debug("starting mail with " + sessionDetails);
 	}
-
+	
 	/**
 	 * @see MailerGenericBuilder#trustingAllHosts(Boolean)
 	 */
@@ -358,7 +1552,7 @@ public class MailSender {
 			throw new MailSenderException(MailSenderException.CANNOT_SET_TRUST_WITHOUT_TRANSPORTSTRATEGY);
 		}
 	}
-
+	
 	/**
 	 * @see MailerGenericBuilder#trustingSSLHosts(String...)
 	 */
@@ -379,11 +1573,12 @@ public class MailSender {
 	/**
 	 * Tries to connect to the configured SMTP server, including (authenticated) proxy if set up.
 	 * <p>
-	 * Note: synchronizes on this mailer instance, so that we don't get into race condition conflicts with emails actually being sent.
+	 * Note: the connection test is tracked like any other SMTP request, so that the proxy bridging server isn't shut down by emails finishing while
+	 * the test is still running (or vice versa).
 	 *
 	 * @return An AsyncResponse in case of async == true, otherwise <code>null</code>.
 	 */
-	public synchronized AsyncResponse testConnection(boolean async) {
+	public AsyncResponse testConnection(boolean async) {
 		TestConnectionClosure testConnectionClosure = new TestConnectionClosure();
 		if (!async) {
 			testConnectionClosure.run();
@@ -402,23 +1597,14 @@ public class MailSender {
 	private class TestConnectionClosure implements Runnable {
 		@Override
 		public void run() {
-			boolean proxyBridgeStartedForTestingConnection = false;
-			
+			startTrackingRequest();
 			try (Transport transport = session.getTransport()) {
-				//noinspection ConstantConditions
-				if (needsAuthenticatedProxy() && !proxyServer.isRunning()) {
-					LOGGER.trace("starting proxy bridge for testing connection");
-					proxyServer.start();
-					proxyBridgeStartedForTestingConnection = true;
-				}
+				startProxyServerIfNeeded();
 				transport.connect(); // actual test
 			} catch (final MessagingException e) {
 				throw new MailSenderException(MailSenderException.ERROR_CONNECTING_SMTP_SERVER, e);
 			} finally {
-				if (proxyBridgeStartedForTestingConnection) {
-					LOGGER.trace("stopping proxy bridge after connection test");
-					proxyServer.stop();
-				}
+				checkShutDownRunningProcesses();
 			}
 		}
 	}
@@ -441,4 +1627,13 @@ public class MailSender {
 		return operationalConfig;
 	}
 	
+	/**
+	 * @return Where to report measurements, which besides the user's {@link OperationalConfig#getMetrics() metrics} may be the JMX MBean, or
+	 * <code>null</code> if nothing is measured.
+	 */
+	@Nullable
+	public MailerMetrics getMetrics() {
+		return metrics;
+	}
+	
 }
\ No newline at end of file
@@ -12,8 +12,12 @@ class MailSenderException extends MailException {
 	static final String GENERIC_ERROR = "Third party error";
 	static final String INVALID_ENCODING = "Encoding not accepted";
 	static final String CANNOT_SET_TRUST_WITHOUT_TRANSPORTSTRATEGY = "Cannot determine the trust properties to set without a provided transport strategy";
-	static final String CANNOT_SET_BOUNCETO_WITHOUT_TRANSPORTSTRATEGY = "Cannot determine the envelope .from property to set without a provided transport strategy";
 	static final String ERROR_CONNECTING_SMTP_SERVER = "Was unable to connect to SMTP server";
+	static final String RATE_LIMIT_INTERRUPTED = "Interrupted while waiting for the rate limit to allow sending the email";
+	static final String PAUSE_INTERRUPTED = "Interrupted while waiting for sending to be resumed";
+	static final String OUTBOX_UNAVAILABLE = "Unable to open outbox in directory %s";
+	static final String OUTBOX_WRITE_FAILED = "Unable to store email in outbox";
+	static final String MAILER_SHUT_DOWN = "Mailer has been shut down and no longer accepts emails";
 	
 	MailSenderException(@SuppressWarnings("SameParameterValue") final String message) {
 		super(message);
@@ -0,0 +1,197 @@
+package org.simplejavamail.mailer.internal.mailsender;
+
+import org.simplejavamail.mailer.MailerMetrics;
+import org.simplejavamail.mailer.internal.socks.socks5server.AnonymousSocks5Server;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+/**
+ * The {@link MailerMXBean} of a {@link MailSender}, which also registers the MBean of its proxy bridge (if any).
+ * <p>
+ * Counts the sent and failed emails by receiving the outcome of every email as {@link MailerMetrics}, so the counting costs nothing unless JMX is
+ * enabled.
+ */
+class MailerJmx implements MailerMXBean, MailerMetrics {
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(MailerJmx.class);
+	
+	private static final AtomicInteger MAILER_COUNTER = new AtomicInteger();
+	
+	@Nonnull private final MailSender mailSender;
+	@Nonnull private final String name;
+	private final AtomicLong sentCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+	private final SentPerSecond sentPerSecond = new SentPerSecond();
+	private final List<ObjectName> registeredNames = new ArrayList<>();
+	
+	MailerJmx(@Nonnull final MailSender mailSender) {
+		this.mailSender = mailSender;
+		this.name = "mailer-" + MAILER_COUNTER.incrementAndGet();
+	}
+	
+	/**
+	 * Registers the MBeans with the platform MBean server. Failing to do so is logged, but doesn't stop the Mailer from working.
+	 */
+	void register(@Nullable final AnonymousSocks5Server proxyServer) {
+		register(format("org.simplejavamail:type=Mailer,name=%s", name), this);
+		if (proxyServer != null) {
+			register(format("org.simplejavamail:type=ProxyBridge,name=%s", name), proxyServer);
+		}
+	}
+	
+	private synchronized void register(@Nonnull final String objectName, @Nonnull final Object mbean) {
+		try {
+			final ObjectName name = new ObjectName(objectName);
+			ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, name);
+			registeredNames.add(name);
+		} catch (final JMException e) {
+			LOGGER.warn("Unable to register MBean " + objectName, e);
+		}
+	}
+	
+	synchronized void unregister() {
+		final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		for (final ObjectName name : registeredNames) {
+			try {
+				mBeanServer.unregisterMBean(name);
+			} catch (final JMException e) {
+				LOGGER.debug("Unable to unregister MBean " + name, e);
+			}
+		}
+		registeredNames.clear();
+	}
+	
+	@Override
+	public int getSendsInProgress() {
+		return mailSender.getSendsInProgress();
+	}
+	
+	@Override
+	public int getAsyncQueueDepth() {
+		return mailSender.getAsyncQueueDepth();
+	}
+	
+	@Override
+	public int getThreadPoolSize() {
+		return mailSender.getOperationalConfig().getThreadPoolSize();
+	}
+	
+	@Override
+	public int getPooledConnections() {
+		return mailSender.getPooledConnections();
+	}
+	
+	@Override
+	public long getSentCount() {
+		return sentCount.get();
+	}
+	
+	@Override
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+	
+	@Override
+	public long getSentLastMinute() {
+		return sentPerSecond.sumLastMinute(System.currentTimeMillis() / 1000);
+	}
+	
+	@Override
+	public boolean isPaused() {
+		return mailSender.isPaused();
+	}
+	
+	@Override
+	public boolean isShutdown() {
+		return mailSender.isShutdown();
+	}
+	
+	@Override
+	public void pauseSending() {
+		LOGGER.info("sending paused through JMX");
+		mailSender.pause();
+	}
+	
+	@Override
+	public void resumeSending() {
+		LOGGER.info("sending resumed through JMX");
+		mailSender.resume();
+	}
+	
+	@Override
+	public boolean drainQueue(final long timeoutMillis) {
+		try {
+			return mailSender.awaitIdle(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+	
+	@Override
+	public void sendCompleted(final boolean sent, final long durationNanos) {
+		if (sent) {
+			sentCount.incrementAndGet();
+			sentPerSecond.increment(System.currentTimeMillis() / 1000);
+		} else {
+			failedCount.incrementAndGet();
+		}
+	}
+	
+	@Override
+	public void stageCompleted(@Nonnull final Stage stage, final long durationNanos) {
+	}
+	
+	@Override
+	public void messageSize(final long bytes) {
+	}
+	
+	@Override
+	public void queueWait(final long durationNanos) {
+	}
+	
+	@Override
+	public void poolOccupancy(final int activeSends, final int queuedSends) {
+	}
+	
+	/**
+	 * Counts per second for the last minute, in a ring of 60 slots that are reused as the seconds go by.
+	 */
+	private static class SentPerSecond {
+		private final long[] seconds = new long[60];
+		private final long[] counts = new long[60];
+		
+		synchronized void increment(final long second) {
+			final int slot = (int) (second % 60);
+			if (seconds[slot] != second) {
+				seconds[slot] = second;
+				counts[slot] = 0;
+			}
+			counts[slot]++;
+		}
+		
+		synchronized long sumLastMinute(final long currentSecond) {
+			long sum = 0;
+			for (int slot = 0; slot < 60; slot++) {
+				if (currentSecond - seconds[slot] < 60) {
+					sum += counts[slot];
+				}
+			}
+			return sum;
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package org.simplejavamail.mailer.internal.mailsender;
+
+/**
+ * Live state of a {@link org.simplejavamail.mailer.Mailer} and the operations that are safe to perform on it while it is running, as registered
+ * with JMX when enabled with {@link org.simplejavamail.mailer.MailerGenericBuilder#withJmxEnabled(Boolean)}.
+ */
+public interface MailerMXBean {
+	
+	/**
+	 * @return The number of emails being sent or waiting in the async queue, including open bulk sends and connection tests.
+	 */
+	int getSendsInProgress();
+	
+	/**
+	 * @return The number of async emails waiting for a free thread.
+	 */
+	int getAsyncQueueDepth();
+	
+	/**
+	 * @return The maximum number of async emails sent at the same time.
+	 */
+	int getThreadPoolSize();
+	
+	/**
+	 * @return The number of connected transports in the connection pool, waiting to be reused.
+	 */
+	int getPooledConnections();
+	
+	/**
+	 * @return The number of emails sent since the Mailer was created.
+	 */
+	long getSentCount();
+	
+	/**
+	 * @return The number of emails that failed for good since the Mailer was created, including emails that didn't pass validation.
+	 */
+	long getFailedCount();
+	
+	/**
+	 * @return The number of emails sent during the last minute.
+	 */
+	long getSentLastMinute();
+	
+	boolean isPaused();
+	
+	boolean isShutdown();
+	
+	/**
+	 * Holds every email right before it would be handed to the SMTP server, until {@link #resumeSending()}. Async emails keep being accepted
+	 * until the queue is full, synchronous senders are blocked.
+	 */
+	void pauseSending();
+	
+	void resumeSending();
+	
+	/**
+	 * Waits until no emails are being sent or waiting in the queue. New emails are still accepted in the meantime, and a paused Mailer doesn't
+	 * drain until it is resumed.
+	 *
+	 * @return Whether the Mailer became idle before the timeout elapsed.
+	 */
+	boolean drainQueue(long timeoutMillis);
+}
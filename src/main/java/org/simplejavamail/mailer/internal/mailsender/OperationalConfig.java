@@ -1,11 +1,19 @@
 package org.simplejavamail.mailer.internal.mailsender;
 
 import org.simplejavamail.mailer.MailerGenericBuilder;
+import org.simplejavamail.mailer.MailerMetrics;
+import org.simplejavamail.mailer.config.AsyncQueueOverflowPolicy;
+import org.simplejavamail.mailer.config.RateLimit;
+import org.simplejavamail.mailer.config.RetryPolicy;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Contains all the configuration that affect how a {@link org.simplejavamail.mailer.Mailer} operates. This includes connection settings such as
@@ -29,6 +37,113 @@ public class OperationalConfig {
 	 */
 	private final int threadPoolSize;
 	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withThreadPoolQueueCapacity(Integer)
+	 */
+	private final int threadPoolQueueCapacity;
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withThreadPoolQueueOverflowPolicy(AsyncQueueOverflowPolicy)
+	 */
+	@Nonnull
+	private final AsyncQueueOverflowPolicy threadPoolQueueOverflowPolicy;
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withThreadPoolKeepAliveTime(Integer)
+	 */
+	private final int threadPoolKeepAliveTime;
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withVirtualThreads(Boolean)
+	 */
+	private final boolean virtualThreads;
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withExecutorService(ExecutorService)
+	 */
+	@Nullable
+	private final ExecutorService executorService;
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withConnectionPoolSize(Integer)
+	 */
+	private final int connectionPoolSize;
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withConnectionPoolIdleTimeout(Integer)
+	 */
+	private final int connectionPoolIdleTimeout;
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withConnectionPoolMaxMessagesPerConnection(Integer)
+	 */
+	private final int connectionPoolMaxMessagesPerConnection;
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withMaxRecipientsPerTransaction(Integer)
+	 */
+	private final int maxRecipientsPerTransaction;
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withMaxConcurrentSendsPerDomain(Integer)
+	 */
+	private final int maxConcurrentSendsPerDomain;
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withRateLimit(RateLimit)
+	 */
+	private final List<RateLimit> rateLimits;
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withRetryPolicy(RetryPolicy)
+	 */
+	@Nullable
+	private final RetryPolicy retryPolicy;
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withOutboxDirectory(File)
+	 */
+	@Nullable
+	private final File outboxDirectory;
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withMetrics(MailerMetrics)
+	 */
+	@Nullable
+	private final MailerMetrics metrics;
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withJmxEnabled(Boolean)
+	 */
+	private final boolean jmxEnabled;
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withDiagnosticCaptureDirectory(File)
+	 */
+	@Nullable
+	private final File diagnosticCaptureDirectory;
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withDiagnosticCaptureSampleRate(Integer)
+	 */
+	private final int diagnosticCaptureSampleRate;
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withAttachmentCacheMaxBytes(Long)
+	 */
+	private final long attachmentCacheMaxBytes;
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withAttachmentCacheSpillDirectory(File)
+	 */
+	@Nullable
+	private final File attachmentCacheSpillDirectory;
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withAttachmentCacheEncodingThreads(Integer)
+	 */
+	private final int attachmentCacheEncodingThreads;
+	
 	/**
 	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withTransportModeLoggingOnly(Boolean)
 	 */
@@ -52,10 +167,36 @@ public class OperationalConfig {
 	/**
 	 * For internal use only.
 	 */
-	public OperationalConfig(@Nonnull Properties properties, int sessionTimeout, int threadPoolSize, boolean transportModeLoggingOnly, boolean debugLogging, List<String> sslHostsToTrust, boolean trustAllSSLHost) {
+	public OperationalConfig(@Nonnull Properties properties, int sessionTimeout, int threadPoolSize, int threadPoolQueueCapacity,
+			@Nonnull AsyncQueueOverflowPolicy threadPoolQueueOverflowPolicy, int threadPoolKeepAliveTime, boolean virtualThreads,
+			@Nullable ExecutorService executorService, int maxConcurrentSendsPerDomain, int connectionPoolSize, int connectionPoolIdleTimeout, int connectionPoolMaxMessagesPerConnection,
+			int maxRecipientsPerTransaction, List<RateLimit> rateLimits, @Nullable RetryPolicy retryPolicy, @Nullable File outboxDirectory,
+			@Nullable MailerMetrics metrics, boolean jmxEnabled,
+			@Nullable File diagnosticCaptureDirectory, int diagnosticCaptureSampleRate, long attachmentCacheMaxBytes,
+			@Nullable File attachmentCacheSpillDirectory, int attachmentCacheEncodingThreads, boolean transportModeLoggingOnly, boolean debugLogging, List<String> sslHostsToTrust, boolean trustAllSSLHost) {
 		this.properties = properties;
 		this.sessionTimeout = sessionTimeout;
 		this.threadPoolSize = threadPoolSize;
+		this.threadPoolQueueCapacity = threadPoolQueueCapacity;
+		this.threadPoolQueueOverflowPolicy = threadPoolQueueOverflowPolicy;
+		this.threadPoolKeepAliveTime = threadPoolKeepAliveTime;
+		this.virtualThreads = virtualThreads;
+		this.executorService = executorService;
+		this.maxConcurrentSendsPerDomain = maxConcurrentSendsPerDomain;
+		this.connectionPoolSize = connectionPoolSize;
+		this.connectionPoolIdleTimeout = connectionPoolIdleTimeout;
+		this.connectionPoolMaxMessagesPerConnection = connectionPoolMaxMessagesPerConnection;
+		this.maxRecipientsPerTransaction = maxRecipientsPerTransaction;
+		this.rateLimits = Collections.unmodifiableList(new ArrayList<>(rateLimits));
+		this.retryPolicy = retryPolicy;
+		this.outboxDirectory = outboxDirectory;
+		this.metrics = metrics;
+		this.jmxEnabled = jmxEnabled;
+		this.diagnosticCaptureDirectory = diagnosticCaptureDirectory;
+		this.diagnosticCaptureSampleRate = diagnosticCaptureSampleRate;
+		this.attachmentCacheMaxBytes = attachmentCacheMaxBytes;
+		this.attachmentCacheSpillDirectory = attachmentCacheSpillDirectory;
+		this.attachmentCacheEncodingThreads = attachmentCacheEncodingThreads;
 		this.transportModeLoggingOnly = transportModeLoggingOnly;
 		this.debugLogging = debugLogging;
 		this.sslHostsToTrust = Collections.unmodifiableList(sslHostsToTrust);
@@ -76,6 +217,153 @@ public class OperationalConfig {
 		return threadPoolSize;
 	}
 	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withThreadPoolQueueCapacity(Integer)
+	 */
+	public int getThreadPoolQueueCapacity() {
+		return threadPoolQueueCapacity;
+	}
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withThreadPoolQueueOverflowPolicy(AsyncQueueOverflowPolicy)
+	 */
+	@Nonnull
+	public AsyncQueueOverflowPolicy getThreadPoolQueueOverflowPolicy() {
+		return threadPoolQueueOverflowPolicy;
+	}
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withThreadPoolKeepAliveTime(Integer)
+	 */
+	public int getThreadPoolKeepAliveTime() {
+		return threadPoolKeepAliveTime;
+	}
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withVirtualThreads(Boolean)
+	 */
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withExecutorService(ExecutorService)
+	 */
+	@Nullable
+	public ExecutorService getExecutorService() {
+		return executorService;
+	}
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withConnectionPoolSize(Integer)
+	 */
+	public int getConnectionPoolSize() {
+		return connectionPoolSize;
+	}
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withConnectionPoolIdleTimeout(Integer)
+	 */
+	public int getConnectionPoolIdleTimeout() {
+		return connectionPoolIdleTimeout;
+	}
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withConnectionPoolMaxMessagesPerConnection(Integer)
+	 */
+	public int getConnectionPoolMaxMessagesPerConnection() {
+		return connectionPoolMaxMessagesPerConnection;
+	}
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withMaxRecipientsPerTransaction(Integer)
+	 */
+	public int getMaxRecipientsPerTransaction() {
+		return maxRecipientsPerTransaction;
+	}
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withMaxConcurrentSendsPerDomain(Integer)
+	 */
+	public int getMaxConcurrentSendsPerDomain() {
+		return maxConcurrentSendsPerDomain;
+	}
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withRateLimit(RateLimit)
+	 */
+	public List<RateLimit> getRateLimits() {
+		return rateLimits;
+	}
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withRetryPolicy(RetryPolicy)
+	 */
+	@Nullable
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withOutboxDirectory(File)
+	 */
+	@Nullable
+	public File getOutboxDirectory() {
+		return outboxDirectory;
+	}
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withMetrics(MailerMetrics)
+	 */
+	@Nullable
+	public MailerMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withJmxEnabled(Boolean)
+	 */
+	public boolean isJmxEnabled() {
+		return jmxEnabled;
+	}
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withDiagnosticCaptureDirectory(File)
+	 */
+	@Nullable
+	public File getDiagnosticCaptureDirectory() {
+		return diagnosticCaptureDirectory;
+	}
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withDiagnosticCaptureSampleRate(Integer)
+	 */
+	public int getDiagnosticCaptureSampleRate() {
+		return diagnosticCaptureSampleRate;
+	}
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withAttachmentCacheMaxBytes(Long)
+	 */
+	public long getAttachmentCacheMaxBytes() {
+		return attachmentCacheMaxBytes;
+	}
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withAttachmentCacheSpillDirectory(File)
+	 */
+	@Nullable
+	public File getAttachmentCacheSpillDirectory() {
+		return attachmentCacheSpillDirectory;
+	}
+	
+	/**
+	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withAttachmentCacheEncodingThreads(Integer)
+	 */
+	public int getAttachmentCacheEncodingThreads() {
+		return attachmentCacheEncodingThreads;
+	}
+	
 	/**
 	 * @see org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder#withTransportModeLoggingOnly(Boolean)
 	 */
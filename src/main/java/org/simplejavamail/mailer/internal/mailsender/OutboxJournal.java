@@ -0,0 +1,484 @@
+package org.simplejavamail.mailer.internal.mailsender;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static java.lang.String.format;
+
+/**
+ * Append-only journal of async emails that were accepted but not yet sent, so they survive a JVM restart.
+ * <p>
+ * Every accepted email is appended as an <em>accepted</em> record holding the raw MIME message, and a <em>done</em> record is appended once it
+ * reached its final outcome. Records are written to segment files, which roll over when they grow too large and are deleted as soon as all
+ * emails in them (and in all older segments) are done. On startup, emails that were accepted but never done are handed out again by {@link
+ * #takeUnfinishedEntries()}. Delivery is thus <em>at least once</em>: an email may be sent twice if the JVM stops right after sending it.
+ * <p>
+ * An email is only considered accepted once its record has been forced to disk. To keep up with many concurrent senders, forcing is done with
+ * <em>group commit</em>: the first thread to need a sync forces everything written so far, while threads arriving in the meantime wait for the
+ * next sync to cover their record too, so a burst of emails shares a handful of syncs rather than each paying for its own. Done records are not
+ * forced individually, as losing one only means sending the email again.
+ * <p>
+ * Record layout: <code>type (1 byte) | id (8 bytes) | content length (4 bytes) | content | CRC32 of all previous fields (4 bytes)</code>. A
+ * record that is truncated or fails its checksum marks the end of a segment, as happens when the JVM stops halfway through a write. The content
+ * of an accepted record is <code>envelope sender length (2 bytes, -1 if none) | envelope sender (UTF-8) | raw MIME message</code>, as the
+ * envelope sender (the bounce-to address) is not part of the message itself.
+ */
+class OutboxJournal implements Closeable {
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(OutboxJournal.class);
+	
+	static final String SEGMENT_PREFIX = "outbox-";
+	static final String SEGMENT_SUFFIX = ".journal";
+	
+	/**
+	 * Large enough for thousands of emails, small enough to be cleaned up soon after they have been sent.
+	 */
+	static final long DEFAULT_MAX_SEGMENT_BYTES = 64L * 1024 * 1024;
+	
+	private static final byte ACCEPTED = 1;
+	private static final byte DONE = 2;
+	private static final int HEADER_SIZE = 1 + 8 + 4;
+	private static final int TRAILER_SIZE = 4;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	@Nonnull private final File directory;
+	private final long maxSegmentBytes;
+	
+	/**
+	 * Oldest first, the last one being the segment currently written to. Guarded by this.
+	 */
+	private final LinkedList<Segment> segments = new LinkedList<>();
+	
+	/**
+	 * The segment holding the accepted record for each email not done yet. Guarded by this.
+	 */
+	private final Map<Long, Segment> pendingEntries = new HashMap<>();
+	
+	private final List<Entry> unfinishedEntries = new ArrayList<>();
+	
+	private long nextId; // guarded by this
+	private boolean closed; // guarded by this
+	
+	/**
+	 * Opens the journal in the given directory, recovering unfinished entries from existing segments, and starts a new segment for new entries.
+	 */
+	OutboxJournal(@Nonnull final File directory, final long maxSegmentBytes)
+			throws IOException {
+		this.directory = directory;
+		this.maxSegmentBytes = maxSegmentBytes;
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("unable to create outbox directory " + directory);
+		}
+		recover();
+		synchronized (this) {
+			final long lastSequence = segments.isEmpty() ? 0 : segments.getLast().sequence;
+			segments.add(Segment.create(directory, lastSequence + 1));
+			deleteFinishedSegments();
+		}
+	}
+	
+	/**
+	 * @return The entries found in the journal on startup that were never done, in the order in which they were accepted. Returned only once, so
+	 * the journal doesn't hold on to their content.
+	 */
+	@Nonnull
+	synchronized List<Entry> takeUnfinishedEntries() {
+		final List<Entry> entries = new ArrayList<>(unfinishedEntries);
+		unfinishedEntries.clear();
+		return entries;
+	}
+	
+	/**
+	 * Appends the message as an accepted entry and returns once it has been forced to disk.
+	 *
+	 * @param envelopeFrom The envelope sender the message is sent with, if it differs from its from address.
+	 * @param content      The raw MIME message.
+	 * @return The id with which the entry should be marked done.
+	 */
+	long append(@Nullable final String envelopeFrom, @Nonnull final byte[] content)
+			throws IOException {
+		final byte[] sender = encodeEnvelopeFrom(envelopeFrom);
+		final long id;
+		final Segment segment;
+		final long endPosition;
+		synchronized (this) {
+			if (closed) {
+				throw new IOException("outbox journal has been closed");
+			}
+			if (segments.getLast().writtenBytes >= maxSegmentBytes) {
+				rollSegment();
+			}
+			id = nextId++;
+			segment = segments.getLast();
+			endPosition = segment.write(ACCEPTED, id, sender, content);
+			segment.pendingEntries++;
+			pendingEntries.put(id, segment);
+		}
+		segment.awaitDurable(endPosition);
+		return id;
+	}
+	
+	/**
+	 * Records that the entry reached its final outcome, so it won't be handed out again on startup.
+	 */
+	synchronized void markDone(final long id)
+			throws IOException {
+		final Segment segment = pendingEntries.remove(id);
+		if (segment == null || closed) {
+			return;
+		}
+		segments.getLast().write(DONE, id);
+		segment.pendingEntries--;
+		deleteFinishedSegments();
+	}
+	
+	@Override
+	public synchronized void close()
+			throws IOException {
+		if (!closed) {
+			closed = true;
+			final Segment current = segments.getLast();
+			current.forceAll();
+			current.channel.close();
+		}
+	}
+	
+	/**
+	 * Forces the full segment to disk, so threads waiting for their records in it are released, and continues in a new segment.
+	 */
+	private void rollSegment()
+			throws IOException {
+		final Segment full = segments.getLast();
+		full.forceAll();
+		full.channel.close();
+		segments.add(Segment.create(directory, full.sequence + 1));
+	}
+	
+	/**
+	 * Deletes segments from the oldest onwards, for as long as all their entries are done. A segment can't be deleted while an older segment still
+	 * has pending entries, because it may contain the done records for them.
+	 */
+	private void deleteFinishedSegments() {
+		while (segments.size() > 1 && segments.getFirst().pendingEntries == 0) {
+			final Segment finished = segments.removeFirst();
+			if (!finished.file.delete()) {
+				LOGGER.warn("unable to delete finished outbox segment {}", finished.file);
+			}
+		}
+	}
+	
+	private void recover()
+			throws IOException {
+		final Map<Long, Entry> accepted = new LinkedHashMap<>();
+		final Map<Long, Segment> acceptedIn = new HashMap<>();
+		long maxId = -1;
+		for (final File file : listSegmentFiles()) {
+			final Segment segment = Segment.forRecovery(file);
+			segments.add(segment);
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+				Record record;
+				while ((record = readRecord(in, file)) != null) {
+					maxId = Math.max(maxId, record.id);
+					if (record.type == ACCEPTED) {
+						accepted.put(record.id, decodeAccepted(record));
+						acceptedIn.put(record.id, segment);
+					} else {
+						accepted.remove(record.id);
+						acceptedIn.remove(record.id);
+					}
+				}
+			}
+		}
+		for (final Entry entry : accepted.values()) {
+			final Segment segment = acceptedIn.get(entry.id);
+			segment.pendingEntries++;
+			pendingEntries.put(entry.id, segment);
+			unfinishedEntries.add(entry);
+		}
+		nextId = maxId + 1;
+		if (!unfinishedEntries.isEmpty()) {
+			LOGGER.info("recovered {} unfinished emails from outbox {}", unfinishedEntries.size(), directory);
+		}
+	}
+	
+	@Nonnull
+	private List<File> listSegmentFiles() {
+		final File[] files = directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(final File dir, final String name) {
+				return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX) && Segment.parseSequence(name) >= 0;
+			}
+		});
+		final List<File> segmentFiles = files != null ? Arrays.asList(files) : Collections.<File>emptyList();
+		Collections.sort(segmentFiles, new Comparator<File>() {
+			@Override
+			public int compare(final File f1, final File f2) {
+				return Long.compare(Segment.parseSequence(f1.getName()), Segment.parseSequence(f2.getName()));
+			}
+		});
+		return segmentFiles;
+	}
+	
+	/**
+	 * @return The next record, or <code>null</code> at the end of the segment or at the first incomplete or corrupt record.
+	 */
+	private static Record readRecord(@Nonnull final DataInputStream in, @Nonnull final File file)
+			throws IOException {
+		try {
+			final int type = in.read();
+			if (type == -1) {
+				return null;
+			}
+			final long id = in.readLong();
+			final int length = in.readInt();
+			if ((type != ACCEPTED && type != DONE) || length < 0 || length > file.length()) {
+				LOGGER.warn("ignoring corrupt tail of outbox segment {}", file);
+				return null;
+			}
+			final byte[] content = new byte[length];
+			in.readFully(content);
+			final int checksum = in.readInt();
+			if (checksum != checksum((byte) type, id, content)) {
+				LOGGER.warn("ignoring corrupt tail of outbox segment {}", file);
+				return null;
+			}
+			return new Record((byte) type, id, content);
+		} catch (final EOFException e) {
+			LOGGER.warn("ignoring incomplete record at the end of outbox segment {}", file);
+			return null;
+		}
+	}
+	
+	/**
+	 * @param parts Together making up the content of the record.
+	 */
+	private static int checksum(final byte type, final long id, @Nonnull final byte[]... parts) {
+		final CRC32 crc = new CRC32();
+		crc.update(ByteBuffer.allocate(HEADER_SIZE).put(type).putLong(id).putInt(length(parts)).array());
+		for (final byte[] part : parts) {
+			crc.update(part);
+		}
+		return (int) crc.getValue();
+	}
+	
+	private static int length(@Nonnull final byte[]... parts) {
+		int length = 0;
+		for (final byte[] part : parts) {
+			length += part.length;
+		}
+		return length;
+	}
+	
+	@Nonnull
+	private static byte[] encodeEnvelopeFrom(@Nullable final String envelopeFrom) {
+		final byte[] address = (envelopeFrom != null) ? envelopeFrom.getBytes(UTF_8) : new byte[0];
+		if (address.length > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("envelope sender too long: " + envelopeFrom);
+		}
+		return ByteBuffer.allocate(2 + address.length).putShort((short) (envelopeFrom != null ? address.length : -1)).put(address).array();
+	}
+	
+	@Nonnull
+	private static Entry decodeAccepted(@Nonnull final Record record)
+			throws IOException {
+		final ByteBuffer content = ByteBuffer.wrap(record.content);
+		try {
+			final short senderLength = content.getShort();
+			String envelopeFrom = null;
+			if (senderLength >= 0) {
+				envelopeFrom = new String(record.content, content.position(), senderLength, UTF_8);
+				content.position(content.position() + senderLength);
+			}
+			return new Entry(record.id, envelopeFrom, Arrays.copyOfRange(record.content, content.position(), record.content.length));
+		} catch (final RuntimeException e) {
+			throw new IOException("unreadable accepted record " + record.id + " in outbox", e);
+		}
+	}
+	
+	/**
+	 * An email that was accepted into the journal. The content is the raw MIME message as produced by {@link
+	 * javax.mail.internet.MimeMessage#writeTo(java.io.OutputStream)}.
+	 */
+	static class Entry {
+		final long id;
+		@Nullable final String envelopeFrom;
+		@Nonnull final byte[] content;
+		
+		Entry(final long id, @Nullable final String envelopeFrom, @Nonnull final byte[] content) {
+			this.id = id;
+			this.envelopeFrom = envelopeFrom;
+			this.content = content;
+		}
+	}
+	
+	private static class Record {
+		final byte type;
+		final long id;
+		@Nonnull final byte[] content;
+		
+		Record(final byte type, final long id, @Nonnull final byte[] content) {
+			this.type = type;
+			this.id = id;
+			this.content = content;
+		}
+	}
+	
+	private static class Segment {
+		final long sequence;
+		@Nonnull final File file;
+		
+		/**
+		 * Only available for the segment being written to.
+		 */
+		final FileChannel channel;
+		
+		/**
+		 * Guarded by the journal.
+		 */
+		int pendingEntries;
+		
+		/**
+		 * Written under the journal's lock, read by threads performing a sync.
+		 */
+		volatile long writtenBytes;
+		
+		// group commit, guarded by this
+		private long durableBytes;
+		private boolean syncInProgress;
+		
+		private Segment(final long sequence, @Nonnull final File file, final FileChannel channel) {
+			this.sequence = sequence;
+			this.file = file;
+			this.channel = channel;
+		}
+		
+		static Segment create(@Nonnull final File directory, final long sequence)
+				throws IOException {
+			final File file = new File(directory, format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+			@SuppressWarnings("resource")
+			final FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+			channel.truncate(0);
+			return new Segment(sequence, file, channel);
+		}
+		
+		static Segment forRecovery(@Nonnull final File file) {
+			return new Segment(parseSequence(file.getName()), file, null);
+		}
+		
+		static long parseSequence(@Nonnull final String fileName) {
+			try {
+				return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+			} catch (final NumberFormatException e) {
+				return -1;
+			}
+		}
+		
+		/**
+		 * Must be called under the journal's lock, so records don't interleave.
+		 *
+		 * @param parts Written one after the other as the content of the record.
+		 * @return The position right after the written record.
+		 */
+		long write(final byte type, final long id, @Nonnull final byte[]... parts)
+				throws IOException {
+			final int length = length(parts);
+			final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + length + TRAILER_SIZE);
+			buffer.put(type).putLong(id).putInt(length);
+			for (final byte[] part : parts) {
+				buffer.put(part);
+			}
+			buffer.putInt(checksum(type, id, parts));
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			writtenBytes += buffer.limit();
+			return writtenBytes;
+		}
+		
+		/**
+		 * Returns once everything up to the given position is on disk. If no sync is in progress, the calling thread performs one covering
+		 * everything written so far, otherwise it waits for the running sync and checks again.
+		 */
+		void awaitDurable(final long position)
+				throws IOException {
+			synchronized (this) {
+				while (durableBytes < position) {
+					if (!syncInProgress) {
+						syncInProgress = true;
+						break;
+					}
+					try {
+						wait();
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("interrupted while waiting for the outbox to sync");
+					}
+				}
+				if (durableBytes >= position) {
+					return;
+				}
+			}
+			final long syncedPosition = writtenBytes;
+			boolean synced = false;
+			try {
+				channel.force(false);
+				synced = true;
+			} catch (final ClosedChannelException e) {
+				// rolled over or closed in the meantime, which forces everything before closing
+				synchronized (this) {
+					if (durableBytes < position) {
+						throw e;
+					}
+				}
+			} finally {
+				synchronized (this) {
+					syncInProgress = false;
+					if (synced) {
+						durableBytes = Math.max(durableBytes, syncedPosition);
+					}
+					notifyAll();
+				}
+			}
+		}
+		
+		/**
+		 * Forces everything written so far, for when the segment is about to be closed.
+		 */
+		void forceAll()
+				throws IOException {
+			channel.force(false);
+			synchronized (this) {
+				durableBytes = writtenBytes;
+				notifyAll();
+			}
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package org.simplejavamail.mailer.internal.mailsender;
+
+import org.simplejavamail.mailer.config.RateLimit;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies the {@link RateLimit}s of a single Mailer, so sending threads wait for their turn right before an email goes out over the wire.
+ * <p>
+ * Each bucket is implemented as a <em>generic cell rate algorithm</em>: rather than counting tokens, it tracks the theoretical time at which the
+ * bucket would be full again. Taking a token is a single compare-and-set that moves this time forward, so there is no lock to contend on and
+ * a waiting thread sleeps without holding anything that other threads need.
+ */
+class RateLimiter {
+	
+	private final List<Bucket> buckets = new ArrayList<>();
+	
+	/**
+	 * Total time threads spent waiting for a token.
+	 */
+	private final AtomicLong waitTimeNanos = new AtomicLong();
+	
+	RateLimiter(@Nonnull final List<RateLimit> rateLimits) {
+		for (final RateLimit rateLimit : rateLimits) {
+			buckets.add(new Bucket(rateLimit));
+		}
+	}
+	
+	boolean isEnabled() {
+		return !buckets.isEmpty();
+	}
+	
+	/**
+	 * Takes a token from every bucket, waiting as long as needed for each.
+	 *
+	 * @return The time spent waiting, in nanoseconds.
+	 * @throws InterruptedException If the thread was interrupted while waiting. The tokens already reserved are not given back.
+	 */
+	long acquire()
+			throws InterruptedException {
+		long waitedNanos = 0;
+		for (final Bucket bucket : buckets) {
+			final long nanosToWait = bucket.reserve();
+			if (nanosToWait > 0) {
+				TimeUnit.NANOSECONDS.sleep(nanosToWait);
+				waitedNanos += nanosToWait;
+			}
+		}
+		if (waitedNanos > 0) {
+			waitTimeNanos.addAndGet(waitedNanos);
+		}
+		return waitedNanos;
+	}
+	
+	long getWaitTimeNanos() {
+		return waitTimeNanos.get();
+	}
+	
+	private static class Bucket {
+		private final long nanosPerToken;
+		private final long burstNanos;
+		
+		/**
+		 * The moment (in {@link System#nanoTime()}) at which all tokens reserved so far will have been refilled.
+		 */
+		private final AtomicLong theoreticalArrivalTime;
+		
+		Bucket(@Nonnull final RateLimit rateLimit) {
+			this.nanosPerToken = rateLimit.getNanosPerToken();
+			this.burstNanos = nanosPerToken * rateLimit.getBurstSize();
+			this.theoreticalArrivalTime = new AtomicLong(System.nanoTime());
+		}
+		
+		/**
+		 * Reserves a token, which is available right away or after the returned number of nanoseconds.
+		 */
+		long reserve() {
+			while (true) {
+				final long now = System.nanoTime();
+				final long current = theoreticalArrivalTime.get();
+				// nanoTime may overflow, so only compare differences
+				final long next = (current - now > 0 ? current : now) + nanosPerToken;
+				if (theoreticalArrivalTime.compareAndSet(current, next)) {
+					return next - now - burstNanos;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package org.simplejavamail.mailer.internal.mailsender;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.String.format;
+
+/**
+ * Splits the recipients of a message into chunks, for SMTP servers that limit the number of recipients (<code>RCPT TO</code> commands) per
+ * transaction, and sends the chunks in parallel.
+ * <p>
+ * A failing chunk doesn't stop the other chunks from being sent. Afterwards, the failures of all chunks are combined into a single {@link
+ * SendFailedException}, which tells per recipient whether the message was sent, not sent or the address was rejected as invalid.
+ */
+class RecipientChunks {
+	
+	/**
+	 * Sends the message to one chunk of recipients, as a single SMTP transaction.
+	 */
+	interface ChunkSender {
+		void send(@Nonnull Address[] chunk)
+				throws MessagingException;
+	}
+	
+	private RecipientChunks() {
+	}
+	
+	@Nonnull
+	static List<Address[]> split(@Nonnull final Address[] recipients, final int maxChunkSize) {
+		final List<Address[]> chunks = new ArrayList<>();
+		for (int from = 0; from < recipients.length; from += maxChunkSize) {
+			chunks.add(Arrays.copyOfRange(recipients, from, Math.min(from + maxChunkSize, recipients.length)));
+		}
+		return chunks;
+	}
+	
+	/**
+	 * Sends the chunks with up to <code>parallelism</code> threads, one of which is the calling thread. Returns when all chunks have been
+	 * attempted.
+	 *
+	 * @throws SendFailedException If any of the chunks failed, with the addresses of all chunks together and the failure of every failed chunk
+	 *                             {@link MessagingException#getNextException() chained}.
+	 */
+	static void sendInParallel(@Nonnull final List<Address[]> chunks, final int parallelism, @Nonnull final ChunkSender chunkSender)
+			throws SendFailedException {
+		final AtomicInteger nextChunk = new AtomicInteger();
+		// written before the sending thread finishes, which happens-before reading them after Future.get()
+		final MessagingException[] failures = new MessagingException[chunks.size()];
+		
+		final Runnable sendChunks = new Runnable() {
+			@Override
+			public void run() {
+				for (int i = nextChunk.getAndIncrement(); i < chunks.size(); i = nextChunk.getAndIncrement()) {
+					try {
+						chunkSender.send(chunks.get(i));
+					} catch (final MessagingException e) {
+						failures[i] = e;
+					} catch (final RuntimeException e) {
+						failures[i] = new MessagingException(e.getMessage(), e);
+					}
+				}
+			}
+		};
+		
+		final List<Future<?>> helpers = new ArrayList<>();
+		for (int i = 1; i < Math.min(parallelism, chunks.size()); i++) {
+			try {
+				helpers.add(AsyncOperationHelper.recipientChunkSenders().submit(sendChunks));
+			} catch (final RejectedExecutionException e) {
+				// the calling thread sends the remaining chunks by itself
+				break;
+			}
+		}
+		sendChunks.run();
+		awaitHelpers(helpers);
+		
+		reportFailures(chunks, failures);
+	}
+	
+	/**
+	 * Waits for the helpers even when interrupted, as they might still be using the message. The interrupt is restored afterwards.
+	 */
+	private static void awaitHelpers(@Nonnull final List<Future<?>> helpers) {
+		boolean interrupted = false;
+		for (final Future<?> helper : helpers) {
+			while (true) {
+				try {
+					helper.get();
+					break;
+				} catch (final InterruptedException e) {
+					interrupted = true;
+				} catch (final ExecutionException e) {
+					// only errors get here, as sending a chunk catches everything else
+					throw new AssertionError("sending recipient chunk failed unexpectedly", e.getCause());
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private static void reportFailures(@Nonnull final List<Address[]> chunks, @Nonnull final MessagingException[] failures)
+			throws SendFailedException {
+		final Set<Address> validSent = new LinkedHashSet<>();
+		final Set<Address> validUnsent = new LinkedHashSet<>();
+		final Set<Address> invalid = new LinkedHashSet<>();
+		final List<MessagingException> chunkFailures = new ArrayList<>();
+		
+		for (int i = 0; i < chunks.size(); i++) {
+			final MessagingException failure = failures[i];
+			if (failure == null) {
+				Collections.addAll(validSent, chunks.get(i));
+			} else if (failure instanceof SendFailedException) {
+				final SendFailedException sendFailedException = (SendFailedException) failure;
+				addAll(validSent, sendFailedException.getValidSentAddresses());
+				addAll(validUnsent, sendFailedException.getValidUnsentAddresses());
+				addAll(invalid, sendFailedException.getInvalidAddresses());
+				chunkFailures.add(failure);
+			} else {
+				Collections.addAll(validUnsent, chunks.get(i));
+				chunkFailures.add(failure);
+			}
+		}
+		
+		if (!chunkFailures.isEmpty()) {
+			final SendFailedException aggregate = new SendFailedException(format("Sending to %s of %s recipient chunks failed",
+					chunkFailures.size(), chunks.size()), chunkFailures.get(0),
+					validSent.toArray(new Address[0]), validUnsent.toArray(new Address[0]), invalid.toArray(new Address[0]));
+			for (final MessagingException chunkFailure : chunkFailures.subList(1, chunkFailures.size())) {
+				aggregate.setNextException(chunkFailure);
+			}
+			throw aggregate;
+		}
+	}
+	
+	private static void addAll(@Nonnull final Set<Address> addresses, @Nullable final Address[] toAdd) {
+		if (toAdd != null) {
+			Collections.addAll(addresses, toAdd);
+		}
+	}
+}
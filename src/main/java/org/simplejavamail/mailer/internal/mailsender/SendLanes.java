@@ -0,0 +1,235 @@
+package org.simplejavamail.mailer.internal.mailsender;
+
+import org.simplejavamail.email.Email;
+import org.simplejavamail.email.Recipient;
+import org.simplejavamail.mailer.AsyncQueueFullException;
+import org.simplejavamail.mailer.config.AsyncQueueOverflowPolicy;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Divides async sends into lanes, one per recipient domain, in front of the executor that sends them:
+ * <ul>
+ * <li>At most <code>maxConcurrentSendsPerLane</code> sends of a lane run at the same time, so a slow or greylisting domain can't occupy all
+ * threads.</li>
+ * <li>Lanes take turns (round robin), so a large batch for one domain doesn't hold up emails to other domains that were queued after it.</li>
+ * <li>At most <code>queueCapacity</code> sends wait in all lanes together. Beyond that, the {@link AsyncQueueOverflowPolicy} applies, just like
+ * with the thread pool's own queue.</li>
+ * </ul>
+ * Rather than submitting every send to the executor, up to <code>maxWorkers</code> workers are submitted that each keep taking the next send
+ * that is allowed to run. This way the executor's queue never fills up with sends that are not allowed to run yet.
+ */
+class SendLanes {
+	
+	@Nonnull private final Executor executor;
+	private final int maxWorkers;
+	private final int maxConcurrentSendsPerLane;
+	private final int queueCapacity;
+	@Nonnull private final AsyncQueueOverflowPolicy overflowPolicy;
+	
+	// guarded by this
+	private final Map<String, Lane> lanes = new HashMap<>();
+	private final Queue<Lane> readyLanes = new ArrayDeque<>();
+	private int waitingSends;
+	private int workers;
+	
+	SendLanes(@Nonnull final Executor executor, final int maxWorkers, final int maxConcurrentSendsPerLane, final int queueCapacity,
+			  @Nonnull final AsyncQueueOverflowPolicy overflowPolicy) {
+		this.executor = executor;
+		this.maxWorkers = maxWorkers;
+		this.maxConcurrentSendsPerLane = maxConcurrentSendsPerLane;
+		this.queueCapacity = queueCapacity;
+		this.overflowPolicy = overflowPolicy;
+	}
+	
+	/**
+	 * @return The lowercase recipient domain, or for recipients in several domains all of them sorted and comma separated.
+	 */
+	@Nonnull
+	static String determineLane(@Nonnull final Email email) {
+		final TreeSet<String> domains = new TreeSet<>();
+		for (final Recipient recipient : email.getRecipients()) {
+			final String address = recipient.getAddress();
+			domains.add(address.substring(address.lastIndexOf('@') + 1).toLowerCase());
+		}
+		final StringBuilder lane = new StringBuilder();
+		for (final String domain : domains) {
+			lane.append(lane.length() > 0 ? "," : "").append(domain);
+		}
+		return lane.toString();
+	}
+	
+	/**
+	 * Queues the send in its lane, applying the overflow policy if all lanes together are at capacity.
+	 *
+	 * @return Whether the send was queued, or should be run by the caller instead ({@link AsyncQueueOverflowPolicy#CALLER_RUNS}).
+	 */
+	boolean submit(@Nonnull final String laneKey, @Nonnull final Runnable send) {
+		synchronized (this) {
+			if (!admit()) {
+				return false;
+			}
+			enqueue(laneKey, send);
+		}
+		startWorkerIfNeeded(laneKey, send);
+		return true;
+	}
+	
+	/**
+	 * Queues a send that was admitted before, such as a retry or an email recovered from the outbox, regardless of capacity.
+	 */
+	void resubmit(@Nonnull final String laneKey, @Nonnull final Runnable send) {
+		synchronized (this) {
+			enqueue(laneKey, send);
+		}
+		startWorkerIfNeeded(laneKey, send);
+	}
+	
+	/**
+	 * @return The number of sends waiting in all lanes together.
+	 */
+	synchronized int getQueueDepth() {
+		return waitingSends;
+	}
+	
+	// guarded by this
+	private boolean admit() {
+		if (waitingSends < queueCapacity) {
+			return true;
+		}
+		switch (overflowPolicy) {
+			case BLOCK:
+				try {
+					while (waitingSends >= queueCapacity) {
+						wait();
+					}
+					return true;
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RejectedExecutionException("interrupted while waiting for room in the queue", e);
+				}
+			case FAIL_FAST:
+				throw new AsyncQueueFullException(queueCapacity);
+			case CALLER_RUNS:
+				return false;
+			default:
+				throw new AssertionError("unknown overflow policy: " + overflowPolicy);
+		}
+	}
+	
+	// guarded by this
+	private void enqueue(@Nonnull final String laneKey, @Nonnull final Runnable send) {
+		Lane lane = lanes.get(laneKey);
+		if (lane == null) {
+			lane = new Lane(laneKey);
+			lanes.put(laneKey, lane);
+		}
+		lane.waiting.add(send);
+		waitingSends++;
+		markReadyIfAllowed(lane);
+	}
+	
+	private void startWorkerIfNeeded(@Nonnull final String laneKey, @Nonnull final Runnable send) {
+		synchronized (this) {
+			if (workers >= maxWorkers || readyLanes.isEmpty()) {
+				return;
+			}
+			workers++;
+		}
+		try {
+			executor.execute(new Worker());
+		} catch (final RuntimeException e) {
+			synchronized (this) {
+				workers--;
+				final Lane lane = lanes.get(laneKey);
+				if (lane == null || !lane.waiting.remove(send)) {
+					// already taken by another worker, so it will be sent after all
+					return;
+				}
+				waitingSends--;
+				notifyAll();
+				if (lane.waiting.isEmpty()) {
+					// with another send of the lane still running, removeIfIdle() keeps the lane, but it has nothing left to take
+					lane.ready = false;
+					readyLanes.remove(lane);
+				}
+				removeIfIdle(lane);
+			}
+			throw e;
+		}
+	}
+	
+	// guarded by this
+	private void markReadyIfAllowed(@Nonnull final Lane lane) {
+		if (!lane.ready && !lane.waiting.isEmpty() && lane.running < maxConcurrentSendsPerLane) {
+			lane.ready = true;
+			readyLanes.add(lane);
+		}
+	}
+	
+	// guarded by this
+	private void removeIfIdle(@Nonnull final Lane lane) {
+		if (lane.running == 0 && lane.waiting.isEmpty()) {
+			readyLanes.remove(lane);
+			lanes.remove(lane.key);
+		}
+	}
+	
+	/**
+	 * Keeps taking a send from the next lane in turn that is allowed to run another send, until there is none.
+	 */
+	private class Worker implements Runnable {
+		@Override
+		public void run() {
+			while (true) {
+				final Lane lane;
+				final Runnable send;
+				synchronized (SendLanes.this) {
+					lane = readyLanes.poll();
+					if (lane == null) {
+						workers--;
+						return;
+					}
+					lane.ready = false;
+					send = lane.waiting.poll();
+					if (send == null) {
+						// shouldn't happen, as lanes are only ready with a send waiting, but never take a send that isn't there
+						continue;
+					}
+					lane.running++;
+					waitingSends--;
+					SendLanes.this.notifyAll();
+					// back of the line, so other lanes get their turn first
+					markReadyIfAllowed(lane);
+				}
+				try {
+					send.run();
+				} finally {
+					synchronized (SendLanes.this) {
+						lane.running--;
+						markReadyIfAllowed(lane);
+						removeIfIdle(lane);
+					}
+				}
+			}
+		}
+	}
+	
+	private static class Lane {
+		@Nonnull final String key;
+		final Queue<Runnable> waiting = new ArrayDeque<>();
+		int running;
+		boolean ready;
+		
+		Lane(@Nonnull final String key) {
+			this.key = key;
+		}
+	}
+}
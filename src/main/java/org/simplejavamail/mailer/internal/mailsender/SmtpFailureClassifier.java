@@ -0,0 +1,98 @@
+package org.simplejavamail.mailer.internal.mailsender;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import com.sun.mail.smtp.SMTPSenderFailedException;
+import com.sun.mail.util.MailConnectException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tells apart failures that are worth retrying from failures that will fail again, based on the SMTP reply codes JavaMail reports:
+ * <ul>
+ * <li><code>4xx</code> (transient negative completion): the server asks to try again later, so the failure is transient</li>
+ * <li><code>5xx</code> (permanent negative completion): retrying won't help</li>
+ * <li>no reply at all because connecting or talking to the server failed: the failure is transient</li>
+ * </ul>
+ * When several replies are reported (one per rejected recipient for example), a single permanent failure makes the whole failure permanent. And if
+ * the message was already accepted for some recipients, the failure is never considered transient, as retrying would deliver the email twice to
+ * those recipients.
+ */
+public final class SmtpFailureClassifier {
+	
+	/**
+	 * JavaMail reports errors in the SMTP dialog (EHLO, STARTTLS, AUTH) as plain {@link MessagingException} with the server response as message.
+	 */
+	private static final Pattern SMTP_REPLY = Pattern.compile("^\\[?([2-5]\\d\\d)[ \\-].*", Pattern.DOTALL);
+	
+	private SmtpFailureClassifier() {
+	}
+	
+	/**
+	 * For internal use only.
+	 *
+	 * @return Whether the failure of an email points at a problem with the server or the connection to it (rather than the email), meaning
+	 * another server might well succeed.
+	 */
+	public static boolean indicatesServerFailure(@Nonnull final Throwable e) {
+		for (Throwable current = e; current != null; current = current.getCause()) {
+			if (current instanceof MessagingException) {
+				return isTransient((MessagingException) current);
+			}
+		}
+		return false;
+	}
+	
+	static boolean isTransient(@Nonnull final MessagingException e) {
+		if (e instanceof SendFailedException) {
+			final SendFailedException sendFailedException = (SendFailedException) e;
+			if (sendFailedException.getValidSentAddresses() != null && sendFailedException.getValidSentAddresses().length > 0) {
+				return false;
+			}
+		}
+		boolean transientReply = false;
+		for (Throwable current = e; current != null; current = current.getCause()) {
+			final Integer replyCode = findReplyCode(current);
+			if (replyCode != null && replyCode >= 500) {
+				return false;
+			}
+			transientReply |= replyCode != null && replyCode >= 400;
+		}
+		return transientReply || isConnectionFailure(e);
+	}
+	
+	/**
+	 * @return The SMTP reply code reported by the given exception itself (not its causes), or <code>null</code> if it doesn't report one.
+	 */
+	@Nullable
+	static Integer findReplyCode(@Nonnull final Throwable e) {
+		if (e instanceof SMTPSendFailedException) {
+			return ((SMTPSendFailedException) e).getReturnCode();
+		} else if (e instanceof SMTPSenderFailedException) {
+			return ((SMTPSenderFailedException) e).getReturnCode();
+		} else if (e instanceof SMTPAddressFailedException) {
+			return ((SMTPAddressFailedException) e).getReturnCode();
+		} else if (e instanceof MessagingException && e.getMessage() != null) {
+			final Matcher matcher = SMTP_REPLY.matcher(e.getMessage().trim());
+			if (matcher.matches()) {
+				return Integer.valueOf(matcher.group(1));
+			}
+		}
+		return null;
+	}
+	
+	private static boolean isConnectionFailure(@Nonnull final Throwable e) {
+		for (Throwable current = e; current != null; current = current.getCause()) {
+			if (current instanceof MailConnectException || current instanceof IOException) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,229 @@
+package org.simplejavamail.mailer.internal.mailsender;
+
+import com.sun.mail.smtp.SMTPTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps connected and authenticated {@link Transport} instances around for reuse, so that consecutive emails don't each pay for a new TCP connection,
+ * EHLO, STARTTLS and AUTH roundtrip with the SMTP server.
+ * <p>
+ * Transports are claimed for a single message and then released back into the pool. Released transports are kept idle up to a maximum number and
+ * for a maximum amount of time, after which they are closed by a shared daemon thread. Before an idle transport is handed out again, it is
+ * validated with an SMTP <code>RSET</code> command (or simply checked for a live connection if the transport is not an {@link SMTPTransport}).
+ * <p>
+ * A pool size of zero disables pooling altogether: every claimed transport is then closed on release, which is the classic JavaMail behavior.
+ *
+ * @see org.simplejavamail.mailer.MailerGenericBuilder#withConnectionPoolSize(Integer)
+ */
+class TransportPool {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TransportPool.class);
+
+	private static final int SMTP_OK = 250;
+
+	/**
+	 * Shared among all pools, so we don't need a thread per Mailer just to close idle connections. Runs as daemon so it never keeps the JVM alive.
+	 */
+	private static final ScheduledExecutorService IDLE_EVICTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(@Nonnull final Runnable r) {
+			final Thread thread = new Thread(r, "Simple Java Mail idle transport evictor");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	@Nonnull private final Session session;
+	private final int maxIdleTransports;
+	private final int idleTimeoutMillis;
+	private final int maxMessagesPerTransport;
+
+	/**
+	 * Most recently released transports are at the head, so the tail contains the transports that have been idle the longest.
+	 */
+	private final ConcurrentLinkedDeque<PooledTransport> idleTransports = new ConcurrentLinkedDeque<>();
+	private final AtomicInteger idleTransportCount = new AtomicInteger();
+	private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+
+	/**
+	 * @param session                 Used to create new {@link Transport} instances when no idle one is available.
+	 * @param maxIdleTransports       The maximum number of connected transports to keep around while idle. Zero disables pooling.
+	 * @param idleTimeoutMillis       How long a transport may stay idle before it is closed.
+	 * @param maxMessagesPerTransport After how many messages a transport is closed rather than reused.
+	 */
+	TransportPool(@Nonnull final Session session, final int maxIdleTransports, final int idleTimeoutMillis, final int maxMessagesPerTransport) {
+		this.session = session;
+		this.maxIdleTransports = maxIdleTransports;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.maxMessagesPerTransport = maxMessagesPerTransport;
+	}
+
+	/**
+	 * @return A validated idle transport, or a newly connected one if none was available.
+	 */
+	@Nonnull
+	PooledTransport claim()
+			throws MessagingException {
+		PooledTransport pooledTransport;
+		while ((pooledTransport = idleTransports.pollFirst()) != null) {
+			idleTransportCount.decrementAndGet();
+			if (!pooledTransport.isIdleLongerThan(idleTimeoutMillis) && pooledTransport.reset()) {
+				LOGGER.trace("reusing pooled transport");
+				return pooledTransport;
+			}
+			pooledTransport.close();
+		}
+		LOGGER.trace("connecting new transport");
+		final Transport transport = session.getTransport();
+		transport.connect();
+		return new PooledTransport(transport);
+	}
+
+	/**
+	 * Prepares a transport that is being held on to for multiple messages (see {@link MailSender#startBulkSend()}) for its next message: the
+	 * transport is reset with an SMTP <code>RSET</code>, or replaced by another claimed transport if it reached its maximum number of messages or
+	 * failed the reset.
+	 *
+	 * @return The same transport if it is still usable, otherwise another one from {@link #claim()}.
+	 */
+	@Nonnull
+	PooledTransport renew(@Nonnull final PooledTransport pooledTransport)
+			throws MessagingException {
+		if (pooledTransport.messagesSent < maxMessagesPerTransport && pooledTransport.reset()) {
+			return pooledTransport;
+		}
+		pooledTransport.close();
+		return claim();
+	}
+
+	/**
+	 * Puts the transport back in the pool for reuse, unless it shouldn't or can't be reused, in which case it is closed.
+	 *
+	 * @param pooledTransport The transport previously acquired with {@link #claim()}.
+	 * @param reusable        Whether the last interaction left the transport in a known good state.
+	 */
+	void release(@Nonnull final PooledTransport pooledTransport, final boolean reusable) {
+		if (reusable && pooledTransport.messagesSent < maxMessagesPerTransport && reserveIdleSlot()) {
+			pooledTransport.lastReleased = System.nanoTime();
+			idleTransports.offerFirst(pooledTransport);
+			scheduleEviction();
+		} else {
+			pooledTransport.close();
+		}
+	}
+
+	private boolean reserveIdleSlot() {
+		if (idleTransportCount.incrementAndGet() <= maxIdleTransports) {
+			return true;
+		}
+		idleTransportCount.decrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Closes all idle transports, for example because the proxy bridge they were connected through is shutting down.
+	 */
+	void clear() {
+		PooledTransport pooledTransport;
+		while ((pooledTransport = idleTransports.pollLast()) != null) {
+			idleTransportCount.decrementAndGet();
+			pooledTransport.close();
+		}
+	}
+
+	/**
+	 * @return The number of connected transports currently waiting to be reused.
+	 */
+	int getIdleTransportCount() {
+		return idleTransportCount.get();
+	}
+
+	private void scheduleEviction() {
+		if (evictionScheduled.compareAndSet(false, true)) {
+			IDLE_EVICTOR.schedule(new Runnable() {
+				@Override
+				public void run() {
+					evictionScheduled.set(false);
+					evictIdleTransports();
+					if (!idleTransports.isEmpty()) {
+						scheduleEviction();
+					}
+				}
+			}, idleTimeoutMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void evictIdleTransports() {
+		final Iterator<PooledTransport> oldestFirst = idleTransports.descendingIterator();
+		while (oldestFirst.hasNext()) {
+			final PooledTransport pooledTransport = oldestFirst.next();
+			if (pooledTransport.isIdleLongerThan(idleTimeoutMillis) && idleTransports.removeLastOccurrence(pooledTransport)) {
+				idleTransportCount.decrementAndGet();
+				LOGGER.trace("closing idle transport");
+				pooledTransport.close();
+			}
+		}
+	}
+
+	/**
+	 * Keeps track of how often and how recently a transport was used.
+	 */
+	static class PooledTransport {
+
+		@Nonnull private final Transport transport;
+		private int messagesSent;
+		private volatile long lastReleased = System.nanoTime();
+
+		PooledTransport(@Nonnull final Transport transport) {
+			this.transport = transport;
+		}
+
+		void sendMessage(@Nonnull final Message message, @Nonnull final Address[] addresses)
+				throws MessagingException {
+			messagesSent++;
+			transport.sendMessage(message, addresses);
+		}
+
+		private boolean isIdleLongerThan(final int idleTimeoutMillis) {
+			return System.nanoTime() - lastReleased > TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+		}
+
+		/**
+		 * Validates the connection is still alive and resets any lingering SMTP transaction state.
+		 */
+		private boolean reset() {
+			try {
+				return (transport instanceof SMTPTransport)
+						? ((SMTPTransport) transport).simpleCommand("RSET") == SMTP_OK
+						: transport.isConnected();
+			} catch (final MessagingException e) {
+				LOGGER.trace("pooled transport failed validation", e);
+				return false;
+			}
+		}
+
+		private void close() {
+			try {
+				transport.close();
+			} catch (final MessagingException e) {
+				LOGGER.debug("failed to close transport cleanly", e);
+			}
+		}
+	}
+}
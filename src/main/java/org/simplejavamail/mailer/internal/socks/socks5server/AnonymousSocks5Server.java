@@ -11,14 +11,18 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * SOCKS server that accepts anonymous connections from JavaMail.
  * <p>
  * Java Mail only support anonymous SOCKS proxies; in order to support authenticated proxies, we need to create a man-in-the-middle: which is the
  * {@link AnonymousSocks5Server}.
+ * <p>
+ * Keeps count of the sessions and bytes it relays, which can be monitored through JMX (see {@link AnonymousSocks5ServerMXBean}).
  */
-public class AnonymousSocks5Server implements Runnable {
+public class AnonymousSocks5Server implements Runnable, AnonymousSocks5ServerMXBean {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(AnonymousSocks5Server.class);
 
@@ -30,6 +34,10 @@ public class AnonymousSocks5Server implements Runnable {
 	private boolean stopping = false;
 	private boolean running = false;
 
+	private final AtomicInteger activeSessions = new AtomicInteger();
+	private final AtomicLong totalSessions = new AtomicLong();
+	private final AtomicLong bytesRelayed = new AtomicLong();
+
 	public AnonymousSocks5Server(final Socks5Bridge socks5Bridge, final int proxyBridgePort) {
 		this.socks5Bridge = socks5Bridge;
 		this.proxyBridgePort = proxyBridgePort;
@@ -72,7 +80,7 @@ public class AnonymousSocks5Server implements Runnable {
 				@SuppressWarnings("SocketOpenedButNotSafelyClosed") // socket is closed elsewhere
 				final Socket socket = serverSocket.accept();
 				socket.setSoTimeout(10000);
-				threadPool.execute(new Socks5Handler(new SocksSession(socket), socks5Bridge));
+				threadPool.execute(new CountingSession(new Socks5Handler(new SocksSession(socket), socks5Bridge, bytesRelayed)));
 			} catch (final IOException e) {
 				checkIoException(e);
 			}
@@ -93,11 +101,55 @@ public class AnonymousSocks5Server implements Runnable {
 		}
 	}
 
+	@Override
 	public boolean isStopping() {
 		return stopping;
 	}
 
+	@Override
 	public boolean isRunning() {
 		return running;
 	}
+
+	@Override
+	public int getPort() {
+		return proxyBridgePort;
+	}
+
+	@Override
+	public int getActiveSessions() {
+		return activeSessions.get();
+	}
+
+	@Override
+	public long getTotalSessions() {
+		return totalSessions.get();
+	}
+
+	@Override
+	public long getBytesRelayed() {
+		return bytesRelayed.get();
+	}
+
+	/**
+	 * Keeps {@link #activeSessions} up to date while the session is being handled.
+	 */
+	private class CountingSession implements Runnable {
+		private final Socks5Handler handler;
+
+		CountingSession(final Socks5Handler handler) {
+			this.handler = handler;
+		}
+
+		@Override
+		public void run() {
+			activeSessions.incrementAndGet();
+			totalSessions.incrementAndGet();
+			try {
+				handler.run();
+			} finally {
+				activeSessions.decrementAndGet();
+			}
+		}
+	}
 }
\ No newline at end of file
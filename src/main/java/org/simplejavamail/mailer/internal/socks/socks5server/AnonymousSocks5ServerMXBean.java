@@ -0,0 +1,32 @@
+package org.simplejavamail.mailer.internal.socks.socks5server;
+
+/**
+ * Live state of the SOCKS5 bridge in front of an authenticated proxy, as registered with JMX when enabled with {@link
+ * org.simplejavamail.mailer.MailerGenericBuilder#withJmxEnabled(Boolean)}.
+ */
+public interface AnonymousSocks5ServerMXBean {
+
+	boolean isRunning();
+
+	boolean isStopping();
+
+	/**
+	 * @return The local port on which the bridge accepts connections from JavaMail.
+	 */
+	int getPort();
+
+	/**
+	 * @return The number of connections currently being relayed to the proxy.
+	 */
+	int getActiveSessions();
+
+	/**
+	 * @return The number of connections relayed since the bridge was created.
+	 */
+	long getTotalSessions();
+
+	/**
+	 * @return The number of bytes relayed in both directions since the bridge was created.
+	 */
+	long getBytesRelayed();
+}
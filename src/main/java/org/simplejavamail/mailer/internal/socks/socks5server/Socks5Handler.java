@@ -1,5 +1,6 @@
 package org.simplejavamail.mailer.internal.socks.socks5server;
 
+import org.simplejavamail.internal.util.FlightRecorderEventType;
 import org.simplejavamail.mailer.internal.socks.common.Socks5Bridge;
 import org.simplejavamail.mailer.internal.socks.common.SocksException;
 import org.simplejavamail.mailer.internal.socks.socks5server.io.SocketPipe;
@@ -14,6 +15,9 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.simplejavamail.internal.util.FlightRecorderEventType.field;
 
 public class Socks5Handler implements Runnable {
 
@@ -21,25 +25,45 @@ public class Socks5Handler implements Runnable {
 	private static final Logger SOCKS5BRIDGE_LOGGER = LoggerFactory.getLogger("socks5bridge");
 	private static final byte[] METHOD_SELECTION_RESPONSE = { (byte) 0x5, (byte) 0x00 };
 	private static final int CONNECT_COMMAND = 0x01;
+	private static final FlightRecorderEventType SESSION_EVENT = FlightRecorderEventType.define("org.simplejavamail.ProxyBridgeSession",
+			"Proxy Bridge Session", field("sessionId", long.class), field("targetHost", String.class), field("targetPort", int.class),
+			field("reply", String.class), field("bytesRelayed", long.class));
 
 	public static final int VERSION = 0x5;
 
 	private final SocksSession session;
 	private final Socks5Bridge socks5Bridge;
+	private final AtomicLong bytesRelayed;
+
+	// only kept for the flight recorder event
+	private InetAddress targetServerAddress;
+	private int targetServerPort;
+	private ServerReply reply;
+	private SocketPipe pipe;
 
-	public Socks5Handler(final SocksSession session, final Socks5Bridge socks5Bridge) {
+	public Socks5Handler(final SocksSession session, final Socks5Bridge socks5Bridge, final AtomicLong bytesRelayed) {
 		this.session = session;
 		this.socks5Bridge = socks5Bridge;
+		this.bytesRelayed = bytesRelayed;
 	}
 
 	@Override
 	public void run() {
+		final FlightRecorderEventType.Event event = SESSION_EVENT.begin();
 		try {
 			handle(session, socks5Bridge);
 		} catch (final Exception e) {
 			LOGGER.error(e.getMessage(), e);
 		} finally {
 			session.close();
+			if (event != null) {
+				event.set("sessionId", session.getId())
+						.set("targetHost", targetServerAddress != null ? targetServerAddress.getHostAddress() : null)
+						.set("targetPort", targetServerPort)
+						.set("reply", reply != null ? reply.name() : null)
+						.set("bytesRelayed", pipe != null ? pipe.getBytesRelayed() : 0L)
+						.commit();
+			}
 		}
 	}
 
@@ -61,6 +85,7 @@ public class Socks5Handler implements Runnable {
 			final ServerReply serverReply = commandMessage.getSocksServerReplyException().getServerReply();
 			session.write(CommandResponseMessage.getBytes(serverReply));
 			LOGGER.debug("SESSION[{}] will close, because {}", session.getId(), serverReply);
+			reply = serverReply;
 			return;
 		}
 
@@ -72,11 +97,10 @@ public class Socks5Handler implements Runnable {
 
 	private void doConnect(final SocksSession session, final CommandMessage commandMessage, final Socks5Bridge socks5Bridge)
 			throws IOException {
-		ServerReply reply;
 		Socket socket = null;
 		int bindPort = 0;
-		final InetAddress targetServerAddress = commandMessage.getInetAddress();
-		final int targetServerPort = commandMessage.getPort();
+		targetServerAddress = commandMessage.getInetAddress();
+		targetServerPort = commandMessage.getPort();
 
 		// set default bind address.
 		InetAddress bindAddress = new InetSocketAddress(0).getAddress();
@@ -117,7 +141,7 @@ public class Socks5Handler implements Runnable {
 			return;
 		}
 
-		final SocketPipe pipe = new SocketPipe(session.getSocket(), socket);
+		pipe = new SocketPipe(session.getSocket(), socket, bytesRelayed);
 		pipe.setName("SESSION[" + session.getId() + "]");
 		pipe.start(); // This method will build tow thread to run tow internal pipes.
 
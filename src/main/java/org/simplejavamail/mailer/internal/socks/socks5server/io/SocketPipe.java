@@ -5,6 +5,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The class <code>SocketPipe</code> represents pipe that can transfer data from one socket to another socket. The tow socket should be
@@ -33,13 +34,15 @@ public class SocketPipe {
 
 	/**
 	 * Constructs SocketPipe instance by tow connected sockets.
+	 *
+	 * @param bytesRelayed Counts the bytes transferred in both directions.
 	 */
-	public SocketPipe(final Socket socket1, final Socket socket2)
+	public SocketPipe(final Socket socket1, final Socket socket2, final AtomicLong bytesRelayed)
 			throws IOException {
 		this.socket1 = socket1;
 		this.socket2 = socket2;
-		pipe1 = new StreamPipe(socket1.getInputStream(), socket2.getOutputStream(), OUTPUT_PIPE_NAME);
-		pipe2 = new StreamPipe(socket2.getInputStream(), socket1.getOutputStream(), INPUT_PIPE_NAME);
+		pipe1 = new StreamPipe(socket1.getInputStream(), socket2.getOutputStream(), OUTPUT_PIPE_NAME, bytesRelayed);
+		pipe2 = new StreamPipe(socket2.getInputStream(), socket1.getOutputStream(), INPUT_PIPE_NAME, bytesRelayed);
 
 		pipe1.addPipeListener(listener);
 		pipe2.addPipeListener(listener);
@@ -79,6 +82,13 @@ public class SocketPipe {
 		return running;
 	}
 
+	/**
+	 * @return The bytes transferred by this pipe in both directions.
+	 */
+	public long getBytesRelayed() {
+		return pipe1.getBytesRelayed() + pipe2.getBytesRelayed();
+	}
+
 	public void setName(final String name) {
 		this.name = name;
 	}
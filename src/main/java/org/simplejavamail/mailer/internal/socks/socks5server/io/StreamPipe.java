@@ -8,6 +8,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The class <code>StreamPipe</code> represents a pipe the can transfer data source a input stream destination a output stream.
@@ -30,11 +31,16 @@ class StreamPipe implements Runnable {
 
 	private final String name;
 
-	public StreamPipe(final InputStream source, final OutputStream destination, final String name) {
+	private final AtomicLong bytesRelayed;
+
+	private final AtomicLong pipeBytesRelayed = new AtomicLong();
+
+	public StreamPipe(final InputStream source, final OutputStream destination, final String name, final AtomicLong bytesRelayed) {
 		this.source = source;
 		this.destination = destination;
 		pipeListeners = new ArrayList<>();
 		this.name = name;
+		this.bytesRelayed = bytesRelayed;
 	}
 
 	public boolean start() {
@@ -78,6 +84,8 @@ class StreamPipe implements Runnable {
 			if (length > 0) { // transfer the buffer destination output stream.
 				destination.write(buffer, 0, length);
 				destination.flush();
+				bytesRelayed.addAndGet(length);
+				pipeBytesRelayed.addAndGet(length);
 			}
 
 		} catch (final IOException e) {
@@ -92,6 +100,13 @@ class StreamPipe implements Runnable {
 		return length;
 	}
 
+	/**
+	 * @return The bytes transferred by this pipe only.
+	 */
+	public long getBytesRelayed() {
+		return pipeBytesRelayed.get();
+	}
+
 	public boolean isStopped() {
 		return !running;
 	}
@@ -1,5 +1,6 @@
 package org.simplejavamail.util;
 
+import org.simplejavamail.mailer.config.AsyncQueueOverflowPolicy;
 import org.simplejavamail.mailer.config.TransportStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,6 +49,12 @@ import static org.simplejavamail.internal.util.MiscUtil.valueNullOrEmpty;
  * <li>simplejavamail.defaults.bcc.name</li>
  * <li>simplejavamail.defaults.bcc.address</li>
  * <li>simplejavamail.defaults.poolsize</li>
+ * <li>simplejavamail.defaults.poolsize.queuecapacity</li>
+ * <li>simplejavamail.defaults.poolsize.queueoverflowpolicy</li>
+ * <li>simplejavamail.defaults.poolsize.keepalivetime</li>
+ * <li>simplejavamail.defaults.poolsize.virtualthreads</li>
+ * <li>simplejavamail.defaults.connectionpool.size</li>
+ * <li>simplejavamail.defaults.connectionpool.idletimeoutmillis</li>
  * <li>simplejavamail.defaults.sessiontimeoutmillis</li>
  * <li>simplejavamail.transport.mode.logging.only</li>
  * <li>simplejavamail.opportunistic.tls</li>
@@ -106,6 +113,12 @@ public final class ConfigLoader {
 		DEFAULT_BCC_NAME("simplejavamail.defaults.bcc.name"),
 		DEFAULT_BCC_ADDRESS("simplejavamail.defaults.bcc.address"),
 		DEFAULT_POOL_SIZE("simplejavamail.defaults.poolsize"),
+		DEFAULT_POOL_QUEUE_CAPACITY("simplejavamail.defaults.poolsize.queuecapacity"),
+		DEFAULT_POOL_QUEUE_OVERFLOW_POLICY("simplejavamail.defaults.poolsize.queueoverflowpolicy"),
+		DEFAULT_POOL_KEEP_ALIVE_TIME("simplejavamail.defaults.poolsize.keepalivetime"),
+		DEFAULT_POOL_VIRTUAL_THREADS("simplejavamail.defaults.poolsize.virtualthreads"),
+		DEFAULT_CONNECTION_POOL_SIZE("simplejavamail.defaults.connectionpool.size"),
+		DEFAULT_CONNECTION_POOL_IDLE_TIMEOUT_MILLIS("simplejavamail.defaults.connectionpool.idletimeoutmillis"),
 		DEFAULT_SESSION_TIMEOUT_MILLIS("simplejavamail.defaults.sessiontimeoutmillis"),
 		TRANSPORT_MODE_LOGGING_ONLY("simplejavamail.transport.mode.logging.only"),
 		OPPORTUNISTIC_TLS("simplejavamail.opportunistic.tls");
@@ -281,7 +294,7 @@ public final class ConfigLoader {
 	}
 
 	/**
-	 * @return The property value in boolean, integer or as original string value.
+	 * @return The property value in boolean, integer, enum or as original string value.
 	 */
 	static Object parsePropertyValue(final String propertyValue) {
 		if (propertyValue == null) {
@@ -310,6 +323,12 @@ public final class ConfigLoader {
 		} catch (final IllegalArgumentException nfe) {
 			// ok, so not a TransportStrategy either
 		}
+		// read AsyncQueueOverflowPolicy value
+		try {
+			return AsyncQueueOverflowPolicy.valueOf(propertyValue);
+		} catch (final IllegalArgumentException nfe) {
+			// ok, so not an AsyncQueueOverflowPolicy either
+		}
 		// return value as is (which should be string)
 		return propertyValue;
 	}
@@ -0,0 +1,62 @@
+package org.simplejavamail.converter.internal.mimemessage;
+
+import org.junit.Test;
+
+import javax.mail.internet.MimeUtility;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ByteBufferBase64EncoderTest {
+
+	@Test
+	public void encode_SameAsJavaMail()
+			throws Exception {
+		Random random = new Random(42);
+		// around every line length, and more than a chunk of lines
+		for (int size : new int[] { 0, 1, 2, 3, 54, 55, 56, 57, 58, 113, 114, 115, 171, 3647, 3648, 3649, 100_000 }) {
+			byte[] content = new byte[size];
+			random.nextBytes(content);
+
+			assertThat(encode(content, false)).isEqualTo(encodeWithJavaMail(content, false));
+			assertThat(encode(content, true)).isEqualTo(encodeWithJavaMail(content, true));
+			assertThat(ByteBufferBase64Encoder.encodedSize(size, false)).isEqualTo(encode(content, false).length());
+			assertThat(ByteBufferBase64Encoder.encodedSize(size, true)).isEqualTo(encode(content, true).length());
+		}
+	}
+
+	@Test
+	public void encode_ReadsFromPosition()
+			throws Exception {
+		ByteBuffer content = ByteBuffer.wrap("xxhello".getBytes("US-ASCII"));
+		content.position(2);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteBufferBase64Encoder.encode(content, out, false);
+
+		assertThat(out.toString("US-ASCII")).isEqualTo("aGVsbG8=");
+		assertThat(content.hasRemaining()).isFalse();
+	}
+
+	private static String encode(byte[] content, boolean breakLastLine)
+			throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteBufferBase64Encoder.encode(ByteBuffer.wrap(content), out, breakLastLine);
+		return out.toString("US-ASCII");
+	}
+
+	private static String encodeWithJavaMail(byte[] content, boolean close)
+			throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		OutputStream encoder = MimeUtility.encode(out, "base64");
+		encoder.write(content);
+		if (close) {
+			encoder.close();
+		} else {
+			encoder.flush();
+		}
+		return out.toString("US-ASCII");
+	}
+}
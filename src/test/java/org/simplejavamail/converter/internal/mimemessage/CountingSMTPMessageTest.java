@@ -0,0 +1,34 @@
+package org.simplejavamail.converter.internal.mimemessage;
+
+import org.junit.Test;
+
+import javax.mail.Session;
+import java.io.ByteArrayOutputStream;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CountingSMTPMessageTest {
+
+	@Test
+	public void writeTo_CountsWrittenBytes()
+			throws Exception {
+		CountingSMTPMessage message = new CountingSMTPMessage(Session.getInstance(new Properties()));
+		message.setSubject("subject");
+		message.setText("text");
+		message.saveChanges();
+		assertThat(message.getWrittenSize()).isEqualTo(-1L);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		message.writeTo(out);
+
+		assertThat(message.getWrittenSize()).isEqualTo((long) out.size());
+
+		// as written by the SMTP transport, without the ignored headers
+		ByteArrayOutputStream withoutSubject = new ByteArrayOutputStream();
+		message.writeTo(withoutSubject, new String[] { "Subject" });
+
+		assertThat(message.getWrittenSize()).isEqualTo((long) withoutSubject.size());
+		assertThat(message.getWrittenSize()).isLessThan((long) out.size());
+	}
+}
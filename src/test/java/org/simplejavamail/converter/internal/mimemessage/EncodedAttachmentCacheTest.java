@@ -0,0 +1,206 @@
+package org.simplejavamail.converter.internal.mimemessage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.simplejavamail.converter.EmailConverter;
+import org.simplejavamail.email.Email;
+import org.simplejavamail.email.EmailBuilder;
+import org.simplejavamail.email.MappedFileDataSource;
+import org.simplejavamail.internal.util.MiscUtil;
+import testutil.ConfigLoaderTestHelper;
+
+import javax.activation.DataSource;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import javax.mail.util.ByteArrayDataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EncodedAttachmentCacheTest {
+
+	private File spillDirectory;
+
+	@Before
+	public void setup()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		spillDirectory = Files.createTempDirectory("spill").toFile();
+	}
+
+	@After
+	public void cleanup() {
+		for (File file : spillDirectory.listFiles()) {
+			//noinspection ResultOfMethodCallIgnored
+			file.delete();
+		}
+		//noinspection ResultOfMethodCallIgnored
+		spillDirectory.delete();
+	}
+
+	@Test
+	public void encode_SameContentFromDifferentDataSources()
+			throws Exception {
+		EncodedAttachmentCache cache = new EncodedAttachmentCache(10_000, null);
+
+		DataSource first = cache.encode(dataSource("term\u00ff", "application/pdf"));
+		DataSource second = cache.encode(dataSource("term\u00ff", "application/pdf"));
+		DataSource otherType = cache.encode(dataSource("term\u00ff", "application/octet-stream"));
+
+		assertThat(first).isInstanceOf(PreencodedDataSource.class);
+		assertThat(second).isSameAs(first);
+		assertThat(otherType).isNotSameAs(first);
+		assertThat(MiscUtil.readInputStreamToString(second.getInputStream(), ISO_8859_1)).isEqualTo("term\u00ff");
+		assertThat(cache.getHits()).isEqualTo(1);
+		assertThat(cache.getMisses()).isEqualTo(2);
+	}
+
+	@Test
+	public void encode_EvictsLeastRecentlyUsed()
+			throws Exception {
+		// each entry encodes to 10 bytes: 8 of base64 and a line break
+		EncodedAttachmentCache cache = new EncodedAttachmentCache(20, null);
+		cache.encode(dataSource("aaaa\u00ff", "application/octet-stream"));
+		cache.encode(dataSource("bbbb\u00ff", "application/octet-stream"));
+		cache.encode(dataSource("aaaa\u00ff", "application/octet-stream"));
+		cache.encode(dataSource("cccc\u00ff", "application/octet-stream"));
+
+		assertThat(cache.getMemoryBytes()).isEqualTo(20);
+		cache.encode(dataSource("aaaa\u00ff", "application/octet-stream"));
+		assertThat(cache.getHits()).isEqualTo(2);
+		cache.encode(dataSource("bbbb\u00ff", "application/octet-stream"));
+		assertThat(cache.getMisses()).isEqualTo(4);
+	}
+
+	@Test
+	public void encode_SpillsToDisk()
+			throws Exception {
+		EncodedAttachmentCache cache = new EncodedAttachmentCache(10, spillDirectory);
+		cache.encode(dataSource("aaaa\u00ff", "application/octet-stream"));
+		cache.encode(dataSource("bbbb\u00ff", "application/octet-stream"));
+
+		assertThat(cache.getDiskBytes()).isEqualTo(10);
+		assertThat(spillDirectory.listFiles()).hasSize(1);
+
+		DataSource restored = cache.encode(dataSource("aaaa\u00ff", "application/octet-stream"));
+		assertThat(MiscUtil.readInputStreamToString(restored.getInputStream(), ISO_8859_1)).isEqualTo("aaaa\u00ff");
+		assertThat(cache.getHits()).isEqualTo(1);
+
+		cache.clear();
+		assertThat(spillDirectory.listFiles()).hasSize(0);
+	}
+
+	@Test
+	public void encode_SpillFilesUniqueAmongCaches()
+			throws Exception {
+		EncodedAttachmentCache cache1 = new EncodedAttachmentCache(10, spillDirectory);
+		EncodedAttachmentCache cache2 = new EncodedAttachmentCache(10, spillDirectory);
+		for (EncodedAttachmentCache cache : new EncodedAttachmentCache[] { cache1, cache2 }) {
+			cache.encode(dataSource("aaaa\u00ff", "application/octet-stream"));
+			cache.encode(dataSource("bbbb\u00ff", "application/octet-stream"));
+		}
+
+		assertThat(spillDirectory.listFiles()).hasSize(2);
+
+		// evicted from disk, so its file is deleted
+		cache1.encode(dataSource("cccc\u00ff", "application/octet-stream"));
+		assertThat(spillDirectory.listFiles()).hasSize(2);
+		assertThat(cache1.getDiskBytes()).isEqualTo(10);
+
+		DataSource restored = cache2.encode(dataSource("aaaa\u00ff", "application/octet-stream"));
+		assertThat(MiscUtil.readInputStreamToString(restored.getInputStream(), ISO_8859_1)).isEqualTo("aaaa\u00ff");
+	}
+
+	@Test
+	public void encode_NotBase64Encoded_ReturnedAsIs()
+			throws Exception {
+		EncodedAttachmentCache cache = new EncodedAttachmentCache(10_000, null);
+		// RFC 2046 doesn't allow attached emails to be encoded, and javax.mail sends (mostly) ASCII content as 7bit or quoted-printable
+		DataSource attachedEmail = dataSource("Subject: hi\r\n\r\nbin\u00e4ry", "message/rfc822");
+		DataSource asciiText = dataSource("the terms", "text/plain");
+		DataSource mostlyAsciiText = dataSource("the t\u00e9rms", "text/plain");
+
+		assertThat(cache.encode(attachedEmail)).isSameAs(attachedEmail);
+		assertThat(cache.encode(asciiText)).isSameAs(asciiText);
+		assertThat(cache.encode(mostlyAsciiText)).isSameAs(mostlyAsciiText);
+		assertThat(cache.getMisses()).isEqualTo(0);
+		assertThat(cache.getMemoryBytes()).isEqualTo(0);
+	}
+
+	@Test
+	public void encode_TooLargeForCache()
+			throws Exception {
+		EncodedAttachmentCache cache = new EncodedAttachmentCache(9, null);
+		DataSource tooLarge = dataSource("aaaa\u00ff", "application/octet-stream");
+
+		// encoded while written instead, rather than encoded up front for nothing
+		assertThat(cache.encode(tooLarge)).isSameAs(tooLarge);
+		assertThat(cache.getMisses()).isEqualTo(0);
+		assertThat(cache.getMemoryBytes()).isEqualTo(0);
+	}
+
+	@Test
+	public void encode_MappedFile_ReturnedAsIs()
+			throws Exception {
+		EncodedAttachmentCache cache = new EncodedAttachmentCache(10_000, null);
+		File file = new File(spillDirectory, "mapped.bin");
+		Files.write(file.toPath(), "aaaa\u00ff".getBytes(ISO_8859_1));
+		DataSource mapped = new MappedFileDataSource(file, "application/octet-stream");
+
+		assertThat(cache.encode(mapped)).isSameAs(mapped);
+		assertThat(cache.getMisses()).isEqualTo(0);
+		assertThat(cache.getMemoryBytes()).isEqualTo(0);
+	}
+
+	@Test
+	public void encode_OnMultipleThreads_SameAsSequential()
+			throws Exception {
+		byte[] content = new byte[1_000_001];
+		new Random(42).nextBytes(content);
+		EncodedAttachmentCache sequential = new EncodedAttachmentCache(2_000_000, null);
+		EncodedAttachmentCache parallel = new EncodedAttachmentCache(2_000_000, null, 4);
+		try {
+			ByteArrayOutputStream expected = new ByteArrayOutputStream();
+			((PreencodedDataSource) sequential.encode(new ByteArrayDataSource(content, "application/pdf"))).writeEncodedTo(expected);
+			ByteArrayOutputStream actual = new ByteArrayOutputStream();
+			((PreencodedDataSource) parallel.encode(new ByteArrayDataSource(content, "application/pdf"))).writeEncodedTo(actual);
+
+			assertThat(actual.toString("US-ASCII")).isEqualTo(expected.toString("US-ASCII"));
+		} finally {
+			parallel.shutdown();
+		}
+	}
+
+	@Test
+	public void produceMimeMessage_WritesCachedContent()
+			throws Exception {
+		EncodedAttachmentCache cache = new EncodedAttachmentCache(10_000, null);
+		Session session = Session.getInstance(new Properties());
+		for (int i = 0; i < 2; i++) {
+			Email email = EmailBuilder.startingBlank()
+					.from("from@domain.com")
+					.to("to@domain.com")
+					.withSubject("subject")
+					.withPlainText("text")
+					.withAttachment("terms.pdf", dataSource("the terms and conditions \u00ff", "application/pdf"))
+					.buildEmail();
+			MimeMessage message = MimeMessageProducerHelper.produceMimeMessage(email, session, cache);
+
+			Email sent = EmailConverter.emlToEmail(EmailConverter.mimeMessageToEML(message));
+			assertThat(sent.getAttachments()).hasSize(1);
+			assertThat(sent.getAttachments().get(0).readAllData(ISO_8859_1)).isEqualTo("the terms and conditions \u00ff");
+		}
+		assertThat(cache.getHits()).isEqualTo(1);
+	}
+
+	private static DataSource dataSource(String content, String contentType)
+			throws Exception {
+		return new ByteArrayDataSource(content.getBytes(ISO_8859_1), contentType);
+	}
+}
@@ -0,0 +1,92 @@
+package org.simplejavamail.converter.internal.mimemessage;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.simplejavamail.email.Email;
+import org.simplejavamail.email.EmailBuilder;
+import testutil.ConfigLoaderTestHelper;
+
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.util.Properties;
+
+import static javax.mail.Message.RecipientType.BCC;
+import static javax.mail.Message.RecipientType.CC;
+import static javax.mail.Message.RecipientType.TO;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EncodedHeadersTest {
+
+	private Session session;
+
+	@Before
+	public void setup() {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		session = Session.getInstance(new Properties());
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void internalGetEncodedHeaders_EncodedOnce()
+			throws Exception {
+		Email email = EmailBuilder.startingBlank().from("from@domain.com").to("to@domain.com").withSubject("subject").buildEmail();
+
+		assertThat(email.internalGetEncodedHeaders()).isSameAs(email.internalGetEncodedHeaders());
+	}
+
+	@Test
+	public void encode_SameAsJavaMail()
+			throws Exception {
+		Email email = EmailBuilder.startingBlank()
+				.from("Fr\u00f6m Name", "from@domain.com")
+				.to("To Name", "to@domain.com")
+				.to("to2@domain.com")
+				.cc("Some, One", "cc@domain.com")
+				.bcc("bcc@domain.com")
+				.withReplyTo("reply@domain.com")
+				.withSubject("a subject with \u00fcnicode, long enough that it has to be folded over more than a single header line")
+				.withHeader("X-Custom", "v\u00e4lue")
+				.withDispositionNotificationTo("notify@domain.com")
+				.withReturnReceiptTo("receipt@domain.com")
+				.withPlainText("text")
+				.buildEmail();
+
+		EncodedHeaders headers = EncodedHeaders.encode(email);
+
+		// what javax.mail itself makes of the same values
+		MimeMessage message = new MimeMessage(session);
+		message.setSubject(email.getSubject(), "UTF-8");
+		assertThat(headers.getSubject()).isEqualTo(message.getHeader("Subject", null));
+		assertThat(headers.getFrom().toString()).isEqualTo("=?UTF-8?Q?Fr=C3=B6m_Name?= <from@domain.com>");
+		assertThat(headers.getReplyTo().toString()).isEqualTo("reply@domain.com");
+		assertThat(headers.getRecipients(TO)).hasSize(2);
+		assertThat(headers.getRecipients(TO)[0].toString()).isEqualTo("To Name <to@domain.com>");
+		assertThat(headers.getRecipients(TO)[1].toString()).isEqualTo("to2@domain.com");
+		assertThat(headers.getRecipients(CC)[0].toString()).isEqualTo("\"Some, One\" <cc@domain.com>");
+		assertThat(headers.getRecipients(BCC)[0].toString()).isEqualTo("bcc@domain.com");
+		assertThat(headers.getCustomHeaders().get("X-Custom")).isEqualTo("=?UTF-8?Q?v=C3=A4lue?=");
+		assertThat(headers.getDispositionNotificationTo()).isEqualTo("notify@domain.com");
+		assertThat(headers.getReturnReceiptTo()).isEqualTo("receipt@domain.com");
+	}
+
+	@Test
+	public void produceMimeMessage_SameHeadersWhenSentAgain()
+			throws Exception {
+		Email email = EmailBuilder.startingBlank()
+				.from("from@domain.com")
+				.to("To Name", "to@domain.com")
+				.to("to2@domain.com")
+				.withSubject("subject")
+				.withHeader("X-Custom", "value")
+				.withPlainText("text")
+				.buildEmail();
+
+		for (int i = 0; i < 2; i++) {
+			MimeMessage message = MimeMessageProducerHelper.produceMimeMessage(email, session, null);
+
+			assertThat(message.getSubject()).isEqualTo("subject");
+			assertThat(message.getHeader("To", null)).isEqualTo("To Name <to@domain.com>, to2@domain.com");
+			assertThat(message.getHeader("X-Custom", null)).isEqualTo("value");
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package org.simplejavamail.converter.internal.mimemessage;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.simplejavamail.converter.EmailConverter;
+import org.simplejavamail.email.CalendarMethod;
+import org.simplejavamail.email.Email;
+import org.simplejavamail.email.EmailBuilder;
+import org.simplejavamail.email.EmailPopulatingBuilder;
+import org.simplejavamail.email.MappedFileDataSource;
+import org.simplejavamail.email.Recipient;
+import org.simplejavamail.internal.util.MiscUtil;
+import testutil.ConfigLoaderTestHelper;
+
+import javax.mail.Session;
+import javax.mail.internet.MimeMultipart;
+import javax.mail.util.ByteArrayDataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.mail.Message.RecipientType.CC;
+import static javax.mail.Message.RecipientType.TO;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MimeMessageStreamWriterTest {
+
+	private static final Pattern BOUNDARY = Pattern.compile("----=_Part_[0-9_.]+");
+
+	private Session session;
+
+	@Before
+	public void setup() {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		session = Session.getInstance(new Properties());
+	}
+
+	@Test
+	public void writeMimeMessage_SameAsProducedMimeMessage()
+			throws Exception {
+		// every combination of texts, attachments and embedded images, covering all eight structures
+		for (int combination = 1; combination < 16; combination++) {
+			EmailPopulatingBuilder builder = fullyPopulatedBuilder();
+			if ((combination & 1) != 0) {
+				builder.withPlainText("plain text\nwith a second line, \u00fcnicode and a tab\t");
+			}
+			if ((combination & 2) != 0) {
+				builder.withHTMLText("<p>" + new String(new char[1200]).replace('\0', 'x') + "</p>");
+			}
+			if ((combination & 4) != 0) {
+				builder.withAttachment("file.txt", "attachment".getBytes(UTF_8), "text/plain");
+				builder.withAttachment("r\u00e9sum\u00e9", new ByteArrayDataSource(new byte[] { 1, 2, 3, (byte) 200 }, "application/octet-stream"));
+				builder.withAttachment("large.pdf", new byte[5000], "application/pdf");
+			}
+			if ((combination & 8) != 0) {
+				builder.withEmbeddedImage("logo", new byte[] { 1, 2, 3, 4 }, "image/png");
+			}
+			Email email = builder.buildEmail();
+
+			assertThat(normalize(writeStreaming(email, null))).isEqualTo(normalize(writeProduced(email, null)));
+			EncodedAttachmentCache cache = new EncodedAttachmentCache(1 << 20, null);
+			assertThat(normalize(writeStreaming(email, cache))).isEqualTo(normalize(writeProduced(email, cache)));
+		}
+	}
+
+	@Test
+	public void writeMimeMessage_ForwardedEmail()
+			throws Exception {
+		Email forwarded = EmailBuilder.startingBlank().from("original@domain.com").to("to@domain.com").withSubject("original").withPlainText("text").buildEmail();
+		Email email = EmailBuilder.forwarding(EmailConverter.emailToMimeMessage(forwarded))
+				.from("from@domain.com")
+				.to("to@domain.com")
+				.withPlainText("see below")
+				.buildEmail();
+
+		assertThat(normalize(writeStreaming(email, null))).isEqualTo(normalize(writeProduced(email, null)));
+	}
+
+	@Test
+	public void writeMimeMessage_AttachedEmailAndLongFileName()
+			throws Exception {
+		Email attached = EmailBuilder.startingBlank().from("original@domain.com").to("to@domain.com").withSubject("original").withPlainText("t\u00e9xt").buildEmail();
+		String longName = "a very long attachment name that makes the content disposition header go well past the line length limit.pdf";
+		Email email = fullyPopulatedBuilder()
+				.withPlainText("plain text")
+				.withAttachment("original.eml", EmailConverter.emailToEML(attached).getBytes(UTF_8), "message/rfc822")
+				.withAttachment(longName, new byte[] { 1, 2, 3, (byte) 200 }, "application/pdf")
+				.withAttachment("r\u00e9sum\u00e9 with a long name that has to be encoded and then folded over multiple lines.txt", "text".getBytes(UTF_8), "text/plain")
+				.buildEmail();
+
+		assertThat(normalize(writeStreaming(email, null))).isEqualTo(normalize(writeProduced(email, null)));
+		EncodedAttachmentCache cache = new EncodedAttachmentCache(1 << 20, null);
+		assertThat(normalize(writeStreaming(email, cache))).isEqualTo(normalize(writeProduced(email, cache)));
+	}
+
+	@Test
+	public void writeMimeMessage_MappedFileAttachment()
+			throws Exception {
+		File file = Files.createTempFile("attachment", ".bin").toFile();
+		try {
+			// encoded straight from the mapped file, in many chunks
+			byte[] content = new byte[1_000_000];
+			new Random(42).nextBytes(content);
+			Files.write(file.toPath(), content);
+			Email email = fullyPopulatedBuilder()
+					.withPlainText("plain text")
+					.withAttachment("large.bin", new MappedFileDataSource(file, "application/octet-stream"))
+					.buildEmail();
+
+			assertThat(normalize(writeStreaming(email, null))).isEqualTo(normalize(writeProduced(email, null)));
+			EncodedAttachmentCache cache = new EncodedAttachmentCache(1 << 20, null);
+			assertThat(normalize(writeStreaming(email, cache))).isEqualTo(normalize(writeProduced(email, cache)));
+		} finally {
+			//noinspection ResultOfMethodCallIgnored
+			file.delete();
+		}
+	}
+
+	@Test
+	public void writeMimeMessage_ParsesBackToSameEmail()
+			throws Exception {
+		Email email = fullyPopulatedBuilder()
+				.withPlainText("plain text")
+				.withHTMLText("<p>html text</p>")
+				.withAttachment("file.txt", "attachment".getBytes(UTF_8), "text/plain")
+				.withEmbeddedImage("logo", new byte[] { 1, 2, 3, 4 }, "image/png")
+				.buildEmail();
+
+		ByteArrayOutputStream eml = new ByteArrayOutputStream();
+		EmailConverter.emailToEML(email, eml);
+		Email parsed = EmailConverter.emlToEmail(eml.toString(UTF_8.name()));
+
+		assertThat(parsed.getId()).isEqualTo("<fixed.id@domain.com>");
+		assertThat(parsed.getSubject()).isEqualTo(email.getSubject());
+		assertThat(parsed.getFromRecipient()).isEqualTo(new Recipient("Fr\u00f6m Name", "from@domain.com", null));
+		assertThat(parsed.getRecipients()).hasSize(3);
+		assertThat(parsed.getRecipients()).contains(
+				new Recipient("To Name", "to@domain.com", TO),
+				new Recipient(null, "to2@domain.com", TO),
+				new Recipient("Some, One", "cc@domain.com", CC));
+		assertThat(parsed.getHeaders().get("X-Custom")).isEqualTo("custom value");
+		assertThat(parsed.getPlainText()).isEqualTo("plain text");
+		assertThat(parsed.getHTMLText()).isEqualTo("<p>html text</p>");
+		assertThat(parsed.getAttachments()).hasSize(1);
+		assertThat(parsed.getAttachments().get(0).readAllData()).isEqualTo("attachment");
+		assertThat(parsed.getEmbeddedImages()).hasSize(1);
+		assertThat(parsed.getEmbeddedImages().get(0).getName()).isEqualTo("logo");
+	}
+
+	@Test
+	public void writeMimeMessage_CalendarText()
+			throws Exception {
+		Email email = EmailBuilder.startingBlank()
+				.from("from@domain.com")
+				.to("to@domain.com")
+				.withPlainText("plain text")
+				.withCalendarText(CalendarMethod.REQUEST, "BEGIN:VCALENDAR\r\nEND:VCALENDAR")
+				.buildEmail();
+
+		// a produced MimeMessage can't write calendar text without a DataContentHandler for it, so only the structure is checked
+		MimeMultipart alternative = (MimeMultipart) EmailConverter.emlToMimeMessage(writeStreaming(email, null)).getContent();
+
+		assertThat(alternative.getContentType()).startsWith("multipart/alternative");
+		assertThat(alternative.getCount()).isEqualTo(2);
+		assertThat(alternative.getBodyPart(0).getContent()).isEqualTo("plain text");
+		assertThat(alternative.getBodyPart(1).getContentType()).isEqualTo("text/calendar; charset=\"UTF-8\"; method=\"REQUEST\"");
+		assertThat(MiscUtil.readInputStreamToString(alternative.getBodyPart(1).getInputStream(), UTF_8)).isEqualTo("BEGIN:VCALENDAR\r\nEND:VCALENDAR");
+	}
+
+	private static EmailPopulatingBuilder fullyPopulatedBuilder() {
+		return EmailBuilder.startingBlank()
+				.fixingMessageId("<fixed.id@domain.com>")
+				.from("Fr\u00f6m Name", "from@domain.com")
+				.to("To Name", "to@domain.com")
+				.to("to2@domain.com")
+				.cc("Some, One", "cc@domain.com")
+				.withReplyTo("reply@domain.com")
+				.withSubject("a subject with \u00fcnicode, long enough that it has to be folded over more than a single header line")
+				.withHeader("X-Custom", "custom value")
+				.withDispositionNotificationTo("notify@domain.com");
+	}
+
+	private String writeStreaming(Email email, EncodedAttachmentCache cache)
+			throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		MimeMessageStreamWriter.writeMimeMessage(email, session, out, cache);
+		return out.toString(UTF_8.name());
+	}
+
+	private String writeProduced(Email email, EncodedAttachmentCache cache)
+			throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		MimeMessageProducerHelper.produceMimeMessage(email, session, cache).writeTo(out);
+		return out.toString(UTF_8.name());
+	}
+
+	/**
+	 * Replaces the generated values and unfolds the boundary parameter as where it is folded depends on the length of the boundary.
+	 */
+	private static String normalize(String eml) {
+		List<String> boundaries = new ArrayList<>();
+		Matcher matcher = BOUNDARY.matcher(eml);
+		while (matcher.find()) {
+			if (!boundaries.contains(matcher.group())) {
+				boundaries.add(matcher.group());
+			}
+		}
+		for (int i = 0; i < boundaries.size(); i++) {
+			eml = eml.replace(boundaries.get(i), "boundary-" + i);
+		}
+		return eml
+				.replace(";\r\n\tboundary=", "; boundary=")
+				.replace("; \r\n\tboundary=", "; boundary=")
+				.replaceAll("Date: .*", "Date: <date>")
+				.replaceAll("Message-ID: <[0-9.]+@", "Message-ID: <generated@");
+	}
+}
@@ -0,0 +1,110 @@
+package org.simplejavamail.converter.internal.mimemessage;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+import static org.simplejavamail.converter.internal.mimemessage.ByteBufferBase64Encoder.BYTES_PER_LINE;
+import static org.simplejavamail.converter.internal.mimemessage.ParallelBase64Encoder.LINES_PER_WINDOW;
+
+public class ParallelBase64EncoderTest {
+
+	private static final int WINDOW = LINES_PER_WINDOW * BYTES_PER_LINE;
+
+	@Test
+	public void encode_SameAsSequential()
+			throws Exception {
+		Random random = new Random(42);
+		for (int threads : new int[] { 1, 4 }) {
+			ParallelBase64Encoder encoder = new ParallelBase64Encoder(threads);
+			try {
+				// within a window, a window exactly, and over multiple windows, with a partial last line and with a last window of whole lines
+				for (int size : new int[] { 0, 100, 57 * 1024, 57 * 1024 + 1, WINDOW - 1, WINDOW, WINDOW + 1, WINDOW * 3, 3_000_001 }) {
+					byte[] content = new byte[size];
+					random.nextBytes(content);
+
+					for (boolean breakLastLine : new boolean[] { false, true }) {
+						String expected = encodeSequentially(content, breakLastLine);
+						ByteArrayOutputStream fromBuffer = new ByteArrayOutputStream();
+						encoder.encode(ByteBuffer.wrap(content), fromBuffer, breakLastLine);
+						assertThat(fromBuffer.toString("US-ASCII")).isEqualTo(expected);
+						ByteArrayOutputStream fromStream = new ByteArrayOutputStream();
+						encoder.encode(new ByteArrayInputStream(content), fromStream, breakLastLine);
+						assertThat(fromStream.toString("US-ASCII")).isEqualTo(expected);
+					}
+				}
+			} finally {
+				encoder.shutdown();
+			}
+		}
+	}
+
+	@Test
+	public void encode_ReadsFromPosition()
+			throws Exception {
+		byte[] content = new byte[WINDOW * 2];
+		new Random(42).nextBytes(content);
+		ByteBuffer buffer = ByteBuffer.wrap(content);
+		buffer.position(1000);
+		ParallelBase64Encoder encoder = new ParallelBase64Encoder(4);
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			encoder.encode(buffer, out, false);
+
+			assertThat(out.toString("US-ASCII")).isEqualTo(encodeSequentially(Arrays.copyOfRange(content, 1000, content.length), false));
+			assertThat(buffer.hasRemaining()).isFalse();
+		} finally {
+			encoder.shutdown();
+		}
+	}
+
+	@Test
+	public void encode_StreamReadInSmallParts()
+			throws Exception {
+		byte[] content = new byte[WINDOW + 1000];
+		new Random(42).nextBytes(content);
+		// a window is filled up before it is encoded, however little the stream hands out at a time
+		InputStream trickle = new FilterInputStream(new ByteArrayInputStream(content)) {
+			@Override
+			public int read(byte[] b, int off, int len)
+					throws IOException {
+				return super.read(b, off, Math.min(len, 1000));
+			}
+		};
+		ParallelBase64Encoder encoder = new ParallelBase64Encoder(4);
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			encoder.encode(trickle, out, true);
+
+			assertThat(out.toString("US-ASCII")).isEqualTo(encodeSequentially(content, true));
+		} finally {
+			encoder.shutdown();
+		}
+	}
+
+	@Test
+	public void constructor_NoThreads() {
+		try {
+			new ParallelBase64Encoder(0);
+			failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+		} catch (IllegalArgumentException e) {
+			assertThat(e.getMessage()).isEqualTo("threads should be at least 1: 0");
+		}
+	}
+
+	private static String encodeSequentially(byte[] content, boolean breakLastLine)
+			throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteBufferBase64Encoder.encode(ByteBuffer.wrap(content), out, breakLastLine);
+		return out.toString("US-ASCII");
+	}
+}
@@ -0,0 +1,94 @@
+package org.simplejavamail.email;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.simplejavamail.MailException;
+import org.simplejavamail.converter.EmailConverter;
+import testutil.ConfigLoaderTestHelper;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static javax.mail.Message.RecipientType.TO;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class MailMergeTest {
+	
+	private MailMerge mailMerge;
+	
+	@Before
+	public void setup() throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		mailMerge = new MailMerge(EmailBuilder.startingBlank()
+				.from("news@domain.com")
+				.to("${name}", "${address}")
+				.withSubject("Hello ${name}")
+				.withPlainText("Dear ${name}, your code is ${code}.")
+				.withHTMLText("<p>Dear ${name}, your code is <b>${code}</b>.</p>")
+				.withAttachment("terms.txt", "the terms and conditions".getBytes("UTF-8"), "text/plain")
+				.withEmbeddedImage("logo", new byte[] { 1, 2, 3, 4 }, "image/png")
+				.buildEmail());
+	}
+	
+	@Test
+	public void merge_SubstitutesVariables() {
+		Email email = mailMerge.merge(variables("Tom & Jerry", "tom@domain.com", 42));
+		
+		assertThat(email.getRecipients()).containsExactly(new Recipient("Tom & Jerry", "tom@domain.com", TO));
+		assertThat(email.getSubject()).isEqualTo("Hello Tom & Jerry");
+		assertThat(email.getPlainText()).isEqualTo("Dear Tom & Jerry, your code is 42.");
+		assertThat(email.getHTMLText()).isEqualTo("<p>Dear Tom &amp; Jerry, your code is <b>42</b>.</p>");
+		assertThat(email.getFromRecipient().getAddress()).isEqualTo("news@domain.com");
+	}
+	
+	@Test
+	public void merge_SharesEncodedAttachments()
+			throws Exception {
+		Email first = mailMerge.merge(variables("Tom", "tom@domain.com", 1));
+		Email second = mailMerge.merge(variables("Jerry", "jerry@domain.com", 2));
+		
+		assertThat(second.getAttachments().get(0).getDataSource()).isSameAs(first.getAttachments().get(0).getDataSource());
+		assertThat(second.getEmbeddedImages().get(0).getDataSource()).isSameAs(first.getEmbeddedImages().get(0).getDataSource());
+		assertThat(first.getAttachments().get(0).readAllData()).isEqualTo("the terms and conditions");
+		
+		Email sent = EmailConverter.emlToEmail(EmailConverter.emailToEML(second));
+		assertThat(sent.getSubject()).isEqualTo("Hello Jerry");
+		assertThat(sent.getAttachments()).hasSize(1);
+		assertThat(sent.getAttachments().get(0).readAllData()).isEqualTo("the terms and conditions");
+		assertThat(sent.getEmbeddedImages()).hasSize(1);
+	}
+	
+	@Test
+	public void merge_Lazily() {
+		List<Map<String, Object>> rows = Arrays.asList(variables("Tom", "tom@domain.com", 1), variables("Jerry", "jerry@domain.com", 2));
+		Iterator<Email> emails = mailMerge.merge(rows.iterator());
+		
+		assertThat(emails.next().getSubject()).isEqualTo("Hello Tom");
+		assertThat(emails.next().getSubject()).isEqualTo("Hello Jerry");
+		assertThat(emails.hasNext()).isFalse();
+	}
+	
+	@Test
+	public void merge_MissingVariable() {
+		Map<String, Object> variables = variables("Tom", "tom@domain.com", 1);
+		variables.remove("code");
+		try {
+			mailMerge.merge(variables);
+			failBecauseExceptionWasNotThrown(MailException.class);
+		} catch (MailException e) {
+			assertThat(e.getMessage()).isEqualTo("No value given for mail merge variable code");
+		}
+	}
+	
+	private static Map<String, Object> variables(String name, String address, int code) {
+		Map<String, Object> variables = new HashMap<>();
+		variables.put("name", name);
+		variables.put("address", address);
+		variables.put("code", code);
+		return variables;
+	}
+}
@@ -0,0 +1,115 @@
+package org.simplejavamail.email;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.simplejavamail.converter.EmailConverter;
+import org.simplejavamail.internal.util.MiscUtil;
+import testutil.ConfigLoaderTestHelper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class MappedFileDataSourceTest {
+	
+	private File file;
+	
+	@Before
+	public void setup()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		file = Files.createTempFile("attachment", ".txt").toFile();
+		Files.write(file.toPath(), "the terms and conditions".getBytes(UTF_8));
+	}
+	
+	@After
+	public void cleanup() {
+		//noinspection ResultOfMethodCallIgnored
+		file.delete();
+	}
+	
+	@Test
+	public void dataSource_MapsFile()
+			throws Exception {
+		MappedFileDataSource dataSource = new MappedFileDataSource(file);
+		
+		assertThat(dataSource.getName()).isEqualTo(file.getName());
+		assertThat(dataSource.getContentType()).isEqualTo("text/plain");
+		assertThat(MiscUtil.readInputStreamToString(dataSource.getInputStream(), UTF_8)).isEqualTo("the terms and conditions");
+		assertThat(MiscUtil.readInputStreamToString(dataSource.getInputStream(), UTF_8)).isEqualTo("the terms and conditions");
+	}
+	
+	@Test
+	public void getContent_IndependentViews()
+			throws Exception {
+		MappedFileDataSource dataSource = new MappedFileDataSource(file, "application/octet-stream");
+		ByteBuffer first = dataSource.getContent();
+		first.get(new byte[4]);
+		ByteBuffer second = dataSource.getContent();
+		
+		assertThat(dataSource.getContentType()).isEqualTo("application/octet-stream");
+		assertThat(second.position()).isEqualTo(0);
+		assertThat(second.remaining()).isEqualTo(24);
+		assertThat(second.isReadOnly()).isTrue();
+	}
+	
+	@Test
+	public void getOutputStream_ReadOnly() {
+		try {
+			new MappedFileDataSource(file).getOutputStream();
+			failBecauseExceptionWasNotThrown(IOException.class);
+		} catch (IOException e) {
+			assertThat(e.getMessage()).isEqualTo("memory-mapped data source is read-only");
+		}
+	}
+	
+	@Test
+	public void inputStream_ReadsInParts()
+			throws Exception {
+		InputStream in = new MappedFileDataSource(file).getInputStream();
+		byte[] buffer = new byte[10];
+		
+		assertThat(in.available()).isEqualTo(24);
+		assertThat(in.read(buffer, 0, 10)).isEqualTo(10);
+		assertThat(in.skip(10)).isEqualTo(10);
+		assertThat(in.read(buffer, 0, 10)).isEqualTo(4);
+		assertThat(new String(buffer, 0, 4, UTF_8)).isEqualTo("ions");
+		assertThat(in.read(buffer, 0, 10)).isEqualTo(-1);
+		assertThat(in.read()).isEqualTo(-1);
+	}
+	
+	@Test
+	public void sendAsAttachment()
+			throws Exception {
+		byte[] content = new byte[200_000];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+		Files.write(file.toPath(), content);
+		Email email = EmailBuilder.startingBlank()
+				.from("from@domain.com")
+				.to("to@domain.com")
+				.withPlainText("text")
+				.withAttachment("large.bin", new MappedFileDataSource(file, "application/octet-stream"))
+				.buildEmail();
+		
+		ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+		EmailConverter.emailToEML(email, streamed);
+		for (String eml : new String[] { streamed.toString(UTF_8.name()), EmailConverter.emailToEML(email) }) {
+			Email parsed = EmailConverter.emlToEmail(eml);
+			assertThat(parsed.getAttachments()).hasSize(1);
+			// ISO-8859-1 maps every byte to a character of its own
+			assertThat(MiscUtil.readInputStreamToString(parsed.getAttachments().get(0).getDataSource().getInputStream(), ISO_8859_1))
+					.isEqualTo(new String(content, ISO_8859_1));
+		}
+	}
+}
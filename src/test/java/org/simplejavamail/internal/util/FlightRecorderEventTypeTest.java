@@ -0,0 +1,123 @@
+package org.simplejavamail.internal.util;
+
+import org.junit.Test;
+import org.simplejavamail.email.Email;
+import org.simplejavamail.email.EmailBuilder;
+import org.simplejavamail.mailer.Mailer;
+import org.simplejavamail.mailer.MailerBuilder;
+import testutil.ConfigLoaderTestHelper;
+import testutil.DummyTransport;
+
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+import static org.simplejavamail.internal.util.FlightRecorderEventType.field;
+
+public class FlightRecorderEventTypeTest {
+	
+	@Test
+	public void begin_NotRecording() {
+		FlightRecorderEventType eventType = FlightRecorderEventType.define("org.simplejavamail.test.NotRecorded", "Not Recorded",
+				field("count", int.class), field("name", String.class));
+		
+		assertThat(eventType.isEnabled()).isFalse();
+		assertThat(eventType.begin()).isNull();
+	}
+	
+	@Test
+	public void define_UnsupportedFieldTypeDoesNotFail() {
+		FlightRecorderEventType eventType = FlightRecorderEventType.define("org.simplejavamail.test.Unsupported", "Unsupported",
+				field("list", java.util.List.class));
+		
+		assertThat(eventType.begin()).isNull();
+	}
+	
+	@Test
+	public void sendMail_WhileRecording_EmitsEvents()
+			throws Exception {
+		assumeTrue("Java Flight Recorder not available", isFlightRecorderAvailable());
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		
+		// jdk.jfr only exists since Java 11 (and 8u262), so it is used through reflection like in FlightRecorderEventType
+		Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+		Object recording = recordingClass.getConstructor().newInstance();
+		Path recordingFile = Files.createTempFile("simplejavamail", ".jfr");
+		try {
+			recordingClass.getMethod("enable", String.class).invoke(recording, "org.simplejavamail.SendEmail");
+			recordingClass.getMethod("enable", String.class).invoke(recording, "org.simplejavamail.ProduceMimeMessage");
+			recordingClass.getMethod("start").invoke(recording);
+			
+			Email email = EmailBuilder.startingBlank()
+					.from("from@domain.com")
+					.to("to1@domain.com")
+					.cc("to2@domain.com")
+					.withSubject("recorded")
+					.withPlainText("text")
+					.withAttachment("attachment.txt", "content".getBytes("UTF-8"), "text/plain")
+					.buildEmail();
+			Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession()).buildMailer();
+			mailer.sendMail(email);
+			
+			recordingClass.getMethod("stop").invoke(recording);
+			recordingClass.getMethod("dump", Path.class).invoke(recording, recordingFile);
+			
+			List<Object> sendEvents = readEvents(recordingFile, "org.simplejavamail.SendEmail");
+			assertThat(sendEvents).hasSize(1);
+			Object sendEvent = sendEvents.get(0);
+			assertThat(getValue(sendEvent, "emailId")).isEqualTo(email.getId());
+			assertThat(getValue(sendEvent, "recipients")).isEqualTo(2);
+			assertThat(getValue(sendEvent, "attempt")).isEqualTo(1);
+			assertThat(getValue(sendEvent, "async")).isEqualTo(false);
+			assertThat(getValue(sendEvent, "succeeded")).isEqualTo(true);
+			
+			List<Object> produceEvents = readEvents(recordingFile, "org.simplejavamail.ProduceMimeMessage");
+			assertThat(produceEvents).hasSize(1);
+			Object produceEvent = produceEvents.get(0);
+			assertThat(getValue(produceEvent, "producer")).isEqualTo("MimeMessageProducerMixed");
+			assertThat(getValue(produceEvent, "attachments")).isEqualTo(1);
+			assertThat(getValue(produceEvent, "embeddedImages")).isEqualTo(0);
+			assertThat(getValue(produceEvent, "succeeded")).isEqualTo(true);
+		} finally {
+			recordingClass.getMethod("close").invoke(recording);
+			//noinspection ResultOfMethodCallIgnored
+			recordingFile.toFile().delete();
+		}
+	}
+	
+	private static boolean isFlightRecorderAvailable() {
+		try {
+			return (Boolean) Class.forName("jdk.jfr.FlightRecorder").getMethod("isAvailable").invoke(null);
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * @return The <code>jdk.jfr.consumer.RecordedEvent</code>s of the given type in the recording.
+	 */
+	private static List<Object> readEvents(Path recordingFile, String eventName)
+			throws Exception {
+		Method readAllEvents = Class.forName("jdk.jfr.consumer.RecordingFile").getMethod("readAllEvents", Path.class);
+		Method getEventType = Class.forName("jdk.jfr.consumer.RecordedEvent").getMethod("getEventType");
+		Method getName = Class.forName("jdk.jfr.EventType").getMethod("getName");
+		List<Object> events = new ArrayList<>();
+		for (Object event : (List<?>) readAllEvents.invoke(null, recordingFile)) {
+			if (eventName.equals(getName.invoke(getEventType.invoke(event)))) {
+				events.add(event);
+			}
+		}
+		return events;
+	}
+	
+	private static Object getValue(Object recordedEvent, String field)
+			throws Exception {
+		Method getValue = Class.forName("jdk.jfr.consumer.RecordedObject").getMethod("getValue", String.class);
+		return getValue.invoke(recordedEvent, field);
+	}
+}
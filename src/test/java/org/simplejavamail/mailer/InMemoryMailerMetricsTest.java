@@ -0,0 +1,59 @@
+package org.simplejavamail.mailer;
+
+import org.junit.Test;
+import org.simplejavamail.mailer.InMemoryMailerMetrics.Histogram;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryMailerMetricsTest {
+	
+	@Test
+	public void histogram_PercentilesWithinFactorTwo() {
+		InMemoryMailerMetrics metrics = new InMemoryMailerMetrics();
+		for (int i = 1; i <= 1000; i++) {
+			metrics.stageCompleted(MailerMetrics.Stage.SEND_MESSAGE, i);
+		}
+		Histogram histogram = metrics.getStageDurations(MailerMetrics.Stage.SEND_MESSAGE);
+		
+		assertThat(histogram.getCount()).isEqualTo(1000);
+		assertThat(histogram.getMax()).isEqualTo(1000);
+		assertThat(histogram.getMean()).isEqualTo(500.5);
+		assertThat(histogram.getPercentile(50)).isBetween(500L, 1000L);
+		assertThat(histogram.getPercentile(99)).isBetween(990L, 1000L);
+		assertThat(histogram.getPercentile(100)).isEqualTo(1000);
+		assertThat(metrics.getStageDurations(MailerMetrics.Stage.CONNECT).getCount()).isEqualTo(0);
+	}
+	
+	@Test
+	public void histogram_ExtremeValues() {
+		InMemoryMailerMetrics metrics = new InMemoryMailerMetrics();
+		metrics.messageSize(-5);
+		metrics.messageSize(0);
+		metrics.messageSize(Long.MAX_VALUE);
+		
+		assertThat(metrics.getMessageSizes().getPercentile(50)).isEqualTo(0);
+		assertThat(metrics.getMessageSizes().getPercentile(100)).isEqualTo(Long.MAX_VALUE);
+	}
+	
+	@Test
+	public void histogram_Empty() {
+		Histogram histogram = new InMemoryMailerMetrics().getQueueWaits();
+		
+		assertThat(histogram.getMean()).isEqualTo(0.0);
+		assertThat(histogram.getPercentile(99)).isEqualTo(0);
+	}
+	
+	@Test
+	public void sendCompleted_CountsByOutcome() {
+		InMemoryMailerMetrics metrics = new InMemoryMailerMetrics();
+		metrics.sendCompleted(true, 10);
+		metrics.sendCompleted(true, 20);
+		metrics.sendCompleted(false, 30);
+		metrics.poolOccupancy(3, 7);
+		
+		assertThat(metrics.getSentDurations().getCount()).isEqualTo(2);
+		assertThat(metrics.getFailedDurations().getSum()).isEqualTo(30);
+		assertThat(metrics.getActiveSends().getMax()).isEqualTo(3);
+		assertThat(metrics.getQueuedSends().getMax()).isEqualTo(7);
+	}
+}
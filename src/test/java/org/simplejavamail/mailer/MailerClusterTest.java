@@ -0,0 +1,130 @@
+package org.simplejavamail.mailer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.simplejavamail.MailException;
+import org.simplejavamail.email.Email;
+import org.simplejavamail.email.EmailBuilder;
+import testutil.ConfigLoaderTestHelper;
+import testutil.DummyTransport;
+
+import javax.mail.Session;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class MailerClusterTest {
+	
+	private Session sessionA;
+	private Session sessionB;
+	private Mailer mailerA;
+	private Mailer mailerB;
+	
+	@Before
+	public void setup() {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		sessionA = DummyTransport.createSession();
+		sessionB = DummyTransport.createSession();
+		mailerA = MailerBuilder.usingSession(sessionA).buildMailer();
+		mailerB = MailerBuilder.usingSession(sessionB).buildMailer();
+	}
+	
+	@Test
+	public void sendMail_WeightedRoundRobin_SpreadsByWeight() {
+		MailerCluster cluster = MailerCluster.builder().withMailer(mailerA, 2).withMailer(mailerB, 1).build();
+		
+		for (int i = 0; i < 6; i++) {
+			cluster.sendMail(createEmail());
+		}
+		
+		assertThat(Collections.frequency(DummyTransport.SENT_BY, sessionA)).isEqualTo(4);
+		assertThat(Collections.frequency(DummyTransport.SENT_BY, sessionB)).isEqualTo(2);
+		cluster.shutdown();
+	}
+	
+	@Test
+	public void sendMail_ServerDown_FailsOverAndEjects() {
+		DummyTransport.UNREACHABLE_SESSIONS.add(sessionA);
+		MailerCluster cluster = MailerCluster.builder().withMailer(mailerA).withMailer(mailerB).withFailureThreshold(1).build();
+		
+		cluster.sendMail(createEmail());
+		cluster.sendMail(createEmail());
+		
+		assertThat(DummyTransport.SENT_BY).containsExactly(sessionB, sessionB);
+		assertThat(cluster.getHealthyMailers()).containsExactly(mailerB);
+		cluster.shutdown();
+	}
+	
+	@Test
+	public void sendMailAsync_ServerDown_FailsOver()
+			throws Exception {
+		DummyTransport.UNREACHABLE_SESSIONS.add(sessionA);
+		MailerCluster cluster = MailerCluster.builder().withMailer(mailerA).withMailer(mailerB).build();
+		
+		cluster.sendMail(createEmail(), true).getFuture().get(10, TimeUnit.SECONDS);
+		cluster.sendMail(createEmail(), true).getFuture().get(10, TimeUnit.SECONDS);
+		
+		assertThat(DummyTransport.SENT_BY).containsExactly(sessionB, sessionB);
+		assertThat(cluster.getHealthyMailers()).containsExactly(mailerA, mailerB);
+		cluster.shutdown();
+	}
+	
+	@Test
+	public void sendMail_AllServersDown_Throws() {
+		DummyTransport.UNREACHABLE_SESSIONS.add(sessionA);
+		DummyTransport.UNREACHABLE_SESSIONS.add(sessionB);
+		MailerCluster cluster = MailerCluster.builder().withMailer(mailerA).withMailer(mailerB).build();
+		
+		try {
+			cluster.sendMail(createEmail());
+			fail("MailException expected");
+		} catch (MailException e) {
+			assertThat(DummyTransport.SENT_BY).isEmpty();
+		}
+		cluster.shutdown();
+	}
+	
+	@Test
+	public void sendMail_PermanentFailure_NoFailOver() {
+		DummyTransport.FAILURES_TO_SIMULATE.set(1);
+		DummyTransport.FAILURE_REPLY_CODE = 550;
+		MailerCluster cluster = MailerCluster.builder().withMailer(mailerA).withMailer(mailerB).withFailureThreshold(1).build();
+		
+		try {
+			cluster.sendMail(createEmail());
+			fail("MailException expected");
+		} catch (MailException e) {
+			assertThat(DummyTransport.SEND_ATTEMPTS).hasSize(1);
+			assertThat(cluster.getHealthyMailers()).containsExactly(mailerA, mailerB);
+		}
+		cluster.shutdown();
+	}
+	
+	@Test
+	public void ejectedServer_PassesProbe_IsReinstated()
+			throws Exception {
+		DummyTransport.UNREACHABLE_SESSIONS.add(sessionA);
+		MailerCluster cluster = MailerCluster.builder().withMailer(mailerA).withMailer(mailerB)
+				.withFailureThreshold(1)
+				.withProbeInterval(20, TimeUnit.MILLISECONDS)
+				.build();
+		
+		cluster.sendMail(createEmail());
+		assertThat(cluster.getHealthyMailers()).containsExactly(mailerB);
+		
+		DummyTransport.UNREACHABLE_SESSIONS.clear();
+		long deadline = System.currentTimeMillis() + 5000;
+		while (cluster.getHealthyMailers().size() < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(cluster.getHealthyMailers()).containsExactly(mailerA, mailerB);
+		cluster.shutdown();
+	}
+	
+	private static Email createEmail() {
+		return EmailBuilder.startingBlank().from("from@domain.com").to("to@domain.com").withPlainText("text").buildEmail();
+	}
+}
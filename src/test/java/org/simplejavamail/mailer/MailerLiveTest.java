@@ -123,7 +123,7 @@ public class MailerLiveTest {
 		if (originalEmailPopulatingBuilder.getHeaders().get("Message-ID") == null) {
 			originalEmailPopulatingBuilder.withHeader("Message-ID", originalEmail.getId());
 		}
-		// bounce recipient is not part of the Mimemessage, but the Envelope and is configured on the Session, so just ignore this
+		// bounce recipient is not part of the Mimemessage, but the Envelope (MAIL FROM), so just ignore this
 		if (originalEmailPopulatingBuilder.getBounceToRecipient() != null) {
 			originalEmailPopulatingBuilder.clearBounceTo();
 		}
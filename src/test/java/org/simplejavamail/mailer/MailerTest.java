@@ -1,25 +1,53 @@
 package org.simplejavamail.mailer;
 
+import com.sun.mail.smtp.SMTPMessage;
 import org.junit.Before;
 import org.junit.Test;
+import org.simplejavamail.MailException;
 import org.simplejavamail.converter.EmailConverter;
 import org.simplejavamail.email.Email;
+import org.simplejavamail.email.EmailBuilder;
 import org.simplejavamail.email.EmailPopulatingBuilder;
 import org.simplejavamail.mailer.MailerBuilder.MailerRegularBuilder;
+import org.simplejavamail.mailer.config.AsyncQueueOverflowPolicy;
+import org.simplejavamail.mailer.config.RateLimit;
+import org.simplejavamail.mailer.config.RetryPolicy;
 import org.simplejavamail.mailer.config.TransportStrategy;
+import org.simplejavamail.mailer.internal.mailsender.MailerMXBean;
 import org.simplejavamail.util.ConfigLoader;
 import testutil.ConfigLoaderTestHelper;
+import testutil.DummyTransport;
 import testutil.EmailHelper;
 
+import javax.mail.Message;
 import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
 import javax.mail.Session;
 import javax.mail.internet.MimeMessage;
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static javax.xml.bind.DatatypeConverter.parseBase64Binary;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 import static org.simplejavamail.mailer.config.TransportStrategy.SMTPS;
 import static org.simplejavamail.mailer.config.TransportStrategy.SMTP_TLS;
 import static org.simplejavamail.util.ConfigLoader.Property.OPPORTUNISTIC_TLS;
@@ -245,7 +273,7 @@ public class MailerTest {
 		final EmailPopulatingBuilder emailPopulatingBuilderNormal = EmailHelper.createDummyEmailBuilder(true, false, false);
 		
 		// let's try producing and then consuming a MimeMessage ->
-		// (bounce recipient is not part of the Mimemessage, but the Envelope and is configured on the Session, so just ignore this)
+		// (bounce recipient is not part of the Mimemessage, but the Envelope (MAIL FROM), so just ignore this)
 		emailPopulatingBuilderNormal.clearBounceTo();
 		Email emailNormal = emailPopulatingBuilderNormal.buildEmail();
 		final MimeMessage mimeMessage = EmailConverter.emailToMimeMessage(emailNormal);
@@ -254,6 +282,683 @@ public class MailerTest {
 		assertThat(emailFromMimeMessage).isEqualTo(emailNormal);
 	}
 	
+	@Test
+	public void sendMails_OverSingleConnection_WithResultPerEmail() {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession()).buildMailer();
+		Email valid1 = EmailBuilder.startingBlank().from("from@domain.com").to("to1@domain.com").withPlainText("first").buildEmail();
+		Email invalid = EmailBuilder.startingBlank().from("from@domain.com").withPlainText("missing recipient").buildEmail();
+		Email valid2 = EmailBuilder.startingBlank().from("from@domain.com").to("to2@domain.com").withPlainText("second").buildEmail();
+		
+		List<SendResult> results = mailer.sendMails(Arrays.asList(valid1, invalid, valid2));
+		
+		assertThat(results).hasSize(3);
+		assertThat(results.get(0).isSuccess()).isTrue();
+		assertThat(results.get(0).getEmail().getId()).isNotEmpty();
+		assertThat(results.get(1).isSuccess()).isFalse();
+		assertThat(results.get(1).getException()).isInstanceOf(MailerException.class);
+		assertThat(results.get(2).isSuccess()).isTrue();
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(2);
+		assertThat(DummyTransport.CONNECTS.get()).isEqualTo(1);
+	}
+	
+	@Test
+	public void sendMail_ConcurrentCallersAreNotSerialized()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		
+		final int threads = 64;
+		DummyTransport.SEND_BARRIER = new CyclicBarrier(threads);
+		final Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession()).buildMailer();
+		
+		ExecutorService callers = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				final Email email = EmailBuilder.startingBlank().from("from@domain.com").to("to" + i + "@domain.com").withPlainText("text " + i).buildEmail();
+				futures.add(callers.submit(new Runnable() {
+					@Override
+					public void run() {
+						mailer.sendMail(email);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			callers.shutdownNow();
+			DummyTransport.SEND_BARRIER = null;
+		}
+		
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(threads);
+	}
+	
+	@Test
+	public void sendMail_AsyncQueueFull_FailFast()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		DummyTransport.SEND_BARRIER = barrier;
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession())
+				.withThreadPoolSize(1)
+				.withThreadPoolQueueCapacity(1)
+				.withThreadPoolQueueOverflowPolicy(AsyncQueueOverflowPolicy.FAIL_FAST)
+				.buildMailer();
+		
+		try {
+			AsyncResponse sending = mailer.sendMail(createEmail(1), true);
+			awaitSendersWaiting(barrier, 1);
+			AsyncResponse queued = mailer.sendMail(createEmail(2), true);
+			assertThat(mailer.getAsyncQueueDepth()).isEqualTo(1);
+			
+			try {
+				mailer.sendMail(createEmail(3), true);
+				fail("AsyncQueueFullException expected");
+			} catch (AsyncQueueFullException e) {
+				// ok
+			}
+			
+			barrier.await(10, TimeUnit.SECONDS);
+			barrier.await(10, TimeUnit.SECONDS);
+			sending.getFuture().get(10, TimeUnit.SECONDS);
+			queued.getFuture().get(10, TimeUnit.SECONDS);
+		} finally {
+			DummyTransport.SEND_BARRIER = null;
+		}
+		
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(2);
+		assertThat(mailer.getAsyncQueueDepth()).isEqualTo(0);
+	}
+	
+	@Test
+	public void sendMail_AsyncQueueFull_CallerRuns()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		DummyTransport.SEND_BARRIER = barrier;
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession())
+				.withThreadPoolSize(1)
+				.withThreadPoolQueueCapacity(1)
+				.withThreadPoolQueueOverflowPolicy(AsyncQueueOverflowPolicy.CALLER_RUNS)
+				.buildMailer();
+		
+		try {
+			AsyncResponse sending = mailer.sendMail(createEmail(1), true);
+			awaitSendersWaiting(barrier, 1);
+			AsyncResponse queued = mailer.sendMail(createEmail(2), true);
+			DummyTransport.SEND_BARRIER = null;
+			
+			AsyncResponse overflowed = mailer.sendMail(createEmail(3), true);
+			assertThat(overflowed.getFuture().isDone()).isTrue();
+			assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(1);
+			
+			barrier.await(10, TimeUnit.SECONDS);
+			sending.getFuture().get(10, TimeUnit.SECONDS);
+			queued.getFuture().get(10, TimeUnit.SECONDS);
+		} finally {
+			DummyTransport.SEND_BARRIER = null;
+		}
+		
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(3);
+	}
+	
+	@Test
+	public void builder_RejectsInvalidLimits() {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		MailerRegularBuilder builder = MailerBuilder.withSMTPServer("host", 25);
+		
+		try {
+			builder.withThreadPoolQueueCapacity(0);
+			fail("IllegalArgumentException expected for queue capacity");
+		} catch (IllegalArgumentException e) {
+			assertThat(e.getMessage()).isEqualTo("threadPoolQueueCapacity should be at least 1: 0");
+		}
+		try {
+			builder.withMaxConcurrentSendsPerDomain(-1);
+			fail("IllegalArgumentException expected for max concurrent sends per domain");
+		} catch (IllegalArgumentException e) {
+			assertThat(e.getMessage()).isEqualTo("maxConcurrentSendsPerDomain should not be negative: -1");
+		}
+		try {
+			builder.withConnectionPoolSize(-1);
+			fail("IllegalArgumentException expected for connection pool size");
+		} catch (IllegalArgumentException e) {
+			assertThat(e.getMessage()).isEqualTo("connectionPoolSize should not be negative: -1");
+		}
+		try {
+			builder.withMaxRecipientsPerTransaction(-1);
+			fail("IllegalArgumentException expected for max recipients per transaction");
+		} catch (IllegalArgumentException e) {
+			assertThat(e.getMessage()).isEqualTo("maxRecipientsPerTransaction should not be negative: -1");
+		}
+	}
+	
+	@Test
+	public void sendMail_WaitsForRateLimit()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession())
+				.withRateLimit(new RateLimit(2, 20, 1, TimeUnit.SECONDS))
+				.buildMailer();
+		
+		long start = System.nanoTime();
+		for (int i = 0; i < 4; i++) {
+			mailer.sendMail(createEmail(i));
+		}
+		
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(4);
+		// the third and fourth email wait for the bucket to refill (50ms per email)
+		assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+		assertThat(mailer.getRateLimitWaitTime(TimeUnit.MILLISECONDS)).isGreaterThan(0L);
+	}
+	
+	@Test
+	public void sendMail_RetriesTransientFailure_WithSameMimeMessage()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		DummyTransport.FAILURES_TO_SIMULATE.set(2);
+		
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession())
+				.withRetryPolicy(new RetryPolicy(3, 10, 50, TimeUnit.MILLISECONDS))
+				.buildMailer();
+		mailer.sendMail(createEmail(1));
+		
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(1);
+		assertThat(DummyTransport.SEND_ATTEMPTS).hasSize(3);
+		assertThat(DummyTransport.SEND_ATTEMPTS.get(2)).isSameAs(DummyTransport.SEND_ATTEMPTS.get(0));
+	}
+	
+	@Test
+	public void sendMail_DoesNotRetryPermanentFailure()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		DummyTransport.FAILURES_TO_SIMULATE.set(1);
+		DummyTransport.FAILURE_REPLY_CODE = 550;
+		
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession())
+				.withRetryPolicy(new RetryPolicy(3, 10, 50, TimeUnit.MILLISECONDS))
+				.buildMailer();
+		try {
+			mailer.sendMail(createEmail(1));
+			fail("MailException expected");
+		} catch (MailException e) {
+			// ok
+		}
+		
+		assertThat(DummyTransport.SEND_ATTEMPTS).hasSize(1);
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(0);
+	}
+	
+	@Test
+	public void sendMailAsync_RetriesTransientFailure_WithoutHoldingThread()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		DummyTransport.FAILURES_TO_SIMULATE.set(1);
+		
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession())
+				.withThreadPoolSize(1)
+				.withRetryPolicy(new RetryPolicy(2, 1000, 1000, TimeUnit.MILLISECONDS))
+				.buildMailer();
+		AsyncResponse retried = mailer.sendMail(createEmail(1), true);
+		AsyncResponse other = mailer.sendMail(createEmail(2), true);
+		
+		// the single thread isn't waiting for the retry, so the other email goes first
+		other.getFuture().get(10, TimeUnit.SECONDS);
+		assertThat(retried.getFuture().isDone()).isFalse();
+		
+		retried.getFuture().get(10, TimeUnit.SECONDS);
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(2);
+		assertThat(DummyTransport.SEND_ATTEMPTS).hasSize(3);
+	}
+	
+	@Test
+	public void sendMailAsync_RetryIntoFullQueue_IsQueuedRegardlessOfOverflowPolicy()
+			throws Exception {
+		for (AsyncQueueOverflowPolicy overflowPolicy : new AsyncQueueOverflowPolicy[] { AsyncQueueOverflowPolicy.BLOCK, AsyncQueueOverflowPolicy.CALLER_RUNS }) {
+			ConfigLoaderTestHelper.clearConfigProperties();
+			DummyTransport.reset();
+			DummyTransport.FAILURES_TO_SIMULATE.set(1);
+			
+			CyclicBarrier barrier = new CyclicBarrier(2);
+			DummyTransport.SEND_BARRIER = barrier;
+			Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession())
+					.withThreadPoolSize(1)
+					.withThreadPoolQueueCapacity(1)
+					.withThreadPoolQueueOverflowPolicy(overflowPolicy)
+					// long enough for the third email to fill up the queue before the retry is due
+					.withRetryPolicy(new RetryPolicy(2, 500, 500, TimeUnit.MILLISECONDS))
+					.buildMailer();
+			
+			try {
+				AsyncResponse retried = mailer.sendMail(createEmail(1), true);
+				awaitSendersWaiting(barrier, 1);
+				AsyncResponse second = mailer.sendMail(createEmail(2), true);
+				barrier.await(10, TimeUnit.SECONDS); // the first attempt fails and the second email takes the thread
+				awaitSendersWaiting(barrier, 1);
+				AsyncResponse third = mailer.sendMail(createEmail(3), true);
+				
+				// the retry scheduler neither blocks on the full queue nor sends the email itself
+				long deadline = System.currentTimeMillis() + 10_000;
+				while (mailer.getAsyncQueueDepth() < 2) {
+					assertThat(System.currentTimeMillis()).isLessThan(deadline);
+					Thread.sleep(5);
+				}
+				assertThat(DummyTransport.SEND_ATTEMPTS).hasSize(1);
+				
+				DummyTransport.SEND_BARRIER = null;
+				barrier.await(10, TimeUnit.SECONDS);
+				retried.getFuture().get(10, TimeUnit.SECONDS);
+				second.getFuture().get(10, TimeUnit.SECONDS);
+				third.getFuture().get(10, TimeUnit.SECONDS);
+			} finally {
+				DummyTransport.SEND_BARRIER = null;
+			}
+			
+			assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(3);
+			assertThat(mailer.getAsyncQueueDepth()).isEqualTo(0);
+		}
+	}
+	
+	@Test
+	public void sendMailAsync_CancelledBeforeRunning_IsFinished()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		DummyTransport.SEND_BARRIER = barrier;
+		InMemoryMailerMetrics metrics = new InMemoryMailerMetrics();
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession())
+				.withThreadPoolSize(1)
+				.withMetrics(metrics)
+				.buildMailer();
+		
+		try {
+			AsyncResponse sending = mailer.sendMail(createEmail(1), true);
+			awaitSendersWaiting(barrier, 1);
+			AsyncResponse queued = mailer.sendMail(createEmail(2), true);
+			
+			assertThat(queued.getFuture().cancel(false)).isTrue();
+			assertThat(queued.getFuture().isCancelled()).isTrue();
+			
+			barrier.await(10, TimeUnit.SECONDS);
+			sending.getFuture().get(10, TimeUnit.SECONDS);
+		} finally {
+			DummyTransport.SEND_BARRIER = null;
+		}
+		mailer.shutdown();
+		
+		// the cancelled email no longer counts as in progress
+		assertThat(mailer.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(1);
+		assertThat(metrics.getSentDurations().getCount()).isEqualTo(1);
+		assertThat(metrics.getFailedDurations().getCount()).isEqualTo(1);
+	}
+	
+	@Test
+	public void sendMailAsync_CancelledWhileWaitingForRetry_IsNotRetried()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		DummyTransport.FAILURES_TO_SIMULATE.set(1);
+		
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession())
+				.withRetryPolicy(new RetryPolicy(2, 300, 300, TimeUnit.MILLISECONDS))
+				.buildMailer();
+		AsyncResponse retried = mailer.sendMail(createEmail(1), true);
+		while (DummyTransport.SEND_ATTEMPTS.isEmpty()) {
+			Thread.sleep(10);
+		}
+		
+		assertThat(retried.getFuture().cancel(false)).isTrue();
+		mailer.shutdown();
+		assertThat(mailer.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		
+		// well past the backoff
+		Thread.sleep(600);
+		assertThat(DummyTransport.SEND_ATTEMPTS).hasSize(1);
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(0);
+	}
+	
+	@Test
+	public void shutdown_FinishesQueuedEmails_ThenRejectsNewOnes()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession()).withThreadPoolSize(1).buildMailer();
+		for (int i = 0; i < 5; i++) {
+			mailer.sendMail(createEmail(i), true);
+		}
+		mailer.shutdown();
+		
+		assertThat(mailer.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(5);
+		try {
+			mailer.sendMail(createEmail(6), true);
+			fail("MailException expected");
+		} catch (MailException e) {
+			assertThat(e.getMessage()).contains("shut down");
+		}
+	}
+	
+	@Test
+	public void sendMail_UsesCustomExecutorService_WithoutShuttingItDown()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		
+		ExecutorService customExecutor = Executors.newSingleThreadExecutor();
+		try {
+			Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession()).withExecutorService(customExecutor).buildMailer();
+			mailer.sendMail(createEmail(1), true).getFuture().get(10, TimeUnit.SECONDS);
+			mailer.shutdown();
+			
+			assertThat(mailer.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+			assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(1);
+			assertThat(customExecutor.isShutdown()).isFalse();
+		} finally {
+			customExecutor.shutdown();
+		}
+	}
+	
+	@Test
+	public void sendMailAsync_WithDomainLanes_SendsAllEmails()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession())
+				.withThreadPoolSize(2)
+				.withMaxConcurrentSendsPerDomain(1)
+				.buildMailer();
+		List<AsyncResponse> responses = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			String domain = i % 2 == 0 ? "domain.com" : "other.com";
+			responses.add(mailer.sendMail(EmailBuilder.startingBlank().from("from@domain.com").to("to" + i + "@" + domain).withPlainText("text").buildEmail(), true));
+		}
+		for (AsyncResponse response : responses) {
+			response.getFuture().get(10, TimeUnit.SECONDS);
+		}
+		
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(6);
+		assertThat(mailer.getAsyncQueueDepth()).isEqualTo(0);
+	}
+	
+	@Test
+	public void sendMail_ManyRecipients_SentInChunksOfSameMessage()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession()).withMaxRecipientsPerTransaction(10).buildMailer();
+		mailer.sendMail(createEmailWithBccRecipients(25));
+		
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(3);
+		assertThat(DummyTransport.SEND_ATTEMPTS).hasSize(3);
+		String messageId = ((MimeMessage) DummyTransport.SEND_ATTEMPTS.get(0)).getMessageID();
+		assertThat(messageId).isNotNull();
+		for (int i = 1; i < 3; i++) {
+			assertThat(DummyTransport.SEND_ATTEMPTS.get(i)).isNotSameAs(DummyTransport.SEND_ATTEMPTS.get(0));
+			assertThat(((MimeMessage) DummyTransport.SEND_ATTEMPTS.get(i)).getMessageID()).isEqualTo(messageId);
+		}
+	}
+	
+	@Test
+	public void sendMail_FailingRecipientChunk_OtherChunksStillSent() {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		DummyTransport.FAILURES_TO_SIMULATE.set(1);
+		DummyTransport.FAILURE_REPLY_CODE = 550;
+		
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession()).withMaxRecipientsPerTransaction(10).buildMailer();
+		Email email = createEmailWithBccRecipients(25);
+		try {
+			mailer.sendMail(email);
+			fail("PartialSendException expected");
+		} catch (PartialSendException e) {
+			assertThat(e.getCause()).isInstanceOf(SendFailedException.class);
+			SendFailedException cause = (SendFailedException) e.getCause();
+			assertThat(cause.getValidSentAddresses().length + cause.getValidUnsentAddresses().length).isEqualTo(25);
+			assertThat(cause.getValidUnsentAddresses().length).isBetween(5, 10);
+			assertThat(e.getFailedRecipients()).hasSize(cause.getValidUnsentAddresses().length);
+			assertThat(email.getRecipients().containsAll(e.getFailedRecipients())).isTrue();
+		}
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(2);
+	}
+	
+	@Test
+	public void sendMailAsync_FailingRecipientChunk_ReportedPerRecipient()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		DummyTransport.FAILURES_TO_SIMULATE.set(1);
+		DummyTransport.FAILURE_REPLY_CODE = 550;
+		InMemoryMailerMetrics metrics = new InMemoryMailerMetrics();
+		
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession())
+				.withMaxRecipientsPerTransaction(10)
+				.withConnectionPoolSize(1)
+				.withMetrics(metrics)
+				.buildMailer();
+		Email email = createEmailWithBccRecipients(25);
+		try {
+			mailer.sendMail(email, true).getFuture().get(10, TimeUnit.SECONDS);
+			fail("ExecutionException expected");
+		} catch (ExecutionException e) {
+			assertThat(e.getCause()).isInstanceOf(PartialSendException.class);
+			// one after the other over the single pooled connection, so the first chunk is the one that failed
+			assertThat(((PartialSendException) e.getCause()).getFailedRecipients()).isEqualTo(email.getRecipients().subList(0, 10));
+		}
+		// sent, though not to all recipients, so not retried or counted as failed
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(2);
+		assertThat(metrics.getSentDurations().getCount()).isEqualTo(1);
+		assertThat(metrics.getFailedDurations().getCount()).isEqualTo(0);
+	}
+	
+	@Test
+	public void sendMails_ManyRecipients_FailingChunkReportedPerRecipient() {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		DummyTransport.FAILURES_TO_SIMULATE.set(1);
+		DummyTransport.FAILURE_REPLY_CODE = 550;
+		
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession()).withMaxRecipientsPerTransaction(10).buildMailer();
+		Email email = createEmailWithBccRecipients(25);
+		List<SendResult> results = mailer.sendMails(Arrays.asList(email, createEmail(1)));
+		
+		assertThat(results.get(0).isSuccess()).isTrue();
+		assertThat(results.get(0).getException()).isNull();
+		// the chunks are sent in order over the held connection, so the first chunk is the one that failed
+		assertThat(results.get(0).getFailedRecipients()).isEqualTo(email.getRecipients().subList(0, 10));
+		assertThat(results.get(1).isSuccess()).isTrue();
+		assertThat(results.get(1).getFailedRecipients()).isEmpty();
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(3);
+		// one after the other, the chunks share a single rendered copy of the message
+		assertThat(DummyTransport.SEND_ATTEMPTS.get(1)).isSameAs(DummyTransport.SEND_ATTEMPTS.get(0));
+		assertThat(DummyTransport.SEND_ATTEMPTS.get(2)).isSameAs(DummyTransport.SEND_ATTEMPTS.get(0));
+		assertThat(DummyTransport.SEND_ATTEMPTS.get(3)).isNotSameAs(DummyTransport.SEND_ATTEMPTS.get(0));
+	}
+	
+	@Test
+	public void sendMails_ManyRecipients_AllChunksFailing() {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		DummyTransport.FAILURES_TO_SIMULATE.set(3);
+		DummyTransport.FAILURE_REPLY_CODE = 550;
+		
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession()).withMaxRecipientsPerTransaction(10).buildMailer();
+		List<SendResult> results = mailer.sendMails(Arrays.asList(createEmailWithBccRecipients(25)));
+		
+		assertThat(results.get(0).isSuccess()).isFalse();
+		assertThat(results.get(0).getException().getCause()).isInstanceOf(SendFailedException.class);
+		assertThat(results.get(0).getFailedRecipients()).isEqualTo(results.get(0).getEmail().getRecipients());
+		assertThat(DummyTransport.SEND_ATTEMPTS).hasSize(3);
+	}
+	
+	@Test
+	public void sendMailAsync_DifferentBounceAddresses_SetPerMessage()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		
+		Session session = DummyTransport.createSession();
+		Mailer mailer = MailerBuilder.usingSession(session).withThreadPoolSize(4).buildMailer();
+		List<AsyncResponse> responses = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			responses.add(mailer.sendMail(EmailBuilder.startingBlank()
+					.from("from@domain.com")
+					.to("to" + i + "@domain.com")
+					.withBounceTo("Bounce " + i, "bounce" + i + "@domain.com")
+					.withSubject(String.valueOf(i))
+					.withPlainText("text")
+					.buildEmail(), true));
+		}
+		for (AsyncResponse response : responses) {
+			response.getFuture().get(10, TimeUnit.SECONDS);
+		}
+		
+		assertThat(DummyTransport.SEND_ATTEMPTS).hasSize(8);
+		for (Message message : DummyTransport.SEND_ATTEMPTS) {
+			assertThat(((SMTPMessage) message).getEnvelopeFrom()).isEqualTo("bounce" + message.getSubject() + "@domain.com");
+		}
+		assertThat(session.getProperty("mail.smtp.from")).isNull();
+	}
+	
+	@Test
+	public void sendMail_WithMetrics_ReportsEveryStage()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		
+		InMemoryMailerMetrics metrics = new InMemoryMailerMetrics();
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession())
+				.withMetrics(metrics)
+				// one message per 200ms, so the second email waits for the rate limit
+				.withRateLimit(new RateLimit(1, 1, 200, TimeUnit.MILLISECONDS))
+				.buildMailer();
+		mailer.sendMail(createEmail(1));
+		mailer.sendMail(createEmail(2), true).getFuture().get(10, TimeUnit.SECONDS);
+		try {
+			mailer.sendMail(EmailBuilder.startingBlank().from("from@domain.com").withPlainText("no recipients").buildEmail());
+			fail("MailException expected");
+		} catch (MailException e) {
+			// expected
+		}
+		
+		assertThat(metrics.getStageDurations(MailerMetrics.Stage.VALIDATION).getCount()).isEqualTo(3);
+		for (MailerMetrics.Stage stage : EnumSet.range(MailerMetrics.Stage.MIME_PRODUCTION, MailerMetrics.Stage.CLOSE)) {
+			assertThat(metrics.getStageDurations(stage).getCount()).as(stage.name()).isEqualTo(2);
+		}
+		assertThat(metrics.getStageDurations(MailerMetrics.Stage.RATE_LIMIT_WAIT).getMax()).isGreaterThan(TimeUnit.MILLISECONDS.toNanos(50));
+		assertThat(metrics.getStageDurations(MailerMetrics.Stage.RATE_LIMIT_WAIT).getSum()).isEqualTo(mailer.getRateLimitWaitTime(TimeUnit.NANOSECONDS));
+		assertThat(metrics.getMessageSizes().getCount()).isEqualTo(2);
+		assertThat(metrics.getMessageSizes().getMax()).isGreaterThan(100);
+		assertThat(metrics.getQueueWaits().getCount()).isEqualTo(1);
+		assertThat(metrics.getActiveSends().getMax()).isEqualTo(1);
+		assertThat(metrics.getSentDurations().getCount()).isEqualTo(2);
+		assertThat(metrics.getFailedDurations().getCount()).isEqualTo(1);
+	}
+	
+	@Test
+	public void sendMail_WithDiagnosticCapture_CapturesSample()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		
+		File captureDirectory = Files.createTempDirectory("capture").toFile();
+		try {
+			Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession())
+					.withDiagnosticCaptureDirectory(captureDirectory)
+					.withDiagnosticCaptureSampleRate(2)
+					.buildMailer();
+			for (int i = 0; i < 5; i++) {
+				mailer.sendMail(createEmail(i));
+			}
+			
+			File[] captured = captureDirectory.listFiles();
+			assertThat(captured).hasSize(3);
+			Arrays.sort(captured);
+			assertThat(captured[0].getName()).startsWith("00000000-").endsWith(".eml");
+			assertThat(captured[2].getName()).startsWith("00000004-");
+			MimeMessage capturedMessage = EmailConverter.emlToMimeMessage(new String(Files.readAllBytes(captured[0].toPath()), "UTF-8"));
+			assertThat(capturedMessage.getMessageID()).isEqualTo(DummyTransport.SEND_ATTEMPTS.get(0).getHeader("Message-ID")[0]);
+		} finally {
+			for (File file : captureDirectory.listFiles()) {
+				//noinspection ResultOfMethodCallIgnored
+				file.delete();
+			}
+			//noinspection ResultOfMethodCallIgnored
+			captureDirectory.delete();
+		}
+	}
+	
+	@Test
+	public void sendMail_WithJmx_ExposesStateAndPausesSending()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession()).withJmxEnabled(true).buildMailer();
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		Set<ObjectName> names = mBeanServer.queryNames(new ObjectName("org.simplejavamail:type=Mailer,*"), null);
+		assertThat(names).hasSize(1);
+		MailerMXBean mbean = JMX.newMXBeanProxy(mBeanServer, names.iterator().next(), MailerMXBean.class);
+		
+		mailer.sendMail(createEmail(1));
+		assertThat(mbean.getSentCount()).isEqualTo(1);
+		assertThat(mbean.getSentLastMinute()).isEqualTo(1);
+		
+		mbean.pauseSending();
+		AsyncResponse response = mailer.sendMail(createEmail(2), true);
+		assertThat(mbean.drainQueue(200)).isFalse();
+		assertThat(response.getFuture().isDone()).isFalse();
+		assertThat(mbean.getSendsInProgress()).isEqualTo(1);
+		
+		mbean.resumeSending();
+		assertThat(mbean.drainQueue(10_000)).isTrue();
+		assertThat(mbean.getSentCount()).isEqualTo(2);
+		assertThat(mbean.getFailedCount()).isEqualTo(0);
+		
+		mailer.shutdown();
+		assertThat(mailer.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(mBeanServer.queryNames(new ObjectName("org.simplejavamail:type=Mailer,*"), null)).isEmpty();
+	}
+	
+	private static Email createEmailWithBccRecipients(int count) {
+		EmailPopulatingBuilder builder = EmailBuilder.startingBlank().from("from@domain.com").withPlainText("text");
+		for (int i = 0; i < count; i++) {
+			builder.bcc("to" + i + "@domain.com");
+		}
+		return builder.buildEmail();
+	}
+	
+	private static Email createEmail(int i) {
+		return EmailBuilder.startingBlank().from("from@domain.com").to("to" + i + "@domain.com").withPlainText("text " + i).buildEmail();
+	}
+	
+	private static void awaitSendersWaiting(CyclicBarrier barrier, int senders)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (barrier.getNumberWaiting() < senders) {
+			assertThat(System.currentTimeMillis()).isLessThan(deadline);
+			Thread.sleep(5);
+		}
+	}
+	
 	private Mailer createFullyConfiguredMailer(boolean authenticateProxy, String prefix, TransportStrategy transportStrategy) {
 		MailerRegularBuilder mailerBuilder = MailerBuilder
 				.withSMTPServer(prefix + "smtp host", 25, prefix + "username smtp", prefix + "password smtp")
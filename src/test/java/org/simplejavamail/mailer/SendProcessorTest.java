@@ -0,0 +1,248 @@
+package org.simplejavamail.mailer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.simplejavamail.email.Email;
+import org.simplejavamail.email.EmailBuilder;
+import testutil.ConfigLoaderTestHelper;
+import testutil.DummyTransport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SendProcessorTest {
+	
+	@Before
+	public void setup() {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+	}
+	
+	@Test
+	public void allEmailsSent_OneResultPerEmail()
+			throws Exception {
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession()).withThreadPoolSize(2).buildMailer();
+		EmailPublisher publisher = new EmailPublisher(createEmails(20));
+		ResultSubscriber subscriber = new ResultSubscriber(Long.MAX_VALUE);
+		
+		SendProcessor processor = mailer.createSendProcessor();
+		processor.subscribe(subscriber);
+		publisher.subscribe(processor);
+		
+		assertThat(subscriber.completed.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(subscriber.results).hasSize(20);
+		for (SendResult result : subscriber.results) {
+			assertThat(result.isSuccess()).isTrue();
+		}
+		assertThat(subscriber.error).isNull();
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(20);
+		assertThat(publisher.maxOutstanding.get()).isLessThanOrEqualTo(2);
+	}
+	
+	@Test
+	public void noDownstreamDemand_NoMoreEmailsRequestedThanInFlightLimit()
+			throws Exception {
+		CyclicBarrier barrier = new CyclicBarrier(3);
+		DummyTransport.SEND_BARRIER = barrier;
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession()).withThreadPoolSize(2).buildMailer();
+		EmailPublisher publisher = new EmailPublisher(createEmails(10));
+		ResultSubscriber subscriber = new ResultSubscriber(0);
+		
+		SendProcessor processor = mailer.createSendProcessor();
+		processor.subscribe(subscriber);
+		publisher.subscribe(processor);
+		
+		barrier.await(10, TimeUnit.SECONDS); // both emails are being sent at the same time
+		DummyTransport.SEND_BARRIER = null;
+		awaitMessagesSent(2);
+		assertThat(publisher.requested.get()).isEqualTo(2);
+		assertThat(subscriber.results).isEmpty();
+		
+		subscriber.subscription.request(1);
+		awaitMessagesSent(3);
+		assertThat(subscriber.results).hasSize(1);
+		assertThat(publisher.requested.get()).isEqualTo(3);
+		
+		subscriber.subscription.request(Long.MAX_VALUE);
+		assertThat(subscriber.completed.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(subscriber.results).hasSize(10);
+	}
+	
+	@Test
+	public void invalidEmail_PublishedAsFailedResult()
+			throws Exception {
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession()).buildMailer();
+		Email invalid = EmailBuilder.startingBlank().from("from@domain.com").withPlainText("no recipients").buildEmail();
+		EmailPublisher publisher = new EmailPublisher(Collections.singletonList(invalid));
+		ResultSubscriber subscriber = new ResultSubscriber(Long.MAX_VALUE);
+		
+		SendProcessor processor = mailer.createSendProcessor();
+		processor.subscribe(subscriber);
+		publisher.subscribe(processor);
+		
+		assertThat(subscriber.completed.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(subscriber.results).hasSize(1);
+		assertThat(subscriber.results.get(0).isSuccess()).isFalse();
+		assertThat(subscriber.results.get(0).getException()).isInstanceOf(MailerException.class);
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(0);
+	}
+	
+	@Test
+	public void secondSubscriber_RejectedWithoutAffectingFirst()
+			throws Exception {
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession()).withThreadPoolSize(2).buildMailer();
+		EmailPublisher publisher = new EmailPublisher(createEmails(5));
+		ResultSubscriber first = new ResultSubscriber(0);
+		final AtomicReference<Throwable> secondError = new AtomicReference<>();
+		// requests invalidly and cancels on error, as subscribers routinely do
+		Flow.Subscriber<SendResult> second = new Flow.Subscriber<SendResult>() {
+			private Flow.Subscription subscription;
+			
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				this.subscription = subscription;
+				subscription.request(-1);
+			}
+			
+			@Override
+			public void onNext(SendResult item) {
+			}
+			
+			@Override
+			public void onError(Throwable throwable) {
+				secondError.set(throwable);
+				subscription.cancel();
+			}
+			
+			@Override
+			public void onComplete() {
+			}
+		};
+		
+		SendProcessor processor = mailer.createSendProcessor();
+		processor.subscribe(first);
+		processor.subscribe(second);
+		publisher.subscribe(processor);
+		first.subscription.request(Long.MAX_VALUE);
+		
+		assertThat(secondError.get()).isInstanceOf(IllegalStateException.class);
+		assertThat(first.completed.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(first.error).isNull();
+		assertThat(first.results).hasSize(5);
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(5);
+	}
+	
+	private static void awaitMessagesSent(int count)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (DummyTransport.MESSAGES_SENT.get() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Thread.sleep(50); // allow the results to arrive at the processor
+	}
+	
+	private static List<Email> createEmails(int count) {
+		List<Email> emails = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			emails.add(EmailBuilder.startingBlank().from("from@domain.com").to("to" + i + "@domain.com").withPlainText("text " + i).buildEmail());
+		}
+		return emails;
+	}
+	
+	/**
+	 * Emits emails only as requested, keeping track of how many were requested but not yet emitted.
+	 */
+	private static class EmailPublisher implements Flow.Publisher<Email> {
+		private final Iterator<Email> emails;
+		private final AtomicLong requested = new AtomicLong();
+		private final AtomicLong emitted = new AtomicLong();
+		private final AtomicLong maxOutstanding = new AtomicLong();
+		private final AtomicInteger workInProgress = new AtomicInteger();
+		
+		EmailPublisher(List<Email> emails) {
+			this.emails = emails.iterator();
+		}
+		
+		@Override
+		public void subscribe(final Flow.Subscriber<? super Email> subscriber) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void request(long n) {
+					long outstanding = requested.addAndGet(n) - emitted.get();
+					if (outstanding > maxOutstanding.get()) {
+						maxOutstanding.set(outstanding);
+					}
+					emit(subscriber);
+				}
+				
+				@Override
+				public void cancel() {
+				}
+			});
+		}
+		
+		private void emit(Flow.Subscriber<? super Email> subscriber) {
+			if (workInProgress.getAndIncrement() != 0) {
+				return;
+			}
+			do {
+				synchronized (emails) {
+					while (emitted.get() < requested.get() && emails.hasNext()) {
+						emitted.incrementAndGet();
+						subscriber.onNext(emails.next());
+					}
+					if (!emails.hasNext()) {
+						subscriber.onComplete();
+						return;
+					}
+				}
+			} while (workInProgress.decrementAndGet() != 0);
+		}
+	}
+	
+	private static class ResultSubscriber implements Flow.Subscriber<SendResult> {
+		private final long initialRequest;
+		private final List<SendResult> results = Collections.synchronizedList(new ArrayList<SendResult>());
+		private final CountDownLatch completed = new CountDownLatch(1);
+		private volatile Flow.Subscription subscription;
+		private volatile Throwable error;
+		
+		ResultSubscriber(long initialRequest) {
+			this.initialRequest = initialRequest;
+		}
+		
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			if (initialRequest > 0) {
+				subscription.request(initialRequest);
+			}
+		}
+		
+		@Override
+		public void onNext(SendResult item) {
+			results.add(item);
+		}
+		
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+			completed.countDown();
+		}
+		
+		@Override
+		public void onComplete() {
+			completed.countDown();
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package org.simplejavamail.mailer.internal.mailsender;
+
+import org.junit.Test;
+import org.simplejavamail.mailer.AsyncResponse;
+import org.simplejavamail.mailer.AsyncResponse.ExceptionConsumer;
+import org.simplejavamail.mailer.AsyncResponses;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class AsyncResponseImplTest {
+	
+	@Test
+	public void onSuccess_RegisteredAfterCompletion_IsInvokedOnce() {
+		AsyncResponseImpl response = new AsyncResponseImpl();
+		AtomicInteger invocations = new AtomicInteger();
+		
+		response.complete();
+		response.onSuccess(countingRunnable(invocations));
+		response.onSuccess(countingRunnable(invocations));
+		response.complete();
+		
+		assertThat(invocations.get()).isEqualTo(2);
+		assertThat(response.getFuture().isDone()).isTrue();
+	}
+	
+	@Test
+	public void onSuccess_RegisteredBeforeCompletion_IsInvokedOnce() {
+		AsyncResponseImpl response = new AsyncResponseImpl();
+		AtomicInteger invocations = new AtomicInteger();
+		
+		response.onSuccess(countingRunnable(invocations));
+		assertThat(invocations.get()).isEqualTo(0);
+		response.complete();
+		response.completeExceptionally(new RuntimeException("too late"));
+		
+		assertThat(invocations.get()).isEqualTo(1);
+	}
+	
+	@Test
+	public void onException_InvokedWithFailure_AndFutureThrowsExecutionException()
+			throws Exception {
+		AsyncResponseImpl response = new AsyncResponseImpl();
+		final List<Exception> failures = new ArrayList<>();
+		AtomicInteger successes = new AtomicInteger();
+		RuntimeException failure = new RuntimeException("failed");
+		
+		response.onSuccess(countingRunnable(successes));
+		response.onException(new ExceptionConsumer() {
+			@Override
+			public void accept(Exception e) {
+				failures.add(e);
+			}
+		});
+		response.completeExceptionally(failure);
+		
+		assertThat(successes.get()).isEqualTo(0);
+		assertThat(failures).containsExactly(failure);
+		try {
+			response.getFuture().get(1, TimeUnit.SECONDS);
+			fail("ExecutionException expected");
+		} catch (ExecutionException e) {
+			assertThat(e.getCause()).isSameAs(failure);
+		}
+	}
+	
+	@Test
+	public void failingHandler_DoesNotPreventOtherHandlers() {
+		AsyncResponseImpl response = new AsyncResponseImpl();
+		AtomicInteger invocations = new AtomicInteger();
+		
+		response.onSuccess(new Runnable() {
+			@Override
+			public void run() {
+				throw new IllegalStateException("handler failure");
+			}
+		});
+		response.onSuccess(countingRunnable(invocations));
+		response.complete();
+		
+		assertThat(invocations.get()).isEqualTo(1);
+	}
+	
+	@Test
+	public void cancel_InvokesCancelHandler_BeforeCompleting() {
+		final AsyncResponseImpl response = new AsyncResponseImpl();
+		final List<Boolean> doneWhenHandled = new ArrayList<>();
+		response.setTask(new FutureTask<>(new Runnable() {
+			@Override
+			public void run() {
+			}
+		}, null));
+		response.setCancelHandler(new Runnable() {
+			@Override
+			public void run() {
+				doneWhenHandled.add(response.getFuture().isDone());
+			}
+		});
+		
+		assertThat(response.getFuture().cancel(false)).isTrue();
+		assertThat(response.getFuture().cancel(false)).isFalse();
+		
+		assertThat(doneWhenHandled).containsExactly(false);
+		assertThat(response.getFuture().isCancelled()).isTrue();
+	}
+	
+	@Test
+	public void cancel_FinishedTask_DoesNothing() {
+		AsyncResponseImpl response = new AsyncResponseImpl();
+		AtomicInteger cancelled = new AtomicInteger();
+		FutureTask<Void> task = new FutureTask<>(countingRunnable(new AtomicInteger()), null);
+		task.run();
+		response.setTask(task);
+		response.setCancelHandler(countingRunnable(cancelled));
+		
+		assertThat(response.getFuture().cancel(true)).isFalse();
+		assertThat(cancelled.get()).isEqualTo(0);
+		assertThat(response.getFuture().isDone()).isFalse();
+	}
+	
+	@Test
+	public void allOf_CompletesWhenAllResponsesCompleted()
+			throws Exception {
+		AsyncResponseImpl first = new AsyncResponseImpl();
+		AsyncResponseImpl second = new AsyncResponseImpl();
+		AsyncResponse combined = AsyncResponses.allOf(Arrays.asList(first, second));
+		
+		first.complete();
+		assertThat(combined.getFuture().isDone()).isFalse();
+		second.complete();
+		
+		assertThat(combined.getFuture().isDone()).isTrue();
+		combined.getFuture().get();
+	}
+	
+	@Test
+	public void allOf_FailsWithFirstFailure_OnlyAfterAllResponsesCompleted() {
+		AsyncResponseImpl first = new AsyncResponseImpl();
+		AsyncResponseImpl second = new AsyncResponseImpl();
+		AsyncResponse combined = AsyncResponses.allOf(Arrays.asList(first, second));
+		RuntimeException failure = new RuntimeException("failed");
+		
+		first.completeExceptionally(failure);
+		assertThat(combined.getFuture().isDone()).isFalse();
+		second.completeExceptionally(new RuntimeException("also failed"));
+		
+		try {
+			combined.getFuture().get();
+			fail("ExecutionException expected");
+		} catch (Exception e) {
+			assertThat(e).isInstanceOf(ExecutionException.class);
+			assertThat(e.getCause()).isSameAs(failure);
+		}
+	}
+	
+	@Test
+	public void allOf_EmptyIsCompletedRightAway() {
+		assertThat(AsyncResponses.allOf(new ArrayList<AsyncResponse>()).getFuture().isDone()).isTrue();
+	}
+	
+	private static Runnable countingRunnable(final AtomicInteger invocations) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				invocations.incrementAndGet();
+			}
+		};
+	}
+}
@@ -0,0 +1,142 @@
+package org.simplejavamail.mailer.internal.mailsender;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.simplejavamail.mailer.AsyncQueueFullException;
+import org.simplejavamail.mailer.config.AsyncQueueOverflowPolicy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class ConcurrencyLimitingExecutorTest {
+	
+	private ExecutorService threadPerTaskExecutor;
+	
+	@Before
+	public void setup() {
+		// stands in for the virtual thread per task executor, which isn't available on every runtime
+		threadPerTaskExecutor = Executors.newCachedThreadPool();
+	}
+	
+	@After
+	public void teardown() {
+		threadPerTaskExecutor.shutdownNow();
+	}
+	
+	@Test
+	public void execute_RunsNoMoreThanMaxConcurrentTasks()
+			throws Exception {
+		ConcurrencyLimitingExecutor executor = new ConcurrencyLimitingExecutor(threadPerTaskExecutor, 2, 10, AsyncQueueOverflowPolicy.BLOCK);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		
+		for (int i = 0; i < 5; i++) {
+			executor.execute(blockingTask(release, running, maxRunning));
+		}
+		awaitQueueDepth(executor, 3);
+		assertThat(running.get()).isEqualTo(2);
+		
+		release.countDown();
+		executor.shutdown();
+		assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(maxRunning.get()).isEqualTo(2);
+		assertThat(executor.getQueueDepth()).isEqualTo(0);
+	}
+	
+	@Test
+	public void execute_FailFastWhenQueueIsFull()
+			throws Exception {
+		ConcurrencyLimitingExecutor executor = new ConcurrencyLimitingExecutor(threadPerTaskExecutor, 1, 1, AsyncQueueOverflowPolicy.FAIL_FAST);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger running = new AtomicInteger();
+		
+		executor.execute(blockingTask(release, running, new AtomicInteger()));
+		executor.execute(blockingTask(release, running, new AtomicInteger()));
+		try {
+			executor.execute(blockingTask(release, running, new AtomicInteger()));
+			fail("AsyncQueueFullException expected");
+		} catch (AsyncQueueFullException e) {
+			// ok
+		} finally {
+			release.countDown();
+		}
+	}
+	
+	@Test
+	public void execute_CallerRunsWhenQueueIsFull() {
+		ConcurrencyLimitingExecutor executor = new ConcurrencyLimitingExecutor(threadPerTaskExecutor, 1, 0, AsyncQueueOverflowPolicy.CALLER_RUNS);
+		CountDownLatch release = new CountDownLatch(1);
+		final Thread caller = Thread.currentThread();
+		final AtomicInteger ranInCaller = new AtomicInteger();
+		
+		try {
+			executor.execute(blockingTask(release, new AtomicInteger(), new AtomicInteger()));
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					if (Thread.currentThread() == caller) {
+						ranInCaller.incrementAndGet();
+					}
+				}
+			});
+		} finally {
+			release.countDown();
+		}
+		assertThat(ranInCaller.get()).isEqualTo(1);
+	}
+	
+	@Test
+	public void resubmit_QueuedRegardlessOfCapacity()
+			throws Exception {
+		ConcurrencyLimitingExecutor executor = new ConcurrencyLimitingExecutor(threadPerTaskExecutor, 1, 1, AsyncQueueOverflowPolicy.FAIL_FAST);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		
+		executor.execute(blockingTask(release, running, maxRunning));
+		executor.execute(blockingTask(release, running, maxRunning));
+		executor.resubmit(blockingTask(release, running, maxRunning));
+		awaitQueueDepth(executor, 2);
+		
+		release.countDown();
+		executor.shutdown();
+		assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(maxRunning.get()).isEqualTo(1);
+	}
+	
+	private static Runnable blockingTask(final CountDownLatch release, final AtomicInteger running, final AtomicInteger maxRunning) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				int nowRunning = running.incrementAndGet();
+				synchronized (maxRunning) {
+					maxRunning.set(Math.max(maxRunning.get(), nowRunning));
+				}
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					running.decrementAndGet();
+				}
+			}
+		};
+	}
+	
+	private static void awaitQueueDepth(ConcurrencyLimitingExecutor executor, int depth)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (executor.getQueueDepth() < depth) {
+			assertThat(System.currentTimeMillis()).isLessThan(deadline);
+			Thread.sleep(5);
+		}
+	}
+}
@@ -2,6 +2,8 @@ package org.simplejavamail.mailer.internal.mailsender;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.simplejavamail.mailer.config.AsyncQueueOverflowPolicy;
+import org.simplejavamail.mailer.config.RateLimit;
 
 import javax.annotation.Nonnull;
 import javax.mail.Session;
@@ -69,6 +71,6 @@ public class MailSenderTest {
 	
 	@Nonnull
 	private OperationalConfig createDummyOperationalConfig(List<String> hostsToTrust, boolean trustAllSSLHost) {
-		return new OperationalConfig(new Properties(), 0, 0, false, false, hostsToTrust, trustAllSSLHost);
+		return new OperationalConfig(new Properties(), 0, 0, 0, AsyncQueueOverflowPolicy.BLOCK, 0, false, null, 0, 0, 0, 0, 0, Collections.<RateLimit>emptyList(), null, null, null, false, null, 1, 0, null, 1, false, false, hostsToTrust, trustAllSSLHost);
 	}
 }
\ No newline at end of file
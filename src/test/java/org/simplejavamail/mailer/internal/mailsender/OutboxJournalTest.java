@@ -0,0 +1,259 @@
+package org.simplejavamail.mailer.internal.mailsender;
+
+import com.sun.mail.smtp.SMTPMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.simplejavamail.email.Email;
+import org.simplejavamail.email.EmailBuilder;
+import org.simplejavamail.mailer.Mailer;
+import org.simplejavamail.mailer.MailerBuilder;
+import org.simplejavamail.mailer.config.AsyncQueueOverflowPolicy;
+import testutil.ConfigLoaderTestHelper;
+import testutil.DummyTransport;
+
+import javax.mail.internet.MimeMessage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.simplejavamail.converter.EmailConverter.emailToMimeMessage;
+
+public class OutboxJournalTest {
+	
+	private File directory;
+	
+	@Before
+	public void setup()
+			throws IOException {
+		directory = Files.createTempDirectory("outbox").toFile();
+	}
+	
+	@After
+	public void cleanup() {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				//noinspection ResultOfMethodCallIgnored
+				file.delete();
+			}
+		}
+		//noinspection ResultOfMethodCallIgnored
+		directory.delete();
+	}
+	
+	@Test
+	public void unfinishedEntries_RecoveredAfterReopening()
+			throws Exception {
+		OutboxJournal journal = new OutboxJournal(directory, OutboxJournal.DEFAULT_MAX_SEGMENT_BYTES);
+		long sent = journal.append(null, "sent".getBytes("UTF-8"));
+		long unsent1 = journal.append("bounce@domain.com", "unsent 1".getBytes("UTF-8"));
+		long unsent2 = journal.append(null, "unsent 2".getBytes("UTF-8"));
+		journal.markDone(sent);
+		journal.close();
+		
+		OutboxJournal reopened = new OutboxJournal(directory, OutboxJournal.DEFAULT_MAX_SEGMENT_BYTES);
+		List<OutboxJournal.Entry> entries = reopened.takeUnfinishedEntries();
+		assertThat(entries).hasSize(2);
+		assertThat(entries.get(0).id).isEqualTo(unsent1);
+		assertThat(new String(entries.get(0).content, "UTF-8")).isEqualTo("unsent 1");
+		assertThat(entries.get(0).envelopeFrom).isEqualTo("bounce@domain.com");
+		assertThat(entries.get(1).id).isEqualTo(unsent2);
+		assertThat(entries.get(1).envelopeFrom).isNull();
+		assertThat(reopened.append(null, new byte[0])).isGreaterThan(unsent2);
+		reopened.close();
+	}
+	
+	@Test
+	public void incompleteRecordAtTheEnd_Ignored()
+			throws Exception {
+		OutboxJournal journal = new OutboxJournal(directory, OutboxJournal.DEFAULT_MAX_SEGMENT_BYTES);
+		journal.append(null, "complete".getBytes("UTF-8"));
+		journal.append(null, "incomplete".getBytes("UTF-8"));
+		journal.close();
+		
+		// simulate the JVM stopping halfway through writing the last record
+		File segment = directory.listFiles()[0];
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+			file.setLength(file.length() - 5);
+		}
+		
+		OutboxJournal reopened = new OutboxJournal(directory, OutboxJournal.DEFAULT_MAX_SEGMENT_BYTES);
+		List<OutboxJournal.Entry> entries = reopened.takeUnfinishedEntries();
+		assertThat(entries).hasSize(1);
+		assertThat(new String(entries.get(0).content, "UTF-8")).isEqualTo("complete");
+		reopened.close();
+	}
+	
+	@Test
+	public void finishedSegments_Deleted()
+			throws Exception {
+		OutboxJournal journal = new OutboxJournal(directory, 100);
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			ids.add(journal.append(null, new byte[50]));
+		}
+		assertThat(directory.listFiles().length).isGreaterThan(1);
+		
+		for (Long id : ids) {
+			journal.markDone(id);
+		}
+		assertThat(directory.listFiles()).hasSize(1);
+		journal.close();
+		
+		OutboxJournal reopened = new OutboxJournal(directory, 100);
+		assertThat(reopened.takeUnfinishedEntries()).isEmpty();
+		reopened.close();
+	}
+	
+	@Test
+	public void concurrentAppends_AllDurable()
+			throws Exception {
+		final OutboxJournal journal = new OutboxJournal(directory, OutboxJournal.DEFAULT_MAX_SEGMENT_BYTES);
+		ExecutorService threads = Executors.newFixedThreadPool(16);
+		try {
+			List<Future<Long>> futures = new ArrayList<>();
+			for (int i = 0; i < 500; i++) {
+				final byte[] content = ("email " + i).getBytes("UTF-8");
+				futures.add(threads.submit(new Callable<Long>() {
+					@Override
+					public Long call()
+							throws Exception {
+						return journal.append(null, content);
+					}
+				}));
+			}
+			for (Future<Long> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			threads.shutdownNow();
+		}
+		journal.close();
+		
+		OutboxJournal reopened = new OutboxJournal(directory, OutboxJournal.DEFAULT_MAX_SEGMENT_BYTES);
+		assertThat(reopened.takeUnfinishedEntries()).hasSize(500);
+		reopened.close();
+	}
+	
+	@Test
+	public void mailer_ResendsUnfinishedEmails_OnStartup()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		
+		Email email = EmailBuilder.startingBlank().from("from@domain.com").to("to@domain.com").bcc("bcc@domain.com").withPlainText("text").buildEmail();
+		MimeMessage message = emailToMimeMessage(email);
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		message.writeTo(content);
+		OutboxJournal journal = new OutboxJournal(directory, OutboxJournal.DEFAULT_MAX_SEGMENT_BYTES);
+		journal.append("bounce@domain.com", content.toByteArray());
+		journal.close();
+		
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession()).withOutboxDirectory(directory).buildMailer();
+		mailer.shutdown();
+		assertThat(mailer.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(1);
+		assertThat(DummyTransport.SEND_ATTEMPTS.get(0).getAllRecipients()).hasSize(2);
+		assertThat(((SMTPMessage) DummyTransport.SEND_ATTEMPTS.get(0)).getEnvelopeFrom()).isEqualTo("bounce@domain.com");
+		OutboxJournal reopened = new OutboxJournal(directory, OutboxJournal.DEFAULT_MAX_SEGMENT_BYTES);
+		assertThat(reopened.takeUnfinishedEntries()).isEmpty();
+		reopened.close();
+	}
+	
+	@Test
+	public void mailer_JournalsAsyncEmails_UntilSent()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession()).withOutboxDirectory(directory).buildMailer();
+		for (int i = 0; i < 20; i++) {
+			mailer.sendMail(EmailBuilder.startingBlank().from("from@domain.com").to("to" + i + "@domain.com").withPlainText("text").buildEmail(), true);
+		}
+		mailer.shutdown();
+		assertThat(mailer.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(20);
+		OutboxJournal reopened = new OutboxJournal(directory, OutboxJournal.DEFAULT_MAX_SEGMENT_BYTES);
+		assertThat(reopened.takeUnfinishedEntries()).isEmpty();
+		reopened.close();
+	}
+	
+	@Test
+	public void mailer_ResendsUnfinishedEmails_RegardlessOfQueueCapacity()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		for (AsyncQueueOverflowPolicy policy : AsyncQueueOverflowPolicy.values()) {
+			DummyTransport.reset();
+			writeUnfinishedEmails(5);
+			// holds every send until released below, so the queue stays full while the Mailer is being built
+			CyclicBarrier barrier = new CyclicBarrier(2);
+			DummyTransport.SEND_BARRIER = barrier;
+			
+			Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession())
+					.withOutboxDirectory(directory)
+					.withThreadPoolSize(1)
+					.withThreadPoolQueueCapacity(1)
+					.withThreadPoolQueueOverflowPolicy(policy)
+					.buildMailer();
+			assertThat(DummyTransport.MESSAGES_SENT.get()).as(policy.name()).isEqualTo(0);
+			for (int i = 0; i < 5; i++) {
+				barrier.await(10, TimeUnit.SECONDS);
+			}
+			mailer.shutdown();
+			assertThat(mailer.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+			
+			assertThat(DummyTransport.MESSAGES_SENT.get()).as(policy.name()).isEqualTo(5);
+			OutboxJournal reopened = new OutboxJournal(directory, OutboxJournal.DEFAULT_MAX_SEGMENT_BYTES);
+			assertThat(reopened.takeUnfinishedEntries()).isEmpty();
+			reopened.close();
+		}
+	}
+	
+	@Test
+	public void mailer_LeavesUnfinishedEmailsInOutbox_WhenTheyCantBeQueued()
+			throws Exception {
+		ConfigLoaderTestHelper.clearConfigProperties();
+		DummyTransport.reset();
+		writeUnfinishedEmails(3);
+		ExecutorService rejectingExecutor = Executors.newSingleThreadExecutor();
+		rejectingExecutor.shutdown();
+		
+		Mailer mailer = MailerBuilder.usingSession(DummyTransport.createSession())
+				.withOutboxDirectory(directory)
+				.withExecutorService(rejectingExecutor)
+				.buildMailer();
+		mailer.shutdown();
+		assertThat(mailer.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(0);
+		OutboxJournal reopened = new OutboxJournal(directory, OutboxJournal.DEFAULT_MAX_SEGMENT_BYTES);
+		assertThat(reopened.takeUnfinishedEntries()).hasSize(3);
+		reopened.close();
+	}
+	
+	private void writeUnfinishedEmails(int count)
+			throws Exception {
+		OutboxJournal journal = new OutboxJournal(directory, OutboxJournal.DEFAULT_MAX_SEGMENT_BYTES);
+		for (int i = 0; i < count; i++) {
+			Email email = EmailBuilder.startingBlank().from("from@domain.com").to("to" + i + "@domain.com").withPlainText("text").buildEmail();
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			emailToMimeMessage(email).writeTo(content);
+			journal.append(null, content.toByteArray());
+		}
+		journal.close();
+	}
+}
@@ -0,0 +1,81 @@
+package org.simplejavamail.mailer.internal.mailsender;
+
+import org.junit.Test;
+import org.simplejavamail.mailer.config.RateLimit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimiterTest {
+	
+	@Test
+	public void acquire_BurstWithoutWaiting_ThenAtRefillRate()
+			throws Exception {
+		RateLimiter rateLimiter = new RateLimiter(Collections.singletonList(new RateLimit(3, 20, 1, TimeUnit.SECONDS)));
+		
+		for (int i = 0; i < 3; i++) {
+			assertThat(rateLimiter.acquire()).isLessThanOrEqualTo(0L);
+		}
+		long waitedNanos = rateLimiter.acquire();
+		assertThat(waitedNanos).isGreaterThan(TimeUnit.MILLISECONDS.toNanos(20)); // minus the time passed since creating the limiter
+		assertThat(waitedNanos).isLessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+		assertThat(rateLimiter.getWaitTimeNanos()).isEqualTo(waitedNanos);
+	}
+	
+	@Test
+	public void acquire_ConcurrentThreadsShareTheBucket()
+			throws Exception {
+		final RateLimiter rateLimiter = new RateLimiter(Collections.singletonList(new RateLimit(1, 100, 1, TimeUnit.SECONDS)));
+		
+		ExecutorService threads = Executors.newFixedThreadPool(10);
+		long start = System.nanoTime();
+		try {
+			List<Future<Long>> futures = new ArrayList<>();
+			for (int i = 0; i < 20; i++) {
+				futures.add(threads.submit(new Callable<Long>() {
+					@Override
+					public Long call()
+							throws Exception {
+						return rateLimiter.acquire();
+					}
+				}));
+			}
+			for (Future<Long> future : futures) {
+				future.get(10, TimeUnit.SECONDS);
+			}
+		} finally {
+			threads.shutdownNow();
+		}
+		
+		// the first token is free, the other 19 take 10ms each
+		assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(190));
+	}
+	
+	@Test
+	public void acquire_AllLimitsApply()
+			throws Exception {
+		RateLimiter rateLimiter = new RateLimiter(Arrays.asList(
+				new RateLimit(10, 1000, 1, TimeUnit.SECONDS),
+				new RateLimit(1, 20, 1, TimeUnit.SECONDS)));
+		
+		rateLimiter.acquire();
+		assertThat(rateLimiter.acquire()).isGreaterThan(TimeUnit.MILLISECONDS.toNanos(20));
+	}
+	
+	@Test
+	public void noLimits_Disabled()
+			throws Exception {
+		RateLimiter rateLimiter = new RateLimiter(Collections.<RateLimit>emptyList());
+		assertThat(rateLimiter.isEnabled()).isFalse();
+		assertThat(rateLimiter.acquire()).isEqualTo(0L);
+	}
+}
@@ -0,0 +1,81 @@
+package org.simplejavamail.mailer.internal.mailsender;
+
+import com.sun.mail.smtp.SMTPSendFailedException;
+import org.junit.Test;
+
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.internet.InternetAddress;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class RecipientChunksTest {
+	
+	@Test
+	public void split_IntoChunksOfMaxSize()
+			throws Exception {
+		List<Address[]> chunks = RecipientChunks.split(createAddresses(7), 3);
+		
+		assertThat(chunks).hasSize(3);
+		assertThat(chunks.get(0)).containsExactly(createAddresses(7)[0], createAddresses(7)[1], createAddresses(7)[2]);
+		assertThat(chunks.get(2)).containsExactly(createAddresses(7)[6]);
+	}
+	
+	@Test
+	public void sendInParallel_AllChunksSent()
+			throws Exception {
+		final Set<Address> sent = Collections.synchronizedSet(new HashSet<Address>());
+		
+		RecipientChunks.sendInParallel(RecipientChunks.split(createAddresses(10), 2), 3, new RecipientChunks.ChunkSender() {
+			@Override
+			public void send(Address[] chunk) {
+				for (Address address : chunk) {
+					sent.add(address);
+				}
+			}
+		});
+		
+		assertThat(sent).hasSize(10);
+	}
+	
+	@Test
+	public void sendInParallel_FailingChunk_ReportedPerRecipient()
+			throws Exception {
+		final Address[] addresses = createAddresses(6);
+		
+		try {
+			RecipientChunks.sendInParallel(RecipientChunks.split(addresses, 2), 2, new RecipientChunks.ChunkSender() {
+				@Override
+				public void send(Address[] chunk)
+						throws MessagingException {
+					if (chunk[0].equals(addresses[2])) {
+						throw new SMTPSendFailedException("DATA", 452, "452 too many recipients", null, null, chunk, null);
+					} else if (chunk[0].equals(addresses[4])) {
+						throw new SendFailedException("invalid address", null, new Address[] { addresses[5] }, null, new Address[] { addresses[4] });
+					}
+				}
+			});
+			fail("SendFailedException expected");
+		} catch (SendFailedException e) {
+			assertThat(e.getValidSentAddresses()).containsExactly(addresses[0], addresses[1], addresses[5]);
+			assertThat(e.getValidUnsentAddresses()).containsExactly(addresses[2], addresses[3]);
+			assertThat(e.getInvalidAddresses()).containsExactly(addresses[4]);
+			assertThat(e.getNextException()).isInstanceOf(SMTPSendFailedException.class);
+		}
+	}
+	
+	private static Address[] createAddresses(int count)
+			throws Exception {
+		Address[] addresses = new Address[count];
+		for (int i = 0; i < count; i++) {
+			addresses[i] = new InternetAddress("to" + i + "@domain.com");
+		}
+		return addresses;
+	}
+}
@@ -0,0 +1,204 @@
+package org.simplejavamail.mailer.internal.mailsender;
+
+import org.junit.After;
+import org.junit.Test;
+import org.simplejavamail.email.EmailBuilder;
+import org.simplejavamail.mailer.AsyncQueueFullException;
+import org.simplejavamail.mailer.config.AsyncQueueOverflowPolicy;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class SendLanesTest {
+	
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+	
+	@After
+	public void shutdownExecutor() {
+		executor.shutdownNow();
+	}
+	
+	@Test
+	public void slowLane_DoesNotHoldUpOtherLanes()
+			throws Exception {
+		SendLanes sendLanes = new SendLanes(executor, 4, 1, 100, AsyncQueueOverflowPolicy.FAIL_FAST);
+		final CountDownLatch slowDomainResponds = new CountDownLatch(1);
+		final AtomicInteger slowSendsRunning = new AtomicInteger();
+		final AtomicInteger maxSlowSendsRunning = new AtomicInteger();
+		
+		for (int i = 0; i < 5; i++) {
+			sendLanes.submit("slow.com", new Runnable() {
+				@Override
+				public void run() {
+					int running = slowSendsRunning.incrementAndGet();
+					maxSlowSendsRunning.set(Math.max(maxSlowSendsRunning.get(), running));
+					awaitQuietly(slowDomainResponds);
+					slowSendsRunning.decrementAndGet();
+				}
+			});
+		}
+		final CountDownLatch fastSent = new CountDownLatch(1);
+		sendLanes.submit("fast.com", new Runnable() {
+			@Override
+			public void run() {
+				fastSent.countDown();
+			}
+		});
+		
+		assertThat(fastSent.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(sendLanes.getQueueDepth()).isEqualTo(4);
+		slowDomainResponds.countDown();
+		awaitQueueDrained(sendLanes);
+		assertThat(maxSlowSendsRunning.get()).isEqualTo(1);
+	}
+	
+	@Test
+	public void lanesTakeTurns()
+			throws Exception {
+		SendLanes sendLanes = new SendLanes(executor, 1, 1, 100, AsyncQueueOverflowPolicy.FAIL_FAST);
+		final CountDownLatch gate = new CountDownLatch(1);
+		final List<String> sent = new CopyOnWriteArrayList<>();
+		
+		sendLanes.submit("gate.com", new Runnable() {
+			@Override
+			public void run() {
+				awaitQuietly(gate);
+			}
+		});
+		for (String send : new String[] { "a1", "a2", "a3", "b1", "b2" }) {
+			sendLanes.submit(send.substring(0, 1) + ".com", recordingSend(sent, send));
+		}
+		gate.countDown();
+		
+		awaitQueueDrained(sendLanes);
+		executor.shutdown();
+		assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(sent).containsExactly("a1", "b1", "a2", "b2", "a3");
+	}
+	
+	@Test
+	public void lanesFull_OverflowPolicyApplies()
+			throws Exception {
+		SendLanes sendLanes = new SendLanes(executor, 4, 1, 1, AsyncQueueOverflowPolicy.FAIL_FAST);
+		final CountDownLatch gate = new CountDownLatch(1);
+		final CountDownLatch running = new CountDownLatch(1);
+		
+		sendLanes.submit("domain.com", new Runnable() {
+			@Override
+			public void run() {
+				running.countDown();
+				awaitQuietly(gate);
+			}
+		});
+		assertThat(running.await(10, TimeUnit.SECONDS)).isTrue();
+		sendLanes.submit("domain.com", recordingSend(new CopyOnWriteArrayList<String>(), "waiting"));
+		
+		try {
+			sendLanes.submit("other.com", recordingSend(new CopyOnWriteArrayList<String>(), "rejected"));
+			fail("AsyncQueueFullException expected");
+		} catch (AsyncQueueFullException e) {
+			// expected
+		}
+		sendLanes.resubmit("other.com", recordingSend(new CopyOnWriteArrayList<String>(), "retry"));
+		assertThat(sendLanes.getQueueDepth()).isLessThanOrEqualTo(2);
+		gate.countDown();
+		awaitQueueDrained(sendLanes);
+	}
+	
+	@Test
+	public void executorRejectsWorker_LaneWithRunningSendsLeftConsistent()
+			throws Exception {
+		ExecutorService shuttingDownExecutor = Executors.newFixedThreadPool(3);
+		SendLanes sendLanes = new SendLanes(shuttingDownExecutor, 3, 3, 100, AsyncQueueOverflowPolicy.FAIL_FAST);
+		final CountDownLatch firstGate = new CountDownLatch(1);
+		final CountDownLatch secondGate = new CountDownLatch(1);
+		final CountDownLatch running = new CountDownLatch(2);
+		final CountDownLatch firstDone = new CountDownLatch(1);
+		
+		sendLanes.submit("domain.com", new Runnable() {
+			@Override
+			public void run() {
+				running.countDown();
+				awaitQuietly(firstGate);
+				firstDone.countDown();
+			}
+		});
+		sendLanes.submit("domain.com", new Runnable() {
+			@Override
+			public void run() {
+				running.countDown();
+				awaitQuietly(secondGate);
+			}
+		});
+		assertThat(running.await(10, TimeUnit.SECONDS)).isTrue();
+		shuttingDownExecutor.shutdown();
+		final List<String> sent = new CopyOnWriteArrayList<>();
+		try {
+			// the lane can run another send, but the executor rejects the worker for it
+			sendLanes.submit("domain.com", recordingSend(sent, "rejected"));
+			fail("RejectedExecutionException expected");
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+		assertThat(sendLanes.getQueueDepth()).isEqualTo(0);
+		
+		// with the other send still running, the lane is kept, but the first worker must find nothing left to take in it
+		firstGate.countDown();
+		assertThat(firstDone.await(10, TimeUnit.SECONDS)).isTrue();
+		// give the first worker the time to take its next turn
+		Thread.sleep(100);
+		assertThat(sendLanes.getQueueDepth()).isEqualTo(0);
+		secondGate.countDown();
+		assertThat(shuttingDownExecutor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(sendLanes.getQueueDepth()).isEqualTo(0);
+		assertThat(sent).isEmpty();
+	}
+	
+	@Test
+	public void determineLane_ByRecipientDomains() {
+		assertThat(SendLanes.determineLane(EmailBuilder.startingBlank()
+				.to("a@Domain.com")
+				.cc("b@domain.com")
+				.buildEmail())).isEqualTo("domain.com");
+		assertThat(SendLanes.determineLane(EmailBuilder.startingBlank()
+				.to("a@z.com")
+				.bcc("b@y.com")
+				.cc("c@z.com")
+				.buildEmail())).isEqualTo("y.com,z.com");
+	}
+	
+	private static Runnable recordingSend(final List<String> sent, final String name) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				sent.add(name);
+			}
+		};
+	}
+	
+	private static void awaitQuietly(final CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private static void awaitQueueDrained(final SendLanes sendLanes)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (sendLanes.getQueueDepth() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertThat(sendLanes.getQueueDepth()).isEqualTo(0);
+	}
+}
@@ -0,0 +1,74 @@
+package org.simplejavamail.mailer.internal.mailsender;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import org.junit.Test;
+import org.simplejavamail.mailer.config.RetryPolicy;
+
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.internet.InternetAddress;
+import java.net.SocketTimeoutException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SmtpFailureClassifierTest {
+	
+	@Test
+	public void isTransient_4xxReply()
+			throws Exception {
+		assertThat(SmtpFailureClassifier.isTransient(sendFailed(421))).isTrue();
+		assertThat(SmtpFailureClassifier.isTransient(sendFailed(451))).isTrue();
+		assertThat(SmtpFailureClassifier.isTransient(new MessagingException("454 4.7.0 TLS not available due to local problem"))).isTrue();
+	}
+	
+	@Test
+	public void isNotTransient_5xxReply()
+			throws Exception {
+		assertThat(SmtpFailureClassifier.isTransient(sendFailed(550))).isFalse();
+		assertThat(SmtpFailureClassifier.isTransient(new MessagingException("535 5.7.8 Authentication credentials invalid"))).isFalse();
+	}
+	
+	@Test
+	public void isNotTransient_AnyRecipientPermanentlyRejected()
+			throws Exception {
+		SendFailedException invalidAddresses = new SendFailedException("Invalid Addresses");
+		invalidAddresses.setNextException(new SMTPAddressFailedException(new InternetAddress("a@domain.com"), "RCPT", 450, "450 mailbox busy"));
+		invalidAddresses.setNextException(new SMTPAddressFailedException(new InternetAddress("b@domain.com"), "RCPT", 550, "550 no such user"));
+		
+		assertThat(SmtpFailureClassifier.isTransient(invalidAddresses)).isFalse();
+	}
+	
+	@Test
+	public void isNotTransient_AlreadySentToSomeRecipients()
+			throws Exception {
+		Address[] sent = { new InternetAddress("a@domain.com") };
+		SMTPSendFailedException partiallySent = new SMTPSendFailedException("DATA", 451, "451 try again", null, sent, null, null);
+		
+		assertThat(SmtpFailureClassifier.isTransient(partiallySent)).isFalse();
+	}
+	
+	@Test
+	public void isTransient_ConnectionFailure() {
+		assertThat(SmtpFailureClassifier.isTransient(new MessagingException("Exception reading response", new SocketTimeoutException()))).isTrue();
+		assertThat(SmtpFailureClassifier.isTransient(new MessagingException("something else entirely"))).isFalse();
+	}
+	
+	@Test
+	public void retryPolicy_ExponentialBackoffWithJitter_Capped() {
+		RetryPolicy retryPolicy = new RetryPolicy(10, 100, 1000, TimeUnit.MILLISECONDS);
+		Random random = new Random(42);
+		
+		assertThat(retryPolicy.getBackoffMillis(1, random)).isBetween(50L, 100L);
+		assertThat(retryPolicy.getBackoffMillis(2, random)).isBetween(100L, 200L);
+		assertThat(retryPolicy.getBackoffMillis(3, random)).isBetween(200L, 400L);
+		assertThat(retryPolicy.getBackoffMillis(10, random)).isBetween(500L, 1000L);
+	}
+	
+	private static SMTPSendFailedException sendFailed(int replyCode) {
+		return new SMTPSendFailedException("DATA", replyCode, replyCode + " some reply", null, null, null, null);
+	}
+}
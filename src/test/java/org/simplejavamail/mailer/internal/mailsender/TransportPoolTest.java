@@ -0,0 +1,123 @@
+package org.simplejavamail.mailer.internal.mailsender;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.simplejavamail.mailer.internal.mailsender.TransportPool.PooledTransport;
+import testutil.DummyTransport;
+
+import javax.mail.Address;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransportPoolTest {
+
+	private Session session;
+
+	@Before
+	public void setup() {
+		DummyTransport.reset();
+		session = DummyTransport.createSession();
+	}
+
+	@Test
+	public void claim_ReusesReleasedTransport()
+			throws Exception {
+		TransportPool pool = new TransportPool(session, 2, 60_000, 100);
+
+		PooledTransport first = pool.claim();
+		pool.release(first, true);
+		assertThat(pool.getIdleTransportCount()).isEqualTo(1);
+
+		PooledTransport second = pool.claim();
+		assertThat(second).isSameAs(first);
+		assertThat(DummyTransport.CONNECTS.get()).isEqualTo(1);
+		assertThat(pool.getIdleTransportCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void release_ClosesTransportThatIsNotReusable()
+			throws Exception {
+		TransportPool pool = new TransportPool(session, 2, 60_000, 100);
+
+		pool.release(pool.claim(), false);
+
+		assertThat(pool.getIdleTransportCount()).isEqualTo(0);
+		assertThat(DummyTransport.CLOSES.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void release_KeepsNoMoreThanMaxIdleTransports()
+			throws Exception {
+		TransportPool pool = new TransportPool(session, 2, 60_000, 100);
+
+		PooledTransport a = pool.claim();
+		PooledTransport b = pool.claim();
+		PooledTransport c = pool.claim();
+		pool.release(a, true);
+		pool.release(b, true);
+		pool.release(c, true);
+
+		assertThat(DummyTransport.CONNECTS.get()).isEqualTo(3);
+		assertThat(pool.getIdleTransportCount()).isEqualTo(2);
+		assertThat(DummyTransport.CLOSES.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void release_PoolSizeZeroDisablesPooling()
+			throws Exception {
+		TransportPool pool = new TransportPool(session, 0, 60_000, 100);
+
+		pool.release(pool.claim(), true);
+		pool.release(pool.claim(), true);
+
+		assertThat(DummyTransport.CONNECTS.get()).isEqualTo(2);
+		assertThat(DummyTransport.CLOSES.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void release_ClosesTransportAfterMaxMessages()
+			throws Exception {
+		TransportPool pool = new TransportPool(session, 2, 60_000, 2);
+		MimeMessage message = new MimeMessage(session);
+
+		for (int i = 0; i < 3; i++) {
+			PooledTransport transport = pool.claim();
+			transport.sendMessage(message, new Address[0]);
+			pool.release(transport, true);
+		}
+
+		assertThat(DummyTransport.MESSAGES_SENT.get()).isEqualTo(3);
+		assertThat(DummyTransport.CONNECTS.get()).isEqualTo(2);
+		assertThat(DummyTransport.CLOSES.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void claim_SkipsTransportsIdleLongerThanTimeout()
+			throws Exception {
+		TransportPool pool = new TransportPool(session, 2, 1, 100);
+
+		pool.release(pool.claim(), true);
+		Thread.sleep(20);
+		pool.claim();
+
+		assertThat(DummyTransport.CONNECTS.get()).isEqualTo(2);
+		assertThat(DummyTransport.CLOSES.get()).isGreaterThanOrEqualTo(1);
+	}
+
+	@Test
+	public void clear_ClosesAllIdleTransports()
+			throws Exception {
+		TransportPool pool = new TransportPool(session, 2, 60_000, 100);
+
+		PooledTransport a = pool.claim();
+		PooledTransport b = pool.claim();
+		pool.release(a, true);
+		pool.release(b, true);
+		pool.clear();
+
+		assertThat(pool.getIdleTransportCount()).isEqualTo(0);
+		assertThat(DummyTransport.CLOSES.get()).isEqualTo(2);
+	}
+}
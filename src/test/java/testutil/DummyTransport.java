@@ -0,0 +1,138 @@
+package testutil;
+
+import com.sun.mail.smtp.SMTPSendFailedException;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Provider;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.URLName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory {@link Transport} that doesn't connect anywhere, but counts connects, sent messages and closes so tests can verify how transports are
+ * being used.
+ */
+public class DummyTransport extends Transport {
+	
+	public static final AtomicInteger CONNECTS = new AtomicInteger();
+	public static final AtomicInteger MESSAGES_SENT = new AtomicInteger();
+	public static final AtomicInteger CLOSES = new AtomicInteger();
+	
+	/**
+	 * When set, every send waits for the barrier to trip, which only happens if the configured number of sends are in progress simultaneously.
+	 */
+	public static volatile CyclicBarrier SEND_BARRIER;
+	
+	/**
+	 * The number of upcoming sends that fail with {@link #FAILURE_REPLY_CODE}, as an SMTP server rejecting the message would.
+	 */
+	public static final AtomicInteger FAILURES_TO_SIMULATE = new AtomicInteger();
+	public static volatile int FAILURE_REPLY_CODE = 451;
+	
+	/**
+	 * The messages as they were passed to each send attempt, including failed ones.
+	 */
+	public static final List<Message> SEND_ATTEMPTS = new CopyOnWriteArrayList<>();
+	
+	/**
+	 * Connecting with a transport from any of these Sessions fails, as if the server were down.
+	 */
+	public static final Set<Session> UNREACHABLE_SESSIONS = new CopyOnWriteArraySet<>();
+	
+	/**
+	 * The Session of the transport that sent each successfully sent message.
+	 */
+	public static final List<Session> SENT_BY = new CopyOnWriteArrayList<>();
+	
+	public DummyTransport(final Session session, final URLName urlname) {
+		super(session, urlname);
+	}
+	
+	/**
+	 * @return A new Session which produces {@link DummyTransport} instances for {@link Session#getTransport()}.
+	 */
+	public static Session createSession() {
+		final Properties properties = new Properties();
+		properties.setProperty("mail.transport.protocol", "dummy");
+		final Session session = Session.getInstance(properties);
+		session.addProvider(new Provider(Provider.Type.TRANSPORT, "dummy", DummyTransport.class.getName(), "Simple Java Mail", "test"));
+		return session;
+	}
+	
+	public static void reset() {
+		CONNECTS.set(0);
+		MESSAGES_SENT.set(0);
+		CLOSES.set(0);
+		SEND_BARRIER = null;
+		FAILURES_TO_SIMULATE.set(0);
+		FAILURE_REPLY_CODE = 451;
+		SEND_ATTEMPTS.clear();
+		UNREACHABLE_SESSIONS.clear();
+		SENT_BY.clear();
+	}
+	
+	@Override
+	protected boolean protocolConnect(final String host, final int port, final String user, final String password)
+			throws MessagingException {
+		if (UNREACHABLE_SESSIONS.contains(session)) {
+			throw new MessagingException("simulated unreachable server", new ConnectException("Connection refused"));
+		}
+		CONNECTS.incrementAndGet();
+		return true;
+	}
+	
+	@Override
+	public void sendMessage(final Message message, final Address[] addresses)
+			throws MessagingException {
+		final CyclicBarrier barrier = SEND_BARRIER;
+		if (barrier != null) {
+			try {
+				barrier.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+				throw new MessagingException("sends were not concurrent", e);
+			}
+		}
+		SEND_ATTEMPTS.add(message);
+		if (FAILURES_TO_SIMULATE.getAndDecrement() > 0) {
+			final String reply = FAILURE_REPLY_CODE + " simulated failure";
+			throw new SMTPSendFailedException("DATA", FAILURE_REPLY_CODE, reply, null, null, addresses, null);
+		}
+		// like a real transport, write the message out, just not anywhere
+		try {
+			message.writeTo(new OutputStream() {
+				@Override
+				public void write(final int b) {
+				}
+				
+				@Override
+				public void write(final byte[] b, final int off, final int len) {
+				}
+			});
+		} catch (final IOException e) {
+			throw new MessagingException("unable to write message", e);
+		}
+		MESSAGES_SENT.incrementAndGet();
+		SENT_BY.add(session);
+	}
+	
+	@Override
+	public synchronized void close() {
+		CLOSES.incrementAndGet();
+		setConnected(false);
+	}
+}